@@ -13,13 +13,20 @@ import jade.core.behaviours.SequentialBehaviour;
 import models.Parameters;
 import models.Period;
 import models.ADMMDataModel;
+import models.ADMMSettings;
+import models.CheckpointStore;
 import models.Electrolyzer;
+import models.MappedIterationHistory;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -27,11 +34,15 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import com.gurobi.gurobi.GRBEnv;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBModel;
+import messages.LocalTransport;
+import messages.PhoneBook;
+import solvers.SolverEnvironmentManager;
 
 public class ADMMAgent extends Agent {
 
     private static final long serialVersionUID = 1L;
 
+    private GRBEnv env; // One Gurobi environment per agent, shared by all block models
     private GRBModel model; // Instanzvariable für das GRBModel
     private Parameters parameters;
     private ADMMDataModel dataModel;
@@ -42,6 +53,11 @@ public class ADMMAgent extends Agent {
     private int maxIterations;
     private Set<Integer> electrolyzerIds;
     private AID amsAgentAID;  // Dynamische AID des AMSAgents
+    private int startIteration = 0; // > 0: Beitritt während eines laufenden SWO
+    private CheckpointStore checkpointStore; // nur bei CHECKPOINT_RESUME
+    private List<Integer> checkpointIterations = new ArrayList<>();
+    private CheckpointStore.Checkpoint resumeCheckpoint; // neuester Checkpoint, Zuordnung für die Registrierung
+    private int resumeIteration = -1;
 
     @SuppressWarnings("unchecked")
     @Override
@@ -74,8 +90,8 @@ public class ADMMAgent extends Agent {
                 }
             }
         } else {
-            doDelete();
-            return;
+            // Ohne Perioden nur als später beitretender Agent: die Zuordnung kommt mit dem Telefonbuch
+            System.out.println("Keine Perioden für " + getLocalName() + " gesetzt, erwarte Zuordnung vom AMSAgent.");
         }
 
         
@@ -102,11 +118,20 @@ public class ADMMAgent extends Agent {
             return;
         }
 
+        // Vorhandene Checkpoints für die Wiederaufnahme eines abgebrochenen Laufs suchen
+        if (ADMMSettings.isCheckpointResume()) {
+            findCheckpoints();
+        }
+
+        // Co-located agents exchange the cycle messages without ACL encoding
+        if (ADMMSettings.useLocalTransport()) {
+            LocalTransport.register(this, ADMMSettings.getLocalTransportCapacity());
+        }
+
         try {
             // Initialisiere das Gurobi Solver
-            GRBEnv env = new GRBEnv(true);
-            env.set("logFile", "gurobi.log");
-            env.start();
+            // Umgebung mit Thread-Budget und eigener Logdatei je Agent
+            env = SolverEnvironmentManager.acquire(getLocalName());
             model = new GRBModel(env);
         } catch (GRBException e) {
             e.printStackTrace();
@@ -167,8 +192,24 @@ public class ADMMAgent extends Agent {
             amsAgentAID.addAddresses("http://" + amsAgentHost + ":" + amsAgentHttpPort + "/acc");
         	
             // Sende die Registrierung an den AMSAgent mit Host- und Portinformationen
+            // sowie den eigenen Elektrolyseuren und Perioden (Grundlage der Neuverteilung)
             ACLMessage registerMsg = new ACLMessage(ACLMessage.INFORM);
-            String content = "register:" + agentHost + "," + agentHttpPort;
+            StringBuilder ids = new StringBuilder();
+            for (int id : new TreeSet<>(electrolyzerIds)) {
+                ids.append(ids.length() > 0 ? " " : "").append(id);
+            }
+            StringBuilder periods = new StringBuilder();
+            for (Period period : dataModel.getAssignedPeriods()) {
+                periods.append(periods.length() > 0 ? " " : "").append(period.getT());
+            }
+            String content = "register:" + agentHost + "," + agentHttpPort + ";" + ids + ";" + periods;
+            if (!checkpointIterations.isEmpty()) {
+                StringBuilder checkpoints = new StringBuilder();
+                for (int k : checkpointIterations) {
+                    checkpoints.append(checkpoints.length() > 0 ? " " : "").append(k);
+                }
+                content += ";" + checkpoints;
+            }
             registerMsg.setContent(content);
             registerMsg.addReceiver(amsAgentAID);
             send(registerMsg);
@@ -186,40 +227,43 @@ public class ADMMAgent extends Agent {
         @Override
         public void action() {
             ACLMessage msg = receive();
-            if (msg != null && msg.getContent().startsWith("phoneBook:")) {
+            if (msg != null && PhoneBook.isPhoneBook(msg)) {
                 System.out.println("Initialisiere Telefonbuch für Agent: " + myAgent.getLocalName());
-                String[] agentsInfo = msg.getContent().substring("phoneBook:".length()).split(";");
+                PhoneBook phoneBook = PhoneBook.parse(msg.getContent());
 
                 // Füge die AIDs und Adressen in das Telefonbuch des ADMMAgenten ein
-                for (String agentInfo : agentsInfo) {
-                    // Aufteilen in Name und Adresse anhand des Kommas
-                    String[] parts = agentInfo.split(",");
-                    if (parts.length == 2) {
-                        String agentName = parts[0].trim();
-                        String address = parts[1].trim();
-
-                        System.out.println("AgentName im Telefonbuch: " + agentName);
-                        System.out.println("Adresse im Telefonbuch: " + address);
-
-                        // Extrahiere Host und Port aus der Adresse
-                        String host = address.replaceAll("http://|/acc", "").split(":")[0];
-                        String port = address.replaceAll("http://|/acc", "").split(":")[1];
-
-                        // Erstelle den vollständigen Namen und die Adresse im gewünschten Format
-                        String fullAgentName = agentName + "@" + host + ":1099/JADE";
-                        String fullAddress = "http://" + host + ":" + port + "/acc";
-
-                        // Erstelle und füge AID zum Telefonbuch hinzu
-                        AID agentAID = new AID(fullAgentName, AID.ISGUID);
-                        agentAID.addAddresses(fullAddress);
-                        dataModel.addAID2PhoneBook(agentAID);
+                dataModel.setPhoneBook(new ArrayList<>(phoneBook.getAIDs()));
+                dataModel.setPhoneBookVersion(phoneBook.getVersion());
+                totalNumberADMMAgents = phoneBook.size();
+
+                // Zuordnung des AMSAgents übernehmen, falls vorhanden
+                Set<Integer> assignedIds = phoneBook.getElectrolyzerIds(getLocalName());
+                Set<Integer> assignedPeriods = phoneBook.getPeriods(getLocalName());
+                if (assignedIds != null && assignedPeriods != null) {
+                    electrolyzerIds = new HashSet<>(assignedIds);
+                    Set<Period> periods = new HashSet<>();
+                    for (int t : assignedPeriods) {
+                        periods.add(new Period(t));
                     }
+                    dataModel.setAssignedPeriods(periods);
                 }
+                if (dataModel.getAssignedPeriods().isEmpty()) {
+                    System.out.println("Fehler: Keine Perioden für " + getLocalName() + " zugeordnet.");
+                    doDelete();
+                    return;
+                }
+
+                // Später beigetretene Agenten starten in der Iteration, ab der das Telefonbuch gilt
+                startIteration = phoneBook.getIteration();
+                resumeIteration = phoneBook.getResumeIteration();
 
-                System.out.println("Telefonbuch für " + getLocalName() + " erhalten: " + dataModel.getPhoneBook());
+                System.out.println("Telefonbuch Version " + phoneBook.getVersion() + " für " + getLocalName() + " erhalten: " + dataModel.getPhoneBook());
 
                 // Markiere das Telefonbuch als empfangen
                 phoneBookReceived = true;
+            } else if (msg != null) {
+                // Nachrichten, die vor dem Telefonbuch ankommen (z. B. der Zustand für einen beitretenden Agenten), für das SWO aufheben
+                dataModel.getMailbox().accept(msg);
             } else {
                 block();
             }
@@ -250,16 +294,41 @@ public class ADMMAgent extends Agent {
                     parameters = dataModel.getParameters();
                     int numPeriods = parameters.getPeriods().size();
 
-                    dataModel.initializeAllIterations(maxIterations + 1, numPeriods);
+                    // Mit ITERATION_WINDOW nur die letzten Iterationen im Speicher halten
+                    int iterationWindow = ADMMSettings.getIterationWindow();
+                    if (iterationWindow > 0) {
+                        // Ältere Iterationen mit HISTORY_DIR in die speicherabgebildete History
+                        if (dataModel.getHistorySink() == null) {
+                            dataModel.setHistorySink(MappedIterationHistory.fromSettings(getLocalName()));
+                        }
+                        dataModel.initializeIterationWindow(iterationWindow, numPeriods);
+                    } else {
+                        dataModel.initializeAllIterations(maxIterations + 1, numPeriods);
+                    }
                     dataModel.setMaxIterations(maxIterations);
 
                     if (parameters != null) {
-                        iteration = 0;
+                        iteration = startIteration;
                         
                         dataModel.setAllElectrolyzers(parameters.getElectrolyzers());
 
+                        // Wiederaufnahme: Zustand der gemeinsamen Checkpoint-Iteration laden
+                        boolean resumed = false;
+                        if (resumeIteration >= 0) {
+                            if (!restoreCheckpoint(resumeIteration, numPeriods)) {
+                                doDelete();
+                                return super.onEnd();
+                            }
+                            iteration = resumeIteration + 1;
+                            resumed = true;
+                        }
+
                         // Starte den ADMM Zyklus und übergebe die maximale Anzahl der Iterationen
-                        addBehaviour(new SWO_CyclicBehaviour(totalNumberADMMAgents, model, parameters, dataModel, filterElectrolyzers(), parameters.getPeriods(), rho, iteration, maxIterations));
+                        SWO_CyclicBehaviour swo = new SWO_CyclicBehaviour(totalNumberADMMAgents, env, model, parameters, dataModel, filterElectrolyzers(), parameters.getPeriods(), rho, iteration, maxIterations);
+                        if (resumed) {
+                            swo.setAwaitingState(false);
+                        }
+                        addBehaviour(swo);
                     } else {
                         System.out.println("Fehler beim Laden der Parameter.");
                         doDelete();
@@ -274,6 +343,63 @@ public class ADMMAgent extends Agent {
 
     }
 
+    // ============================================================================
+    // CHECKPOINTS
+    // ============================================================================
+
+    /**
+     * Lists the agent's checkpoints; the newest one provides the assignment of the registration,
+     * since it may differ from the environment after a change of the membership.
+     */
+    private void findCheckpoints() {
+        checkpointStore = CheckpointStore.fromSettings(getLocalName());
+        checkpointIterations = checkpointStore.listIterations();
+        for (int i = checkpointIterations.size() - 1; i >= 0 && resumeCheckpoint == null; i--) {
+            try {
+                resumeCheckpoint = checkpointStore.load(checkpointIterations.get(i));
+            } catch (IOException e) {
+                System.err.println("Checkpoint " + checkpointIterations.get(i) + " von " + getLocalName() + " unbrauchbar: " + e.getMessage());
+                checkpointIterations.remove(i);
+            }
+        }
+        if (resumeCheckpoint == null) {
+            System.out.println("Keine Checkpoints für " + getLocalName() + " gefunden.");
+            return;
+        }
+        System.out.println("Checkpoints von " + getLocalName() + ": " + checkpointIterations);
+
+        electrolyzerIds = new HashSet<>(resumeCheckpoint.getElectrolyzerIds());
+        Set<Period> periods = new HashSet<>();
+        for (int t : resumeCheckpoint.getPeriodIds()) {
+            periods.add(new Period(t));
+        }
+        dataModel.setAssignedPeriods(periods);
+    }
+
+    /**
+     * Restores the state of the SWO iteration all agents have a checkpoint of.
+     *
+     * @return false if the checkpoint is missing or does not fit the loaded parameters
+     */
+    private boolean restoreCheckpoint(int k, int numPeriods) {
+        try {
+            CheckpointStore.Checkpoint checkpoint = resumeCheckpoint != null && resumeCheckpoint.getIteration() == k
+                    ? resumeCheckpoint : checkpointStore.load(k);
+            if (!checkpoint.matches(parameters.getTotalElectrolyzers(), numPeriods)) {
+                System.err.println("Checkpoint " + k + " von " + getLocalName() + " passt nicht zu den Parametern.");
+                return false;
+            }
+            checkpoint.restore(dataModel);
+            resumeCheckpoint = null;
+            System.out.println("Agent " + getLocalName() + " setzt das SWO nach Iteration " + k + " fort.");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Checkpoint " + k + " von " + getLocalName() + " konnte nicht geladen werden.");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     // Filtere die Elektrolyseure basierend auf den übergebenen IDs
     private Set<Electrolyzer> filterElectrolyzers() {
         Set<Electrolyzer> allElectrolyzers = parameters.getElectrolyzers();
@@ -288,10 +414,18 @@ public class ADMMAgent extends Agent {
 
     @Override
     protected void takeDown() {
+        LocalTransport.unregister(this);
+        if (checkpointStore != null) {
+            checkpointStore.close();
+        }
+        dataModel.closeHistorySink();
         try {
             if (model != null) {
                 model.dispose();
             }
+            if (env != null) {
+                SolverEnvironmentManager.release(getLocalName());
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -307,10 +441,13 @@ public class ADMMAgent extends Agent {
             int totalNumberADMMAgents = Integer.parseInt(System.getenv("TOTAL_ADMM_AGENTS"));
             int maxIterations = Integer.parseInt(System.getenv("MAX_ITERATIONS"));
             double rho = Double.parseDouble(System.getenv("RHO"));
-            String[] electrolyzerIdsArray = System.getenv("ELECTROLYZER_IDS").split(",");
+            // Später beitretende Agenten haben keine Elektrolyseure, sie erhalten sie vom AMSAgent
+            String electrolyzerIdsEnv = System.getenv("ELECTROLYZER_IDS");
+            String[] electrolyzerIdsArray = electrolyzerIdsEnv == null || electrolyzerIdsEnv.trim().isEmpty()
+                    ? new String[0] : electrolyzerIdsEnv.split(",");
             Set<Integer> electrolyzerIds = new HashSet<>();
             for (String id : electrolyzerIdsArray) {
-                electrolyzerIds.add(Integer.parseInt(id));
+                electrolyzerIds.add(Integer.parseInt(id.trim()));
             }
 
             // Debugging Informationen
@@ -10,13 +10,58 @@ import jade.wrapper.AgentController;
 import jade.lang.acl.ACLMessage;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
+/**
+ * Registry of the ADMM agents. Sends the phone book once all expected agents have registered;
+ * afterwards agents may join (late "register:") or leave ("leave:name", sent by any agent or tool)
+ * during the run. Every change is agreed with the members (see messages.PhoneBook, whose format
+ * is written here as this class is compiled on its own) and published as a new phone book version
+ * with a rebalanced assignment of electrolyzers and periods.
+ */
 public class AMSAgent extends Agent {
     private static final long serialVersionUID = -4859743803908993993L;
+
+    // Protokoll der Mitgliedschaftsänderungen, siehe messages.PhoneBook
+    private static final String MEMBERSHIP_CONVERSATION = "membership";
+    private static final String PROPOSE = "membership:propose:";
+    private static final String READY = "membership:ready:";
+    private static final String ABORT = "membership:abort:";
+    private static final long DEFAULT_MEMBERSHIP_TIMEOUT_MS = 60000;
+
     private List<AID> phoneBook = new ArrayList<>();
     private int totalNumberADMMAgents;
 
+    // Zuordnung der Elektrolyseure und Perioden je Agent (aus den Registrierungen)
+    private final Map<String, TreeSet<Integer>> electrolyzerAssignment = new LinkedHashMap<>();
+    private final Map<String, TreeSet<Integer>> periodAssignment = new LinkedHashMap<>();
+
+    // Checkpoints je Agent (SWO-Iterationen), nur bei der Wiederaufnahme eines Laufs gemeldet
+    private final Map<String, TreeSet<Integer>> checkpoints = new LinkedHashMap<>();
+
+    // Versionierung des Telefonbuchs
+    private boolean phoneBookSent = false;
+    private int phoneBookVersion = 0;
+    private int effectiveIteration = 0;
+
+    // Angefragte Änderungen, die mit dem nächsten Vorschlag abgestimmt werden
+    private final List<AID> pendingJoins = new ArrayList<>();
+    private final Set<String> pendingLeaves = new HashSet<>();
+
+    // Laufender Vorschlag
+    private int proposalVersion = 0; // 0: kein Vorschlag offen
+    private List<AID> proposalJoins = new ArrayList<>();
+    private Set<String> proposalLeaves = new HashSet<>();
+    private final Set<String> awaitingReplies = new HashSet<>();
+    private int maxReportedIteration = -1;
+    private long proposalStartedAt;
+    private long membershipTimeoutMillis = DEFAULT_MEMBERSHIP_TIMEOUT_MS;
+
     @Override
     protected void setup() {
         // Überprüfen, ob der Parameter totalAgents beim Start übergeben wurde
@@ -24,6 +69,17 @@ public class AMSAgent extends Agent {
         if (args != null && args.length > 0 && args[0] instanceof Integer) {
             totalNumberADMMAgents = (Integer) args[0];
         }
+        String timeout = System.getenv("MEMBERSHIP_TIMEOUT_MS");
+        if (timeout == null || timeout.isEmpty()) {
+            timeout = System.getProperty("MEMBERSHIP_TIMEOUT_MS");
+        }
+        if (timeout != null && !timeout.isEmpty()) {
+            try {
+                membershipTimeoutMillis = Long.parseLong(timeout.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Ungültiger Wert für MEMBERSHIP_TIMEOUT_MS: " + timeout);
+            }
+        }
 
         System.out.println("AMSAgent " + this.getAID() + " gestartet. Erwartete Anzahl von Agenten: " + totalNumberADMMAgents);
 
@@ -37,63 +93,369 @@ public class AMSAgent extends Agent {
                 if (msg != null) {
                     // Ausgabe der empfangenen Nachricht
                     System.out.println("Nachricht von " + msg.getSender().getLocalName() + " erhalten: " + msg.getContent());
+                    String content = msg.getContent();
+                    if (content == null) {
+                        return;
+                    }
 
-                    if (msg.getContent().startsWith("register:")) {
-                        // Extrahiere die Host- und Portinformationen aus der Nachricht
-                        String[] contentParts = msg.getContent().substring("register:".length()).split(",");
-                        if (contentParts.length == 2) {
-                            String senderHost = contentParts[0];
-                            String senderHttpPort = contentParts[1];
-
-                            // Erstelle eine AID für den Agenten mit den empfangenen Adressinformationen
-                            AID senderAID = new AID(msg.getSender().getLocalName() + "@" + senderHost + ":1099/JADE", AID.ISGUID);
-                            senderAID.addAddresses("http://" + senderHost + ":" + senderHttpPort + "/acc");
-                            phoneBook.add(senderAID);
-                            System.out.println("AID von " + senderAID.getLocalName() + " erhalten und zum Telefonbuch hinzugefügt.");
-
-                            // Prüfen, ob alle Agenten registriert sind
-                            if (phoneBook.size() == totalNumberADMMAgents) {
-                                System.out.println("Alle Agenten registriert. Sende Telefonbuch an alle Agenten.");
-                                // Sende das vollständige Telefonbuch an alle Agenten
-                                sendPhoneBookToAgents();
-                            }
-                        } else {
-                            System.out.println("Fehler: Ungültiges Nachrichtenformat für die Registrierung.");
-                        }
+                    if (content.startsWith("register:")) {
+                        handleRegistration(msg);
+                    } else if (content.startsWith("leave:")) {
+                        String agentName = content.substring("leave:".length()).trim();
+                        handleLeave(agentName.isEmpty() ? msg.getSender().getLocalName() : agentName);
+                    } else if (content.startsWith(READY)) {
+                        handleReady(msg);
+                    }
+                } else if (proposalVersion > 0) {
+                    // Auf die Antworten zum Vorschlag warten, höchstens bis zum Timeout
+                    long remaining = proposalStartedAt + membershipTimeoutMillis - System.currentTimeMillis();
+                    if (membershipTimeoutMillis <= 0) {
+                        block();
+                    } else if (remaining <= 0) {
+                        abortProposal();
+                    } else {
+                        block(remaining);
                     }
                 } else {
                     block();
                 }
             }
+        });
+    }
 
-            // Methode zum Senden des Telefonbuchs an alle registrierten Agenten
-            private void sendPhoneBookToAgents() {
-                try {
-                    ACLMessage reply = new ACLMessage(ACLMessage.INFORM);
-                    StringBuilder phoneBookContent = new StringBuilder();
-
-                    // Erstelle einen String mit allen AIDs für das Telefonbuch
-                    for (AID agentAID : phoneBook) {
-                        String agentEntry = agentAID.getLocalName() + "," + agentAID.getAddressesArray()[0];
-                        phoneBookContent.append(agentEntry).append(";");
-                        reply.addReceiver(agentAID); // Füge alle Agenten als Empfänger hinzu
-                    }
+    // ============================================================================
+    // REGISTRATION
+    // ============================================================================
 
-                    // Entferne das letzte Semikolon
-                    if (phoneBookContent.length() > 0) {
-                        phoneBookContent.setLength(phoneBookContent.length() - 1);
-                    }
+    /**
+     * "register:host,port[;electrolyzerIds;periods[;checkpoints]]" mit durch Leerzeichen getrennten Ids
+     * und den SWO-Iterationen der vorhandenen Checkpoints.
+     */
+    private void handleRegistration(ACLMessage msg) {
+        // Extrahiere die Host- und Portinformationen aus der Nachricht
+        String[] sections = msg.getContent().substring("register:".length()).split(";", -1);
+        String[] contentParts = sections[0].split(",");
+        if (contentParts.length != 2) {
+            System.out.println("Fehler: Ungültiges Nachrichtenformat für die Registrierung.");
+            return;
+        }
+        String senderHost = contentParts[0];
+        String senderHttpPort = contentParts[1];
+        String agentName = msg.getSender().getLocalName();
+
+        // Erstelle eine AID für den Agenten mit den empfangenen Adressinformationen
+        AID senderAID = new AID(agentName + "@" + senderHost + ":1099/JADE", AID.ISGUID);
+        senderAID.addAddresses("http://" + senderHost + ":" + senderHttpPort + "/acc");
+
+        if (indexOf(phoneBook, agentName) >= 0 || indexOf(pendingJoins, agentName) >= 0 || indexOf(proposalJoins, agentName) >= 0) {
+            System.out.println("Agent " + agentName + " ist bereits registriert.");
+            return;
+        }
+
+        if (phoneBookSent) {
+            // Beitritt während des Laufs: wird mit den Mitgliedern abgestimmt
+            pendingJoins.add(senderAID);
+            System.out.println("Agent " + agentName + " möchte beitreten.");
+            startProposal();
+            return;
+        }
+
+        phoneBook.add(senderAID);
+        if (sections.length >= 3) {
+            electrolyzerAssignment.put(agentName, parseIds(sections[1]));
+            periodAssignment.put(agentName, parseIds(sections[2]));
+        }
+        if (sections.length >= 4) {
+            checkpoints.put(agentName, parseIds(sections[3]));
+        }
+        System.out.println("AID von " + senderAID.getLocalName() + " erhalten und zum Telefonbuch hinzugefügt.");
+
+        // Prüfen, ob alle Agenten registriert sind
+        if (phoneBook.size() == totalNumberADMMAgents) {
+            System.out.println("Alle Agenten registriert. Sende Telefonbuch an alle Agenten.");
+            phoneBookSent = true;
+            phoneBookVersion = 1;
+            // Sende das vollständige Telefonbuch an alle Agenten
+            sendPhoneBook(phoneBook, null);
+            startProposal();
+        }
+    }
+
+    private void handleLeave(String agentName) {
+        if (!phoneBookSent || indexOf(phoneBook, agentName) < 0) {
+            System.out.println("Abmeldung von " + agentName + " ignoriert: kein Mitglied.");
+            return;
+        }
+        if (phoneBook.size() - pendingLeaves.size() - proposalLeaves.size() <= 1) {
+            System.out.println("Abmeldung von " + agentName + " ignoriert: letztes Mitglied.");
+            return;
+        }
+        pendingLeaves.add(agentName);
+        System.out.println("Agent " + agentName + " möchte austreten.");
+        startProposal();
+    }
+
+    // ============================================================================
+    // MEMBERSHIP CHANGES
+    // ============================================================================
+
+    /**
+     * Starts the agreement on the pending changes unless one is running.
+     */
+    private void startProposal() {
+        if (proposalVersion > 0 || !phoneBookSent || (pendingJoins.isEmpty() && pendingLeaves.isEmpty())) {
+            return;
+        }
+        proposalVersion = phoneBookVersion + 1;
+        proposalJoins = new ArrayList<>(pendingJoins);
+        proposalLeaves = new HashSet<>(pendingLeaves);
+        pendingJoins.clear();
+        pendingLeaves.clear();
+        maxReportedIteration = -1;
+        proposalStartedAt = System.currentTimeMillis();
+
+        ACLMessage propose = new ACLMessage(ACLMessage.INFORM);
+        propose.setConversationId(MEMBERSHIP_CONVERSATION);
+        propose.setContent(PROPOSE + proposalVersion);
+        awaitingReplies.clear();
+        for (AID agentAID : phoneBook) {
+            propose.addReceiver(agentAID);
+            awaitingReplies.add(agentAID.getLocalName());
+        }
+        send(propose);
+        System.out.println("Telefonbuch Version " + proposalVersion + " vorgeschlagen: " + proposalJoins.size()
+                + " Beitritte, " + proposalLeaves.size() + " Austritte.");
+    }
+
+    /**
+     * "membership:ready:v,k": the member holds before SWO iteration k + 1 until the phone book v arrives.
+     */
+    private void handleReady(ACLMessage msg) {
+        String[] parts = msg.getContent().substring(READY.length()).split(",");
+        try {
+            int version = Integer.parseInt(parts[0].trim());
+            int iteration = Integer.parseInt(parts[1].trim());
+            if (version != proposalVersion) {
+                return;
+            }
+            awaitingReplies.remove(msg.getSender().getLocalName());
+            maxReportedIteration = Math.max(maxReportedIteration, iteration);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Fehler: Ungültige Antwort auf den Vorschlag: " + msg.getContent());
+            return;
+        }
+        if (awaitingReplies.isEmpty()) {
+            commitProposal();
+        }
+    }
+
+    private void commitProposal() {
+        List<AID> previous = new ArrayList<>(phoneBook);
+        List<AID> members = new ArrayList<>();
+        for (AID agentAID : phoneBook) {
+            if (!proposalLeaves.contains(agentAID.getLocalName())) {
+                members.add(agentAID);
+            }
+        }
+        members.addAll(proposalJoins);
+
+        // Neue Zuordnung mit möglichst wenigen Verschiebungen
+        List<String> names = new ArrayList<>();
+        for (AID agentAID : members) {
+            names.add(agentAID.getLocalName());
+        }
+        rebalance(names, electrolyzerAssignment);
+        rebalance(names, periodAssignment);
+
+        phoneBook = members;
+        phoneBookVersion = proposalVersion;
+        effectiveIteration = Math.max(maxReportedIteration + 1, effectiveIteration + 1);
+        proposalVersion = 0;
+
+        // Alte und neue Mitglieder: austretende Agenten erkennen am Telefonbuch, dass sie nicht mehr dazugehören
+        List<AID> receivers = new ArrayList<>(previous);
+        for (AID agentAID : proposalJoins) {
+            receivers.add(agentAID);
+        }
+        sendPhoneBook(receivers, MEMBERSHIP_CONVERSATION);
+        System.out.println("Telefonbuch Version " + phoneBookVersion + " gilt ab SWO-Iteration " + effectiveIteration
+                + " mit " + phoneBook.size() + " Agenten.");
 
-                    // Setze das Telefonbuch als Nachricht
-                    reply.setContent("phoneBook:" + phoneBookContent.toString());
-                    send(reply); // Sende das Telefonbuch an alle Agenten
-                    System.out.println("Telefonbuch gesendet: " + phoneBookContent);
+        // Zwischenzeitlich angefragte Änderungen
+        startProposal();
+    }
+
+    private void abortProposal() {
+        System.err.println("Telefonbuch Version " + proposalVersion + " verworfen, keine Antwort von " + awaitingReplies);
+        ACLMessage abort = new ACLMessage(ACLMessage.INFORM);
+        abort.setConversationId(MEMBERSHIP_CONVERSATION);
+        abort.setContent(ABORT + proposalVersion);
+        for (AID agentAID : phoneBook) {
+            abort.addReceiver(agentAID);
+        }
+        send(abort);
+        proposalVersion = 0;
+        awaitingReplies.clear();
+        proposalJoins = new ArrayList<>();
+        proposalLeaves = new HashSet<>();
+        startProposal();
+    }
+
+    /**
+     * Distributes the ids of all agents evenly over the members: agents above their share give
+     * their largest ids away, agents below it (and new agents) take the smallest free ones, so
+     * only the ids needed for the balance move.
+     */
+    static void rebalance(List<String> members, Map<String, TreeSet<Integer>> assignment) {
+        if (assignment.isEmpty() || members.isEmpty()) {
+            return;
+        }
+        TreeSet<Integer> free = new TreeSet<>();
+        for (String agentName : new ArrayList<>(assignment.keySet())) {
+            if (!members.contains(agentName)) {
+                free.addAll(assignment.remove(agentName));
+            }
+        }
+        int total = free.size();
+        for (String agentName : members) {
+            total += assignment.computeIfAbsent(agentName, k -> new TreeSet<>()).size();
+        }
+
+        // Die bisher größten Besitzer behalten den Rest der Division
+        List<String> bySize = new ArrayList<>(members);
+        bySize.sort((a, b) -> assignment.get(b).size() - assignment.get(a).size());
+        Map<String, Integer> targets = new LinkedHashMap<>();
+        for (int i = 0; i < bySize.size(); i++) {
+            targets.put(bySize.get(i), total / members.size() + (i < total % members.size() ? 1 : 0));
+        }
 
-                } catch (Exception e) {
-                    e.printStackTrace();
+        for (String agentName : members) {
+            TreeSet<Integer> ids = assignment.get(agentName);
+            while (ids.size() > targets.get(agentName)) {
+                free.add(ids.pollLast());
+            }
+        }
+        for (String agentName : members) {
+            TreeSet<Integer> ids = assignment.get(agentName);
+            while (ids.size() < targets.get(agentName) && !free.isEmpty()) {
+                ids.add(free.pollFirst());
+            }
+        }
+
+        // Reihenfolge wie im Telefonbuch
+        Map<String, TreeSet<Integer>> ordered = new LinkedHashMap<>();
+        for (String agentName : members) {
+            ordered.put(agentName, assignment.get(agentName));
+        }
+        assignment.clear();
+        assignment.putAll(ordered);
+    }
+
+    // ============================================================================
+    // PHONE BOOK
+    // ============================================================================
+
+    // Methode zum Senden des Telefonbuchs an die Empfänger
+    private void sendPhoneBook(List<AID> receivers, String conversationId) {
+        try {
+            ACLMessage reply = new ACLMessage(ACLMessage.INFORM);
+            if (conversationId != null) {
+                reply.setConversationId(conversationId);
+            }
+            StringBuilder phoneBookContent = new StringBuilder();
+            phoneBookContent.append("version=").append(phoneBookVersion).append(";");
+            phoneBookContent.append("iteration=").append(effectiveIteration).append(";");
+            int resumeIteration = phoneBookVersion == 1 ? latestCommonCheckpoint() : -1;
+            if (resumeIteration >= 0) {
+                phoneBookContent.append("resume=").append(resumeIteration).append(";");
+                System.out.println("Alle Agenten setzen das SWO nach Iteration " + resumeIteration + " fort.");
+            }
+
+            // Die Zuordnung wird nur mitgeschickt, wenn sie für alle Agenten bekannt ist
+            boolean withAssignment = true;
+            for (AID agentAID : phoneBook) {
+                withAssignment &= electrolyzerAssignment.containsKey(agentAID.getLocalName())
+                               && periodAssignment.containsKey(agentAID.getLocalName());
+            }
+            for (AID agentAID : phoneBook) {
+                String agentName = agentAID.getLocalName();
+                phoneBookContent.append(agentName).append(",").append(agentAID.getAddressesArray()[0]);
+                if (withAssignment) {
+                    phoneBookContent.append(",").append(joinIds(electrolyzerAssignment.get(agentName)))
+                                    .append(",").append(joinIds(periodAssignment.get(agentName)));
                 }
+                phoneBookContent.append(";");
             }
-        });
+            for (AID agentAID : receivers) {
+                reply.addReceiver(agentAID);
+            }
+
+            // Entferne das letzte Semikolon
+            phoneBookContent.setLength(phoneBookContent.length() - 1);
+
+            // Setze das Telefonbuch als Nachricht
+            reply.setContent("phoneBook:" + phoneBookContent.toString());
+            send(reply);
+            System.out.println("Telefonbuch gesendet: " + phoneBookContent);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the latest SWO iteration of which every agent has a checkpoint, -1 if there is none
+     */
+    private int latestCommonCheckpoint() {
+        TreeSet<Integer> common = null;
+        for (AID agentAID : phoneBook) {
+            TreeSet<Integer> iterations = checkpoints.get(agentAID.getLocalName());
+            if (iterations == null) {
+                return -1;
+            }
+            if (common == null) {
+                common = new TreeSet<>(iterations);
+            } else {
+                common.retainAll(iterations);
+            }
+        }
+        return common == null || common.isEmpty() ? -1 : common.last();
+    }
+
+    private static int indexOf(List<AID> aids, String agentName) {
+        for (int i = 0; i < aids.size(); i++) {
+            if (aids.get(i).getLocalName().equals(agentName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static TreeSet<Integer> parseIds(String ids) {
+        TreeSet<Integer> result = new TreeSet<>();
+        for (String id : ids.trim().split("\\s+")) {
+            if (!id.isEmpty()) {
+                try {
+                    result.add(Integer.parseInt(id));
+                } catch (NumberFormatException e) {
+                    System.out.println("Fehler: Ungültige Id in der Registrierung: " + id);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String joinIds(Set<Integer> ids) {
+        StringBuilder joined = new StringBuilder();
+        if (ids != null) {
+            for (int id : ids) {
+                if (joined.length() > 0) {
+                    joined.append(" ");
+                }
+                joined.append(id);
+            }
+        }
+        return joined.toString();
     }
 
     // Main-Methode für Docker und lokale Umgebungen
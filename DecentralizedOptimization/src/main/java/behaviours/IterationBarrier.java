@@ -0,0 +1,266 @@
+package behaviours;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.Behaviour;
+import jade.core.behaviours.OneShotBehaviour;
+
+/**
+ * Barrier of one exchange phase (e.g. the SWO X-update) of an agent: the phase of an iteration is
+ * complete once the agent's own update is done and every peer has reported it.
+ *
+ * open() starts the phase, localReady() marks the end of the agent's own work, from then on the
+ * agent is waiting. Arrivals are recorded with their time, so close() knows the wait time and
+ * the slowest peer. With a deadline, checkDeadline() reports the peers that are still missing
+ * and re-arms the deadline; the cycle behaviours block with getRemainingMillis() instead of
+ * indefinitely, so a lost message shows up in the log instead of a silent hang.
+ */
+public class IterationBarrier {
+
+    private final String phase;
+    private final List<String> peers;
+    private final long timeoutNanos;
+
+    private int iteration = -1;
+    private boolean closed = true;
+    private long openedAt;
+    private long localReadyAt;
+    private long deadline;
+    private long closedAt;
+    private int timeouts;
+    private final Map<String, Long> arrivals = new LinkedHashMap<>();
+
+    /**
+     * @param phase         name used in the reports
+     * @param peers         local names of the agents that must report, without the agent itself
+     * @param timeoutMillis deadline after open(), 0 for none
+     */
+    public IterationBarrier(String phase, Collection<String> peers, long timeoutMillis) {
+        this.phase = phase;
+        this.peers = new ArrayList<>(peers);
+        this.timeoutNanos = Math.max(0, timeoutMillis) * 1_000_000L;
+    }
+
+    /**
+     * @return local names of the agents in the phone book without the agent itself
+     */
+    public static Set<String> peersOf(Agent agent, Collection<AID> phoneBook) {
+        Set<String> peers = new LinkedHashSet<>();
+        for (AID aid : phoneBook) {
+            if (!aid.getLocalName().equals(agent.getLocalName())) {
+                peers.add(aid.getLocalName());
+            }
+        }
+        return peers;
+    }
+
+    // ============================================================================
+    // PHASE
+    // ============================================================================
+
+    /**
+     * Starts the phase of the iteration; arrivals of the previous one are discarded.
+     */
+    public void open(int iteration) {
+        this.iteration = iteration;
+        closed = false;
+        openedAt = System.nanoTime();
+        localReadyAt = 0;
+        closedAt = 0;
+        timeouts = 0;
+        deadline = timeoutNanos > 0 ? openedAt + timeoutNanos : 0;
+        arrivals.clear();
+    }
+
+    /** The agent's own contribution is done, the time from now on counts as waiting. */
+    public void localReady() {
+        if (!closed && localReadyAt == 0) {
+            localReadyAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return sub-behaviour for the end of the own update: marks the barrier and wakes the
+     *         waiting cycle behaviour, which is blocked until the next message otherwise
+     */
+    public Behaviour localReadyMarker(Behaviour waiting) {
+        return new OneShotBehaviour() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void action() {
+                localReady();
+                waiting.restart();
+            }
+        };
+    }
+
+    public void arrived(String peer) {
+        if (!closed && peer != null && peers.contains(peer) && !arrivals.containsKey(peer)) {
+            arrivals.put(peer, System.nanoTime());
+        }
+    }
+
+    public void arrived(Collection<String> senders) {
+        for (String sender : senders) {
+            arrived(sender);
+        }
+    }
+
+    /** @return true if the phase of the iteration is open and not yet closed */
+    public boolean isOpen(int iteration) {
+        return !closed && this.iteration == iteration;
+    }
+
+    public boolean isComplete() {
+        return localReadyAt != 0 && allArrived();
+    }
+
+    public boolean isLocalReady() {
+        return localReadyAt != 0;
+    }
+
+    private boolean allArrived() {
+        return arrivals.size() >= peers.size();
+    }
+
+    /**
+     * Ends the phase.
+     *
+     * @return time the agent waited for its peers after its own work (ns), 0 if it never waited
+     */
+    public long close() {
+        if (closed) {
+            return 0;
+        }
+        closed = true;
+        closedAt = System.nanoTime();
+        if (timeouts > 0) {
+            System.out.println(phase + " barrier of iteration " + iteration + " complete after "
+                    + (closedAt - openedAt) / 1_000_000 + " ms, slowest peer " + getSlowestPeer());
+        }
+        return getWaitNanos();
+    }
+
+    // ============================================================================
+    // DEADLINE
+    // ============================================================================
+
+    /**
+     * @return ms until the deadline (at least 1), 0 if the phase has no deadline or is closed
+     */
+    public long getRemainingMillis() {
+        if (closed || deadline == 0) {
+            return 0;
+        }
+        return Math.max(1, (deadline - System.nanoTime() + 999_999) / 1_000_000);
+    }
+
+    /**
+     * Reports the missing peers if the deadline has passed and re-arms it.
+     *
+     * @return true if the deadline had passed
+     */
+    public boolean checkDeadline() {
+        if (closed || deadline == 0 || allArrived() || System.nanoTime() < deadline) {
+            return false;
+        }
+        timeouts++;
+        deadline = System.nanoTime() + timeoutNanos;
+        System.err.println(report());
+        return true;
+    }
+
+    /**
+     * @return the peers that are missing and how long they are late, relative to the end of the
+     *         agent's own work (or the start of the phase if it is still working)
+     */
+    public String report() {
+        long now = System.nanoTime();
+        long reference = localReadyAt > 0 ? localReadyAt : openedAt;
+        StringBuilder report = new StringBuilder();
+        report.append(phase).append(" barrier of iteration ").append(iteration).append(": ")
+              .append(arrivals.size()).append("/").append(peers.size()).append(" peers after ")
+              .append((now - openedAt) / 1_000_000).append(" ms");
+        List<String> missing = getMissingPeers();
+        if (!missing.isEmpty()) {
+            report.append(", waiting for");
+            for (String peer : missing) {
+                report.append(" ").append(peer).append(" (").append(Math.max(0, now - reference) / 1_000_000).append(" ms)");
+            }
+        }
+        String slowest = getSlowestPeer();
+        if (slowest != null) {
+            report.append(", slowest arrival ").append(slowest).append(" (+").append(getLatenessNanos(slowest) / 1_000_000).append(" ms)");
+        }
+        return report.toString();
+    }
+
+    // ============================================================================
+    // METRICS
+    // ============================================================================
+
+    public List<String> getMissingPeers() {
+        List<String> missing = new ArrayList<>();
+        for (String peer : peers) {
+            if (!arrivals.containsKey(peer)) {
+                missing.add(peer);
+            }
+        }
+        return missing;
+    }
+
+    public int getArrivedCount() {
+        return arrivals.size();
+    }
+
+    /** @return the peer that arrived last, null if none arrived */
+    public String getSlowestPeer() {
+        String slowest = null;
+        long latest = Long.MIN_VALUE;
+        for (Map.Entry<String, Long> arrival : arrivals.entrySet()) {
+            if (arrival.getValue() > latest) {
+                latest = arrival.getValue();
+                slowest = arrival.getKey();
+            }
+        }
+        return slowest;
+    }
+
+    /** @return how long the peer arrived after the agent's own work was done, 0 if before */
+    public long getLatenessNanos(String peer) {
+        Long arrival = arrivals.get(peer);
+        if (arrival == null || localReadyAt == 0) {
+            return 0;
+        }
+        return Math.max(0, arrival - localReadyAt);
+    }
+
+    /** @return wait time of the closed phase (ns) */
+    public long getWaitNanos() {
+        if (localReadyAt == 0 || closedAt == 0) {
+            return 0;
+        }
+        return Math.max(0, closedAt - localReadyAt);
+    }
+
+    public int getTimeouts() {
+        return timeouts;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+}
@@ -23,6 +23,7 @@ public class LoadParametersBehaviour extends OneShotBehaviour {
     public void action() {
         // Load parameters from Excel workbook
         params = loadParameters(workbook);
+        params.setTable(ParameterTable.compile(params));
         
         // Insert loaded parameters into ADMMDataModel
         dataModel.setParameters(params); 
@@ -3,35 +3,40 @@ package behaviours;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.HashSet;
 import java.util.Set;
 
 import com.gurobi.gurobi.GRBConstr;
+import com.gurobi.gurobi.GRBEnv;
 import com.gurobi.gurobi.GRBException;
 import com.gurobi.gurobi.GRBModel;
 import com.gurobi.gurobi.GRBVar;
 
 import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.OneShotBehaviour;
 import jade.core.behaviours.SequentialBehaviour;
 import jade.core.behaviours.WakerBehaviour;
 import jade.lang.acl.ACLMessage;
+import messages.Collectives;
+import messages.Mailbox;
+import messages.LocalTransport;
+import messages.MessageType;
+import messages.UpdateMessage;
 import models.ADMMDataModel;
+import models.ADMMSettings;
 import models.Electrolyzer;
 import models.Parameters;
 import models.Period;
-import models.State;
+import solvers.SolverException;
 
 public class RTO_CyclicBehaviour extends CyclicBehaviour {
 
     private static final long serialVersionUID = 1L;
-    private int receivedXRTOMessages = 0;
-    private int receivedDualRTOMessages = 0;
-    private int receivedConvergenceRTOMessages = 0;
-    private int receivedIterationIncrementedMessages = 0;
     private final int totalNumberADMMAgents; // Number of agents in the system
+    private final GRBEnv env; // Agent environment for the persistent x-update model, may be null
     private GRBModel model;
+    private RTO_XUpdateModel xUpdateModel; // null: x-update rebuilds the shared model every iteration
     private Parameters parameters;
     private ADMMDataModel dataModel;
     private Set<Electrolyzer> electrolyzers;
@@ -42,15 +47,30 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
     private int rtoIterationCount = 0;
     private int rtoStepsPerSWOPeriod = 10;
     private int currentStartPeriod = 1;
-    private boolean iterationIncremented = false;
-    private final Queue<ACLMessage> messageQueue = new LinkedList<>();
+    private final Mailbox mailbox; // Incoming messages indexed by (type, iteration)
+    private Collectives collectives; // null: x- and dual-results are broadcast to all agents
+
+    // Barriers of the exchange phases, created with the phone book on the first action
+    private IterationBarrier xBarrier;
+    private IterationBarrier dualBarrier;
+    private IterationBarrier incrementBarrier;
+    private IterationBarrier convergenceBarrier; // opened once the own convergence message is sent
+    private final Set<String> convergedPeers = new HashSet<>();
     private boolean sendIncrementedMessage;;
     
  // Time measurement
     private long endTime;
     
     public RTO_CyclicBehaviour(int totalAgents, GRBModel model, Parameters parameters, ADMMDataModel admmDataModel, Set<Electrolyzer> electrolyzers, Integer targetPeriod, double rho, int finalIteration) {
+        this(totalAgents, null, model, parameters, admmDataModel, electrolyzers, targetPeriod, rho, finalIteration);
+    }
+
+    /**
+     * @param env agent environment; without it (and with the Gurobi backend) the x-update falls back to the shared model
+     */
+    public RTO_CyclicBehaviour(int totalAgents, GRBEnv env, GRBModel model, Parameters parameters, ADMMDataModel admmDataModel, Set<Electrolyzer> electrolyzers, Integer targetPeriod, double rho, int finalIteration) {
         this.totalNumberADMMAgents = totalAgents;
+        this.env = env;
         this.model = model;
         this.parameters = parameters;
         this.dataModel = admmDataModel;
@@ -58,6 +78,7 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
         this.rho = rho;
         this.finalSWOIteration = finalIteration;
         this.currentSWOPeriod = targetPeriod;
+        this.mailbox = admmDataModel.getMailbox();
     }
 
 
@@ -66,6 +87,11 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
         // Initialization for the first iteration
         if (!isFirstRTOXUpdateDone) {
             System.out.println("Start RTO optimization for agent: " + myAgent.getLocalName());
+            String topology = ADMMSettings.getCollectiveTopology();
+            if (!ADMMSettings.COLLECTIVE_TOPOLOGY_NONE.equals(topology)) {
+                collectives = new Collectives(myAgent, dataModel.getPhoneBook(), Collectives.Topology.valueOf(topology.toUpperCase()));
+            }
+            createBarriers();
             
             // Create fluctuating renewable energies once:
             double renewableEnergySWO = parameters.getRenewableEnergy(new Period(currentSWOPeriod));
@@ -96,55 +122,111 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
             return;
         }
 
-        // FIFO queue for message processing
-        while (true) {
-            ACLMessage msg = myAgent.receive();
-            if (msg != null) {
-                messageQueue.add(msg); // Add message to FIFO queue
+        // Receive into the mailbox and process what the current iteration needs
+        mailbox.drain(myAgent);
+        boolean progress = false;
+        while (processMailbox()) {
+            progress = true;
+        }
+        if (!progress) {
+            // Wake up at the next deadline to report the peers that are late
+            long timeout = nextDeadlineMillis();
+            if (timeout > 0) {
+                block(timeout);
             } else {
-                break;
+                block();
             }
         }
+    }
+
+    /**
+     * Creates the barriers of the exchange phases for the peers in the phone book.
+     */
+    private void createBarriers() {
+        Set<String> peers = IterationBarrier.peersOf(myAgent, dataModel.getPhoneBook());
+        xBarrier = new IterationBarrier("RTO X", peers, ADMMSettings.getBarrierTimeoutMillis("RTO_X"));
+        dualBarrier = new IterationBarrier("RTO Dual", peers, ADMMSettings.getBarrierTimeoutMillis("RTO_DUAL"));
+        incrementBarrier = new IterationBarrier("RTO Increment", peers, ADMMSettings.getBarrierTimeoutMillis("RTO_INCREMENT"));
+        convergenceBarrier = new IterationBarrier("RTO Convergence", peers, ADMMSettings.getBarrierTimeoutMillis("RTO_CONVERGENCE"));
+    }
 
-        if (!messageQueue.isEmpty()) {
-            ACLMessage nextMessage = messageQueue.poll(); // Process oldest message (FIFO)
-            processRTOMessage(nextMessage);
-        } else {
-            block();
+    /**
+     * Reports late peers of overdue barriers.
+     *
+     * @return ms until the next deadline of an open barrier, 0 if there is none
+     */
+    private long nextDeadlineMillis() {
+        long next = 0;
+        for (IterationBarrier barrier : new IterationBarrier[]{xBarrier, dualBarrier, incrementBarrier, convergenceBarrier}) {
+            barrier.checkDeadline();
+            long remaining = barrier.getRemainingMillis();
+            if (remaining > 0 && (next == 0 || remaining < next)) {
+                next = remaining;
+            }
         }
+        return next;
     }
 
 
     /**
-     * Processes an incoming message based on its type.
+     * Processes the buffered messages of the current RTO iteration; messages of agents that are
+     * already ahead stay in the mailbox until this agent reaches their iteration.
+     *
+     * @return true if messages were processed
      */
-	private void processRTOMessage(ACLMessage msg) {
-		String content = msg.getContent();
-
-		if (content.startsWith("RTOxUpdateMessage")) {
-			handleRTO_XUpdateMessage(content);
-			receivedXRTOMessages++;
-			checkRTO_XUpdateCompletion();
-		} else if (content.startsWith("RTOdualUpdateMessage")) {
-			handleRTO_DualUpdateMessage(content);
-			receivedDualRTOMessages++;
-			checkRTO_DualUpdateCompletion();
-		} else if (content.equals("RTOconvergenceReached")) {
-			handleRTO_ConvergenceMessage();
-		} else if (content.startsWith("iterationIncremented")) {
-			handleRTO_messagesIncrementedIteration();
-			sendIncrementedMessage = false;
+	private boolean processMailbox() {
+		boolean progress = false;
+		ACLMessage other;
+		while ((other = mailbox.pollOther()) != null) {
+			if (collectives != null) {
+				collectives.handle(other);
+			}
+			progress = true;
+		}
 
+		if (xBarrier.isOpen(rtoIterationCount)) {
+			xBarrier.arrived(mailbox.senders(MessageType.RTO_X_UPDATE, rtoIterationCount));
+			if (xBarrier.isComplete()) {
+				for (UpdateMessage update : mailbox.take(MessageType.RTO_X_UPDATE, rtoIterationCount)) {
+					handleRTO_XUpdateMessage(update);
+				}
+				checkRTO_XUpdateCompletion();
+				progress = true;
+			}
+		}
+		if (dualBarrier.isOpen(rtoIterationCount)) {
+			dualBarrier.arrived(mailbox.senders(MessageType.RTO_DUAL_UPDATE, rtoIterationCount));
+			if (dualBarrier.isComplete()) {
+				for (UpdateMessage update : mailbox.take(MessageType.RTO_DUAL_UPDATE, rtoIterationCount)) {
+					handleRTO_DualUpdateMessage(update);
+				}
+				checkRTO_DualUpdateCompletion();
+				progress = true;
+			}
+		}
+		// Increment messages carry the new iteration, they only count once this agent has incremented too
+		if (incrementBarrier.isOpen(rtoIterationCount)) {
+			incrementBarrier.arrived(mailbox.senders(MessageType.RTO_ITERATION_INCREMENTED, rtoIterationCount));
+			if (incrementBarrier.isComplete()) {
+				mailbox.take(MessageType.RTO_ITERATION_INCREMENTED, rtoIterationCount);
+				handleRTO_messagesIncrementedIteration();
+				sendIncrementedMessage = false;
+				progress = true;
+			}
 		}
+		for (UpdateMessage update : mailbox.takeAll(MessageType.RTO_CONVERGENCE)) {
+			handleRTO_ConvergenceMessage(update.getSender());
+			progress = true;
+		}
+		return progress;
 	}
 
     /**
      * Checks if all X-Update messages have been received.
      */
     private void checkRTO_XUpdateCompletion() {
-        if (receivedXRTOMessages == totalNumberADMMAgents - 1) {
-            executeRTO_SDualUpdates();
-        }
+        dataModel.addRTOBarrierWaitTime(xBarrier.close());
+        executeRTO_SDualUpdates();
     }
    
 	/**
@@ -152,14 +234,17 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
 	 */
 
 	private void checkRTO_DualUpdateCompletion() {
-	            // Check if all dual messages have been received and if the dual update process is reported as completed.
-	    if (receivedDualRTOMessages != totalNumberADMMAgents - 1 ) {
-	        return;
-	    }
+	            // Save the dual messages for the current iteration and close the barrier.
+	    dataModel.saveReceivedDualMessagesForIteration(finalSWOIteration, dualBarrier.getArrivedCount());
+	    dataModel.addRTOBarrierWaitTime(dualBarrier.close());
+	    completeRTOIteration();
+	}
 
-	            // Save the dual messages for the current iteration and reset the counter.
-	    dataModel.saveReceivedDualMessagesForIteration(finalSWOIteration, receivedDualRTOMessages);
-	    receivedDualRTOMessages = 0;
+	/**
+	 * Convergence check after the dual update; with collectives it runs directly after the local
+	 * dual update, the energy all-reduce already synchronizes the agents.
+	 */
+	private void completeRTOIteration() {
 	    dataModel.setDualUpdateCompleted(false);
 
 	            // Calculate the absolute EnergyBalance value for the next iteration.
@@ -169,13 +254,19 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
 	    boolean isConverged = (rtoIterationCount > 0 && energyBalance <= 0.005)
 	                          || (rtoIterationCount == dataModel.getMaxIterations() - 1);
 	    
-	    if (isConverged) {
+	    if (isConverged && collectives != null) {
+	        gatherConvergedX(energyBalance);
+	    } else if (isConverged) {
 	        handleConvergence(energyBalance);
+	    } else if (collectives != null) {
+	        rtoIterationCount++;
+	        executeRTO_XUpdate();
 	    } else if (!isConverged) {
 	        // Not yet converged: increase iteration and inform other agents.
 	        rtoIterationCount++;
-	        iterationIncremented = true;
 	        sendIncrementMessage();
+	        incrementBarrier.open(rtoIterationCount);
+	        incrementBarrier.localReady();
 		}
  }	
 
@@ -217,6 +308,7 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
 	    
 	    // Export the results
 	    dataModel.exportXRTOResultsToExcel(excelFilePathFinalResults, rtoIterationCount, energyBalance, finalComputationTime);
+	    dataModel.resetRTOBarrierWaitTime();
 
 	            // Set the start time for the next iteration
 	    long startComputationTime = System.nanoTime();
@@ -225,10 +317,11 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
 	            // Reset the iteration counter and increase currentStartPeriod
 	    rtoIterationCount = 0;
 	    currentStartPeriod++;
+	    dataModel.startRTOPeriod();
 
 	            // Start the next x-update phase if not all RTO steps have been processed yet.
 	    if (currentStartPeriod <= rtoStepsPerSWOPeriod) {
-	        if (receivedXRTOMessages == totalNumberADMMAgents - 1) {
+	        if (collectives != null || xBarrier.getMissingPeers().isEmpty()) {
 	        	System.err.println("Here! Convergence case");
 	        	
 	            executeRTO_XUpdate();
@@ -249,7 +342,22 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
 	    seq.addSubBehaviour(new RTO_SUpdateBehaviour(model, parameters, electrolyzers, new Period(7), finalSWOIteration, dataModel, rho, e -> electrolyzers.contains(e), rtoIterationCount));
 
 	    // Second step: DualUpdate
-	    seq.addSubBehaviour(new RTO_DualUpdateBehaviour(parameters, electrolyzers, new Period(7), finalSWOIteration, dataModel, rho, e -> electrolyzers.contains(e), rtoIterationCount, currentStartPeriod));
+	    RTO_DualUpdateBehaviour dualUpdate = new RTO_DualUpdateBehaviour(parameters, electrolyzers, new Period(7), finalSWOIteration, dataModel, rho, e -> electrolyzers.contains(e), rtoIterationCount, currentStartPeriod);
+	    dualUpdate.setBroadcastResults(collectives == null);
+	    seq.addSubBehaviour(dualUpdate);
+	    if (collectives == null) {
+	        dualBarrier.open(rtoIterationCount);
+	        seq.addSubBehaviour(dualBarrier.localReadyMarker(this));
+	    } else {
+	        seq.addSubBehaviour(new OneShotBehaviour() {
+	            private static final long serialVersionUID = 1L;
+
+	            @Override
+	            public void action() {
+	                completeRTOIteration();
+	            }
+	        });
+	    }
 
 	    seq.addSubBehaviour(new WakerBehaviour(myAgent, 10) {
 			private static final long serialVersionUID = 1L;
@@ -269,6 +377,14 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
      */
     private void executeRTO_XUpdate() {
     	dataModel.setDualUpdateCompleted(false);
+    	if (ADMMSettings.isPersistentRTOXUpdate() && xUpdateModel == null) {
+    	    xUpdateModel = buildXUpdateModel();
+    	}
+    	if (xUpdateModel != null) {
+    	    // Persistent model: no variables or constraints are removed or re-added
+    	    scheduleXUpdate(new RTO_XUpdateBehaviour(model, parameters, parameters.getElectrolyzers(), new Period(7), finalSWOIteration, dataModel, rho, e -> electrolyzers.contains(e), rtoIterationCount, currentStartPeriod, xUpdateModel));
+    	    return;
+    	}
     	for (GRBConstr constr : model.getConstrs()) {
     	    try {
 				model.remove(constr);
@@ -291,16 +407,121 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
 		} catch (GRBException e) {
 			e.printStackTrace();
 		}
-        myAgent.addBehaviour(new RTO_XUpdateBehaviour(model, parameters, parameters.getElectrolyzers(), new Period(7), finalSWOIteration, dataModel, rho, e -> electrolyzers.contains(e), rtoIterationCount, currentStartPeriod));
-        receivedXRTOMessages = 0; 
+        scheduleXUpdate(new RTO_XUpdateBehaviour(model, parameters, parameters.getElectrolyzers(), new Period(7), finalSWOIteration, dataModel, rho, e -> electrolyzers.contains(e), rtoIterationCount, currentStartPeriod));
+    }
+
+    /**
+     * Adds the x-update; with collectives it is followed by the energy all-reduce instead of the
+     * broadcast of the x-values.
+     */
+    private void scheduleXUpdate(RTO_XUpdateBehaviour xUpdate) {
+        if (collectives == null) {
+            xBarrier.open(rtoIterationCount);
+            SequentialBehaviour seq = new SequentialBehaviour();
+            seq.addSubBehaviour(xUpdate);
+            seq.addSubBehaviour(xBarrier.localReadyMarker(this));
+            myAgent.addBehaviour(seq);
+            return;
+        }
+        xUpdate.setBroadcastResults(false);
+        SequentialBehaviour seq = new SequentialBehaviour();
+        seq.addSubBehaviour(xUpdate);
+        seq.addSubBehaviour(new OneShotBehaviour() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void action() {
+                startEnergyAllReduce();
+            }
+        });
+        myAgent.addBehaviour(seq);
+    }
+
+    // ============================================================================
+    // COLLECTIVES
+    // ============================================================================
+
+    /**
+     * Sums the electrolyzer energy of all agents for the current RTO iteration; the S- and
+     * dual-updates start once the total is known.
+     */
+    private void startEnergyAllReduce() {
+        double intervalLengthRTO = parameters.intervalLengthSWO / rtoStepsPerSWOPeriod;
+        double ownElectrolyzerEnergy = 0.0;
+        for (Electrolyzer e : parameters.getElectrolyzers()) {
+            if (!electrolyzers.contains(e)) {
+                continue;
+            }
+            double[] xValues = dataModel.getXRTOValuesForAgent(rtoIterationCount + 1, e.getId() - 1);
+            for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
+                ownElectrolyzerEnergy += parameters.powerElectrolyzer.get(e) * intervalLengthRTO * xValues[t - 1];
+            }
+        }
+
+        UpdateMessage contribution = collectives.contribution(rtoIterationCount);
+        contribution.addEntry(0, 0, ownElectrolyzerEnergy);
+        collectives.allReduce("rtoEnergy/" + currentStartPeriod, contribution, (name, iteration, result) -> {
+            dataModel.saveTotalRTOElectrolyzerEnergy(iteration + 1, result.size() > 0 ? result.getValue(0, 0) : 0.0);
+            executeRTO_SDualUpdates();
+        });
+    }
+
+    /**
+     * The x-values of the other agents are only needed for the results of a converged RTO
+     * iteration; they are collected once with an all-gather.
+     */
+    private void gatherConvergedX(double energyBalance) {
+        UpdateMessage contribution = collectives.contribution(rtoIterationCount);
+        for (Electrolyzer e : parameters.getElectrolyzers()) {
+            if (!electrolyzers.contains(e)) {
+                continue;
+            }
+            for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
+                contribution.addEntry(e.getId(), t, dataModel.getXRTOValueForAgentPeriod(rtoIterationCount + 1, e.getId() - 1, t - 1));
+            }
+        }
+        collectives.allGather("rtoX/" + currentStartPeriod, contribution, (name, iteration, result) -> {
+            for (int i = 0; i < result.size(); i++) {
+                dataModel.saveXRTOValueForPeriod(iteration + 1, result.getElectrolyzerId(i) - 1, result.getPeriod(i) - 1, result.getValue(i, 0));
+            }
+            handleConvergence(energyBalance);
+        });
+    }
+
+    /**
+     * Builds the persistent x-update model once per RTO run; on failure the x-update falls back
+     * to rebuilding the shared model (null is returned).
+     */
+    private RTO_XUpdateModel buildXUpdateModel() {
+        Set<Electrolyzer> ownElectrolyzers = new HashSet<>();
+        for (Electrolyzer e : parameters.getElectrolyzers()) {
+            if (electrolyzers.contains(e)) {
+                ownElectrolyzers.add(e);
+            }
+        }
+        RTO_XUpdateModel blockModel = new RTO_XUpdateModel(env, parameters, ownElectrolyzers, rtoStepsPerSWOPeriod,
+                finalSWOIteration, 7, rho, ADMMSettings.getQPBackend());
+        try {
+            blockModel.build();
+            return blockModel;
+        } catch (SolverException e) {
+            System.err.println("RTO_XUpdateModel could not be built, using the shared model: " + e.getMessage());
+            blockModel.dispose();
+            return null;
+        }
     }
 
     /**
      * Processes convergence messages.
      */
-    private void handleRTO_ConvergenceMessage() {
-        receivedConvergenceRTOMessages++;
-        if (receivedConvergenceRTOMessages == totalNumberADMMAgents - 1) {
+    private void handleRTO_ConvergenceMessage(String sender) {
+        if (sender == null || sender.equals(myAgent.getLocalName())) {
+            return; // Own message
+        }
+        convergedPeers.add(sender);
+        convergenceBarrier.arrived(sender);
+        if (convergedPeers.size() == totalNumberADMMAgents - 1) {
+            convergenceBarrier.close();
             saveRTOResultsAndTerminate();
         }
     }
@@ -309,100 +530,57 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
      * Processes convergence messages.
      */
     private void handleRTO_messagesIncrementedIteration() {
-    	receivedIterationIncrementedMessages++;
-    	
-        if (receivedIterationIncrementedMessages == totalNumberADMMAgents - 1 && iterationIncremented == true) {
-        	receivedIterationIncrementedMessages = 0;
-        	iterationIncremented = false;
-            executeRTO_XUpdate();
-        }
+        dataModel.addRTOBarrierWaitTime(incrementBarrier.close());
+        executeRTO_XUpdate();
     }
     
-    // Method for parsing the X update message and saving the details
-    private void handleRTO_XUpdateMessage(String content) {
-        String[] parts = content.split(";");
-        StringBuilder output = new StringBuilder("Bundled X-values and hydrogen production from x-Update:\n");
-
-        if (parts.length >= 2) {
-            int iteration = Integer.parseInt(parts[1]);
-            output.append("Iteration: ").append(iteration).append("\n");
-            
-            if (iteration != rtoIterationCount) {
-                System.err.println("Incorrect RTO iteration at agent " + myAgent.getLocalName() + " is iteration " + rtoIterationCount);
-            }
+    // Saves the bundled x-values of a peer's RTO X-update
+    private void handleRTO_XUpdateMessage(UpdateMessage update) {
+        int iteration = update.getIteration();
+        if (iteration != rtoIterationCount) {
+            System.err.println("Incorrect RTO iteration at agent " + myAgent.getLocalName() + " is iteration " + rtoIterationCount);
+        }
 
-            for (int i = 2; i < parts.length; i++) {
-                String[] resultParts = parts[i].split(",");
-                if (resultParts.length == 4) {
-                    int electrolyzerID = Integer.parseInt(resultParts[0]) ;
-                    int periodIndex = Integer.parseInt(resultParts[1]);
-                    double xValue = Double.parseDouble(resultParts[2]);
-                    double hydrogenProduction = Double.parseDouble(resultParts[3]);
-
-                    output.append("Agent: ").append(myAgent.getLocalName())
-                          .append(", Electrolyzer ID: ").append(electrolyzerID)
-                          .append(", Period: ").append(periodIndex)
-                          .append(", X-Value: ").append(xValue)
-                          .append(", Hydrogen Production: ").append(hydrogenProduction)
-                          .append("\n");
-
-                    // Save the values in the ADMM data model
-                    dataModel.saveXRTOValueForPeriod(iteration +1, electrolyzerID-1, periodIndex-1, xValue);
-                }
-            }
-            
+        for (int i = 0; i < update.size(); i++) {
+            // Save the values in the ADMM data model
+            dataModel.saveXRTOValueForPeriod(iteration + 1, update.getElectrolyzerId(i) - 1, update.getPeriod(i) - 1,
+                    update.getValue(i, UpdateMessage.X));
         }
     }
     
-    private void handleRTO_DualUpdateMessage(String content) {
-        String[] parts = content.split(";");
-
-        if (parts.length >= 2) {
-            int iteration = Integer.parseInt(parts[1]);
-            for (int i = 2; i < parts.length; i++) {
-                String[] resultParts = parts[i].split(",");
-                if (resultParts.length >= 13) {
-                    int electrolyzerID = Integer.parseInt(resultParts[0]) - 1;
-                    int periodIndex = Integer.parseInt(resultParts[1]) - 1;
-
-                    // Save U-values
-                    double u1 = Double.parseDouble(resultParts[2]);
-                    double u2 = Double.parseDouble(resultParts[3]);
-                    double u3 = Double.parseDouble(resultParts[4]);
-                    dataModel.saveURTOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 0, u1);
-                    dataModel.saveURTOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 1, u2);
-                    dataModel.saveURTOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 2, u3);
-                    
-                    // Save S-values
-                    double s1 = Double.parseDouble(resultParts[5]);
-                    double s2 = Double.parseDouble(resultParts[7]);
-                    dataModel.saveSRTOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 0, s1);
-                    dataModel.saveSRTOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 1, s2);
-
-                    // Save Residuals
-                    double residual1 = Double.parseDouble(resultParts[7]);
-                    double residual2 = Double.parseDouble(resultParts[8]);
-                    double residual3 = Double.parseDouble(resultParts[9]);
-                    dataModel.saveYResiduals(iteration, electrolyzerID, periodIndex, 
-                        new double[]{residual1, residual2, residual3});
-
-                    // Save Y-values for each state
-                    boolean[] yValues = new boolean[State.values().length];
-                    for (int j = 0; j < State.values().length; j++) {
-                        yValues[j] = resultParts[10 + j].equals("1");
-                    }
-                }
-            }
+    private void handleRTO_DualUpdateMessage(UpdateMessage update) {
+        int iteration = update.getIteration();
+
+        for (int i = 0; i < update.size(); i++) {
+            int electrolyzerID = update.getElectrolyzerId(i) - 1;
+            int periodIndex = update.getPeriod(i) - 1;
+
+            // Save U-values
+            dataModel.saveURTOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 0, update.getValue(i, UpdateMessage.U1));
+            dataModel.saveURTOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 1, update.getValue(i, UpdateMessage.U2));
+            dataModel.saveURTOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 2, update.getValue(i, UpdateMessage.U3));
+
+            // Save S-values
+            dataModel.saveSRTOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 0, update.getValue(i, UpdateMessage.S1));
+            dataModel.saveSRTOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 1, update.getValue(i, UpdateMessage.S2));
+
+            // Save Residuals
+            dataModel.saveRTOResiduals(iteration, electrolyzerID, periodIndex, new double[]{
+                update.getValue(i, UpdateMessage.RESIDUAL1),
+                update.getValue(i, UpdateMessage.RESIDUAL2),
+                update.getValue(i, UpdateMessage.RESIDUAL3)});
         }
     }
 
     private void sendConvergenceMessage() {
         ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-        msg.setContent("RTOconvergenceReached");
         for (AID agent : dataModel.getPhoneBook()) {
             msg.addReceiver(agent);
         }
-        myAgent.send(msg);
+        LocalTransport.send(myAgent, msg, new UpdateMessage(MessageType.RTO_CONVERGENCE, rtoIterationCount, myAgent.getLocalName()), null, null);
+        convergenceBarrier.open(rtoIterationCount);
+        convergenceBarrier.localReady();
+        convergenceBarrier.arrived(convergedPeers);
     }
     
     private final Object lock = new Object();  // Synchronisation object
@@ -412,13 +590,12 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
             try {
                 // Your message sending logic
                 ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-                msg.setContent("iterationIncremented");
                 for (AID agent : dataModel.getPhoneBook()) {
                     if (!agent.equals(myAgent.getAID())) {
                         msg.addReceiver(agent);
                     }
                 }
-                myAgent.send(msg);
+                LocalTransport.send(myAgent, msg, new UpdateMessage(MessageType.RTO_ITERATION_INCREMENTED, rtoIterationCount, myAgent.getLocalName()), null, null);
                 sendIncrementedMessage = true;
 
                 lock.wait(10);  
@@ -462,6 +639,10 @@ public class RTO_CyclicBehaviour extends CyclicBehaviour {
             e.printStackTrace();
         }
 
+        if (xUpdateModel != null) {
+            xUpdateModel.dispose();
+            xUpdateModel = null;
+        }
         myAgent.doDelete(); 
     }
      
@@ -3,6 +3,9 @@ package behaviours;
 import jade.core.AID;
 import jade.core.behaviours.OneShotBehaviour;
 import jade.lang.acl.ACLMessage;
+import messages.LocalTransport;
+import messages.MessageType;
+import messages.UpdateMessage;
 
 import java.util.*;
 import java.util.function.Predicate;
@@ -27,6 +30,7 @@ public class RTO_DualUpdateBehaviour extends OneShotBehaviour {
     private int currentRTOIteration;
     private int rtoStepsPerSWOPeriod = 10;
     private int currentStartPeriod;
+    private boolean broadcastResults = true; // false: the RTO cycle exchanges aggregates via collectives
 
     // Constructor
     public RTO_DualUpdateBehaviour(Parameters params, Set<Electrolyzer> electrolyzers, Period currentSWOPeriod, int finalSWOIteration, ADMMDataModel dataModel, double rho, Predicate<Electrolyzer> filterCriteria, int RTOIteration, int currentStartPeriod) {
@@ -46,9 +50,21 @@ public class RTO_DualUpdateBehaviour extends OneShotBehaviour {
     	Set<Electrolyzer> filteredElectrolyzers = filterElectrolyzers(electrolyzers, filterCriteria);
     	System.out.println("Dual update from " + myAgent.getLocalName() + " in RTO iteration: " + currentRTOIteration + " SWO iteration: " + finalSWOIteration +  " in  start period: " + currentStartPeriod);
     	
-        optimizeUForElectrolyzer();
+        optimizeUForElectrolyzer(filteredElectrolyzers);
 
-        sendBundledDualUpdateResults(filteredElectrolyzers);
+        if (broadcastResults) {
+            sendBundledDualUpdateResults(filteredElectrolyzers);
+        } else {
+            dataModel.setDualUpdateCompleted(true);
+        }
+    }
+
+    /**
+     * With collectives the total electrolyzer energy comes from the all-reduce and only the
+     * agent's own dual variables are updated; nothing is sent to the other agents.
+     */
+    public void setBroadcastResults(boolean broadcastResults) {
+        this.broadcastResults = broadcastResults;
     }
 
     private Set<Electrolyzer> filterElectrolyzers(Set<Electrolyzer> electrolyzers, Predicate<Electrolyzer> filterCriteria) {
@@ -61,21 +77,27 @@ public class RTO_DualUpdateBehaviour extends OneShotBehaviour {
         return filteredSet;
     }
     
-    private void optimizeUForElectrolyzer() {
+    private void optimizeUForElectrolyzer(Set<Electrolyzer> filteredElectrolyzers) {
         int nextIteration = currentRTOIteration + 1;
 
-        // Calculation of total energy generated by electrolyzers
+        // Calculation of total energy generated by electrolyzers (all-reduce result if available)
+        Double reducedElectrolyzerEnergy = dataModel.getTotalRTOElectrolyzerEnergy(nextIteration);
+        Set<Electrolyzer> dualElectrolyzers = reducedElectrolyzerEnergy != null ? filteredElectrolyzers : dataModel.getAllElectrolyzers();
         double totalElectrolyzerEnergy = 0.0;
-        for (Electrolyzer e : dataModel.getAllElectrolyzers()) {
-            int electrolyzerIndex = e.getId() - 1;
-            double[] xValues = dataModel.getXRTOValuesForAgent(nextIteration, electrolyzerIndex);
-            double powerElectrolyzer = params.powerElectrolyzer.get(e);
-            double intervalLengthRTO = params.intervalLengthSWO / rtoStepsPerSWOPeriod;
-
-            for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
-                int periodIndex = t - 1;
-                double xValue = xValues[periodIndex];
-                totalElectrolyzerEnergy += powerElectrolyzer * intervalLengthRTO * xValue;
+        if (reducedElectrolyzerEnergy != null) {
+            totalElectrolyzerEnergy = reducedElectrolyzerEnergy;
+        } else {
+            for (Electrolyzer e : dataModel.getAllElectrolyzers()) {
+                int electrolyzerIndex = e.getId() - 1;
+                double[] xValues = dataModel.getXRTOValuesForAgent(nextIteration, electrolyzerIndex);
+                double powerElectrolyzer = params.powerElectrolyzer.get(e);
+                double intervalLengthRTO = params.intervalLengthSWO / rtoStepsPerSWOPeriod;
+
+                for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
+                    int periodIndex = t - 1;
+                    double xValue = xValues[periodIndex];
+                    totalElectrolyzerEnergy += powerElectrolyzer * intervalLengthRTO * xValue;
+                }
             }
         }
 
@@ -89,11 +111,22 @@ public class RTO_DualUpdateBehaviour extends OneShotBehaviour {
         double purchasedGridEnergy = params.getPurchasedEnergy(currentSWOPeriod);
         double energyBalance = totalElectrolyzerEnergy - (totalRenewableEnergy + purchasedGridEnergy);
                 
+        // Holen Sie sich den EnergyBalance der Voriteration
+        double previousEnergyBalance = dataModel.getEnergyBalanceResultForIteration(currentRTOIteration);
+        double deltaEnergy = Math.abs(energyBalance - previousEnergyBalance);
+
+        double rhoScaling;
+        if (deltaEnergy <= 0.005) {
+            rhoScaling = 0.5;
+        } else {
+            rhoScaling = 0.01;
+        }
+
         // newUValues: [0] = lower dual variable, [1] = upper dual variable,
         double[][] newUValues = new double[rtoStepsPerSWOPeriod][4];
 
         // Iteration over all electrolyzers
-		for (Electrolyzer e : dataModel.getAllElectrolyzers()) {
+		for (Electrolyzer e : dualElectrolyzers) {
 			int electrolyzerIndex = e.getId() - 1;
 
 			for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
@@ -149,17 +182,6 @@ public class RTO_DualUpdateBehaviour extends OneShotBehaviour {
 					}
 				}
 
-				// Holen Sie sich den EnergyBalance der Voriteration
-				double previousEnergyBalance = dataModel.getEnergyBalanceResultForIteration(currentRTOIteration);
-				double deltaEnergy = Math.abs(energyBalance - previousEnergyBalance);
-
-				double rhoScaling;
-				if (deltaEnergy <= 0.005) {
-					rhoScaling = 0.5;
-				} else {
-					rhoScaling = 0.01;
-				}
-
 				newUValues[periodIndex][0] = newU1;
 				newUValues[periodIndex][1] = newU2;
 				newUValues[periodIndex][2] = energyBalance;
@@ -167,65 +189,43 @@ public class RTO_DualUpdateBehaviour extends OneShotBehaviour {
 						+ dataModel.getEnergyBalanceDualVariable(currentRTOIteration);
 
 				dataModel.saveURTOValuesForAgent(nextIteration, electrolyzerIndex, newUValues);
-
-				// Update der globalen Energiebilanz-Dualvariable
-				double energyBalanceDualVariable = dataModel.getEnergyBalanceDualVariable(currentRTOIteration)
-						+ rhoScaling * energyBalance;
-				dataModel.setEnergyBalanceDualVariable(currentRTOIteration + 1, energyBalanceDualVariable);
-
-				dataModel.setEnergyResultForIteration(nextIteration, energyBalance);
-
 			}
 		}
+
+		// Update der globalen Energiebilanz-Dualvariable (unabhängig von den Elektrolyseuren)
+		double energyBalanceDualVariable = dataModel.getEnergyBalanceDualVariable(currentRTOIteration)
+				+ rhoScaling * energyBalance;
+		dataModel.setEnergyBalanceDualVariable(currentRTOIteration + 1, energyBalanceDualVariable);
+
+		dataModel.setEnergyResultForIteration(nextIteration, energyBalance);
 	}
 
     private void sendBundledDualUpdateResults(Set<Electrolyzer> filteredElectrolyzers) {
         ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
 
-        // Nachrichtentext mit dualUpdateMessage und Iteration
-        StringBuilder content = new StringBuilder();
-        content.append("RTOdualUpdateMessage;").append(currentRTOIteration).append(";");
+        // Nachricht mit RTOdualUpdateMessage und Iteration
+        UpdateMessage update = new UpdateMessage(MessageType.RTO_DUAL_UPDATE, currentRTOIteration, myAgent.getLocalName(),
+                electrolyzers.size() * rtoStepsPerSWOPeriod);
 
         for (Electrolyzer e : electrolyzers) {
+            int electrolyzerIndex = e.getId() - 1;
+            double[][] uValues = dataModel.getURTOValuesForAgent(currentRTOIteration + 1, electrolyzerIndex);
+            double[][] sValues = dataModel.getSRTOValuesForAgent(currentRTOIteration + 1, electrolyzerIndex);
+            boolean[][] yValues = dataModel.getYSWOValuesForAgent(finalSWOIteration, electrolyzerIndex);
+
         	for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
-                int electrolyzerIndex = e.getId() - 1;
-                
                 int periodIndex = t-1;
 
-                double[][] uValues = dataModel.getURTOValuesForAgent(currentRTOIteration +1, electrolyzerIndex);
-                double[][] sValues = dataModel.getSRTOValuesForAgent(currentRTOIteration + 1, electrolyzerIndex);
-                boolean[][] yValues = dataModel.getYSWOValuesForAgent(finalSWOIteration, electrolyzerIndex);
-                double[] residuals = dataModel.getYSWOResiduals(currentRTOIteration, electrolyzerIndex, periodIndex);
-
-                content.append(e.getId()).append(",")  // Elektrolyseur-ID
-                       .append(t).append(",")   // Periode
-                       .append(uValues[periodIndex][0]).append(",")  
-                       .append(uValues[periodIndex][1]).append(",") 
-                       .append(uValues[periodIndex][2]).append(","); 
-
-                content.append(sValues[periodIndex][0]).append(",")  
-                       .append(sValues[periodIndex][1]).append(","); 
-
-                if (residuals != null) {
-                    content.append(residuals[0]).append(",")   
-                           .append(residuals[1]).append(",")  
-                           .append(residuals[2]).append(",");  
-                } else {
-                    content.append("0,0,0,");  
-                }
-
-                // y-Werte (als 0 oder 1)
-                for (State state : State.values()) {
-                    content.append(yValues[periodIndex][state.ordinal()] ? 1 : 0).append(",");
-                }
-
-                content.deleteCharAt(content.length() - 1); 
-                content.append(";"); 
+                update.addEntry(e.getId(), t, yValues[periodIndex],
+                        uValues[periodIndex][0], uValues[periodIndex][1], uValues[periodIndex][2],
+                        sValues[periodIndex][0], sValues[periodIndex][1],
+                        dataModel.getRTOResidual(currentRTOIteration, electrolyzerIndex, periodIndex, 0),
+                        dataModel.getRTOResidual(currentRTOIteration, electrolyzerIndex, periodIndex, 1),
+                        dataModel.getRTOResidual(currentRTOIteration, electrolyzerIndex, periodIndex, 2));
             }
         }
 
-        // Setze den Nachrichtentext
-        msg.setContent(content.toString());
+        update.setQuantizationStep(ADMMSettings.getQuantizationStep());
 
         // Send message to all recipients in phone book
         List<AID> phoneBook = dataModel.getPhoneBook();
@@ -237,8 +237,8 @@ public class RTO_DualUpdateBehaviour extends OneShotBehaviour {
 
         // Senden der Nachricht
         if (msg.getAllReceiver().hasNext()) {
-            myAgent.send(msg);
-           
+            LocalTransport.send(myAgent, msg, update, dataModel.getMessageDelta(), dataModel.getMessageStatistics());
+
         } else {
             System.out.println("No recipients found, message not sent.");
         }
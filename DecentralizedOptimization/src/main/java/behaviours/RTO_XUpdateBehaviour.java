@@ -11,13 +11,18 @@ import com.gurobi.gurobi.*;
 import jade.core.AID;
 import jade.core.behaviours.OneShotBehaviour;
 import jade.lang.acl.ACLMessage;
+import messages.LocalTransport;
+import messages.MessageType;
+import messages.UpdateMessage;
 import models.ADMMDataModel;
+import models.ADMMSettings;
 import models.Electrolyzer;
 import models.Parameters;
 import models.Period;
 import models.State;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import solvers.SolverException;
 
 public class RTO_XUpdateBehaviour extends OneShotBehaviour {
 
@@ -31,6 +36,8 @@ public class RTO_XUpdateBehaviour extends OneShotBehaviour {
     private ADMMDataModel dataModel;
     private double rho;
     private int currentRTOIteration;
+    private RTO_XUpdateModel persistentModel; // null: rebuild formulation on the shared model
+    private boolean broadcastResults = true; // false: the RTO cycle exchanges aggregates via collectives
 
     private Map<Electrolyzer, Map<Integer, GRBVar>> xVarsRTO;
     private Map<Electrolyzer, Map<Integer, GRBVar>> residual1VarsRTO;
@@ -50,6 +57,18 @@ public class RTO_XUpdateBehaviour extends OneShotBehaviour {
     public RTO_XUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, 
             Period currentSWOPeriod, int finalSWOIteration, ADMMDataModel dataModel, double rho, 
             Predicate<Electrolyzer> filterCriteria, int RTOIteration, int currentStartPeriod) {
+        this(model, params, electrolyzers, currentSWOPeriod, finalSWOIteration, dataModel, rho,
+                filterCriteria, RTOIteration, currentStartPeriod, null);
+    }
+
+    /**
+     * @param persistentModel persistent RTO x formulation of the agent; if given, no variables or
+     *                        constraints are added to the shared model
+     */
+    public RTO_XUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, 
+            Period currentSWOPeriod, int finalSWOIteration, ADMMDataModel dataModel, double rho, 
+            Predicate<Electrolyzer> filterCriteria, int RTOIteration, int currentStartPeriod,
+            RTO_XUpdateModel persistentModel) {
         this.model = model;
         this.params = params;
         this.electrolyzers = electrolyzers;
@@ -60,7 +79,18 @@ public class RTO_XUpdateBehaviour extends OneShotBehaviour {
         this.currentRTOIteration = RTOIteration;
         this.filterCriteria = filterCriteria;
         this.currentStartPeriod = currentStartPeriod;
-        initializeVariables();
+        this.persistentModel = persistentModel;
+        if (persistentModel == null) {
+            initializeVariables();
+        }
+    }
+
+    /**
+     * With collectives the x-values stay local; the RTO cycle starts the energy all-reduce once
+     * the behaviour is done.
+     */
+    public void setBroadcastResults(boolean broadcastResults) {
+        this.broadcastResults = broadcastResults;
     }
 
     private void initializeVariables() {
@@ -94,18 +124,54 @@ public class RTO_XUpdateBehaviour extends OneShotBehaviour {
     public void action() {
         int nextIteration = currentRTOIteration + 1;
         try {
-            model.update();
-            optimizeX();
-            saveResults(nextIteration);
-            sendBundledXUpdateResults();
+            if (persistentModel != null) {
+                optimizeXPersistent(nextIteration);
+            } else {
+                model.update();
+                optimizeX();
+                saveResults(nextIteration);
+            }
+            if (broadcastResults) {
+                sendBundledXUpdateResults();
+            }
             
             if (currentStartPeriod < rtoStepsPerSWOPeriod) {
                 currentStartPeriod++;
             }
-        } catch (GRBException e) {
+        } catch (GRBException | SolverException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * x-update on the persistent model: only bounds of the fixed steps, residual right-hand
+     * sides and the lambdaEnergy term are written before the solve.
+     */
+    private void optimizeXPersistent(int nextIteration) throws SolverException {
+        System.out.println("x-Update (persistent) von " + myAgent.getLocalName() 
+            + " in SWO-Iteration: " + finalSWOIteration 
+            + ", SWO-Periode: " + currentSWOPeriod.getT() 
+            + ", ab Startperiode: " + currentStartPeriod);
+
+        persistentModel.setRho(rho);
+        persistentModel.update(dataModel, currentRTOIteration, currentStartPeriod);
+
+        if (!persistentModel.solve()) {
+            System.out.println("No optimal solution found.");
+            return;
+        }
+        Electrolyzer[] sortedElectrolyzers = persistentModel.getElectrolyzers();
+        for (int e = 0; e < sortedElectrolyzers.length; e++) {
+            int agentID = sortedElectrolyzers[e].getId() - 1;
+            for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
+                double xValue = persistentModel.getXValue(e, t);
+                if (xValue <= 0.01) {
+                    xValue = 0;
+                }
+                dataModel.saveXRTOValueForPeriod(nextIteration, agentID, t - 1, xValue);
+            }
+        }
+    }
     
     private void optimizeX() throws GRBException {
         System.out.println("x-Update von " + myAgent.getLocalName() 
@@ -245,26 +311,25 @@ public class RTO_XUpdateBehaviour extends OneShotBehaviour {
     private void sendBundledXUpdateResults() {
         Set<Electrolyzer> filteredElectrolyzers = filterElectrolyzers(electrolyzers, filterCriteria);
         ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-        StringBuilder content = new StringBuilder();
-        content.append("RTOxUpdateMessage;").append(currentRTOIteration).append(";");
+        UpdateMessage update = new UpdateMessage(MessageType.RTO_X_UPDATE, currentRTOIteration, myAgent.getLocalName(),
+                filteredElectrolyzers.size() * rtoStepsPerSWOPeriod);
     
         for (Electrolyzer e : filteredElectrolyzers) {
             for (int t = 1; t <= rtoStepsPerSWOPeriod; t++) {
                 double xValue = dataModel.getXRTOValueForAgentPeriod(currentRTOIteration + 1, e.getId() - 1, t - 1);
                 double hydrogenProduction = 0;
-                content.append(e.getId()).append(",").append(t).append(",")
-                       .append(xValue).append(",").append(hydrogenProduction).append(";");
+                update.addEntry(e.getId(), t, xValue, hydrogenProduction);
             }
         }
     
-        msg.setContent(content.toString());
+        update.setQuantizationStep(ADMMSettings.getQuantizationStep());
         for (AID recipient : dataModel.getPhoneBook()) {
             if (!recipient.equals(myAgent.getAID())) {
                 msg.addReceiver(recipient);
             }
         }
        
-        myAgent.send(msg);
+        LocalTransport.send(myAgent, msg, update, dataModel.getMessageDelta(), dataModel.getMessageStatistics());
         System.out.println(myAgent.getLocalName() + " send Message in Iteration " + currentRTOIteration);
         
     }
@@ -0,0 +1,219 @@
+package behaviours;
+
+import java.util.Set;
+
+import com.gurobi.gurobi.GRBEnv;
+import models.ADMMDataModel;
+import models.Electrolyzer;
+import models.Parameters;
+import models.State;
+import solvers.QuadraticObjective;
+import solvers.SolverException;
+import solvers.SubproblemSolver;
+import solvers.SubproblemSolver.VariableType;
+import solvers.SubproblemSolverFactory;
+
+/**
+ * Persistent formulation of the RTO x-update, built once per RTO run instead of once per
+ * RTO iteration.
+ *
+ * Per (electrolyzer, RTO step t):
+ *   residual1 + x >= opMin * yProduction + s1
+ *   residual2 - x >= s2 - opMax * yProduction
+ * with the penalty rho * (residual1^2 + residual2^2) and the linear term
+ * (P * dt * lambdaEnergy - P * efficiency * dt) * x.
+ *
+ * Rolling horizon: steps t < currentStartPeriod are fixed to their converged x via LB = UB, their
+ * residual rows are relaxed with an infinite right-hand side and their linear term is zero. Per
+ * RTO iteration only the residual right-hand sides (s) and the linear x coefficients (lambdaEnergy)
+ * change; the quadratic penalty is only rebuilt when rho changes. The constant of the dual energy
+ * term is left out, it does not change the minimizer.
+ */
+public class RTO_XUpdateModel extends SWO_BlockModel<ADMMDataModel> {
+
+    private static final double OPTIMALITY_TOLERANCE = 1e-6;
+
+    private final Parameters params;
+    private final Electrolyzer[] electrolyzers;
+    private final int rtoSteps;
+    private final int swoIteration;
+    private final int swoPeriod;
+
+    // Flattened per (electrolyzer, RTO step): index = e * rtoSteps + (t - 1)
+    private final int[] xVars;
+    private final int[] residual1Vars;
+    private final int[] residual2Vars;
+    private final int[] residual1Constrs;
+    private final int[] residual2Constrs;
+
+    private final double[] residual1Rhs;
+    private final double[] residual2Rhs;
+    private final double[] xLowerBounds;
+    private final double[] xUpperBounds;
+    private final double[] xCoefficients;
+    private final double[] xValues;
+
+    /**
+     * @param swoIteration final SWO iteration, its y fixes the production state
+     * @param swoPeriod    SWO period that is refined by the RTO steps
+     */
+    public RTO_XUpdateModel(GRBEnv env, Parameters params, Set<Electrolyzer> electrolyzers, int rtoSteps,
+                            int swoIteration, int swoPeriod, double rho) {
+        this(env, params, electrolyzers, rtoSteps, swoIteration, swoPeriod, rho, SubproblemSolverFactory.BACKEND_GUROBI);
+    }
+
+    public RTO_XUpdateModel(GRBEnv env, Parameters params, Set<Electrolyzer> electrolyzers, int rtoSteps,
+                            int swoIteration, int swoPeriod, double rho, String backend) {
+        super(env, rho, backend);
+        this.params = params;
+        this.electrolyzers = sortById(electrolyzers);
+        this.rtoSteps = rtoSteps;
+        this.swoIteration = swoIteration;
+        this.swoPeriod = swoPeriod;
+
+        int size = this.electrolyzers.length * rtoSteps;
+        xVars = new int[size];
+        residual1Vars = new int[size];
+        residual2Vars = new int[size];
+        residual1Constrs = new int[size];
+        residual2Constrs = new int[size];
+        residual1Rhs = new double[size];
+        residual2Rhs = new double[size];
+        xLowerBounds = new double[size];
+        xUpperBounds = new double[size];
+        xCoefficients = new double[size];
+        xValues = new double[size];
+    }
+
+    // ============================================================================
+    // MODEL CONSTRUCTION
+    // ============================================================================
+
+    @Override
+    protected void configure() throws SolverException {
+        solver.setParameter("OptimalityTol", OPTIMALITY_TOLERANCE);
+    }
+
+    @Override
+    protected void buildModel() throws SolverException {
+        for (int e = 0; e < electrolyzers.length; e++) {
+            int electrolyzerID = electrolyzers[e].getId();
+            for (int t = 1; t <= rtoSteps; t++) {
+                int index = index(e, t);
+                String suffix = electrolyzerID + "_" + t;
+                xVars[index] = solver.addVariable(0.0, 1.0, VariableType.CONTINUOUS, "x_" + suffix);
+                residual1Vars[index] = solver.addVariable(0.0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual_Constraint1_" + suffix);
+                residual2Vars[index] = solver.addVariable(0.0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual_Constraint2_" + suffix);
+
+                residual1Constrs[index] = solver.addConstraint(new int[]{residual1Vars[index], xVars[index]}, new double[]{1.0, 1.0},
+                        SubproblemSolver.GREATER_EQUAL, -SubproblemSolver.INFINITY, "lowerBoundaryResidual_" + suffix);
+                residual2Constrs[index] = solver.addConstraint(new int[]{residual2Vars[index], xVars[index]}, new double[]{1.0, -1.0},
+                        SubproblemSolver.GREATER_EQUAL, -SubproblemSolver.INFINITY, "upperBoundaryResidual_" + suffix);
+            }
+        }
+        setObjective();
+    }
+
+    /**
+     * Quadratic penalty on all residuals; residuals of fixed steps are unconstrained and stay zero.
+     */
+    private void setObjective() throws SolverException {
+        QuadraticObjective objective = new QuadraticObjective();
+        for (int i = 0; i < xVars.length; i++) {
+            objective.addLinear(xVars[i], xCoefficients[i]);
+            objective.addQuadratic(residual1Vars[i], residual1Vars[i], rho);
+            objective.addQuadratic(residual2Vars[i], residual2Vars[i], rho);
+        }
+        solver.setObjective(objective);
+    }
+
+    @Override
+    protected void onRhoChanged() {
+        if (solver == null) {
+            return;
+        }
+        try {
+            setObjective();
+        } catch (SolverException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ============================================================================
+    // ITERATION UPDATE
+    // ============================================================================
+
+    /**
+     * Reads s and lambdaEnergy of the RTO iteration and the converged x of the fixed steps.
+     */
+    @Override
+    protected void updateModel(ADMMDataModel dataModel, int iteration, int currentStartPeriod) throws SolverException {
+        double intervalLengthRTO = params.intervalLengthSWO / rtoSteps;
+        double lambdaEnergy = dataModel.getEnergyBalanceDualVariable(iteration);
+
+        for (int e = 0; e < electrolyzers.length; e++) {
+            Electrolyzer electrolyzer = electrolyzers[e];
+            int agentID = electrolyzer.getId() - 1;
+            boolean[][] ySWOValues = dataModel.getYSWOValuesForAgent(swoIteration, agentID);
+            double[][] sRTOValues = dataModel.getSRTOValuesForAgent(iteration, agentID);
+            double productionYValue = ySWOValues[swoPeriod - 1][State.PRODUCTION.ordinal()] ? 1.0 : 0.0;
+            double opMin = params.minOperation.get(electrolyzer);
+            double opMax = params.maxOperation.get(electrolyzer);
+            double powerElectrolyzer = params.powerElectrolyzer.get(electrolyzer);
+            double efficiency = params.slope.get(electrolyzer);
+            double coefficient = powerElectrolyzer * intervalLengthRTO * (lambdaEnergy - efficiency);
+
+            for (int t = 1; t <= rtoSteps; t++) {
+                int index = index(e, t);
+                if (t < currentStartPeriod) {
+                    double fixedValue = dataModel.getXRTOResultForAgentPeriod(agentID, t - 1);
+                    xLowerBounds[index] = fixedValue;
+                    xUpperBounds[index] = fixedValue;
+                    residual1Rhs[index] = -SubproblemSolver.INFINITY;
+                    residual2Rhs[index] = -SubproblemSolver.INFINITY;
+                    xCoefficients[index] = 0.0;
+                } else {
+                    xLowerBounds[index] = 0.0;
+                    xUpperBounds[index] = 1.0;
+                    residual1Rhs[index] = opMin * productionYValue + sRTOValues[t - 1][0];
+                    residual2Rhs[index] = sRTOValues[t - 1][1] - opMax * productionYValue;
+                    xCoefficients[index] = coefficient;
+                }
+            }
+        }
+
+        solver.setLowerBounds(xVars, xLowerBounds);
+        solver.setUpperBounds(xVars, xUpperBounds);
+        solver.setRhs(residual1Constrs, residual1Rhs);
+        solver.setRhs(residual2Constrs, residual2Rhs);
+        solver.setLinearObjective(xVars, xCoefficients);
+    }
+
+    @Override
+    protected void readSolution() throws SolverException {
+        solver.getValues(xVars, xValues);
+    }
+
+    // ============================================================================
+    // RESULTS
+    // ============================================================================
+
+    /**
+     * @param t RTO step, 1-based
+     */
+    public double getXValue(int electrolyzerIndex, int t) {
+        return xValues[index(electrolyzerIndex, t)];
+    }
+
+    public Electrolyzer[] getElectrolyzers() {
+        return electrolyzers;
+    }
+
+    public int getRtoSteps() {
+        return rtoSteps;
+    }
+
+    private int index(int electrolyzerIndex, int t) {
+        return electrolyzerIndex * rtoSteps + (t - 1);
+    }
+}
@@ -0,0 +1,160 @@
+package behaviours;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.ADMMDataModel;
+
+/**
+ * Progress of the peers of one agent in the asynchronous SWO.
+ *
+ * For both exchange phases (X and Dual) the last iteration every peer has reported is kept,
+ * together with the (electrolyzer, period) entries its messages contain. An agent may leave a
+ * phase of iteration k once at least quorum peers have reported k and no peer is more than
+ * maxStaleness iterations behind; for the peers that are behind, their last contribution is
+ * carried forward in the data model. Peers that have sent their convergence message are final
+ * and never block. Iteration 0 is always synchronous, as the entries of a peer are only known
+ * after its first message.
+ */
+public class SWO_AsyncProgress {
+
+    public enum Phase {
+        X,
+        DUAL
+    }
+
+    private final int totalPeers;
+    private final int quorum;
+    private final int maxStaleness;
+    private final Map<String, PeerState> peers = new HashMap<>();
+
+    /**
+     * @param totalPeers   number of other agents
+     * @param quorum       peers that must be current before the agent moves on
+     * @param maxStaleness maximal age in iterations of a contribution that may be reused
+     */
+    public SWO_AsyncProgress(int totalPeers, int quorum, int maxStaleness) {
+        this.totalPeers = totalPeers;
+        this.quorum = Math.max(0, Math.min(quorum, totalPeers));
+        this.maxStaleness = Math.max(0, maxStaleness);
+    }
+
+    // ============================================================================
+    // MESSAGE BOOKKEEPING
+    // ============================================================================
+
+    /**
+     * Records one (electrolyzer, period) entry of a peer's message; entries are stable between iterations.
+     */
+    public void recordEntry(Phase phase, String peer, int electrolyzerIndex, int periodIndex) {
+        PeerState state = peer(peer);
+        if (state.lastIteration(phase) < 0) {
+            state.entries(phase).add(new int[]{electrolyzerIndex, periodIndex});
+        }
+    }
+
+    /** Marks the message of the peer for the iteration as complete. */
+    public void reported(Phase phase, String peer, int iteration) {
+        PeerState state = peer(peer);
+        if (phase == Phase.X) {
+            state.lastX = Math.max(state.lastX, iteration);
+        } else {
+            state.lastDual = Math.max(state.lastDual, iteration);
+        }
+    }
+
+    public void finished(String peer) {
+        peer(peer).finished = true;
+    }
+
+    // ============================================================================
+    // QUORUM AND STALENESS
+    // ============================================================================
+
+    /**
+     * @return true if the agent may complete the phase of the iteration
+     */
+    public boolean isReady(Phase phase, int iteration) {
+        if (peers.size() < totalPeers) {
+            return false;
+        }
+        int current = 0;
+        for (PeerState state : peers.values()) {
+            int last = state.lastIteration(phase);
+            if (last < 0) {
+                return false;
+            }
+            if (last >= iteration || state.finished) {
+                current++;
+            } else if (iteration - last > maxStaleness) {
+                return false;
+            }
+        }
+        return current >= quorum;
+    }
+
+    /** Number of peers that have reported the iteration. */
+    public int countCurrent(Phase phase, int iteration) {
+        int current = 0;
+        for (PeerState state : peers.values()) {
+            if (state.lastIteration(phase) >= iteration) {
+                current++;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Copies the last contribution of every peer behind the iteration into the iteration's slots.
+     *
+     * @return largest age in iterations of a reused contribution, 0 if all peers were current
+     */
+    public int fillStale(Phase phase, ADMMDataModel dataModel, int iteration) {
+        int staleness = 0;
+        for (PeerState state : peers.values()) {
+            int last = state.lastIteration(phase);
+            if (last >= iteration) {
+                continue;
+            }
+            staleness = Math.max(staleness, iteration - last);
+            for (int[] entry : state.entries(phase)) {
+                if (phase == Phase.X) {
+                    dataModel.copyXSWOValueForPeriod(last + 1, iteration + 1, entry[0], entry[1]);
+                } else {
+                    dataModel.copyDualSWOValuesForPeriod(last, iteration, entry[0], entry[1]);
+                }
+            }
+        }
+        return staleness;
+    }
+
+    public int getQuorum() {
+        return quorum;
+    }
+
+    public int getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    private PeerState peer(String name) {
+        return peers.computeIfAbsent(name, k -> new PeerState());
+    }
+
+    private static final class PeerState {
+        private int lastX = -1;
+        private int lastDual = -1;
+        private boolean finished = false;
+        private final List<int[]> xEntries = new ArrayList<>();
+        private final List<int[]> dualEntries = new ArrayList<>();
+
+        int lastIteration(Phase phase) {
+            return phase == Phase.X ? lastX : lastDual;
+        }
+
+        List<int[]> entries(Phase phase) {
+            return phase == Phase.X ? xEntries : dualEntries;
+        }
+    }
+}
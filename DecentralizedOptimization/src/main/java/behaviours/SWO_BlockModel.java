@@ -0,0 +1,179 @@
+package behaviours;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import com.gurobi.gurobi.GRBEnv;
+import models.Electrolyzer;
+import models.Period;
+import models.SWOValueReader;
+import solvers.SolverException;
+import solvers.SubproblemSolver;
+import solvers.SubproblemSolverFactory;
+
+/**
+ * Subproblem of one SWO block (X, Y or S) of an agent.
+ *
+ * Lifecycle: build() once, then per iteration update() and solve(), finally dispose().
+ * Every block owns its solver model, so a solve only contains the variables of its own
+ * subproblem. The backend (see SubproblemSolverFactory) is chosen per block; all Gurobi
+ * blocks of an agent are created from the same GRBEnv.
+ *
+ * D is what update() reads: the SWO blocks only need the SWOValueReader (the data model, or its
+ * published snapshots on a worker thread), the RTO block the whole ADMMDataModel.
+ */
+public abstract class SWO_BlockModel<D extends SWOValueReader> {
+
+    protected final GRBEnv env;
+    protected final String backend;
+    protected SubproblemSolver solver;
+    protected double rho;
+    protected boolean warmStart = false;
+
+    protected SWO_BlockModel(GRBEnv env, double rho) {
+        this(env, rho, SubproblemSolverFactory.BACKEND_GUROBI);
+    }
+
+    protected SWO_BlockModel(GRBEnv env, double rho, String backend) {
+        this.env = env;
+        this.rho = rho;
+        this.backend = backend;
+    }
+
+    // ============================================================================
+    // LIFECYCLE
+    // ============================================================================
+
+    /**
+     * Creates the model with all variables and iteration-independent constraints.
+     * Calling build() on an already built block has no effect.
+     */
+    public final void build() throws SolverException {
+        if (solver != null) {
+            return;
+        }
+        solver = SubproblemSolverFactory.create(backend, env);
+        configure();
+        buildModel();
+    }
+
+    /**
+     * Writes the iteration-dependent data (x, y, s, u of the data model, or of its published
+     * snapshots on a worker thread) into the existing model and, depending on the warm start
+     * switch, seeds the solver with the previous iterate or discards all start information.
+     */
+    public final void update(D dataModel, int iteration, int currentStartPeriod) throws SolverException {
+        updateModel(dataModel, iteration, currentStartPeriod);
+        if (warmStart) {
+            applyWarmStart(dataModel, iteration);
+        } else {
+            solver.resetStart();
+        }
+    }
+
+    /**
+     * @return true if an optimal solution was found; the block's result getters are then valid
+     */
+    public boolean solve() throws SolverException {
+        if (!solver.solve()) {
+            return false;
+        }
+        readSolution();
+        return true;
+    }
+
+    public void dispose() {
+        if (solver != null) {
+            solver.dispose();
+            solver = null;
+        }
+    }
+
+    // ============================================================================
+    // BLOCK SPECIFIC PARTS
+    // ============================================================================
+
+    /** Sets the solver parameters of the block on its own model. */
+    protected abstract void configure() throws SolverException;
+
+    protected abstract void buildModel() throws SolverException;
+
+    /**
+     * Blocks that do not depend on the start period ignore currentStartPeriod.
+     */
+    protected abstract void updateModel(D dataModel, int iteration, int currentStartPeriod) throws SolverException;
+
+    /** Copies the solution of the last solve into primitive buffers. */
+    protected abstract void readSolution() throws SolverException;
+
+    /**
+     * Sets the start values from the iterate of the previous ADMM iteration (stored under
+     * iteration in the data model) and, for continuous blocks, the duals of the last solve.
+     */
+    protected void applyWarmStart(D dataModel, int iteration) throws SolverException {
+    }
+
+    /** Called when rho changes, blocks rebuild the rho-dependent objective here. */
+    protected void onRhoChanged() {
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    /**
+     * Enables the warm start from the previous iterate; call before build(), blocks may choose
+     * a simplex method in configure() because barrier ignores start vectors.
+     */
+    public void setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    public boolean isWarmStart() {
+        return warmStart;
+    }
+
+    public boolean isBuilt() {
+        return solver != null;
+    }
+
+    public void setRho(double rho) {
+        if (rho != this.rho) {
+            this.rho = rho;
+            onRhoChanged();
+        }
+    }
+
+    public double getObjectiveValue() throws SolverException {
+        return solver.getObjectiveValue();
+    }
+
+    /** Concatenates handle arrays, e.g. all variables of a block for a warm start. */
+    protected static int[] concat(int[]... parts) {
+        int length = 0;
+        for (int[] part : parts) {
+            length += part.length;
+        }
+        int[] result = new int[length];
+        int position = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        return result;
+    }
+
+    protected static Electrolyzer[] sortById(Set<Electrolyzer> electrolyzers) {
+        List<Electrolyzer> sorted = new ArrayList<>(electrolyzers);
+        sorted.sort(Comparator.comparingInt(Electrolyzer::getId));
+        return sorted.toArray(new Electrolyzer[0]);
+    }
+
+    protected static Period[] sortByT(Set<Period> periods) {
+        List<Period> sorted = new ArrayList<>(periods);
+        sorted.sort(Comparator.comparingInt(Period::getT));
+        return sorted.toArray(new Period[0]);
+    }
+}
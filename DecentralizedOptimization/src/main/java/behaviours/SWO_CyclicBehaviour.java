@@ -2,28 +2,45 @@ package behaviours;
 
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import com.gurobi.gurobi.GRBEnv;
 import com.gurobi.gurobi.GRBModel;
 
 import jade.core.AID;
+import jade.core.behaviours.Behaviour;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.core.behaviours.SequentialBehaviour;
 import jade.lang.acl.ACLMessage;
+import messages.Mailbox;
+import messages.LocalTransport;
+import messages.MessageType;
+import messages.PhoneBook;
+import messages.UpdateMessage;
 import models.ADMMDataModel;
+import models.ADMMSettings;
+import models.CheckpointStore;
 import models.Electrolyzer;
+import models.IterateBlock;
+import models.ParameterTable;
 import models.Parameters;
 import models.Period;
 import models.State;
+import solvers.SolverEnvironmentManager;
+import solvers.SolverException;
 
 public class SWO_CyclicBehaviour extends CyclicBehaviour {
 
     private static final long serialVersionUID = 1L;
-    private int receivedXMessages = 0;
-    private int receivedDualMessages = 0;
-    private int receivedConvergenceMessages = 0; // Counter for convergence messages
-    private final int totalNumberADMMAgents; // Number of agents in the system
+    private static final long ASYNC_POLL_INTERVAL_MS = 5; // Re-check of the own updates while waiting for a quorum
+    private int totalNumberADMMAgents; // Number of agents in the system, changes with the phone book
+    private final GRBEnv env; // Agent environment, all block models are created from it
     private GRBModel model;
     private Parameters parameters;
     private ADMMDataModel dataModel;
@@ -34,9 +51,42 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
     private final int maxIterations; 
     private boolean isFirstXUpdateDone = false; 
     private int currentStartPeriod = 1;
+    private SWO_XUpdateModel xUpdateModel; // Persistent X formulation, built on the first X-update
+    private SWO_YUpdateModel yUpdateModel; // Dedicated Y model, built on the first Y-update
+    private SWO_SUpdateModel sUpdateModel; // Dedicated S model, built on the first S-update
+    private SWO_YUpdateDP yUpdateDP; // DP backend of the Y-update, replaces the Y model if selected
+    private SWO_YUpdateParallel yUpdateParallel; // Per-electrolyzer Y-update on a worker pool
+    private boolean ySBlocksInitialized = false;
+
+    // Asynchronous SWO (ADMMSettings.SWO_ASYNC)
+    private SWO_AsyncProgress asyncProgress; // null: every phase waits for all peers
+    private Behaviour xUpdateBehaviour; // Own X-update of the current iteration
+    private Behaviour ySDualBehaviour; // Own Y-, S- and Dual-update of the current iteration
+    private boolean waitingForX = false;
+    private boolean convergenceSent = false;
+
+    private final Mailbox mailbox; // Incoming messages indexed by (type, iteration)
+    private boolean terminated = false;
+
+    // Barriers of the exchange phases, created with the phone book on the first action
+    private IterationBarrier xBarrier;
+    private IterationBarrier dualBarrier;
+    private IterationBarrier convergenceBarrier; // opened once the own convergence message is sent
+    private final Set<String> convergedPeers = new HashSet<>();
+
+    // Elastic membership (messages.PhoneBook)
+    private final Deque<PhoneBook> pendingPhoneBooks = new ArrayDeque<>(); // agreed, used from their iteration on
+    private int proposedVersion = 0; // confirmed to the AMSAgent, no new iteration until its phone book arrives
+    private boolean heldForMembership = false;
+    private boolean awaitingState; // joined agent, waits for the state of the previous iteration
+
+    // Checkpoints (ADMMSettings.CHECKPOINT_INTERVAL), written in the background
+    private final int checkpointInterval = ADMMSettings.getCheckpointInterval();
+    private CheckpointStore checkpointStore;
     
-    public SWO_CyclicBehaviour(int totalAgents, GRBModel model, Parameters parameters, ADMMDataModel admmDataModel, Set<Electrolyzer> electrolyzers, Set<Period> periods, double rho, int iteration, int maxIterations) {
+    public SWO_CyclicBehaviour(int totalAgents, GRBEnv env, GRBModel model, Parameters parameters, ADMMDataModel admmDataModel, Set<Electrolyzer> electrolyzers, Set<Period> periods, double rho, int iteration, int maxIterations) {
         this.totalNumberADMMAgents = totalAgents;
+        this.env = env;
         this.model = model;
         this.parameters = parameters;
         this.dataModel = admmDataModel;
@@ -45,6 +95,24 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
         this.rho = rho;
         this.swoIterationCount = iteration;
         this.maxIterations = maxIterations;
+        this.mailbox = admmDataModel.getMailbox();
+        this.asyncProgress = ADMMSettings.isAsyncSWO() ? createAsyncProgress(totalAgents - 1) : null;
+        this.awaitingState = iteration > 0;
+    }
+
+    /**
+     * An agent that resumes from a checkpoint starts after iteration 0 but already has the state
+     * of the previous iteration, unlike a joining agent.
+     */
+    public void setAwaitingState(boolean awaitingState) {
+        this.awaitingState = awaitingState;
+    }
+
+    private static SWO_AsyncProgress createAsyncProgress(int peers) {
+        SWO_AsyncProgress progress = new SWO_AsyncProgress(peers, ADMMSettings.getAsyncQuorum(peers), ADMMSettings.getAsyncMaxStaleness());
+        System.out.println("Asynchronous SWO with quorum " + progress.getQuorum() + " of " + peers
+                + " peers, max. staleness " + progress.getMaxStaleness());
+        return progress;
     }
 
     @Override
@@ -52,8 +120,11 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
         // Initialization for the first iteration
         if (!isFirstXUpdateDone) {
         	dataModel.setStartComputationTime(System.nanoTime());
-            executeSWO_XUpdate();
+            createBarriers();
             isFirstXUpdateDone = true;
+            if (!awaitingState) {
+                startIteration();
+            }
             return;
         }
 
@@ -64,75 +135,314 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
             return;
         }
 
-        // Receive and process message
-        ACLMessage msg = myAgent.receive();
-        if (msg != null) {
-            processSWOMessage(msg);
+        // Receive into the mailbox and process what the current phase needs
+        mailbox.drain(myAgent);
+        boolean progress = false;
+        while (!terminated && processMailbox()) {
+            progress = true;
+        }
+        if (!terminated && asyncProgress != null && advanceAsync()) {
+            progress = true;
+        }
+        if (terminated || progress) {
+            return;
+        }
+        // Wake up at the next deadline to report the peers that are late
+        long timeout = nextDeadlineMillis();
+        if (asyncProgress == null) {
+            if (timeout > 0) {
+                block(timeout);
+            } else {
+                block();
+            }
         } else {
-            block(); 
+            // The own updates do not wake this behaviour, poll them while waiting
+            block(ASYNC_POLL_INTERVAL_MS);
         }
     }
 
     /**
-     * Processes an incoming message based on its type.
+     * Processes the buffered messages the current phase needs. In the synchronous SWO only the
+     * messages of the current iteration are taken once all peers have reported; messages of
+     * peers that are already an iteration ahead stay in the mailbox.
+     *
+     * @return true if messages were processed
      */
-    private void processSWOMessage(ACLMessage msg) {
-        String content = msg.getContent();
+    private boolean processMailbox() {
+        boolean progress = false;
+        ACLMessage other;
+        while (!terminated && (other = mailbox.pollOther()) != null) {
+            handleMembershipMessage(other);
+            progress = true;
+        }
+        if (terminated) {
+            return true;
+        }
+        for (UpdateMessage update : mailbox.takeAll(MessageType.SWO_CONVERGENCE)) {
+            String sender = update.getSender();
+            if (asyncProgress != null && sender != null && !sender.equals(myAgent.getLocalName())) {
+                asyncProgress.finished(sender);
+            }
+            handleSWO_ConvergenceMessage(sender);
+            progress = true;
+            if (terminated) {
+                return true;
+            }
+        }
+        if (awaitingState) {
+            return restoreState() || progress;
+        }
+
+        if (asyncProgress != null) {
+            // Contributions are applied on arrival, SWO_AsyncProgress decides when a phase is complete
+            for (UpdateMessage update : mailbox.takeAll(MessageType.SWO_X_UPDATE)) {
+                handleSWO_XUpdateMessage(update);
+                if (update.getIteration() == swoIterationCount) {
+                    xBarrier.arrived(update.getSender());
+                }
+                progress = true;
+            }
+            for (UpdateMessage update : mailbox.takeAll(MessageType.SWO_DUAL_UPDATE)) {
+                handleSWO_DualUpdateMessage(update);
+                if (update.getIteration() == swoIterationCount) {
+                    dualBarrier.arrived(update.getSender());
+                }
+                progress = true;
+            }
+            return progress;
+        }
 
-        if (content.startsWith("xUpdateMessage")) {
-            handleSWO_XUpdateMessage(content);
-            receivedXMessages++;
-            checkSWO_XUpdateCompletion();
-        } else if (content.startsWith("dualUpdateMessage")) {
-            handleSWO_DualUpdateMessage(content);
-            receivedDualMessages++;
-            checkSWO_DualUpdateCompletion();
-        } else if (content.equals("convergenceReached")) {
-            handleSWO_ConvergenceMessage();
+        if (waitingForX && xBarrier.isOpen(swoIterationCount)) {
+            xBarrier.arrived(mailbox.senders(MessageType.SWO_X_UPDATE, swoIterationCount));
+            if (xBarrier.isComplete()) {
+                for (UpdateMessage update : mailbox.take(MessageType.SWO_X_UPDATE, swoIterationCount)) {
+                    handleSWO_XUpdateMessage(update);
+                }
+                completeXPhase();
+                return true;
+            }
         }
+        if (!waitingForX && !convergenceSent && dualBarrier.isOpen(swoIterationCount)) {
+            dualBarrier.arrived(mailbox.senders(MessageType.SWO_DUAL_UPDATE, swoIterationCount));
+            if (dualBarrier.isComplete()) {
+                for (UpdateMessage update : mailbox.take(MessageType.SWO_DUAL_UPDATE, swoIterationCount)) {
+                    handleSWO_DualUpdateMessage(update);
+                }
+                completeIteration(dualBarrier.getArrivedCount());
+                return true;
+            }
+        }
+        return progress;
     }
 
     /**
-     * Checks if all X-update messages have been received.
+     * Creates the barriers of the exchange phases for the peers in the phone book.
      */
-    private void checkSWO_XUpdateCompletion() {
-        if (receivedXMessages == totalNumberADMMAgents - 1) {
+    private void createBarriers() {
+        Set<String> peers = IterationBarrier.peersOf(myAgent, dataModel.getPhoneBook());
+        if (peers.size() != totalNumberADMMAgents - 1) {
+            System.err.println("Phone book of " + myAgent.getLocalName() + " has " + peers.size() + " peers, expected "
+                    + (totalNumberADMMAgents - 1));
+        }
+        xBarrier = new IterationBarrier("SWO X", peers, ADMMSettings.getBarrierTimeoutMillis("SWO_X"));
+        dualBarrier = new IterationBarrier("SWO Dual", peers, ADMMSettings.getBarrierTimeoutMillis("SWO_DUAL"));
+        convergenceBarrier = new IterationBarrier("SWO Convergence", peers, ADMMSettings.getBarrierTimeoutMillis("SWO_CONVERGENCE"));
+    }
+
+    /**
+     * Reports late peers of overdue barriers.
+     *
+     * @return ms until the next deadline of an open barrier, 0 if there is none
+     */
+    private long nextDeadlineMillis() {
+        long next = 0;
+        for (IterationBarrier barrier : new IterationBarrier[]{xBarrier, dualBarrier, convergenceBarrier}) {
+            barrier.checkDeadline();
+            long remaining = barrier.getRemainingMillis();
+            if (remaining > 0 && (next == 0 || remaining < next)) {
+                next = remaining;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Wraps an own update so that the barrier of its phase knows when the agent starts waiting.
+     */
+    private Behaviour withLocalReady(Behaviour update, IterationBarrier barrier) {
+        SequentialBehaviour seq = update instanceof SequentialBehaviour ? (SequentialBehaviour) update : new SequentialBehaviour();
+        if (seq != update) {
+            seq.addSubBehaviour(update);
+        }
+        seq.addSubBehaviour(barrier.localReadyMarker(this));
+        return seq;
+    }
+
+    /**
+     * Asynchronous SWO: completes the current phase once the own update is done and the quorum
+     * and staleness bound of SWO_AsyncProgress are met. Contributions of peers that are behind
+     * are carried forward from their last report, the largest age used is saved per iteration.
+     *
+     * @return true if a phase was completed
+     */
+    private boolean advanceAsync() {
+        if (convergenceSent || swoIterationCount >= maxIterations) {
+            return false;
+        }
+        if (waitingForX) {
+            if (xUpdateBehaviour == null || !xUpdateBehaviour.done()
+                    || !asyncProgress.isReady(SWO_AsyncProgress.Phase.X, swoIterationCount)) {
+                return false;
+            }
+            int staleness = asyncProgress.fillStale(SWO_AsyncProgress.Phase.X, dataModel, swoIterationCount);
+            dataModel.saveXStalenessForIteration(swoIterationCount, staleness);
+            dataModel.saveReceivedXMessagesForIteration(swoIterationCount,
+                    asyncProgress.countCurrent(SWO_AsyncProgress.Phase.X, swoIterationCount));
+            dataModel.saveXBarrierWaitTimeForIteration(swoIterationCount, xBarrier.close());
+            waitingForX = false;
             executeSWO_YSDualUpdates();
+            return true;
+        }
+        if (ySDualBehaviour == null || !ySDualBehaviour.done()
+                || !asyncProgress.isReady(SWO_AsyncProgress.Phase.DUAL, swoIterationCount)) {
+            return false;
         }
+        int staleness = asyncProgress.fillStale(SWO_AsyncProgress.Phase.DUAL, dataModel, swoIterationCount);
+        dataModel.saveDualStalenessForIteration(swoIterationCount, staleness);
+        ySDualBehaviour = null;
+        completeIteration(asyncProgress.countCurrent(SWO_AsyncProgress.Phase.DUAL, swoIterationCount));
+        return true;
     }
 
     /**
-     * Prüft, ob alle Dual-Update-Nachrichten empfangen wurden.
+     * Ends the X phase once all X-updates of the iteration have been received.
      */
-    private void checkSWO_DualUpdateCompletion() {
-        if (receivedDualMessages == totalNumberADMMAgents - 1) {
-        	dataModel.saveReceivedDualMessagesForIteration(swoIterationCount, receivedDualMessages);
-        	receivedDualMessages = 0;
-        	
-        	        // Calculate residuals
-            calculateBoundaryResiduals();
-
-            // Check convergence
-            if (checkFeasibility() && swoIterationCount > 0) {
-            	savePurchasedGridEnergy();
-            	sendConvergenceMessage();
-                
-            } else {
-            	swoIterationCount++;
-                executeSWO_XUpdate();
+    private void completeXPhase() {
+        dataModel.saveXBarrierWaitTimeForIteration(swoIterationCount, xBarrier.close());
+        waitingForX = false;
+        executeSWO_YSDualUpdates();
+    }
+
+    /**
+     * Ends the current iteration: residuals, convergence check and either the convergence
+     * message or the X-update of the next iteration.
+     */
+    private void completeIteration(int receivedDualMessages) {
+        dataModel.saveReceivedDualMessagesForIteration(swoIterationCount, receivedDualMessages);
+        dataModel.saveDualBarrierWaitTimeForIteration(swoIterationCount, dualBarrier.close());
+        dataModel.saveSlowestPeerForIteration(swoIterationCount, slowestPeer());
+        dataModel.saveMailboxDepthForIteration(swoIterationCount, mailbox.getHighWaterMark());
+        mailbox.resetHighWaterMark();
+        dataModel.saveMessageStatisticsForIteration(swoIterationCount, dataModel.getMessageStatistics());
+        dataModel.getMessageStatistics().reset();
+
+        // Calculate residuals
+        calculateBoundaryResiduals();
+        saveCheckpoint();
+
+        // Check convergence
+        if (checkFeasibility() && swoIterationCount > 0) {
+            savePurchasedGridEnergy();
+            sendConvergenceMessage();
+            convergenceSent = true;
+        } else {
+            swoIterationCount++;
+            startIteration();
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the completed iteration every CHECKPOINT_INTERVAL iterations.
+     */
+    private void saveCheckpoint() {
+        if (checkpointInterval <= 0 || (swoIterationCount + 1) % checkpointInterval != 0) {
+            return;
+        }
+        if (checkpointStore == null) {
+            checkpointStore = CheckpointStore.fromSettings(myAgent.getLocalName());
+        }
+        Set<Integer> electrolyzerIds = new HashSet<>();
+        for (Electrolyzer electrolyzer : electrolyzers) {
+            electrolyzerIds.add(electrolyzer.getId());
+        }
+        Set<Integer> periodIds = new HashSet<>();
+        for (Period period : dataModel.getAssignedPeriods()) {
+            periodIds.add(period.getT());
+        }
+        checkpointStore.save(dataModel, swoIterationCount, electrolyzerIds, periodIds);
+    }
+
+    /** Waits for the checkpoints still being written. */
+    private void closeCheckpoints() {
+        if (checkpointStore != null) {
+            checkpointStore.close();
+            checkpointStore = null;
+        }
+    }
+
+    /**
+     * Starts the X-update of the current iteration, unless a membership change is being agreed;
+     * an agreed phone book is applied first once its iteration is reached.
+     */
+    private void startIteration() {
+        if (proposedVersion > 0) {
+            heldForMembership = true;
+            return;
+        }
+        heldForMembership = false;
+        PhoneBook next = pendingPhoneBooks.peek();
+        if (next != null && next.getIteration() <= swoIterationCount) {
+            pendingPhoneBooks.poll();
+            if (!applyPhoneBook(next)) {
+                return;
             }
         }
+        executeSWO_XUpdate();
     }
     
     /**
      * Führt die Y-, S- und Dual-Updates aus.
      */
     private void executeSWO_YSDualUpdates() {
+        if (!ySBlocksInitialized) {
+            initializeYSBlocks();
+        }
         SequentialBehaviour seq = new SequentialBehaviour();
-        seq.addSubBehaviour(new SWO_YUpdateBehaviour(model, parameters, electrolyzers, periods, swoIterationCount, dataModel, rho, e -> electrolyzers.contains(e), currentStartPeriod));
-        seq.addSubBehaviour(new SWO_SUpdateBehaviour(model, parameters, electrolyzers, periods, swoIterationCount, dataModel, rho, e -> electrolyzers.contains(e)));
+        seq.addSubBehaviour(new SWO_YUpdateBehaviour(model, parameters, electrolyzers, periods, swoIterationCount, dataModel, rho, e -> electrolyzers.contains(e), currentStartPeriod, yUpdateModel, yUpdateDP, yUpdateParallel));
+        seq.addSubBehaviour(new SWO_SUpdateBehaviour(model, parameters, electrolyzers, periods, swoIterationCount, dataModel, rho, e -> electrolyzers.contains(e), sUpdateModel));
         seq.addSubBehaviour(new SWO_DualUpdateBehaviour(parameters, electrolyzers, periods, swoIterationCount, dataModel,rho, e -> electrolyzers.contains(e)));
-        myAgent.addBehaviour(seq);
+        dualBarrier.open(swoIterationCount);
+        ySDualBehaviour = withLocalReady(seq, dualBarrier);
+        myAgent.addBehaviour(ySDualBehaviour);
+    }
+
+    /**
+     * Creates the Y and S backends selected in ADMMSettings once per SWO run.
+     */
+    private void initializeYSBlocks() {
+        ySBlocksInitialized = true;
+        boolean dpBackend = ADMMSettings.Y_UPDATE_BACKEND_DP.equals(ADMMSettings.getYUpdateBackend());
+        if (dpBackend) {
+            yUpdateDP = new SWO_YUpdateDP(parameters, electrolyzers, periods, rho);
+        } else if (ADMMSettings.isParallelYUpdate()) {
+            try {
+                yUpdateParallel = new SWO_YUpdateParallel(env, parameters, electrolyzers, periods, rho,
+                        ADMMSettings.getYUpdateThreads(SolverEnvironmentManager.getThreadBudget()));
+            } catch (SolverException e) {
+                System.err.println("Parallel Y-update could not be started, using a single model: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        if (ADMMSettings.useBlockModels()) {
+            if (yUpdateDP == null && yUpdateParallel == null) {
+                yUpdateModel = buildBlockModel(new SWO_YUpdateModel(env, parameters, electrolyzers, periods, rho), ADMMSettings.SWO_WARM_START_Y);
+            }
+            if (!ADMMSettings.S_UPDATE_MODE_ANALYTIC.equals(ADMMSettings.getSUpdateMode())) {
+                // The closed-form S-update needs no solver model
+                sUpdateModel = buildBlockModel(new SWO_SUpdateModel(env, parameters, electrolyzers, periods, rho, ADMMSettings.getQPBackend()),
+                        ADMMSettings.SWO_WARM_START_S);
+            }
+        }
     }
 
 
@@ -140,57 +450,318 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
      * Führt das X-Update aus.
      */
     private void executeSWO_XUpdate() {
+        // Stand zu Beginn der Iteration (x, y, s, u unter swoIterationCount) für andere Threads veröffentlichen.
+        // Only the parallel Y-update reads it (it publishes a missing iteration itself, e.g. before
+        // it is created in the first Y-phase); SNAPSHOT_CHECKS verifies every iteration.
+        if (yUpdateParallel != null || ADMMSettings.isSnapshotChecks()) {
+            dataModel.publishSWOValues(swoIterationCount);
+        }
         Set<Period> filteredPeriods = dataModel.getAssignedPeriods();
-        myAgent.addBehaviour(new SWO_XUpdateBehaviour(model, parameters, parameters.getElectrolyzers(), filteredPeriods, swoIterationCount, dataModel, rho, currentStartPeriod));
-        receivedXMessages = 0; 
+        if (ADMMSettings.isPersistentXUpdate() && xUpdateModel == null) {
+            xUpdateModel = buildBlockModel(new SWO_XUpdateModel(env, parameters, parameters.getElectrolyzers(), filteredPeriods, rho, ADMMSettings.getQPBackend()),
+                    ADMMSettings.SWO_WARM_START_X);
+        }
+        xBarrier.open(swoIterationCount);
+        xUpdateBehaviour = withLocalReady(new SWO_XUpdateBehaviour(model, parameters, parameters.getElectrolyzers(), filteredPeriods, swoIterationCount, dataModel, rho, currentStartPeriod, xUpdateModel), xBarrier);
+        myAgent.addBehaviour(xUpdateBehaviour);
+        waitingForX = true;
+    }
+
+    /**
+     * @return the peer that arrived latest after the own update in the X or dual phase of the iteration
+     */
+    private String slowestPeer() {
+        String xPeer = xBarrier.getSlowestPeer();
+        String dualPeer = dualBarrier.getSlowestPeer();
+        if (xPeer == null || (dualPeer != null && dualBarrier.getLatenessNanos(dualPeer) >= xBarrier.getLatenessNanos(xPeer))) {
+            return dualPeer;
+        }
+        return xPeer;
+    }
+
+    /**
+     * Builds a block model; on failure the block falls back to the shared model (null is returned).
+     *
+     * @param warmStartKey ADMMSettings switch for the warm start of this block
+     */
+    private <T extends SWO_BlockModel<?>> T buildBlockModel(T blockModel, String warmStartKey) {
+        try {
+            blockModel.setWarmStart(ADMMSettings.isWarmStart(warmStartKey));
+            blockModel.build();
+            return blockModel;
+        } catch (SolverException e) {
+            System.err.println(blockModel.getClass().getSimpleName() + " could not be built, using the shared model: " + e.getMessage());
+            e.printStackTrace();
+            blockModel.dispose();
+            return null;
+        }
+    }
+
+    /**
+     * Releases the block models once the SWO phase is finished.
+     */
+    private void disposeBlockModels() {
+        for (SWO_BlockModel<?> blockModel : new SWO_BlockModel<?>[]{xUpdateModel, yUpdateModel, sUpdateModel}) {
+            if (blockModel != null) {
+                blockModel.dispose();
+            }
+        }
+        if (yUpdateParallel != null) {
+            yUpdateParallel.dispose();
+        }
+        xUpdateModel = null;
+        yUpdateModel = null;
+        sUpdateModel = null;
+        yUpdateParallel = null;
+    }
+
+    // ============================================================================
+    // MEMBERSHIP
+    // ============================================================================
+
+    /**
+     * Handles the membership messages of the AMSAgent (see messages.PhoneBook).
+     */
+    private void handleMembershipMessage(ACLMessage msg) {
+        String content = msg.getContent();
+        if (content == null) {
+            return;
+        }
+        try {
+            if (PhoneBook.isPhoneBook(msg)) {
+                PhoneBook phoneBook = PhoneBook.parse(content);
+                if (phoneBook.getVersion() > dataModel.getPhoneBookVersion()) {
+                    pendingPhoneBooks.add(phoneBook);
+                }
+                proposedVersion = 0;
+                if (heldForMembership) {
+                    startIteration();
+                }
+            } else if (content.startsWith(PhoneBook.PROPOSE)) {
+                proposedVersion = Integer.parseInt(content.substring(PhoneBook.PROPOSE.length()).trim());
+                // Last iteration started; the agent holds before the next one until the phone book arrives
+                int started = heldForMembership || awaitingState ? swoIterationCount - 1 : swoIterationCount;
+                ACLMessage reply = msg.createReply();
+                reply.setPerformative(ACLMessage.INFORM);
+                reply.setContent(PhoneBook.READY + proposedVersion + "," + started);
+                myAgent.send(reply);
+            } else if (content.startsWith(PhoneBook.ABORT)) {
+                if (Integer.parseInt(content.substring(PhoneBook.ABORT.length()).trim()) == proposedVersion) {
+                    proposedVersion = 0;
+                    if (heldForMembership) {
+                        startIteration();
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid membership message: " + content);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Switches to the phone book at the start of its iteration: new peers and barriers, the own
+     * electrolyzers and periods, and the state for agents that have joined.
+     *
+     * @return false if the agent is no longer a member and has left the SWO
+     */
+    private boolean applyPhoneBook(PhoneBook phoneBook) {
+        String self = myAgent.getLocalName();
+        List<AID> previous = new ArrayList<>(dataModel.getPhoneBook());
+        if (!phoneBook.contains(self)) {
+            System.out.println("Agent " + self + " is not in phone book version " + phoneBook.getVersion()
+                    + " and leaves the SWO before iteration " + swoIterationCount);
+            disposeBlockModels();
+            closeCheckpoints();
+            terminated = true;
+            myAgent.removeBehaviour(this);
+            myAgent.doDelete();
+            return false;
+        }
+
+        List<AID> joined = new ArrayList<>();
+        Set<String> previousNames = new HashSet<>();
+        for (AID aid : previous) {
+            previousNames.add(aid.getLocalName());
+        }
+        for (AID aid : phoneBook.getAIDs()) {
+            if (!previousNames.contains(aid.getLocalName())) {
+                joined.add(aid);
+            }
+        }
+        dataModel.setPhoneBook(new ArrayList<>(phoneBook.getAIDs()));
+        dataModel.setPhoneBookVersion(phoneBook.getVersion());
+        totalNumberADMMAgents = phoneBook.size();
+
+        // Own electrolyzers (Y-, S-, Dual-update) and periods (X-update)
+        Set<Integer> electrolyzerIds = phoneBook.getElectrolyzerIds(self);
+        Set<Integer> periodIds = phoneBook.getPeriods(self);
+        if (electrolyzerIds != null && periodIds != null) {
+            Set<Electrolyzer> ownElectrolyzers = new HashSet<>();
+            for (Electrolyzer e : parameters.getElectrolyzers()) {
+                if (electrolyzerIds.contains(e.getId())) {
+                    ownElectrolyzers.add(e);
+                }
+            }
+            Set<Period> ownPeriods = new HashSet<>();
+            for (int t : periodIds) {
+                ownPeriods.add(new Period(t));
+            }
+            if (!ownElectrolyzers.equals(electrolyzers) || !ownPeriods.equals(dataModel.getAssignedPeriods())) {
+                electrolyzers = ownElectrolyzers;
+                dataModel.setAssignedPeriods(ownPeriods);
+                // The block models were built for the previous assignment
+                disposeBlockModels();
+                yUpdateDP = null;
+                ySBlocksInitialized = false;
+            }
+        }
+
+        Set<String> peers = IterationBarrier.peersOf(myAgent, dataModel.getPhoneBook());
+        convergedPeers.retainAll(peers);
+        createBarriers();
+        if (asyncProgress != null) {
+            asyncProgress = createAsyncProgress(peers.size());
+        }
+
+        if (!joined.isEmpty()) {
+            // New agents have no delta reference and no state of the previous iterations
+            dataModel.getMessageDelta().forceKeyframes();
+            if (self.equals(stateDonor(previous, phoneBook))) {
+                sendState(joined);
+            }
+        }
+        System.out.println("Agent " + self + " uses phone book version " + phoneBook.getVersion() + " from iteration "
+                + swoIterationCount + ": " + totalNumberADMMAgents + " agents, " + electrolyzers.size()
+                + " electrolyzers, " + dataModel.getAssignedPeriods().size() + " periods");
+        return true;
+    }
+
+    /**
+     * @return the first agent of the previous phone book that stays, it sends the state to new agents
+     */
+    private static String stateDonor(List<AID> previous, PhoneBook phoneBook) {
+        for (AID aid : previous) {
+            if (phoneBook.contains(aid.getLocalName())) {
+                return aid.getLocalName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends the values of the previous iteration for all electrolyzers and periods to the new
+     * agents, as an X- and a dual-update message of that iteration. The values are replicated on
+     * every agent, so the slices of the previous owners are all in the own data model.
+     */
+    private void sendState(List<AID> receivers) {
+        int previousIteration = swoIterationCount - 1;
+        IterateBlock values = dataModel.getSWOValues(swoIterationCount);
+        if (values == null) {
+            System.err.println("No state of iteration " + previousIteration + " for the new agents");
+            return;
+        }
+
+        String self = myAgent.getLocalName();
+        int entries = parameters.getElectrolyzers().size() * periods.size();
+        UpdateMessage xState = new UpdateMessage(MessageType.SWO_X_UPDATE, previousIteration, self, entries);
+        UpdateMessage dualState = new UpdateMessage(MessageType.SWO_DUAL_UPDATE, previousIteration, self, entries);
+        double[] x = values.xValues();
+        double[] hydrogen = values.hydrogenValues();
+        double[] u = values.uValues();
+        double[] sValues = values.sValues();
+        for (Electrolyzer e : parameters.getElectrolyzers()) {
+            int a = e.getId() - 1;
+            for (Period period : periods) {
+                int t = period.getT() - 1;
+                int i = values.index(a, t);
+                xState.addEntry(e.getId(), period.getT(), x[i], hydrogen[i]);
+                dualState.addEntry(e.getId(), period.getT(), IterateBlock.toStates(values.stateBits(i)),
+                        u[3 * i], u[3 * i + 1], u[3 * i + 2],
+                        sValues[2 * i], sValues[2 * i + 1],
+                        dataModel.getYSWOResidual(previousIteration, a, t, 0),
+                        dataModel.getYSWOResidual(previousIteration, a, t, 1),
+                        dataModel.getYSWOResidual(previousIteration, a, t, 2));
+            }
+        }
+        for (UpdateMessage state : new UpdateMessage[]{xState, dualState}) {
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            for (AID receiver : receivers) {
+                msg.addReceiver(receiver);
+            }
+            LocalTransport.send(myAgent, msg, state, null, dataModel.getMessageStatistics());
+        }
+        System.out.println("Agent " + self + " sent the state of iteration " + previousIteration + " to " + receivers.size() + " new agents");
+    }
+
+    /**
+     * Joined agent: takes over the state of the previous iteration once it has arrived and starts.
+     *
+     * @return true if the state was restored
+     */
+    private boolean restoreState() {
+        int previousIteration = swoIterationCount - 1;
+        if (mailbox.count(MessageType.SWO_X_UPDATE, previousIteration) == 0
+                || mailbox.count(MessageType.SWO_DUAL_UPDATE, previousIteration) == 0) {
+            return false;
+        }
+        for (UpdateMessage update : mailbox.take(MessageType.SWO_X_UPDATE, previousIteration)) {
+            saveXEntries(update);
+        }
+        for (UpdateMessage update : mailbox.take(MessageType.SWO_DUAL_UPDATE, previousIteration)) {
+            saveDualEntries(update);
+        }
+        awaitingState = false;
+        System.out.println("Agent " + myAgent.getLocalName() + " joins the SWO in iteration " + swoIterationCount);
+        startIteration();
+        return true;
     }
 
     /**
      * Verarbeitet Konvergenznachrichten.
      */
-    private void handleSWO_ConvergenceMessage() {
-        receivedConvergenceMessages++;
-        if (receivedConvergenceMessages == totalNumberADMMAgents - 1) {
-        	
+    private void handleSWO_ConvergenceMessage(String sender) {
+        if (sender == null || sender.equals(myAgent.getLocalName())) {
+            return; // Own message
+        }
+        convergedPeers.add(sender);
+        convergenceBarrier.arrived(sender);
+        if (convergedPeers.size() == totalNumberADMMAgents - 1) {
+            convergenceBarrier.close();
+
            	        // Save Results and Terminate SWO Optimization
             saveSWOResultsAndTerminate();
-        	
         }
     }
     
-    // Method for parsing the X update message and saving the details
-    private void handleSWO_XUpdateMessage(String content) {
-        String[] parts = content.split(";");
-        StringBuilder output = new StringBuilder("Bundled X-values and hydrogen production from x-Update:\n");
-
-        if (parts.length >= 2) {
-            int iteration = Integer.parseInt(parts[1]);
-            output.append("Iteration: ").append(iteration).append("\n");
-            
-            if (iteration != swoIterationCount) {
-                System.err.println("Incorrect SWO iteration!!");
-            }
-
-            for (int i = 2; i < parts.length; i++) {
-                String[] resultParts = parts[i].split(",");
-                if (resultParts.length == 4) {
-                    int electrolyzerID = Integer.parseInt(resultParts[0]) - 1;
-                    int periodIndex = Integer.parseInt(resultParts[1]) - 1;
-                    double xValue = Double.parseDouble(resultParts[2]);
-                    double hydrogenProduction = Double.parseDouble(resultParts[3]);
-
-                    output.append("Agent: ").append(myAgent.getLocalName())
-                          .append(", Electrolyzer ID: ").append(electrolyzerID + 1)
-                          .append(", Period: ").append(periodIndex + 1)
-                          .append(", X-value: ").append(xValue)
-                          .append(", Hydrogen production: ").append(hydrogenProduction)
-                          .append("\n");
-
-                    // Save the values in the ADMM data model
-                    dataModel.saveXSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, xValue);
-                    dataModel.saveHydrogenSWOProductionForPeriod(iteration+1, electrolyzerID, periodIndex, hydrogenProduction);
-                }
+    // Saves the bundled x-values and hydrogen production of a peer's X-update
+    private void handleSWO_XUpdateMessage(UpdateMessage update) {
+        int iteration = update.getIteration();
+        String sender = update.getSender();
+
+        // In the asynchronous SWO peers may be ahead or behind by design
+        if (iteration != swoIterationCount && asyncProgress == null) {
+            System.err.println("Incorrect SWO iteration!!");
+        }
+
+        saveXEntries(update);
+        if (asyncProgress != null) {
+            for (int i = 0; i < update.size(); i++) {
+                asyncProgress.recordEntry(SWO_AsyncProgress.Phase.X, sender, update.getElectrolyzerId(i) - 1, update.getPeriod(i) - 1);
             }
+            asyncProgress.reported(SWO_AsyncProgress.Phase.X, sender, iteration);
+        }
+    }
+
+    private void saveXEntries(UpdateMessage update) {
+        int iteration = update.getIteration();
+        for (int i = 0; i < update.size(); i++) {
+            int electrolyzerID = update.getElectrolyzerId(i) - 1;
+            int periodIndex = update.getPeriod(i) - 1;
+
+            // Save the values in the ADMM data model
+            dataModel.saveXSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, update.getValue(i, UpdateMessage.X));
+            dataModel.saveHydrogenSWOProductionForPeriod(iteration + 1, electrolyzerID, periodIndex, update.getValue(i, UpdateMessage.HYDROGEN));
         }
     }
     
@@ -216,46 +787,40 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
     }
 
     
-    private void handleSWO_DualUpdateMessage(String content) {
-        String[] parts = content.split(";");
-
-        if (parts.length >= 2) {
-            int iteration = Integer.parseInt(parts[1]);
-            for (int i = 2; i < parts.length; i++) {
-                String[] resultParts = parts[i].split(",");
-                if (resultParts.length >= 13) { // U-values (3), S-values (2), Residuals (3), Y-values
-                    int electrolyzerID = Integer.parseInt(resultParts[0]) - 1;
-                    int periodIndex = Integer.parseInt(resultParts[1]) - 1;
-
-                    // Save U-values
-                    double u1 = Double.parseDouble(resultParts[2]);
-                    double u2 = Double.parseDouble(resultParts[3]);
-                    double u3 = Double.parseDouble(resultParts[4]);
-                    dataModel.saveUSWOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 0, u1);
-                    dataModel.saveUSWOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 1, u2);
-                    dataModel.saveUSWOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 2, u3);
-
-                    // Save S-values
-                    double s1 = Double.parseDouble(resultParts[5]);
-                    double s2 = Double.parseDouble(resultParts[6]);
-                    dataModel.saveSSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 0, s1);
-                    dataModel.saveSSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 1, s2);
-
-                    // Save Residuals
-                    double residual1 = Double.parseDouble(resultParts[7]);
-                    double residual2 = Double.parseDouble(resultParts[8]);
-                    double residual3 = Double.parseDouble(resultParts[9]);
-                    dataModel.saveYResiduals(iteration, electrolyzerID, periodIndex, 
-                        new double[]{residual1, residual2, residual3});
-
-                    // Save Y-values for each state
-                    boolean[] yValues = new boolean[State.values().length];
-                    for (int j = 0; j < State.values().length; j++) {
-                        yValues[j] = resultParts[10 + j].equals("1");
-                    }
-                    dataModel.saveYSWOValuesForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, yValues);
-                }
+    private void handleSWO_DualUpdateMessage(UpdateMessage update) {
+        saveDualEntries(update);
+        if (asyncProgress != null) {
+            String sender = update.getSender();
+            for (int i = 0; i < update.size(); i++) {
+                asyncProgress.recordEntry(SWO_AsyncProgress.Phase.DUAL, sender, update.getElectrolyzerId(i) - 1, update.getPeriod(i) - 1);
             }
+            asyncProgress.reported(SWO_AsyncProgress.Phase.DUAL, sender, update.getIteration());
+        }
+    }
+
+    private void saveDualEntries(UpdateMessage update) {
+        int iteration = update.getIteration();
+        for (int i = 0; i < update.size(); i++) {
+            int electrolyzerID = update.getElectrolyzerId(i) - 1;
+            int periodIndex = update.getPeriod(i) - 1;
+
+            // Save U-values
+            dataModel.saveUSWOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 0, update.getValue(i, UpdateMessage.U1));
+            dataModel.saveUSWOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 1, update.getValue(i, UpdateMessage.U2));
+            dataModel.saveUSWOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, 2, update.getValue(i, UpdateMessage.U3));
+
+            // Save S-values
+            dataModel.saveSSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 0, update.getValue(i, UpdateMessage.S1));
+            dataModel.saveSSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 1, update.getValue(i, UpdateMessage.S2));
+
+            // Save Residuals
+            dataModel.saveYResiduals(iteration, electrolyzerID, periodIndex, new double[]{
+                update.getValue(i, UpdateMessage.RESIDUAL1),
+                update.getValue(i, UpdateMessage.RESIDUAL2),
+                update.getValue(i, UpdateMessage.RESIDUAL3)});
+
+            // Save Y-values for each state
+            dataModel.saveYSWOValuesForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, update.getStates(i));
         }
     }
 
@@ -270,11 +835,15 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 
     private void sendConvergenceMessage() {
         ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-        msg.setContent("convergenceReached");
         for (AID agent : dataModel.getPhoneBook()) {
             msg.addReceiver(agent);
         }
-        myAgent.send(msg);
+        LocalTransport.send(myAgent, msg, new UpdateMessage(MessageType.SWO_CONVERGENCE, swoIterationCount, myAgent.getLocalName()), null, null);
+
+        // From now on the agent only waits for the convergence of its peers
+        convergenceBarrier.open(swoIterationCount);
+        convergenceBarrier.localReady();
+        convergenceBarrier.arrived(convergedPeers);
     }
     
     private void saveSWOResultsAndTerminate() {
@@ -325,6 +894,7 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
             
             myAgent.addBehaviour(new RTO_CyclicBehaviour(
                 totalNumberADMMAgents,
+                env,
                 model,
                 parameters,
                 dataModel,	
@@ -335,6 +905,9 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
             ));*/
             
             System.out.println("Remove SWO-Cyclic Behaviour for Agent: " + myAgent.getLocalName());
+            disposeBlockModels();
+            closeCheckpoints();
+            terminated = true;
             myAgent.removeBehaviour(this);
 
             
@@ -352,44 +925,24 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
     
     private void calculateBoundaryResiduals() {
         double dualResidual = 0.0; // Sum of primary residuals
+        IterateBlock values = dataModel.getSWOValues(swoIterationCount);
+        double[] xValues = values.xValues();
+        int production = 1 << State.PRODUCTION.ordinal();
+        ParameterTable table = parameters.getTable();
+        int[] periodIndices = table.periodIndicesOf(periods);
 
-        for (Electrolyzer e : dataModel.getAllElectrolyzers()) {
-            int agentIndex = e.getId() - 1;
+        for (int e : table.indicesOf(dataModel.getAllElectrolyzers())) {
+            int agentIndex = table.getId(e) - 1;
 
-            for (Period t : periods) {
-                int periodIndex = t.getT() - 1;
+            for (int t : periodIndices) {
+                int index = values.index(agentIndex, table.getPeriodNumber(t) - 1);
 
                 // Values from DataModel
-                double xValue = dataModel.getXSWOValueForAgentPeriod(swoIterationCount, agentIndex, periodIndex);
-                boolean isProducing = dataModel.getYSWOValuesForAgent(swoIterationCount, agentIndex)[periodIndex][State.PRODUCTION.ordinal()];
-
-                // Calculation of boundary values
-                double opMin = e.getMinOperation();
-                double opMax = e.getMaxOperation();
+                double xValue = xValues[index];
+                boolean isProducing = (values.stateBits(index) & production) != 0;
 
                 // Calculation of primary residual
-                if (isProducing) {
-                    double lowerBoundary = opMin;
-                    double upperBoundary = opMax;
-
-                    // Violations of lower boundary
-                    if (xValue < lowerBoundary) {
-                        double violation = lowerBoundary - xValue;
-                        dualResidual += violation * violation;
-                    }
-
-                    // Violations of upper boundary
-                    if (xValue > upperBoundary) {
-                        double violation = xValue - upperBoundary;
-                        dualResidual += violation * violation;
-                    }
-                } else {
-                    // Check if x > 0 even though the Production state is not active
-                    if (xValue > 0) {
-                        double violation = xValue; // Value of x directly as violation
-                        dualResidual += violation * violation;
-                    }
-                }
+                dualResidual += squaredBoundaryViolation(xValue, isProducing, table.getMinOperation(e), table.getMaxOperation(e));
             }
         }
 
@@ -398,6 +951,28 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
         // Save the residuals in DataModel
         dataModel.saveDualResidualForIteration(swoIterationCount, dualResidual);
     }
+
+    /**
+     * Squared violation of the operating boundaries by x, summed up by calculateBoundaryResiduals.
+     */
+    public static double squaredBoundaryViolation(double xValue, boolean isProducing, double opMin, double opMax) {
+        if (isProducing) {
+            // Violations of lower boundary
+            if (xValue < opMin) {
+                double violation = opMin - xValue;
+                return violation * violation;
+            }
+
+            // Violations of upper boundary
+            if (xValue > opMax) {
+                double violation = xValue - opMax;
+                return violation * violation;
+            }
+            return 0.0;
+        }
+        // Check if x > 0 even though the Production state is not active
+        return xValue > 0 ? xValue * xValue : 0.0;
+    }
    
     public static boolean checkFeasibilityAndCalculateObjective(Set<Period> currentPeriods,
             Parameters params, ADMMDataModel dataExchange, int admmIter) {
@@ -407,27 +982,32 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 	            double tolerancePercentage = 0.0005; // 0.5% tolerance allowed
         double zeroTolerance = 0.01; // Fixed tolerance when boundary value is zero
 
-	    double[][] xValues = dataExchange.getXSWOValuesForIteration(admmIter);
-	    boolean[][][] yValues = dataExchange.getYSWOValuesForIteration(admmIter);
+	    IterateBlock values = dataExchange.getSWOValues(admmIter);
+	    double[] xValues = values.xValues();
 	    boolean feasible = true;
 	    
-	    Set<Electrolyzer> electrolyzers = dataExchange.getAllElectrolyzers();
+	    ParameterTable table = params.getTable();
+	    int[] electrolyzerIndices = table.indicesOf(dataExchange.getAllElectrolyzers());
+	    int[] periodIndices = table.periodIndicesOf(currentPeriods);
 	    double objectiveValue = 0.0; // Collect objective function value
 
 	            // Validation check and calculation of objective function value
-	    for (Electrolyzer electrolyzer : electrolyzers) {
-	        int agentIndex = electrolyzer.getId() - 1;
-	        double powerElectrolyzer = params.powerElectrolyzer.get(electrolyzer);
-	        double startupCost = params.startupCost.get(electrolyzer);
-	        double standbyCost = params.standbyCost.get(electrolyzer);
-
-	        for (Period period : currentPeriods) {
-	            int periodIndex = period.getT() - 1;
-	            double electricityPrice = params.electricityCost.get(period);
-	            double intervalLength = params.intervalLengthSWO;
-
-	            double x = xValues[agentIndex][periodIndex];
-	            boolean[] y = yValues[agentIndex][periodIndex];
+	    for (int e : electrolyzerIndices) {
+	        int electrolyzerId = table.getId(e);
+	        int agentIndex = electrolyzerId - 1;
+	        double powerElectrolyzer = table.getPowerElectrolyzer(e);
+	        double startupCost = table.getStartupCost(e);
+	        double standbyCost = table.getStandbyCost(e);
+
+	        for (int t : periodIndices) {
+	            int periodNumber = table.getPeriodNumber(t);
+	            int periodIndex = periodNumber - 1;
+	            double electricityPrice = table.getElectricityCost(t);
+	            double intervalLength = table.getIntervalLength();
+
+	            int index = values.index(agentIndex, periodIndex);
+	            double x = xValues[index];
+	            boolean[] y = IterateBlock.toStates(values.stateBits(index));
 
 	            // Calculation of objective function value
 	            objectiveValue += x * powerElectrolyzer * electricityPrice * intervalLength;
@@ -448,12 +1028,12 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 	            double lowerBound = 0.0;
 	            double lowerTolerance = (lowerBound == 0.0) ? zeroTolerance : tolerancePercentage * Math.abs(lowerBound);
 	            if (x < lowerBound - lowerTolerance) {
-	                System.out.println("Constraint violation: x (" + x + ") < 0 (with tolerance " + lowerTolerance + ") for Electrolyzer " + electrolyzer.getId() + " in Period " + period.getT());
+	                System.out.println("Constraint violation: x (" + x + ") < 0 (with tolerance " + lowerTolerance + ") for Electrolyzer " + electrolyzerId + " in Period " + periodNumber);
 	                feasible = false;
 	            }
 
 	            // Constraint 3: x ≤ maxOperation * y_PRODUCTION + standbyLoad * y_STANDBY
-	            double opMax = params.maxOperation.get(electrolyzer);
+	            double opMax = table.getMaxOperation(e);
 	            double standbyLoad = 0;
 	            double xUpperBound = opMax * (y[State.PRODUCTION.ordinal()] ? 1 : 0)
 	                               + standbyLoad * (y[State.STANDBY.ordinal()] ? 1 : 0);
@@ -461,15 +1041,15 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 	            double upperTolerance = (xUpperBound == 0.0) ? zeroTolerance : tolerancePercentage * Math.abs(xUpperBound);
 
 	            if (x > xUpperBound + upperTolerance) {
-	                System.out.println("Constraint violation: x (" + x + ") exceeds upper bound (" + xUpperBound + ") plus tolerance (" + upperTolerance + ") for Electrolyzer " + electrolyzer.getId() + " in Period " + period.getT());
+	                System.out.println("Constraint violation: x (" + x + ") exceeds upper bound (" + xUpperBound + ") plus tolerance (" + upperTolerance + ") for Electrolyzer " + electrolyzerId + " in Period " + periodNumber);
 	                feasible = false;
 	            }
 
 	            // Constraint 4: x ≥ minOperation * y_PRODUCTION + standbyLoad * y_STANDBY
-	            double minOperation = params.minOperation.get(electrolyzer);
+	            double minOperation = table.getMinOperation(e);
 	            double xLowerBound = minOperation * (y[State.PRODUCTION.ordinal()] ? 1 : 0)
 	                               + standbyLoad * (y[State.STANDBY.ordinal()] ? 1 : 0);
-	            boolean[] currentState = yValues[agentIndex][periodIndex];
+	            boolean[] currentState = y;
 	            
 	            String activeState = "Unknown";
 	            // Find the active state
@@ -485,37 +1065,37 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 	            if (x < xLowerBound - lowerToleranceBound) {
 	                System.out.println("Constraint violation: x (" + x + ") exceeds lower bound (" 
 	                    + xLowerBound + ") minus tolerance (" + lowerToleranceBound 
-	                    + ") for Electrolyzer " + electrolyzer.getId() + " in Period " + period.getT() 
+	                    + ") for Electrolyzer " + electrolyzerId + " in Period " + periodNumber 
 	                    + " (State: " + activeState + ")");
 	                feasible = false;
 	            }
 	            // State transition conditions
-	            if (period.getT() > 1) {
+	            if (periodNumber > 1) {
 	                int prevPeriodIndex = periodIndex - 1;
 
 	                // Get y-values of previous period
-	                boolean[] yPrev = yValues[agentIndex][prevPeriodIndex];
+	                boolean[] yPrev = IterateBlock.toStates(values.getStateBits(agentIndex, prevPeriodIndex));
 
 	                // Constraint: y_t,STARTING ≤ y_{t-1,IDLE} + y_{t-1,STARTING}
 	                boolean lhs_STARTING = y[State.STARTING.ordinal()];
 	                boolean rhs_STARTING = yPrev[State.IDLE.ordinal()] || yPrev[State.STARTING.ordinal()];
 	                if (lhs_STARTING && !rhs_STARTING) {
-	                    System.out.println("Constraint violation: Invalid transition to STARTING for Electrolyzer " + electrolyzer.getId() + " in Period " + period.getT());
+	                    System.out.println("Constraint violation: Invalid transition to STARTING for Electrolyzer " + electrolyzerId + " in Period " + periodNumber);
 	                    feasible = false;
 	                }
 
 	                // Constraint: y_t,PRODUCTION ≤ y_{t-1,PRODUCTION} + y_{t-1,STANDBY} + y_{t-startupDuration,STARTING}
 	                boolean lhs_PRODUCTION = y[State.PRODUCTION.ordinal()];
 	                boolean rhs_PRODUCTION = yPrev[State.PRODUCTION.ordinal()] || yPrev[State.STANDBY.ordinal()];
-	                int startingHoldingDuration = params.holdingDurations.get(electrolyzer).get(State.STARTING);
+	                int startingHoldingDuration = table.getHoldingDuration(e, State.STARTING);
 	                
-	                if (period.getT() > startingHoldingDuration) {
+	                if (periodNumber > startingHoldingDuration) {
 	                    int startupPeriodIndex = periodIndex - startingHoldingDuration;
-	                    boolean yStartPrev = yValues[agentIndex][startupPeriodIndex][State.STARTING.ordinal()];
+	                    boolean yStartPrev = values.getY(agentIndex, startupPeriodIndex, State.STARTING.ordinal());
 	                    rhs_PRODUCTION = rhs_PRODUCTION || yStartPrev;
 	                }
 	                if (lhs_PRODUCTION && !rhs_PRODUCTION) {
-	                    System.out.println("Constraint violation: Invalid transition to PRODUCTION for Electrolyzer " + electrolyzer.getId() + " in Period " + period.getT());
+	                    System.out.println("Constraint violation: Invalid transition to PRODUCTION for Electrolyzer " + electrolyzerId + " in Period " + periodNumber);
 	                    feasible = false;
 	                }
 
@@ -523,7 +1103,7 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 	                boolean lhs_STANDBY = y[State.STANDBY.ordinal()];
 	                boolean rhs_STANDBY = yPrev[State.PRODUCTION.ordinal()] || yPrev[State.STANDBY.ordinal()];
 	                if (lhs_STANDBY && !rhs_STANDBY) {
-	                    System.out.println("Constraint violation: Invalid transition to STANDBY for Electrolyzer " + electrolyzer.getId() + " in Period " + period.getT());
+	                    System.out.println("Constraint violation: Invalid transition to STANDBY for Electrolyzer " + electrolyzerId + " in Period " + periodNumber);
 	                    feasible = false;
 	                }
 
@@ -531,7 +1111,7 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 	                boolean lhs_IDLE = y[State.IDLE.ordinal()];
 	                boolean rhs_IDLE = yPrev[State.IDLE.ordinal()] || yPrev[State.PRODUCTION.ordinal()] || yPrev[State.STANDBY.ordinal()];
 	                if (lhs_IDLE && !rhs_IDLE) {
-	                    System.out.println("Constraint violation: Invalid transition to IDLE for Electrolyzer " + electrolyzer.getId() + " in Period " + period.getT());
+	                    System.out.println("Constraint violation: Invalid transition to IDLE for Electrolyzer " + electrolyzerId + " in Period " + periodNumber);
 	                    feasible = false;
 	                }
 	                
@@ -539,12 +1119,12 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 					        double rampTolerance = 0.001; // Example value for a fixed tolerance
                    // Ramp rate condition: Only check if the agent is in production in the current period
 					if (y[State.PRODUCTION.ordinal()]) {
-					    double currentXValue = xValues[agentIndex][periodIndex];
-					    double previousXValue = xValues[agentIndex][prevPeriodIndex];
+					    double currentXValue = xValues[index];
+					    double previousXValue = xValues[values.index(agentIndex, prevPeriodIndex)];
 
 					            // Calculate the difference (ramp residual) between current and previous x-value
 					    double diff1 = Math.abs(currentXValue - previousXValue);
-					    double rampRate = params.getRampRate(electrolyzer);
+					    double rampRate = table.getRampRate(e);
 					    		
 					                            // Calculation of allowed ramp rate with tolerance
 					    double upperRampTolerance = (rampRate == 0.0) ? rampTolerance : rampTolerance * Math.abs(rampRate);
@@ -552,10 +1132,10 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 
 					                            // Check for ramp rate violation
 					    if (diff1 > rampUpConstraint1 + upperRampTolerance) {
-					        System.out.println("Ramp rate violation (Condition 1): x_{a," + period.getT() + "} (" + currentXValue
-					                + ") - x_{a," + (period.getT() - 1) + "} (" + previousXValue + ") exceeds RampRateMax ("
+					        System.out.println("Ramp rate violation (Condition 1): x_{a," + periodNumber + "} (" + currentXValue
+					                + ") - x_{a," + (periodNumber - 1) + "} (" + previousXValue + ") exceeds RampRateMax ("
 					                + rampUpConstraint1 + ") plus tolerance (" + upperRampTolerance + ") for Electrolyzer "
-					                + electrolyzer.getId() + " in Period " + period.getT());
+					                + electrolyzerId + " in Period " + periodNumber);
 					        feasible = false;
 					    }
 					}
@@ -565,24 +1145,22 @@ public class SWO_CyclicBehaviour extends CyclicBehaviour {
 	    }
 
 	 // Calculation of deviation costs
-	    for (Period period : currentPeriods) {
-	        int periodIndex = period.getT() - 1;
-	        double demandPeriod = params.demand.get(period);
-	        double demandDeviationCost = params.demandDeviationCost;
+	    for (int t : periodIndices) {
+	        int periodIndex = table.getPeriodNumber(t) - 1;
+	        double demandPeriod = table.getDemand(t);
+	        double demandDeviationCost = table.getDemandDeviationCost();
 
 	        double productionSum = 0.0;
-	        for (Electrolyzer electrolyzer : electrolyzers) {
-	            int agentIndex = electrolyzer.getId() - 1;
-	            boolean[] y = yValues[agentIndex][periodIndex];
-	            int agentID = electrolyzer.getId() - 1;
-	            double powerElectrolyzer = params.powerElectrolyzer.get(electrolyzer);
-	            double slope = params.slope.get(electrolyzer);
-	            double intercept = params.intercept.get(electrolyzer);
-	            double x = xValues[agentID][periodIndex];
-	            double intervalLength = params.intervalLengthSWO;
-
-	            // Conversion from boolean to 0 (false) or 1 (true)
-	            int isProductionActive = y[State.PRODUCTION.ordinal()] ? 1 : 0;
+	        for (int e : electrolyzerIndices) {
+	            int index = values.index(table.getId(e) - 1, periodIndex);
+	            double powerElectrolyzer = table.getPowerElectrolyzer(e);
+	            double slope = table.getSlope(e);
+	            double intercept = table.getIntercept(e);
+	            double x = xValues[index];
+	            double intervalLength = table.getIntervalLength();
+
+	            // Conversion of the PRODUCTION bit to 0 or 1
+	            int isProductionActive = (values.stateBits(index) >> State.PRODUCTION.ordinal()) & 1;
 
 	            // Calculation of production: intercept is only used when isProductionActive == 1
 	            productionSum += intervalLength * (x * slope * powerElectrolyzer + intercept * isProductionActive);
@@ -3,6 +3,9 @@ package behaviours;
 import jade.core.AID;
 import jade.core.behaviours.OneShotBehaviour;
 import jade.lang.acl.ACLMessage;
+import messages.LocalTransport;
+import messages.MessageType;
+import messages.UpdateMessage;
 
 import java.util.*;
 import java.util.function.Predicate;
@@ -17,6 +20,7 @@ public class SWO_DualUpdateBehaviour extends OneShotBehaviour {
     final static String ANSI_GREEN = "\u001B[32m";
 
     private static final long serialVersionUID = 1L;
+    private static final double[] NO_RESIDUALS = new double[ResidualBlock.COMPONENTS];
     private Parameters params;
     private Set<Electrolyzer> electrolyzers; // Set of electrolyzers
     private Set<Period> periods;
@@ -48,24 +52,19 @@ public class SWO_DualUpdateBehaviour extends OneShotBehaviour {
         // Filter the electrolyzers that should be considered
         Set<Electrolyzer> filteredElectrolyzers = filterElectrolyzers(electrolyzers, filterCriteria);
 
-        // Perform the dual update bundled for the filtered electrolyzers
-        Map<Integer, double[][]> updatedUValuesMap = new HashMap<>();
-        
+        // Compact indices of the parameter table, the loops below run over int ranges
+        ParameterTable table = params.getTable();
+        int[] electrolyzerIndices = table.indicesOf(filteredElectrolyzers);
+        int[] periodIndices = table.periodIndicesOf(periods);
 
-        for (Electrolyzer electrolyzer : filteredElectrolyzers) {
-            double[][] newUValues = optimizeUForElectrolyzer(electrolyzer);
-            if (newUValues != null) {
-                updatedUValuesMap.put(electrolyzer.getId() - 1, newUValues);
-            }
-        }
-
-        // Save the new U-values for all filtered electrolyzers in ADMMDataModel
-        for (Map.Entry<Integer, double[][]> entry : updatedUValuesMap.entrySet()) {
-            dataModel.saveUSWOValuesForAgent(iteration + 1, entry.getKey(), entry.getValue());
+        // Perform the dual update bundled for the filtered electrolyzers, the new U-values go
+        // directly into the next iteration of the ADMMDataModel
+        for (int e : electrolyzerIndices) {
+            optimizeUForElectrolyzer(table, e, periodIndices);
         }
 
         // Send the bundled dual update results after calculation
-        sendBundledDualUpdateResults(filteredElectrolyzers, periods, iteration);
+        sendBundledDualUpdateResults(table, electrolyzerIndices, periodIndices, iteration);
         
         dualUpdateTime = System.nanoTime() - startTime; 
         dataModel.saveDualUpdateTimeForIteration(iteration, dualUpdateTime);
@@ -83,105 +82,88 @@ public class SWO_DualUpdateBehaviour extends OneShotBehaviour {
     }
 
 
-    private double[][] optimizeUForElectrolyzer(Electrolyzer electrolyzer) {
+    private void optimizeUForElectrolyzer(ParameterTable table, int e, int[] periodIndices) {
 
         int nextIteration = iteration + 1;
-        int electrolyzerID = electrolyzer.getId() - 1;
-
-        // Access to X, Y, S values for the current iteration from ADMMDataModel
-        double[] xValues = dataModel.getXSWOValuesForAgent(nextIteration, electrolyzerID);
-        boolean[][] yValues = dataModel.getYSWOValuesForAgent(nextIteration, electrolyzerID);
-        double[][] sValues = dataModel.getSSWOValuesForAgent(nextIteration, electrolyzerID);
-        double[][] uValues = dataModel.getUSWOValuesForAgent(iteration, electrolyzerID);
+        int electrolyzerID = table.getId(e) - 1;
+        double opMin = table.getMinOperation(e);
+        double opMax = table.getMaxOperation(e);
 
-        // Storage for new U-values (three values per period)
-        double[][] newUValues = new double[periods.size()][3];
+        // Access to X, Y, S values for the current iteration from ADMMDataModel (bulk views, no copies)
+        IterateBlock next = dataModel.getSWOValues(nextIteration);
+        double[] xValues = next.xValues();
+        double[] sValues = next.sValues();
+        double[] uValues = dataModel.getSWOValues(iteration).uValues();
+        double[] newUValues = next.uValues();
+        int production = 1 << State.PRODUCTION.ordinal();
 
-        for (Period t : periods) {
-            int periodIndex = t.getT() - 1;
+        for (int t : periodIndices) {
+            int index = next.index(electrolyzerID, table.getPeriodNumber(t) - 1);
 
             // Access to the constants for the calculation
-            double xValue = xValues[periodIndex];
-            double productionYValue = yValues[periodIndex][State.PRODUCTION.ordinal()] ? 1.0 : 0.0;
-            double opMin = params.minOperation.get(electrolyzer);
-            double opMax = params.maxOperation.get(electrolyzer);
+            double xValue = xValues[index];
+            double productionYValue = (next.stateBits(index) & production) != 0 ? 1.0 : 0.0;
 
             // Zugriff auf den alten U-Wert
-            double[] oldUValue = uValues[periodIndex];
+            int u = index * 3;
 
             // Berechnung des Residuals
-            double residual1 = rho*(-xValue + opMin * productionYValue + sValues[periodIndex][0]) + oldUValue[0];
-            double residual2 = rho*(xValue - opMax * productionYValue + sValues[periodIndex][1]) +  oldUValue[1];
-            double residual3 = productionYValue + oldUValue[2];
-            
+            double residual1 = rho*(-xValue + opMin * productionYValue + sValues[index * 2]) + uValues[u];
+            double residual2 = rho*(xValue - opMax * productionYValue + sValues[index * 2 + 1]) +  uValues[u + 1];
+            double residual3 = productionYValue + uValues[u + 2];
+        
             // Schwellenwert definieren
             double threshold = 1e-6;
-            
+        
             // Check residual values against threshold
             residual1 = Math.abs(residual1) < threshold ? 0.0 : residual1;
             residual2 = Math.abs(residual2) < threshold ? 0.0 : residual2;
             residual3 = Math.abs(residual3) < threshold ? 0.0 : residual3;
 
             // Speichern der neuen U-Werte
-            newUValues[periodIndex][0] = residual1;
-            newUValues[periodIndex][1] = residual2;
-            newUValues[periodIndex][2] = residual3;
+            newUValues[u] = residual1;
+            newUValues[u + 1] = residual2;
+            newUValues[u + 2] = residual3;
         }
-
-        return newUValues;
     }
 
-    private void sendBundledDualUpdateResults(Set<Electrolyzer> filteredElectrolyzers, Set<Period> periods, int iteration) {
+    private void sendBundledDualUpdateResults(ParameterTable table, int[] electrolyzerIndices, int[] periodIndices, int iteration) {
         ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
 
-        // Nachrichtentext mit dualUpdateMessage und Iteration
-        StringBuilder content = new StringBuilder();
-        content.append("dualUpdateMessage;").append(iteration).append(";");
+        // Nachricht mit dualUpdateMessage und Iteration
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_DUAL_UPDATE, iteration, myAgent.getLocalName(),
+                electrolyzerIndices.length * periodIndices.length);
 
         // For each electrolyzer and each period add the data
-        for (Electrolyzer e : filteredElectrolyzers) {
-            for (Period t : periods) {
-                int electrolyzerID = e.getId() - 1;
-                int periodIndex = t.getT() - 1;
-
-                // Holen der U-, S-, Y- und Residual-Werte aus dem ADMMDataModel
-                double[][] uValues = dataModel.getUSWOValuesForAgent(iteration + 1, electrolyzerID);
-                double[][] sValues = dataModel.getSSWOValuesForAgent(iteration + 1, electrolyzerID);
-                boolean[][] yValues = dataModel.getYSWOValuesForAgent(iteration + 1, electrolyzerID);
-                double[] residuals = dataModel.getYSWOResiduals(iteration, electrolyzerID, periodIndex);
-
-                // Add the data for the current electrolyzer and period
-                content.append(e.getId()).append(",")  // Elektrolyseur-ID
-                       .append(t.getT()).append(",")   // Periode
-                       .append(uValues[periodIndex][0]).append(",")  // Residual 1
-                       .append(uValues[periodIndex][1]).append(",")  // Residual 2
-                       .append(uValues[periodIndex][2]).append(","); // Residual 3
-
-                // S-Werte (s1 und s2)
-                content.append(sValues[periodIndex][0]).append(",")   // s1
-                       .append(sValues[periodIndex][1]).append(",");  // s2
-
-                // Residuals
-                if (residuals != null) {
-                    content.append(residuals[0]).append(",")   // Residual 1
-                           .append(residuals[1]).append(",")   // Residual 2
-                           .append(residuals[2]).append(",");  // Residual 3
-                } else {
-                    content.append("0,0,0,");  // Standardwerte, falls keine Residuals existieren
-                }
-
-                // y-Werte (als 0 oder 1)
-                for (State state : State.values()) {
-                    content.append(yValues[periodIndex][state.ordinal()] ? 1 : 0).append(",");
+        for (int e : electrolyzerIndices) {
+            int electrolyzerID = table.getId(e) - 1;
+
+            // Holen der U-, S- und Y-Werte aus dem ADMMDataModel
+            IterateBlock values = dataModel.getSWOValues(iteration + 1);
+            double[] uValues = values.uValues();
+            double[] sValues = values.sValues();
+            ResidualBlock residualValues = dataModel.getYResidualsForIteration(iteration);
+
+            for (int t : periodIndices) {
+                int period = table.getPeriodNumber(t);
+                int periodIndex = period - 1;
+                int index = values.index(electrolyzerID, periodIndex);
+                double[] residuals = NO_RESIDUALS; // Standardwerte, falls keine Residuals existieren
+                int r = 0;
+                if (residualValues != null) {
+                    residuals = residualValues.values();
+                    r = residualValues.offset(electrolyzerID, periodIndex);
                 }
 
-                content.deleteCharAt(content.length() - 1); // Entferne das letzte Komma
-                content.append(";"); // Trenne die Daten dieses Elektrolyseurs
+                // u (3), s (2), Residuals (3) und y-Zustände der Periode
+                update.addEntry(table.getId(e), period, IterateBlock.toStates(values.stateBits(index)),
+                        uValues[index * 3], uValues[index * 3 + 1], uValues[index * 3 + 2],
+                        sValues[index * 2], sValues[index * 2 + 1],
+                        residuals[r], residuals[r + 1], residuals[r + 2]);
             }
         }
 
-        // Setze den Nachrichtentext
-        msg.setContent(content.toString());
+        update.setQuantizationStep(ADMMSettings.getQuantizationStep());
 
         // Send message to all recipients in phone book
         List<AID> phoneBook = dataModel.getPhoneBook();
@@ -194,7 +176,7 @@ public class SWO_DualUpdateBehaviour extends OneShotBehaviour {
 
         // Senden der Nachricht
         if (msg.getAllReceiver().hasNext()) {
-            myAgent.send(msg);
+            LocalTransport.send(myAgent, msg, update, dataModel.getMessageDelta(), dataModel.getMessageStatistics());
         } else {
             System.out.println("No recipients found, message not sent.");
         }
@@ -8,6 +8,7 @@ import java.util.function.Predicate;
 import com.gurobi.gurobi.*;
 
 import models.*;
+import solvers.SolverException;
 
 public class SWO_SUpdateBehaviour extends OneShotBehaviour {
     /**
@@ -17,6 +18,7 @@ public class SWO_SUpdateBehaviour extends OneShotBehaviour {
     final static String ANSI_GREEN = "\u001B[32m";
 
     private static final long serialVersionUID = 1L;
+    private static final double VERIFICATION_TOLERANCE = 1e-4;
     private GRBModel model;
     private Parameters params;
     private Set<Electrolyzer> electrolyzers; // Set of electrolyzers
@@ -25,9 +27,17 @@ public class SWO_SUpdateBehaviour extends OneShotBehaviour {
     private ADMMDataModel dataModel;
     private double rho;
     private Predicate<Electrolyzer> filterCriteria; // Filter criteria for electrolyzers
+    private SWO_SUpdateModel blockModel; // null: variables are added to the shared model
     
     // Constructor
     public SWO_SUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, int iteration, ADMMDataModel dataModel, double rho, Predicate<Electrolyzer> filterCriteria) {
+        this(model, params, electrolyzers, periods, iteration, dataModel, rho, filterCriteria, null);
+    }
+
+    /**
+     * @param blockModel dedicated S model of the agent; if given, the shared model is not touched
+     */
+    public SWO_SUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, int iteration, ADMMDataModel dataModel, double rho, Predicate<Electrolyzer> filterCriteria, SWO_SUpdateModel blockModel) {
         this.model = model;
         this.params = params;
         this.electrolyzers = electrolyzers;
@@ -36,6 +46,7 @@ public class SWO_SUpdateBehaviour extends OneShotBehaviour {
         this.dataModel = dataModel;
         this.rho = rho;
         this.filterCriteria = filterCriteria;
+        this.blockModel = blockModel;
     }
 
     @Override
@@ -43,6 +54,20 @@ public class SWO_SUpdateBehaviour extends OneShotBehaviour {
     	System.out.println("s-Update from " + myAgent.getLocalName() + " in Iteration: " + iteration);
     	
     	long startTime = System.nanoTime();  // Start time measurement
+        String mode = ADMMSettings.getSUpdateMode();
+        if (!ADMMSettings.S_UPDATE_MODE_GUROBI.equals(mode)) {
+            updateSAnalytic();
+            dataModel.saveSUpdateTimeForIteration(iteration, System.nanoTime() - startTime);
+            if (ADMMSettings.S_UPDATE_MODE_VERIFY.equals(mode)) {
+                verifyAgainstGurobi();
+            }
+            return;
+        }
+        if (blockModel != null) {
+            optimizeSBlock();
+            dataModel.saveSUpdateTimeForIteration(iteration, System.nanoTime() - startTime);
+            return;
+        }
         try {
             // Filter the electrolyzers that should be considered
             Set<Electrolyzer> filteredElectrolyzers = filterElectrolyzers(electrolyzers, filterCriteria);
@@ -147,6 +172,100 @@ public class SWO_SUpdateBehaviour extends OneShotBehaviour {
         dataModel.saveSUpdateTimeForIteration(iteration, sDuration); 
     }
 
+    /**
+     * Closed-form S-update into the s-values of iteration + 1
+     */
+    private void updateSAnalytic() {
+        ParameterTable table = params.getTable();
+        IterateBlock next = dataModel.getSWOValues(iteration + 1);
+        IterateBlock current = dataModel.getSWOValues(iteration);
+        for (int e : table.indicesOf(electrolyzers, filterCriteria)) {
+            int electrolyzerID = table.getId(e) - 1;
+            if (next != null && current != null) {
+                SWO_SUpdateKernel.solve(next, current.uValues(), electrolyzerID, table.getMinOperation(e), table.getMaxOperation(e));
+                continue;
+            }
+
+            // Iteration not preallocated: compute into a buffer and let the data model create it
+            double[] xValues = dataModel.getXSWOValuesForAgent(iteration + 1, electrolyzerID);
+            boolean[][] yValues = dataModel.getYSWOValuesForAgent(iteration + 1, electrolyzerID);
+            double[][] uValues = dataModel.getUSWOValuesForAgent(iteration, electrolyzerID);
+            double[][] sValues = new double[yValues.length][2];
+            SWO_SUpdateKernel.solve(xValues, yValues, uValues, table.getMinOperation(e), table.getMaxOperation(e), sValues);
+            for (int periodIndex = 0; periodIndex < sValues.length; periodIndex++) {
+                dataModel.saveSSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 0, sValues[periodIndex][0]);
+                dataModel.saveSSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, 1, sValues[periodIndex][1]);
+            }
+        }
+    }
+
+    /**
+     * Solves the S block with Gurobi and compares it with the closed-form values already stored
+     */
+    private void verifyAgainstGurobi() {
+        if (blockModel == null) {
+            System.err.println("S-update verification needs the S block model (SWO_BLOCK_MODELS=true), skipped.");
+            return;
+        }
+        try {
+            blockModel.setRho(rho);
+            blockModel.update(dataModel, iteration, 1);
+            if (!blockModel.solve()) {
+                System.err.println("S-update verification: no optimal Gurobi solution in iteration " + iteration);
+                return;
+            }
+            double maxDeviation = 0.0;
+            Electrolyzer[] sortedElectrolyzers = blockModel.getElectrolyzers();
+            Period[] sortedPeriods = blockModel.getPeriods();
+            for (int e = 0; e < sortedElectrolyzers.length; e++) {
+                int electrolyzerID = sortedElectrolyzers[e].getId() - 1;
+                for (int t = 0; t < sortedPeriods.length; t++) {
+                    int periodIndex = sortedPeriods[t].getT() - 1;
+                    for (int k = 0; k < 2; k++) {
+                        double analyticValue = dataModel.getSSWOValueForAgentPeriod(iteration + 1, electrolyzerID, periodIndex, k);
+                        maxDeviation = Math.max(maxDeviation, Math.abs(analyticValue - blockModel.getSValue(e, t, k)));
+                    }
+                }
+            }
+            if (maxDeviation > VERIFICATION_TOLERANCE) {
+                System.err.println("S-update verification failed in iteration " + iteration + ": max deviation " + maxDeviation);
+            } else {
+                System.out.println("S-update verification passed in iteration " + iteration + ": max deviation " + maxDeviation);
+            }
+        } catch (SolverException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * S-update on the dedicated block model of the agent
+     */
+    private void optimizeSBlock() {
+        try {
+            blockModel.setRho(rho);
+            blockModel.update(dataModel, iteration, 1);
+
+            if (blockModel.solve()) {
+                Electrolyzer[] sortedElectrolyzers = blockModel.getElectrolyzers();
+                Period[] sortedPeriods = blockModel.getPeriods();
+                for (int e = 0; e < sortedElectrolyzers.length; e++) {
+                    int electrolyzerID = sortedElectrolyzers[e].getId() - 1;
+                    for (int t = 0; t < sortedPeriods.length; t++) {
+                        int periodIndex = sortedPeriods[t].getT() - 1;
+                        for (int k = 0; k < 2; k++) {
+                            dataModel.saveSSWOValueForPeriod(iteration + 1, electrolyzerID, periodIndex, k, blockModel.getSValue(e, t, k));
+                        }
+                    }
+                }
+            } else {
+                System.out.println("No optimal solution found for the s-Optimization of the filtered agents.");
+            }
+        } catch (SolverException e) {
+            e.printStackTrace();
+            System.out.println("Error during S-Update.");
+        }
+    }
+
     // Methode zum Filtern der Elektrolyseure basierend auf einem Kriterium
     private Set<Electrolyzer> filterElectrolyzers(Set<Electrolyzer> electrolyzers, Predicate<Electrolyzer> filterCriteria) {
         Set<Electrolyzer> filteredSet = new HashSet<>();
@@ -0,0 +1,67 @@
+package behaviours;
+
+import models.IterateBlock;
+import models.State;
+
+/**
+ * Closed-form SWO S-update.
+ *
+ * For a producing period the S-subproblem is
+ *   min (rho/2)(-x + opMin + u1 + s1)^2 + (rho/2)(x - opMax + u2 + s2)^2,  s1, s2 >= 0,
+ * whose terms are independent, so each slack is the projection onto the nonnegative half-line:
+ *   s1 = max(0, x - opMin - u1),  s2 = max(0, opMax - x - u2).
+ * Outside production no residual is penalized and both slacks are zero. The result does not
+ * depend on rho. Same projection as in RTO_SUpdateBehaviour, but without any allocation.
+ */
+public final class SWO_SUpdateKernel {
+
+    private static final int PRODUCTION = State.PRODUCTION.ordinal();
+
+    private SWO_SUpdateKernel() {
+    }
+
+    /**
+     * Computes the slacks of one electrolyzer for all periods.
+     *
+     * @param xValues x per period, null is treated as zero
+     * @param yValues y per period and state
+     * @param uValues u per period (only index 0 and 1 are used)
+     * @param sOut    target [period][2], overwritten in place
+     */
+    public static void solve(double[] xValues, boolean[][] yValues, double[][] uValues,
+                             double opMin, double opMax, double[][] sOut) {
+        for (int t = 0; t < sOut.length; t++) {
+            double[] s = sOut[t];
+            if (yValues[t][PRODUCTION]) {
+                double x = xValues == null ? 0.0 : xValues[t];
+                s[0] = Math.max(0.0, x - opMin - uValues[t][0]);
+                s[1] = Math.max(0.0, opMax - x - uValues[t][1]);
+            } else {
+                s[0] = 0.0;
+                s[1] = 0.0;
+            }
+        }
+    }
+
+    /**
+     * Same update on the bulk views of the data model, for all periods of one electrolyzer.
+     *
+     * @param next    block of iteration + 1: x and y are read, s is overwritten in place
+     * @param uValues u of iteration, in the layout of next.uValues()
+     */
+    public static void solve(IterateBlock next, double[] uValues, int agentIndex, double opMin, double opMax) {
+        double[] x = next.xValues();
+        double[] s = next.sValues();
+        int uComponents = next.getUComponents();
+        int from = next.index(agentIndex, 0);
+        for (int i = from; i < from + next.getPeriods(); i++) {
+            if ((next.stateBits(i) & (1 << PRODUCTION)) != 0) {
+                s[2 * i] = Math.max(0.0, x[i] - opMin - uValues[uComponents * i]);
+                s[2 * i + 1] = Math.max(0.0, opMax - x[i] - uValues[uComponents * i + 1]);
+            } else {
+                s[2 * i] = 0.0;
+                s[2 * i + 1] = 0.0;
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package behaviours;
+
+import java.util.Set;
+
+import com.gurobi.gurobi.GRBEnv;
+import models.Electrolyzer;
+import models.Parameters;
+import models.Period;
+import models.SWOValueReader;
+import models.State;
+import solvers.QuadraticObjective;
+import solvers.SolverException;
+import solvers.SubproblemSolver;
+import solvers.SubproblemSolver.VariableType;
+import solvers.SubproblemSolverFactory;
+
+/**
+ * QP formulation of the SWO S-update (S block).
+ *
+ * Slack and residual variables exist for every (electrolyzer, period):
+ *   residual1 - s1 = -x + opMin * yProduction + u1
+ *   residual2 - s2 =  x - opMax * yProduction + u2
+ * The residuals only enter the objective while the electrolyzer is in production; otherwise
+ * the slacks are fixed to zero via their upper bound. Per iteration the right-hand sides,
+ * the slack bounds and the penalty weights are updated.
+ */
+public class SWO_SUpdateModel extends SWO_BlockModel<SWOValueReader> {
+
+    private static final double OPTIMALITY_TOLERANCE = 1e-6;
+
+    private final Parameters params;
+    private final Electrolyzer[] electrolyzers;
+    private final Period[] periods;
+    private final int numPeriods;
+
+    // Flattened per (electrolyzer, period): index = e * numPeriods + t
+    private final int[] s1Vars;
+    private final int[] s2Vars;
+    private final int[] residual1Vars;
+    private final int[] residual2Vars;
+    private final int[] residual1Constrs;
+    private final int[] residual2Constrs;
+
+    private final double[] residual1Rhs;
+    private final double[] residual2Rhs;
+    private final double[] slackUpperBounds;
+    private final boolean[] producing;
+    private final double[] s1Values;
+    private final double[] s2Values;
+
+    // Warm start: s1, s2, residual1, residual2 and both residual rows
+    private int[] startVars;
+    private double[] startValues;
+    private int[] allConstrs;
+    private double[] duals;
+    private boolean hasDuals = false;
+
+    public SWO_SUpdateModel(GRBEnv env, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, double rho) {
+        this(env, params, electrolyzers, periods, rho, SubproblemSolverFactory.BACKEND_GUROBI);
+    }
+
+    public SWO_SUpdateModel(GRBEnv env, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, double rho,
+                            String backend) {
+        super(env, rho, backend);
+        this.params = params;
+        this.electrolyzers = sortById(electrolyzers);
+        this.periods = sortByT(periods);
+        this.numPeriods = this.periods.length;
+
+        int size = this.electrolyzers.length * numPeriods;
+        s1Vars = new int[size];
+        s2Vars = new int[size];
+        residual1Vars = new int[size];
+        residual2Vars = new int[size];
+        residual1Constrs = new int[size];
+        residual2Constrs = new int[size];
+        residual1Rhs = new double[size];
+        residual2Rhs = new double[size];
+        slackUpperBounds = new double[size];
+        producing = new boolean[size];
+        s1Values = new double[size];
+        s2Values = new double[size];
+    }
+
+    // ============================================================================
+    // MODEL CONSTRUCTION
+    // ============================================================================
+
+    @Override
+    protected void configure() throws SolverException {
+        // Barrier ignores start vectors, the warm-started block uses the dual simplex
+        solver.setParameter("Method", warmStart ? 1 : 2);
+        solver.setParameter("OptimalityTol", OPTIMALITY_TOLERANCE);
+    }
+
+    @Override
+    protected void buildModel() throws SolverException {
+        for (int e = 0; e < electrolyzers.length; e++) {
+            int electrolyzerID = electrolyzers[e].getId() - 1;
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                String suffix = electrolyzerID + "_" + periods[t].getT();
+                s1Vars[index] = solver.addVariable(0.0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "s1_" + suffix);
+                s2Vars[index] = solver.addVariable(0.0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "s2_" + suffix);
+                residual1Vars[index] = solver.addVariable(-SubproblemSolver.INFINITY, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual1_" + suffix);
+                residual2Vars[index] = solver.addVariable(-SubproblemSolver.INFINITY, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual2_" + suffix);
+
+                residual1Constrs[index] = solver.addConstraint(new int[]{residual1Vars[index], s1Vars[index]}, new double[]{1.0, -1.0},
+                        SubproblemSolver.EQUAL, 0.0, "residual1_constr_" + suffix);
+                residual2Constrs[index] = solver.addConstraint(new int[]{residual2Vars[index], s2Vars[index]}, new double[]{1.0, -1.0},
+                        SubproblemSolver.EQUAL, 0.0, "residual2_constr_" + suffix);
+            }
+        }
+        startVars = concat(s1Vars, s2Vars, residual1Vars, residual2Vars);
+        startValues = new double[startVars.length];
+        allConstrs = concat(residual1Constrs, residual2Constrs);
+        duals = new double[allConstrs.length];
+    }
+
+    // ============================================================================
+    // ITERATION UPDATE
+    // ============================================================================
+
+    /**
+     * Reads x and y of iteration + 1 and u of iteration.
+     */
+    @Override
+    protected void updateModel(SWOValueReader dataModel, int iteration, int currentStartPeriod) throws SolverException {
+        for (int e = 0; e < electrolyzers.length; e++) {
+            Electrolyzer electrolyzer = electrolyzers[e];
+            int electrolyzerID = electrolyzer.getId() - 1;
+            double[] xValues = dataModel.getXSWOValuesForAgent(iteration + 1, electrolyzerID);
+            boolean[][] yValues = dataModel.getYSWOValuesForAgent(iteration + 1, electrolyzerID);
+            double[][] uValues = dataModel.getUSWOValuesForAgent(iteration, electrolyzerID);
+            double opMin = params.minOperation.get(electrolyzer);
+            double opMax = params.maxOperation.get(electrolyzer);
+
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                int periodIndex = periods[t].getT() - 1;
+                double xValue = xValues == null ? 0.0 : xValues[periodIndex];
+                double productionYValue = yValues[periodIndex][State.PRODUCTION.ordinal()] ? 1.0 : 0.0;
+
+                producing[index] = productionYValue > 0;
+                residual1Rhs[index] = -xValue + opMin * productionYValue + uValues[periodIndex][0];
+                residual2Rhs[index] = xValue - opMax * productionYValue + uValues[periodIndex][1];
+                slackUpperBounds[index] = producing[index] ? SubproblemSolver.INFINITY : 0.0;
+            }
+        }
+
+        solver.setRhs(residual1Constrs, residual1Rhs);
+        solver.setRhs(residual2Constrs, residual2Rhs);
+        solver.setUpperBounds(s1Vars, slackUpperBounds);
+        solver.setUpperBounds(s2Vars, slackUpperBounds);
+
+        // Only residuals of producing periods are penalized
+        QuadraticObjective objective = new QuadraticObjective();
+        for (int i = 0; i < producing.length; i++) {
+            if (producing[i]) {
+                objective.addQuadratic(residual1Vars[i], residual1Vars[i], rho / 2);
+                objective.addQuadratic(residual2Vars[i], residual2Vars[i], rho / 2);
+            }
+        }
+        solver.setObjective(objective);
+    }
+
+    /**
+     * Primal start from s of the previous iterate (zero where the slack is fixed), residuals
+     * completed for the updated right-hand sides; dual start from the last solve.
+     */
+    @Override
+    protected void applyWarmStart(SWOValueReader dataModel, int iteration) throws SolverException {
+        int size = s1Vars.length;
+        for (int e = 0; e < electrolyzers.length; e++) {
+            double[][] previousS = dataModel.getSSWOValuesForAgent(iteration, electrolyzers[e].getId() - 1);
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                int periodIndex = periods[t].getT() - 1;
+                double s1 = producing[index] ? (previousS != null ? previousS[periodIndex][0] : s1Values[index]) : 0.0;
+                double s2 = producing[index] ? (previousS != null ? previousS[periodIndex][1] : s2Values[index]) : 0.0;
+                startValues[index] = s1;
+                startValues[size + index] = s2;
+                startValues[2 * size + index] = residual1Rhs[index] + s1;
+                startValues[3 * size + index] = residual2Rhs[index] + s2;
+            }
+        }
+        solver.setStart(startVars, startValues);
+        if (hasDuals) {
+            solver.setDualStart(allConstrs, duals);
+        }
+    }
+
+    @Override
+    protected void readSolution() throws SolverException {
+        solver.getValues(s1Vars, s1Values);
+        solver.getValues(s2Vars, s2Values);
+        if (warmStart) {
+            solver.getDuals(allConstrs, duals);
+            hasDuals = true;
+        }
+    }
+
+    // ============================================================================
+    // RESULTS
+    // ============================================================================
+
+    /**
+     * @param k 0 for s1 (lower boundary), 1 for s2 (upper boundary)
+     */
+    public double getSValue(int electrolyzerIndex, int periodIndex, int k) {
+        int index = index(electrolyzerIndex, periodIndex);
+        return k == 0 ? s1Values[index] : s2Values[index];
+    }
+
+    public Electrolyzer[] getElectrolyzers() {
+        return electrolyzers;
+    }
+
+    public Period[] getPeriods() {
+        return periods;
+    }
+
+    private int index(int electrolyzerIndex, int periodIndex) {
+        return electrolyzerIndex * numPeriods + periodIndex;
+    }
+}
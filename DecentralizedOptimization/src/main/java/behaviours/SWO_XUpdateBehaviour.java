@@ -8,11 +8,18 @@ import com.gurobi.gurobi.*;
 import jade.core.AID;
 import jade.core.behaviours.OneShotBehaviour;
 import jade.lang.acl.ACLMessage;
+import messages.LocalTransport;
+import messages.MessageCodec;
+import messages.MessageType;
+import messages.UpdateMessage;
 import models.ADMMDataModel;
+import models.ADMMSettings;
 import models.Electrolyzer;
+import models.ParameterTable;
 import models.Parameters;
 import models.Period;
 import models.State;
+import solvers.SolverException;
 
 /**
  * SWO X-Update Behavior for ADMM optimization
@@ -41,6 +48,7 @@ public class SWO_XUpdateBehaviour extends OneShotBehaviour {
     private final ADMMDataModel dataModel;
     private final double rho; // Weighting factor for penalty terms
     private final int currentStartPeriod;
+    private final SWO_XUpdateModel persistentModel; // null: rebuild formulation on the shared model
     
     // Performance tracking
     private long xUpdateTime = 0;
@@ -60,6 +68,16 @@ public class SWO_XUpdateBehaviour extends OneShotBehaviour {
     public SWO_XUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, 
                                 Set<Period> periods, int iteration, ADMMDataModel dataModel, 
                                 double rho, int currentStartPeriod) {
+        this(model, params, electrolyzers, periods, iteration, dataModel, rho, currentStartPeriod, null);
+    }
+
+    /**
+     * @param persistentModel persistent X formulation of the agent; if given, no variables or
+     *                        constraints are added to the shared model
+     */
+    public SWO_XUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, 
+                                Set<Period> periods, int iteration, ADMMDataModel dataModel, 
+                                double rho, int currentStartPeriod, SWO_XUpdateModel persistentModel) {
         this.model = model;
         this.params = params;
         this.electrolyzers = electrolyzers;
@@ -68,8 +86,11 @@ public class SWO_XUpdateBehaviour extends OneShotBehaviour {
         this.dataModel = dataModel;
         this.rho = rho;
         this.currentStartPeriod = currentStartPeriod;
+        this.persistentModel = persistentModel;
 
-        initializeVariablesAndConstraints();
+        if (persistentModel == null) {
+            initializeVariablesAndConstraints();
+        }
     }
 
     // ============================================================================
@@ -165,11 +186,15 @@ public class SWO_XUpdateBehaviour extends OneShotBehaviour {
         dataModel.setStartXSWOUpdateComputationTime(System.nanoTime());
         
         try {
-            optimizeX();
+            if (persistentModel != null) {
+                optimizeXPersistent();
+            } else {
+                optimizeX();
+            }
             xUpdateTime = System.nanoTime() - dataModel.getStartTimeXSWOComputationTime();
             dataModel.saveXUpdateTimeForIteration(iteration, xUpdateTime);
             sendBundledXUpdateResults();
-        } catch (GRBException e) {
+        } catch (GRBException | SolverException e) {
             e.printStackTrace();
         }
     }
@@ -210,6 +235,30 @@ public class SWO_XUpdateBehaviour extends OneShotBehaviour {
         }
     }
     
+    /**
+     * Performs the X-optimization on the persistent model, only updating constants in place
+     */
+    private void optimizeXPersistent() throws SolverException {
+        System.out.println("x-SWO-Update (persistent) from " + myAgent.getLocalName() + " in Iteration: " + iteration);
+
+        persistentModel.setRho(rho);
+        persistentModel.update(dataModel, iteration, currentStartPeriod);
+
+        if (persistentModel.solve()) {
+            Electrolyzer[] sortedElectrolyzers = persistentModel.getElectrolyzers();
+            Period[] sortedPeriods = persistentModel.getPeriods();
+            for (int e = 0; e < sortedElectrolyzers.length; e++) {
+                for (int t = 0; t < sortedPeriods.length; t++) {
+                    saveXValue(iteration + 1, sortedElectrolyzers[e], sortedPeriods[t], persistentModel.getXValue(e, t));
+                }
+            }
+            dataModel.saveXObjective(iteration, persistentModel.getObjectiveValue());
+            dataModel.saveXPenaltyForIteration(iteration, persistentModel.getPenaltyValue());
+        } else {
+            System.out.println("No optimal solution found.");
+        }
+    }
+    
     /**
      * Builds the complete objective function including penalty terms
      */
@@ -341,23 +390,30 @@ public class SWO_XUpdateBehaviour extends OneShotBehaviour {
      */
     private void saveResults(int nextIteration) throws GRBException {
         for (Electrolyzer e : electrolyzers) {
-            int agentID = e.getId() - 1;
-
             for (Period t : periods) {
-                int periodIndex = t.getT() - 1;
-                double xValue = xVars.get(e).get(t).get(GRB.DoubleAttr.X);
-
-                if (Math.abs(xValue) < SMALL_VALUE_THRESHOLD) {
-                    xValue = 0; // Threshold for small values
-                }
-
-                dataModel.saveXSWOValueForPeriod(nextIteration, agentID, periodIndex, xValue);
-                double hydrogenProduction = params.intervalLengthSWO * (params.slope.get(e) * params.powerElectrolyzer.get(e) * xValue + params.intercept.get(e));
-                dataModel.saveHydrogenSWOProductionForPeriod(nextIteration, agentID, periodIndex, hydrogenProduction);
+                saveXValue(nextIteration, e, t, xVars.get(e).get(t).get(GRB.DoubleAttr.X));
             }
         }
     }
     
+    /**
+     * Saves a single x-value and the resulting hydrogen production
+     */
+    private void saveXValue(int nextIteration, Electrolyzer e, Period t, double xValue) {
+        int agentID = e.getId() - 1;
+        int periodIndex = t.getT() - 1;
+
+        if (Math.abs(xValue) < SMALL_VALUE_THRESHOLD) {
+            xValue = 0; // Threshold for small values
+        }
+
+        dataModel.saveXSWOValueForPeriod(nextIteration, agentID, periodIndex, xValue);
+        ParameterTable table = params.getTable();
+        int index = table.indexOf(e);
+        double hydrogenProduction = table.getIntervalLength() * (table.getSlope(index) * table.getPowerElectrolyzer(index) * xValue + table.getIntercept(index));
+        dataModel.saveHydrogenSWOProductionForPeriod(nextIteration, agentID, periodIndex, hydrogenProduction);
+    }
+    
     /**
      * Saves objective and penalty values for analysis
      */
@@ -386,25 +442,63 @@ public class SWO_XUpdateBehaviour extends OneShotBehaviour {
      */
     private void sendBundledXUpdateResults() {
         ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-        StringBuilder content = new StringBuilder();
-        content.append("xUpdateMessage;").append(iteration).append(";");
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_X_UPDATE, iteration, myAgent.getLocalName(),
+                electrolyzers.size() * periods.size());
 
         for (Electrolyzer e : electrolyzers) {
+            double[] hydrogenProductionValues = dataModel.getHydrogenSWOProductionForAgent(iteration + 1, e.getId() - 1);
             for (Period t : periods) {
                 double xValue = dataModel.getXSWOValueForAgentPeriod(iteration + 1, e.getId() - 1, t.getT() - 1);
-                double hydrogenProduction = dataModel.getHydrogenSWOProductionForAgent(iteration + 1, e.getId() - 1)[t.getT() - 1];
-                content.append(e.getId()).append(",").append(t.getT()).append(",").append(xValue).append(",").append(hydrogenProduction).append(";");
+                update.addEntry(e.getId(), t.getT(), xValue, hydrogenProductionValues[t.getT() - 1]);
             }
         }
 
-        msg.setContent(content.toString());
+        update.setQuantizationStep(quantizationStep());
         for (AID recipient : dataModel.getPhoneBook()) {
             if (!recipient.equals(myAgent.getAID())) {
                 msg.addReceiver(recipient);
                 sentMessages++;
             }
         }
-        myAgent.send(msg);
+        LocalTransport.send(myAgent, msg, update, dataModel.getMessageDelta(), dataModel.getMessageStatistics());
         dataModel.saveSentMessagesForIteration(iteration, sentMessages);
     }
+
+    /**
+     * Guard of the quantized payload mode: compares the boundary residual of the agent's
+     * electrolyzers (see SWO_CyclicBehaviour.calculateBoundaryResiduals) for the exact and the
+     * quantized x. If quantization changes it by more than MESSAGE_QUANTIZATION_MAX_RESIDUAL_ERROR,
+     * the x-update is sent in full precision.
+     *
+     * @return the quantization step for this x-update, 0 for full precision
+     */
+    private double quantizationStep() {
+        double step = ADMMSettings.getQuantizationStep();
+        if (step <= 0) {
+            return 0.0;
+        }
+        double exactResidual = 0.0;
+        double quantizedResidual = 0.0;
+        for (Electrolyzer e : electrolyzers) {
+            int agentIndex = e.getId() - 1;
+            boolean[][] yValues = dataModel.getYSWOValuesForAgent(iteration, agentIndex);
+            for (Period t : periods) {
+                int periodIndex = t.getT() - 1;
+                double xValue = dataModel.getXSWOValueForAgentPeriod(iteration + 1, agentIndex, periodIndex);
+                boolean isProducing = yValues != null && yValues[periodIndex][State.PRODUCTION.ordinal()];
+                exactResidual += SWO_CyclicBehaviour.squaredBoundaryViolation(xValue, isProducing,
+                        e.getMinOperation(), e.getMaxOperation());
+                quantizedResidual += SWO_CyclicBehaviour.squaredBoundaryViolation(MessageCodec.quantize(xValue, step),
+                        isProducing, e.getMinOperation(), e.getMaxOperation());
+            }
+        }
+        double error = Math.abs(Math.sqrt(exactResidual) - Math.sqrt(quantizedResidual));
+        dataModel.saveQuantizationErrorForIteration(iteration, error);
+        if (error > ADMMSettings.getQuantizationMaxResidualError()) {
+            System.out.println(myAgent.getLocalName() + ": quantization changes the boundary residual by " + error
+                    + " in iteration " + iteration + ", sending x in full precision");
+            return 0.0;
+        }
+        return step;
+    }
 }
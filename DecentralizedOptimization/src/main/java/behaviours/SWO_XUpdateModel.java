@@ -0,0 +1,340 @@
+package behaviours;
+
+import java.util.Set;
+
+import com.gurobi.gurobi.GRBEnv;
+import models.Electrolyzer;
+import models.Parameters;
+import models.Period;
+import models.SWOValueReader;
+import models.State;
+import solvers.QuadraticObjective;
+import solvers.SolverException;
+import solvers.SubproblemSolver;
+import solvers.SubproblemSolver.VariableType;
+import solvers.SubproblemSolverFactory;
+
+/**
+ * Persistent formulation of the SWO X-update (X block).
+ *
+ * Variables, demand deviation constraints and boundary residual constraints are created
+ * once per agent. Each iteration only rewrites the right-hand sides (s + u terms, opMin*y)
+ * and the y-dependent coefficients of the upper boundary rows in place, so the model size
+ * stays constant over the ADMM iterations. The model is a continuous convex QP, so it
+ * runs on either backend of SubproblemSolverFactory.
+ */
+public class SWO_XUpdateModel extends SWO_BlockModel<SWOValueReader> {
+
+    // ============================================================================
+    // CONSTANTS
+    // ============================================================================
+    private static final double SCALING_FACTOR = 999.0;
+    private static final double OPTIMALITY_TOLERANCE = 1e-6;
+
+    // ============================================================================
+    // INSTANCE VARIABLES
+    // ============================================================================
+    private final Parameters params;
+    private final Electrolyzer[] electrolyzers;
+    private final Period[] periods;
+    private final int numPeriods;
+
+    // Solver handles, flattened per (electrolyzer, period): index = e * numPeriods + t
+    private final int[] xVars;
+    private final int[] residual1Vars; // Residuals for lower boundary
+    private final int[] residual2Vars; // Residuals for upper boundary
+    private final int[] positiveDeviations; // Demand deviation (positive), per period
+    private final int[] negativeDeviations; // Demand deviation (negative), per period
+    private final int[] lowerBoundaryConstrs;
+    private final int[] upperBoundaryConstrs;
+    private final int[] positiveDeviationConstrs;
+    private final int[] negativeDeviationConstrs;
+
+    // Warm start: all variables (x, residual1, residual2, positive, negative deviation) and all constraints
+    private int[] startVars;
+    private double[] startValues;
+    private int[] allConstrs;
+    private double[] duals;
+    private boolean hasDuals = false;
+
+    // Reused buffers for the batch attribute updates
+    private final double[] lowerRhs;
+    private final double[] upperRhs;
+    private final double[] upperCoefficients;
+    private final double[] xValues;
+    private final double[] residual1Values;
+    private final double[] residual2Values;
+
+    private int objectiveStartPeriod = -1;
+
+    // ============================================================================
+    // CONSTRUCTOR
+    // ============================================================================
+
+    public SWO_XUpdateModel(GRBEnv env, Parameters params, Set<Electrolyzer> electrolyzers,
+                            Set<Period> periods, double rho) {
+        this(env, params, electrolyzers, periods, rho, SubproblemSolverFactory.BACKEND_GUROBI);
+    }
+
+    /**
+     * @param backend solver backend, see SubproblemSolverFactory
+     */
+    public SWO_XUpdateModel(GRBEnv env, Parameters params, Set<Electrolyzer> electrolyzers,
+                            Set<Period> periods, double rho, String backend) {
+        super(env, rho, backend);
+        this.params = params;
+        this.electrolyzers = sortById(electrolyzers);
+        this.periods = sortByT(periods);
+        this.numPeriods = this.periods.length;
+
+        int size = this.electrolyzers.length * numPeriods;
+        xVars = new int[size];
+        residual1Vars = new int[size];
+        residual2Vars = new int[size];
+        positiveDeviations = new int[numPeriods];
+        negativeDeviations = new int[numPeriods];
+        lowerBoundaryConstrs = new int[size];
+        upperBoundaryConstrs = new int[size];
+        positiveDeviationConstrs = new int[numPeriods];
+        negativeDeviationConstrs = new int[numPeriods];
+        lowerRhs = new double[size];
+        upperRhs = new double[size];
+        upperCoefficients = new double[size];
+        xValues = new double[size];
+        residual1Values = new double[size];
+        residual2Values = new double[size];
+    }
+
+    // ============================================================================
+    // MODEL CONSTRUCTION (once per agent)
+    // ============================================================================
+
+    @Override
+    protected void configure() throws SolverException {
+        solver.setParameter("OptimalityTol", OPTIMALITY_TOLERANCE);
+        if (warmStart) {
+            solver.setParameter("Method", 1); // Dual simplex uses PStart/DStart and the previous basis
+        }
+    }
+
+    @Override
+    protected void buildModel() throws SolverException {
+        for (int e = 0; e < electrolyzers.length; e++) {
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                String suffix = electrolyzers[e].getId() + "_" + periods[t].getT();
+                xVars[index] = solver.addVariable(0, 1, VariableType.CONTINUOUS, "x_" + suffix);
+                residual1Vars[index] = solver.addVariable(0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual1_" + suffix);
+                residual2Vars[index] = solver.addVariable(0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual2_" + suffix);
+            }
+        }
+        for (int t = 0; t < numPeriods; t++) {
+            positiveDeviations[t] = solver.addVariable(0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "positiveDeviation_" + periods[t].getT());
+            negativeDeviations[t] = solver.addVariable(0, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "negativeDeviation_" + periods[t].getT());
+        }
+
+        // Demand deviation constraints do not depend on the iteration
+        int numElectrolyzers = electrolyzers.length;
+        for (int t = 0; t < numPeriods; t++) {
+            int[] positiveVars = new int[numElectrolyzers + 1];
+            double[] positiveCoefficients = new double[numElectrolyzers + 1];
+            int[] negativeVars = new int[numElectrolyzers + 1];
+            double[] negativeCoefficients = new double[numElectrolyzers + 1];
+            for (int e = 0; e < numElectrolyzers; e++) {
+                Electrolyzer electrolyzer = electrolyzers[e];
+                double production = params.powerElectrolyzer.get(electrolyzer) * params.slope.get(electrolyzer) * params.intervalLengthSWO;
+                positiveVars[e] = xVars[index(e, t)];
+                positiveCoefficients[e] = production;
+                negativeVars[e] = xVars[index(e, t)];
+                negativeCoefficients[e] = -production;
+            }
+            positiveVars[numElectrolyzers] = positiveDeviations[t];
+            positiveCoefficients[numElectrolyzers] = 1.0;
+            negativeVars[numElectrolyzers] = negativeDeviations[t];
+            negativeCoefficients[numElectrolyzers] = 1.0;
+            double periodDemand = params.demand.get(periods[t]);
+
+            positiveDeviationConstrs[t] = solver.addConstraint(positiveVars, positiveCoefficients, SubproblemSolver.GREATER_EQUAL, periodDemand, "positiveDeviationConstr_" + periods[t].getT());
+            negativeDeviationConstrs[t] = solver.addConstraint(negativeVars, negativeCoefficients, SubproblemSolver.GREATER_EQUAL, -periodDemand, "negativeDeviationConstr_" + periods[t].getT());
+        }
+
+        // Boundary residual rows with placeholder constants, rewritten in update():
+        // lower: residual1 + x >= opMin * yProduction + s1 + u1
+        // upper: residual2 + opMax * yProduction * x >= s2 + u2
+        for (int e = 0; e < electrolyzers.length; e++) {
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                String suffix = electrolyzers[e].getId() + "_" + periods[t].getT();
+
+                lowerBoundaryConstrs[index] = solver.addConstraint(new int[]{residual1Vars[index], xVars[index]}, new double[]{1.0, 1.0},
+                        SubproblemSolver.GREATER_EQUAL, 0.0, "lowerBoundaryResidual_" + suffix);
+                upperBoundaryConstrs[index] = solver.addConstraint(new int[]{residual2Vars[index], xVars[index]}, new double[]{1.0, 0.0},
+                        SubproblemSolver.GREATER_EQUAL, 0.0, "upperBoundaryResidual_" + suffix);
+            }
+        }
+
+        startVars = concat(xVars, residual1Vars, residual2Vars, positiveDeviations, negativeDeviations);
+        startValues = new double[startVars.length];
+        allConstrs = concat(positiveDeviationConstrs, negativeDeviationConstrs, lowerBoundaryConstrs, upperBoundaryConstrs);
+        duals = new double[allConstrs.length];
+    }
+
+    // ============================================================================
+    // ITERATION UPDATE
+    // ============================================================================
+
+    /**
+     * Writes the y, s and u values of the given iteration into the existing rows.
+     * Periods before currentStartPeriod are released (right-hand side -infinity) and
+     * dropped from the objective, as in the rebuild formulation.
+     */
+    @Override
+    protected void updateModel(SWOValueReader dataModel, int iteration, int currentStartPeriod) throws SolverException {
+        for (int e = 0; e < electrolyzers.length; e++) {
+            Electrolyzer electrolyzer = electrolyzers[e];
+            boolean[][] yValues = dataModel.getYSWOValuesForAgent(iteration, electrolyzer.getId() - 1);
+            double[][] sValues = dataModel.getSSWOValuesForAgent(iteration, electrolyzer.getId() - 1);
+            double[][] uValues = dataModel.getUSWOValuesForAgent(iteration, electrolyzer.getId() - 1);
+            double opMin = params.minOperation.get(electrolyzer);
+            double opMax = params.maxOperation.get(electrolyzer);
+
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                int periodIndex = periods[t].getT() - 1;
+                if (periods[t].getT() >= currentStartPeriod) {
+                    double productionYValue = yValues[periodIndex][State.PRODUCTION.ordinal()] ? 1.0 : 0.0;
+                    lowerRhs[index] = opMin * productionYValue + sValues[periodIndex][0] + uValues[periodIndex][0];
+                    upperRhs[index] = sValues[periodIndex][1] + uValues[periodIndex][1];
+                    upperCoefficients[index] = opMax * productionYValue;
+                } else {
+                    lowerRhs[index] = -SubproblemSolver.INFINITY;
+                    upperRhs[index] = -SubproblemSolver.INFINITY;
+                    upperCoefficients[index] = 0.0;
+                }
+            }
+        }
+
+        solver.setRhs(lowerBoundaryConstrs, lowerRhs);
+        solver.setRhs(upperBoundaryConstrs, upperRhs);
+        solver.setCoefficients(upperBoundaryConstrs, xVars, upperCoefficients);
+
+        if (currentStartPeriod != objectiveStartPeriod) {
+            setObjective(currentStartPeriod);
+        }
+    }
+
+    /**
+     * The objective is rebuilt on the next update.
+     */
+    @Override
+    protected void onRhoChanged() {
+        objectiveStartPeriod = -1;
+    }
+
+    private void setObjective(int currentStartPeriod) throws SolverException {
+        QuadraticObjective objective = new QuadraticObjective();
+        double demandDeviationCost = params.demandDeviationCost;
+
+        for (int t = 0; t < numPeriods; t++) {
+            Period period = periods[t];
+            if (period.getT() < currentStartPeriod) {
+                continue;
+            }
+            double electricityPrice = params.electricityCost.get(period);
+            for (int e = 0; e < electrolyzers.length; e++) {
+                int index = index(e, t);
+                objective.addLinear(xVars[index], electricityPrice * params.powerElectrolyzer.get(electrolyzers[e]) * params.intervalLengthSWO);
+                objective.addQuadratic(residual1Vars[index], residual1Vars[index], rho * SCALING_FACTOR);
+                objective.addQuadratic(residual2Vars[index], residual2Vars[index], rho * SCALING_FACTOR);
+            }
+            objective.addConstant(-params.renewableEnergyForecast.getOrDefault(period, 0.0));
+            objective.addLinear(positiveDeviations[t], demandDeviationCost);
+            objective.addLinear(negativeDeviations[t], demandDeviationCost);
+        }
+
+        solver.setObjective(objective);
+        objectiveStartPeriod = currentStartPeriod;
+    }
+
+    // ============================================================================
+    // WARM START
+    // ============================================================================
+
+    /**
+     * Primal start: x of the previous iterate, residuals and demand deviations completed so that
+     * the start is feasible for the updated rows. Dual start: duals of the last solve.
+     */
+    @Override
+    protected void applyWarmStart(SWOValueReader dataModel, int iteration) throws SolverException {
+        int size = xVars.length;
+        for (int e = 0; e < electrolyzers.length; e++) {
+            double[] previousX = dataModel.getXSWOValuesForAgent(iteration, electrolyzers[e].getId() - 1);
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                double x = previousX != null ? previousX[periods[t].getT() - 1] : xValues[index];
+                startValues[index] = x;
+                startValues[size + index] = Math.max(0.0, lowerRhs[index] - x);
+                startValues[2 * size + index] = Math.max(0.0, upperRhs[index] - upperCoefficients[index] * x);
+            }
+        }
+        for (int t = 0; t < numPeriods; t++) {
+            double production = 0.0;
+            for (int e = 0; e < electrolyzers.length; e++) {
+                Electrolyzer electrolyzer = electrolyzers[e];
+                production += params.powerElectrolyzer.get(electrolyzer) * params.slope.get(electrolyzer) * params.intervalLengthSWO * startValues[index(e, t)];
+            }
+            double periodDemand = params.demand.get(periods[t]);
+            startValues[3 * size + t] = Math.max(0.0, periodDemand - production);
+            startValues[3 * size + numPeriods + t] = Math.max(0.0, production - periodDemand);
+        }
+        solver.setStart(startVars, startValues);
+        if (hasDuals) {
+            solver.setDualStart(allConstrs, duals);
+        }
+    }
+
+    // ============================================================================
+    // SOLVE AND RESULTS
+    // ============================================================================
+
+    @Override
+    protected void readSolution() throws SolverException {
+        solver.getValues(xVars, xValues);
+        solver.getValues(residual1Vars, residual1Values);
+        solver.getValues(residual2Vars, residual2Values);
+        if (warmStart) {
+            solver.getDuals(allConstrs, duals);
+            hasDuals = true;
+        }
+    }
+
+    public double getXValue(int electrolyzerIndex, int periodIndex) {
+        return xValues[index(electrolyzerIndex, periodIndex)];
+    }
+
+    /**
+     * Sum of squared boundary residuals of the last solve.
+     */
+    public double getPenaltyValue() {
+        double penaltyValue = 0.0;
+        for (int i = 0; i < residual1Values.length; i++) {
+            penaltyValue += residual1Values[i] * residual1Values[i];
+            penaltyValue += residual2Values[i] * residual2Values[i];
+        }
+        return penaltyValue;
+    }
+
+    /** Electrolyzers sorted by id, position equals the electrolyzer index used by the getters. */
+    public Electrolyzer[] getElectrolyzers() {
+        return electrolyzers;
+    }
+
+    /** Periods sorted by t, position equals the period index used by the getters. */
+    public Period[] getPeriods() {
+        return periods;
+    }
+
+    private int index(int electrolyzerIndex, int periodIndex) {
+        return electrolyzerIndex * numPeriods + periodIndex;
+    }
+}
@@ -12,6 +12,7 @@ import models.Electrolyzer;
 import models.Parameters;
 import models.Period;
 import models.State;
+import solvers.SolverException;
 
 
 public class SWO_YUpdateBehaviour extends OneShotBehaviour {
@@ -31,6 +32,9 @@ public class SWO_YUpdateBehaviour extends OneShotBehaviour {
     private int sentMessages = 0;
     private Predicate<Electrolyzer> filterCriteria;
     private int currentStartPeriod;
+    private SWO_YUpdateModel blockModel; // null: variables are added to the shared model
+    private SWO_YUpdateDP dpSolver; // if set, the DP backend replaces the MIP
+    private SWO_YUpdateParallel parallelSolver; // if set, one MIP per electrolyzer solved concurrently
 
     private Map<Electrolyzer, Map<Period, Map<State, GRBVar>>> yVars;
     private Map<Electrolyzer, Map<Period, GRBVar>> residual1Vars; // Residuals for lower boundary
@@ -38,6 +42,27 @@ public class SWO_YUpdateBehaviour extends OneShotBehaviour {
     private Map<Electrolyzer, Map<Period, GRBVar>> residual3Vars; // Residuals for upper boundary
     
     public SWO_YUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, int iteration, ADMMDataModel dataModel, double rho, Predicate<Electrolyzer> filterCriteria, int currentStartPeriod) {
+        this(model, params, electrolyzers, periods, iteration, dataModel, rho, filterCriteria, currentStartPeriod, null);
+    }
+
+    /**
+     * @param blockModel dedicated Y model of the agent; if given, the shared model is not touched
+     */
+    public SWO_YUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, int iteration, ADMMDataModel dataModel, double rho, Predicate<Electrolyzer> filterCriteria, int currentStartPeriod, SWO_YUpdateModel blockModel) {
+        this(model, params, electrolyzers, periods, iteration, dataModel, rho, filterCriteria, currentStartPeriod, blockModel, null);
+    }
+
+    /**
+     * @param dpSolver exact DP backend of the agent; if given, no Gurobi model is used at all
+     */
+    public SWO_YUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, int iteration, ADMMDataModel dataModel, double rho, Predicate<Electrolyzer> filterCriteria, int currentStartPeriod, SWO_YUpdateModel blockModel, SWO_YUpdateDP dpSolver) {
+        this(model, params, electrolyzers, periods, iteration, dataModel, rho, filterCriteria, currentStartPeriod, blockModel, dpSolver, null);
+    }
+
+    /**
+     * @param parallelSolver per-electrolyzer MIPs on a worker pool; used if no DP backend is given
+     */
+    public SWO_YUpdateBehaviour(GRBModel model, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, int iteration, ADMMDataModel dataModel, double rho, Predicate<Electrolyzer> filterCriteria, int currentStartPeriod, SWO_YUpdateModel blockModel, SWO_YUpdateDP dpSolver, SWO_YUpdateParallel parallelSolver) {
         this.model = model;
         this.params = params;
         this.electrolyzers = electrolyzers;
@@ -47,9 +72,14 @@ public class SWO_YUpdateBehaviour extends OneShotBehaviour {
         this.rho = rho;
         this.filterCriteria = filterCriteria;
         this.currentStartPeriod = currentStartPeriod;
+        this.blockModel = blockModel;
+        this.dpSolver = dpSolver;
+        this.parallelSolver = parallelSolver;
 //        this.residualVars = new HashMap<>();
         
-        initializeVariablesAndConstraints();
+        if (blockModel == null && dpSolver == null && parallelSolver == null) {
+            initializeVariablesAndConstraints();
+        }
     }
 
     private void initializeVariablesAndConstraints() {
@@ -165,10 +195,18 @@ public class SWO_YUpdateBehaviour extends OneShotBehaviour {
     	
         long startTime = System.nanoTime();
         try {
-            optimizeY();
+            if (dpSolver != null) {
+                optimizeYDP();
+            } else if (parallelSolver != null) {
+                optimizeYParallel();
+            } else if (blockModel != null) {
+                optimizeYBlock();
+            } else {
+                optimizeY();
+            }
             yUpdateTime = System.nanoTime() - startTime;
             dataModel.saveYUpdateTimeForIteration(iteration, yUpdateTime);
-        } catch (GRBException e) {
+        } catch (GRBException | SolverException e) {
             e.printStackTrace();
         }
     }
@@ -256,6 +294,74 @@ public class SWO_YUpdateBehaviour extends OneShotBehaviour {
         }
     }
 
+    /**
+     * Y-update with the exact dynamic-programming backend
+     */
+    private void optimizeYDP() {
+        dpSolver.setRho(rho);
+        dpSolver.update(dataModel, iteration);
+        dpSolver.solve();
+
+        Electrolyzer[] sortedElectrolyzers = dpSolver.getElectrolyzers();
+        Period[] sortedPeriods = dpSolver.getPeriods();
+        for (int e = 0; e < sortedElectrolyzers.length; e++) {
+            int electrolyzerID = sortedElectrolyzers[e].getId() - 1;
+            boolean[][] updatedYValues = new boolean[periods.size()][State.values().length];
+
+            for (int t = 0; t < sortedPeriods.length; t++) {
+                int periodIndex = sortedPeriods[t].getT() - 1;
+                for (State s : State.values()) {
+                    updatedYValues[periodIndex][s.ordinal()] = dpSolver.getYValue(e, t, s);
+                }
+                dataModel.saveYResiduals(iteration, electrolyzerID, periodIndex, dpSolver.getResiduals(e, t));
+            }
+            dataModel.saveYSWOValuesForAgent(iteration + 1, electrolyzerID, updatedYValues);
+        }
+        dataModel.saveYObjective(iteration, dpSolver.getObjectiveValue());
+    }
+
+    /**
+     * Y-update decomposed per electrolyzer, results are merged on the agent thread
+     */
+    private void optimizeYParallel() throws SolverException {
+        if (parallelSolver.solve(dataModel, iteration, rho)) {
+            parallelSolver.saveResults(dataModel, iteration);
+            dataModel.saveYObjective(iteration, parallelSolver.getObjectiveValue());
+        } else {
+            System.out.println("No optimal solution found for at least one electrolyzer in the parallel y-Optimization.");
+        }
+    }
+
+    /**
+     * Y-update on the dedicated block model of the agent
+     */
+    private void optimizeYBlock() throws SolverException {
+        blockModel.setRho(rho);
+        blockModel.update(dataModel, iteration, currentStartPeriod);
+
+        if (blockModel.solve()) {
+            Electrolyzer[] sortedElectrolyzers = blockModel.getElectrolyzers();
+            Period[] sortedPeriods = blockModel.getPeriods();
+
+            for (int e = 0; e < sortedElectrolyzers.length; e++) {
+                int electrolyzerID = sortedElectrolyzers[e].getId() - 1;
+                boolean[][] updatedYValues = new boolean[periods.size()][State.values().length];
+
+                for (int t = 0; t < sortedPeriods.length; t++) {
+                    int periodIndex = sortedPeriods[t].getT() - 1;
+                    for (State s : State.values()) {
+                        updatedYValues[periodIndex][s.ordinal()] = blockModel.getYValue(e, t, s);
+                    }
+                    dataModel.saveYResiduals(iteration, electrolyzerID, periodIndex, blockModel.getResiduals(e, t));
+                }
+                dataModel.saveYSWOValuesForAgent(iteration + 1, electrolyzerID, updatedYValues);
+            }
+            dataModel.saveYObjective(iteration, blockModel.getObjectiveValue());
+        } else {
+            System.out.println("No optimal solution found for the y-Optimization.");
+        }
+    }
+
     private void saveResults(int nextIteration) throws GRBException {
         for (Electrolyzer e : electrolyzers) {
             int agentID = e.getId() - 1;
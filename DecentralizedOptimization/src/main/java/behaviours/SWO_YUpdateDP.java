@@ -0,0 +1,358 @@
+package behaviours;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import models.ADMMDataModel;
+import models.Electrolyzer;
+import models.IterateBlock;
+import models.ParameterTable;
+import models.Parameters;
+import models.Period;
+import models.State;
+
+/**
+ * Exact dynamic-programming (Viterbi) solver for the SWO Y-update.
+ *
+ * The Y-subproblem decouples per electrolyzer into a shortest path over the periods. A node
+ * of the path is an expanded state that holds, per state s, the length of the current run of
+ * y[s] = 1 capped at holdingDuration(s) - 1. This is exactly the information the holding
+ * constraints y[t][s] <= y[t - tau][s] need, so the DP reproduces the MIP of
+ * SWO_YUpdateBehaviour (transitions, holding durations, rules for period 2, no sum-to-one
+ * constraint) and its objective rho * (residual1^2 + residual2^2 + residual3^2).
+ * Effort per electrolyzer: periods x expanded states x 16 state combinations.
+ *
+ * The expanded states are the product of the per-state counters, not a single counter of the
+ * active run: without the sum-to-one constraint several y[s] can be 1 in the same period (the
+ * ADMM only penalizes that via residual3), and their runs start and end independently, e.g.
+ * IDLE | STARTING followed by STARTING. One counter per state is the smallest exact state; with
+ * the usual holding durations (<= 3) these are at most 3^4 = 81 codes.
+ */
+public class SWO_YUpdateDP {
+
+    private static final int NUM_STATES = State.values().length;
+    private static final int NUM_MASKS = 1 << NUM_STATES;
+
+    private static final int IDLE = 1 << State.IDLE.ordinal();
+    private static final int STARTING = 1 << State.STARTING.ordinal();
+    private static final int PRODUCTION = 1 << State.PRODUCTION.ordinal();
+    private static final int STANDBY = 1 << State.STANDBY.ordinal();
+
+    /** transitionAllowed[previousMask][mask] for the transition constraints of periods t > 1 */
+    private static final boolean[][] TRANSITION_ALLOWED = new boolean[NUM_MASKS][NUM_MASKS];
+
+    static {
+        for (int previous = 0; previous < NUM_MASKS; previous++) {
+            for (int mask = 0; mask < NUM_MASKS; mask++) {
+                boolean allowed = true;
+                if ((mask & STARTING) != 0 && (previous & (IDLE | STARTING)) == 0) {
+                    allowed = false;
+                }
+                if ((mask & PRODUCTION) != 0 && (previous & (STARTING | PRODUCTION | STANDBY)) == 0) {
+                    allowed = false;
+                }
+                if ((mask & STANDBY) != 0 && (previous & (PRODUCTION | STANDBY)) == 0) {
+                    allowed = false;
+                }
+                if ((mask & IDLE) != 0 && (previous & (IDLE | STANDBY | PRODUCTION)) == 0) {
+                    allowed = false;
+                }
+                TRANSITION_ALLOWED[previous][mask] = allowed;
+            }
+        }
+    }
+
+    private final Electrolyzer[] electrolyzers;
+    private final Period[] periods;
+    private final int numPeriods;
+    private final Automaton[] automata;
+    private final double[] minOperation; // per e, from the ParameterTable
+    private final double[] maxOperation;
+
+    // Inputs and results per (electrolyzer, period): index = e * numPeriods + t
+    private final double[] lowerConstants; // -x + s1 + u1
+    private final double[] upperConstants; //  x + s2 + u2
+    private final int[] resultMasks;
+    private double objectiveValue;
+    private double rho;
+
+    public SWO_YUpdateDP(Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, double rho) {
+        this.electrolyzers = SWO_BlockModel.sortById(electrolyzers);
+        this.periods = SWO_BlockModel.sortByT(periods);
+        this.numPeriods = this.periods.length;
+        this.rho = rho;
+
+        this.automata = new Automaton[this.electrolyzers.length];
+        this.minOperation = new double[this.electrolyzers.length];
+        this.maxOperation = new double[this.electrolyzers.length];
+        ParameterTable table = params.getTable();
+        for (int e = 0; e < this.electrolyzers.length; e++) {
+            automata[e] = new Automaton(params.holdingDurations.get(this.electrolyzers[e]), numPeriods);
+            int index = table.indexOf(this.electrolyzers[e]);
+            minOperation[e] = table.getMinOperation(index);
+            maxOperation[e] = table.getMaxOperation(index);
+        }
+        lowerConstants = new double[this.electrolyzers.length * numPeriods];
+        upperConstants = new double[this.electrolyzers.length * numPeriods];
+        resultMasks = new int[this.electrolyzers.length * numPeriods];
+    }
+
+    public void setRho(double rho) {
+        this.rho = rho;
+    }
+
+    /**
+     * Reads x of iteration + 1 and s, u of iteration.
+     */
+    public void update(ADMMDataModel dataModel, int iteration) {
+        IterateBlock current = dataModel.getSWOValues(iteration);
+        IterateBlock next = dataModel.getSWOValues(iteration + 1);
+        double[] sValues = current.sValues();
+        double[] uValues = current.uValues();
+        double[] xValues = next.xValues();
+        for (int e = 0; e < electrolyzers.length; e++) {
+            int electrolyzerID = electrolyzers[e].getId() - 1;
+
+            for (int t = 0; t < numPeriods; t++) {
+                int index = current.index(electrolyzerID, periods[t].getT() - 1);
+                int s = index * IterateBlock.S_COMPONENTS;
+                int u = index * current.getUComponents();
+                lowerConstants[e * numPeriods + t] = -xValues[index] + sValues[s] + uValues[u];
+                upperConstants[e * numPeriods + t] = xValues[index] + sValues[s + 1] + uValues[u + 1];
+            }
+        }
+    }
+
+    /** Sets the constants of one (electrolyzer, period) directly instead of update(). */
+    void setConstants(int electrolyzerIndex, int periodIndex, double lower, double upper) {
+        lowerConstants[electrolyzerIndex * numPeriods + periodIndex] = lower;
+        upperConstants[electrolyzerIndex * numPeriods + periodIndex] = upper;
+    }
+
+    /**
+     * Solves all electrolyzers. A shortest path always exists (all-zero y is feasible).
+     */
+    public void solve() {
+        objectiveValue = 0.0;
+        for (int e = 0; e < electrolyzers.length; e++) {
+            objectiveValue += solveElectrolyzer(e);
+        }
+    }
+
+    /**
+     * Viterbi recursion for one electrolyzer, writes the optimal masks into resultMasks.
+     */
+    double solveElectrolyzer(int e) {
+        Automaton automaton = automata[e];
+        double opMin = minOperation[e];
+        double opMax = maxOperation[e];
+        int numCodes = automaton.numCodes;
+        int offset = e * numPeriods;
+
+        double[] cost = automaton.cost;
+        double[] nextCost = automaton.nextCost;
+        int[][] predecessor = automaton.predecessor;
+        double[] periodCost = automaton.periodCost;
+
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        fillPeriodCost(periodCost, offset, opMin, opMax);
+        boolean firstIsSecondPeriod = periods[0].getT() == 2;
+        for (int mask = 0; mask < NUM_MASKS; mask++) {
+            // Beginnt der Horizont in Periode 2, bezieht sich die Regel auf die Periode selbst
+            if (firstIsSecondPeriod && !allowedInSecondPeriod(mask, mask)) {
+                continue;
+            }
+            int code = automaton.firstCode[mask];
+            if (periodCost[mask] < cost[code]) {
+                cost[code] = periodCost[mask];
+            }
+        }
+
+        for (int t = 1; t < numPeriods; t++) {
+            int periodT = periods[t].getT();
+            int enforced = automaton.enforcedHoldingMask(periodT);
+            int[] holdingReady = automaton.holdingReady[Math.min(t, automaton.maxRun)];
+            fillPeriodCost(periodCost, offset + t, opMin, opMax);
+            Arrays.fill(nextCost, Double.POSITIVE_INFINITY);
+            int[] currentPredecessor = predecessor[t];
+
+            for (int code = 0; code < numCodes; code++) {
+                double base = cost[code];
+                if (base == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                int previousMask = automaton.maskOf[code];
+                int notReady = enforced & ~holdingReady[code];
+
+                for (int mask = 0; mask < NUM_MASKS; mask++) {
+                    if (!TRANSITION_ALLOWED[previousMask][mask] || (mask & notReady) != 0
+                            || (periodT == 2 && !allowedInSecondPeriod(previousMask, mask))) {
+                        continue;
+                    }
+                    int nextCode = automaton.next[code][mask];
+                    double candidate = base + periodCost[mask];
+                    if (candidate < nextCost[nextCode]) {
+                        nextCost[nextCode] = candidate;
+                        currentPredecessor[nextCode] = code;
+                    }
+                }
+            }
+            double[] swap = cost;
+            cost = nextCost;
+            nextCost = swap;
+        }
+
+        int bestCode = 0;
+        for (int code = 1; code < numCodes; code++) {
+            if (cost[code] < cost[bestCode]) {
+                bestCode = code;
+            }
+        }
+        double best = cost[bestCode];
+
+        for (int t = numPeriods - 1; t >= 0; t--) {
+            resultMasks[offset + t] = automaton.maskOf[bestCode];
+            if (t > 0) {
+                bestCode = predecessor[t][bestCode];
+            }
+        }
+        return best;
+    }
+
+    private static boolean allowedInSecondPeriod(int previousMask, int mask) {
+        if ((mask & (PRODUCTION | STANDBY)) != 0) {
+            return false;
+        }
+        return (mask & (STARTING | IDLE)) == 0 || (previousMask & IDLE) != 0;
+    }
+
+    private void fillPeriodCost(double[] periodCost, int index, double opMin, double opMax) {
+        for (int mask = 0; mask < NUM_MASKS; mask++) {
+            double production = (mask & PRODUCTION) != 0 ? 1.0 : 0.0;
+            double residual1 = lowerConstants[index] + opMin * production;
+            double residual2 = upperConstants[index] - opMax * production;
+            double residual3 = Integer.bitCount(mask) - 1;
+            periodCost[mask] = rho * (residual1 * residual1 + residual2 * residual2 + residual3 * residual3);
+        }
+    }
+
+    // ============================================================================
+    // RESULTS
+    // ============================================================================
+
+    public double getObjectiveValue() {
+        return objectiveValue;
+    }
+
+    public boolean getYValue(int electrolyzerIndex, int periodIndex, State state) {
+        return (resultMasks[electrolyzerIndex * numPeriods + periodIndex] & (1 << state.ordinal())) != 0;
+    }
+
+    public double[] getResiduals(int electrolyzerIndex, int periodIndex) {
+        int index = electrolyzerIndex * numPeriods + periodIndex;
+        int mask = resultMasks[index];
+        double production = (mask & PRODUCTION) != 0 ? 1.0 : 0.0;
+        return new double[]{
+            lowerConstants[index] + minOperation[electrolyzerIndex] * production,
+            upperConstants[index] - maxOperation[electrolyzerIndex] * production,
+            Integer.bitCount(mask) - 1
+        };
+    }
+
+    public Electrolyzer[] getElectrolyzers() {
+        return electrolyzers;
+    }
+
+    public Period[] getPeriods() {
+        return periods;
+    }
+
+    // ============================================================================
+    // EXPANDED STATE SPACE
+    // ============================================================================
+
+    /**
+     * Expanded states of one electrolyzer. A code stores per state a run counter in
+     * [0, cap(s)] with cap(s) = max(1, holdingDuration(s) - 1); counter > 0 means y[s] = 1.
+     * Also holds the buffers of the recursion, sized for the periods of the block.
+     */
+    static final class Automaton {
+        final int[] holdingDurations = new int[NUM_STATES];
+        final int numCodes;
+        final int maxRun;          // largest cap
+        final int[] maskOf;
+        final int[][] holdingReady; // [min(t, maxRun)][code]: states whose run covers the holding window before t
+        final int[] firstCode;     // code after the first period per mask
+        final int[][] next;        // next[code][mask]
+
+        // Puffer von solveElectrolyzer(), einmal pro Automat
+        final double[] cost;
+        final double[] nextCost;
+        final double[] periodCost = new double[NUM_MASKS];
+        final int[][] predecessor;
+
+        Automaton(Map<State, Integer> durations, int numPeriods) {
+            int[] caps = new int[NUM_STATES];
+            int[] strides = new int[NUM_STATES];
+            int codes = 1;
+            int largestCap = 1;
+            for (State s : State.values()) {
+                Integer duration = durations == null ? null : durations.get(s);
+                holdingDurations[s.ordinal()] = duration == null ? 0 : duration;
+                caps[s.ordinal()] = Math.max(1, holdingDurations[s.ordinal()] - 1);
+                largestCap = Math.max(largestCap, caps[s.ordinal()]);
+                strides[s.ordinal()] = codes;
+                codes *= caps[s.ordinal()] + 1;
+            }
+            numCodes = codes;
+            maxRun = largestCap;
+            maskOf = new int[numCodes];
+            holdingReady = new int[maxRun + 1][numCodes];
+            next = new int[numCodes][NUM_MASKS];
+            firstCode = new int[NUM_MASKS];
+            cost = new double[numCodes];
+            nextCost = new double[numCodes];
+            predecessor = new int[numPeriods][numCodes];
+
+            for (int code = 0; code < numCodes; code++) {
+                for (int s = 0; s < NUM_STATES; s++) {
+                    int counter = (code / strides[s]) % (caps[s] + 1);
+                    if (counter > 0) {
+                        maskOf[code] |= 1 << s;
+                    }
+                    // Im Horizont liegen vor t nur t Perioden (y[t - tau] mit t - tau >= 0)
+                    for (int run = 0; run <= maxRun; run++) {
+                        if (holdingDurations[s] < 2 || counter >= Math.min(holdingDurations[s] - 1, run)) {
+                            holdingReady[run][code] |= 1 << s;
+                        }
+                    }
+                }
+                for (int mask = 0; mask < NUM_MASKS; mask++) {
+                    int nextCode = 0;
+                    for (int s = 0; s < NUM_STATES; s++) {
+                        if ((mask & (1 << s)) != 0) {
+                            int counter = (code / strides[s]) % (caps[s] + 1);
+                            nextCode += Math.min(counter + 1, caps[s]) * strides[s];
+                        }
+                    }
+                    next[code][mask] = nextCode;
+                }
+            }
+            for (int mask = 0; mask < NUM_MASKS; mask++) {
+                firstCode[mask] = next[0][mask];
+            }
+        }
+
+        /** States whose holding constraint applies in period t (1-based). */
+        int enforcedHoldingMask(int periodT) {
+            int mask = 0;
+            for (int s = 0; s < NUM_STATES; s++) {
+                if (holdingDurations[s] >= 2 && periodT >= holdingDurations[s]) {
+                    mask |= 1 << s;
+                }
+            }
+            return mask;
+        }
+    }
+}
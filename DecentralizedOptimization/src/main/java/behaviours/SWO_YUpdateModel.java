@@ -0,0 +1,293 @@
+package behaviours;
+
+import java.util.Set;
+
+import com.gurobi.gurobi.GRBEnv;
+import models.Electrolyzer;
+import models.Parameters;
+import models.Period;
+import models.SWOValueReader;
+import models.State;
+import solvers.QuadraticObjective;
+import solvers.SolverException;
+import solvers.SubproblemSolver;
+import solvers.SubproblemSolver.VariableType;
+
+/**
+ * MIP formulation of the SWO Y-update (Y block), always solved with the Gurobi backend.
+ *
+ * The binaries, state transitions, holding durations and the residual definitions are
+ * built once for the agent's own electrolyzers. Each iteration only the right-hand sides
+ * of the two boundary residual rows change:
+ *   residual1 - opMin * yProduction = -x + s1 + u1
+ *   residual2 + opMax * yProduction =  x + s2 + u2
+ */
+public class SWO_YUpdateModel extends SWO_BlockModel<SWOValueReader> {
+
+    private static final int NUM_STATES = State.values().length;
+    private static final double OPTIMALITY_TOLERANCE = 1e-3;
+
+    private final Parameters params;
+    private final Electrolyzer[] electrolyzers;
+    private final Period[] periods;
+    private final int numPeriods;
+
+    // Flattened per (electrolyzer, period): index = e * numPeriods + t; y additionally * NUM_STATES + state
+    private final int[] yVars;
+    private final int[] residual1Vars;
+    private final int[] residual2Vars;
+    private final int[] residual3Vars;
+    private final int[] residual1Constrs;
+    private final int[] residual2Constrs;
+
+    private final double[] residual1Rhs;
+    private final double[] residual2Rhs;
+    private final double[] yValues;
+    private final double[] residual1Values;
+    private final double[] residual2Values;
+    private final double[] residual3Values;
+
+    // Warm start (MIP start): y, residual1, residual2, residual3
+    private int[] startVars;
+    private double[] startValues;
+
+    public SWO_YUpdateModel(GRBEnv env, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods, double rho) {
+        super(env, rho);
+        this.params = params;
+        this.electrolyzers = sortById(electrolyzers);
+        this.periods = sortByT(periods);
+        this.numPeriods = this.periods.length;
+
+        int size = this.electrolyzers.length * numPeriods;
+        yVars = new int[size * NUM_STATES];
+        residual1Vars = new int[size];
+        residual2Vars = new int[size];
+        residual3Vars = new int[size];
+        residual1Constrs = new int[size];
+        residual2Constrs = new int[size];
+        residual1Rhs = new double[size];
+        residual2Rhs = new double[size];
+        yValues = new double[size * NUM_STATES];
+        residual1Values = new double[size];
+        residual2Values = new double[size];
+        residual3Values = new double[size];
+    }
+
+    // ============================================================================
+    // MODEL CONSTRUCTION
+    // ============================================================================
+
+    @Override
+    protected void configure() throws SolverException {
+        solver.setParameter("Method", 2);
+        solver.setParameter("OptimalityTol", OPTIMALITY_TOLERANCE);
+    }
+
+    @Override
+    protected void buildModel() throws SolverException {
+        for (int e = 0; e < electrolyzers.length; e++) {
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                String suffix = electrolyzers[e].getId() + "_" + periods[t].getT();
+                for (State s : State.values()) {
+                    yVars[index * NUM_STATES + s.ordinal()] = solver.addVariable(0, 1, VariableType.BINARY, "y_" + suffix + "_" + s);
+                }
+                residual1Vars[index] = solver.addVariable(-SubproblemSolver.INFINITY, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual1_" + suffix);
+                residual2Vars[index] = solver.addVariable(-SubproblemSolver.INFINITY, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual2_" + suffix);
+                residual3Vars[index] = solver.addVariable(-SubproblemSolver.INFINITY, SubproblemSolver.INFINITY, VariableType.CONTINUOUS, "residual3_" + suffix);
+            }
+        }
+
+        for (int e = 0; e < electrolyzers.length; e++) {
+            Electrolyzer electrolyzer = electrolyzers[e];
+            int electrolyzerID = electrolyzer.getId() - 1;
+
+            for (int t = 0; t < numPeriods; t++) {
+                int periodT = periods[t].getT();
+
+                // State transitions
+                if (t > 0) {
+                    addTransition(e, t, State.STARTING, "transition_STARTING_" + electrolyzerID + "_" + periodT, State.IDLE, State.STARTING);
+                    addTransition(e, t, State.PRODUCTION, "transition_PRODUCTION_" + electrolyzerID + "_" + periodT, State.STARTING, State.PRODUCTION, State.STANDBY);
+                    addTransition(e, t, State.STANDBY, "transition_STANDBY_" + electrolyzerID + "_" + periodT, State.PRODUCTION, State.STANDBY);
+                    addTransition(e, t, State.IDLE, "transition_IDLE_" + electrolyzerID + "_" + periodT, State.IDLE, State.STANDBY, State.PRODUCTION);
+                }
+
+                // Mindesthalterdauern
+                for (State s : State.values()) {
+                    Integer holdingDuration = params.holdingDurations.get(electrolyzer).get(s);
+                    if (holdingDuration != null && periodT >= holdingDuration) {
+                        for (int tau = 1; tau < holdingDuration; tau++) {
+                            if (t - tau >= 0) {
+                                solver.addConstraint(new int[]{y(e, t, s), y(e, t - tau, s)}, new double[]{1.0, -1.0},
+                                        SubproblemSolver.LESS_EQUAL, 0, "holding_duration_" + electrolyzerID + "_" + periodT + "_" + s);
+                            }
+                        }
+                    }
+                }
+
+                // Constraints for the second period
+                if (periodT == 2) {
+                    solver.addConstraint(new int[]{y(e, t, State.STARTING), y(e, 0, State.IDLE)}, new double[]{1.0, -1.0},
+                            SubproblemSolver.LESS_EQUAL, 0, "starting_if_idle_" + electrolyzerID + "_" + periodT);
+                    solver.addConstraint(new int[]{y(e, t, State.PRODUCTION)}, new double[]{1.0},
+                            SubproblemSolver.EQUAL, 0, "no_production_if_idle_" + electrolyzerID + "_" + periodT);
+                    solver.addConstraint(new int[]{y(e, t, State.STANDBY)}, new double[]{1.0},
+                            SubproblemSolver.EQUAL, 0, "no_standby_if_idle_" + electrolyzerID + "_" + periodT);
+                    solver.addConstraint(new int[]{y(e, t, State.IDLE), y(e, 0, State.IDLE)}, new double[]{1.0, -1.0},
+                            SubproblemSolver.LESS_EQUAL, 0, "idle_continued_" + electrolyzerID + "_" + periodT);
+                }
+
+                // Residual definitions, constants are set in update()
+                int index = index(e, t);
+                residual1Constrs[index] = solver.addConstraint(new int[]{residual1Vars[index], y(e, t, State.PRODUCTION)},
+                        new double[]{1.0, -params.minOperation.get(electrolyzer)}, SubproblemSolver.EQUAL, 0.0, "residual1_constr_" + electrolyzerID + "_" + periodT);
+                residual2Constrs[index] = solver.addConstraint(new int[]{residual2Vars[index], y(e, t, State.PRODUCTION)},
+                        new double[]{1.0, params.maxOperation.get(electrolyzer)}, SubproblemSolver.EQUAL, 0.0, "residual2_constr_" + electrolyzerID + "_" + periodT);
+
+                // Residual for sum of y variables being 1
+                int[] yResidualVars = new int[NUM_STATES + 1];
+                double[] yResidualCoefficients = new double[NUM_STATES + 1];
+                yResidualVars[0] = residual3Vars[index];
+                yResidualCoefficients[0] = 1.0;
+                for (State s : State.values()) {
+                    yResidualVars[s.ordinal() + 1] = y(e, t, s);
+                    yResidualCoefficients[s.ordinal() + 1] = -1.0;
+                }
+                solver.addConstraint(yResidualVars, yResidualCoefficients, SubproblemSolver.EQUAL, -1.0, "yResidual_constr_" + electrolyzerID + "_" + periodT);
+            }
+        }
+
+        setObjective();
+        startVars = concat(yVars, residual1Vars, residual2Vars, residual3Vars);
+        startValues = new double[startVars.length];
+    }
+
+    /** y[t][target] - sum(y[t - 1][previous]) <= 0 */
+    private void addTransition(int e, int t, State target, String name, State... previousStates) throws SolverException {
+        int[] vars = new int[previousStates.length + 1];
+        double[] coefficients = new double[previousStates.length + 1];
+        vars[0] = y(e, t, target);
+        coefficients[0] = 1.0;
+        for (int i = 0; i < previousStates.length; i++) {
+            vars[i + 1] = y(e, t - 1, previousStates[i]);
+            coefficients[i + 1] = -1.0;
+        }
+        solver.addConstraint(vars, coefficients, SubproblemSolver.LESS_EQUAL, 0.0, name);
+    }
+
+    private void setObjective() throws SolverException {
+        QuadraticObjective objective = new QuadraticObjective();
+        for (int i = 0; i < residual1Vars.length; i++) {
+            objective.addQuadratic(residual1Vars[i], residual1Vars[i], rho);
+            objective.addQuadratic(residual2Vars[i], residual2Vars[i], rho);
+            objective.addQuadratic(residual3Vars[i], residual3Vars[i], rho);
+        }
+        solver.setObjective(objective);
+    }
+
+    @Override
+    protected void onRhoChanged() {
+        if (solver != null) {
+            try {
+                setObjective();
+            } catch (SolverException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // ============================================================================
+    // ITERATION UPDATE
+    // ============================================================================
+
+    /**
+     * Reads x of iteration + 1 and s, u of iteration.
+     */
+    @Override
+    protected void updateModel(SWOValueReader dataModel, int iteration, int currentStartPeriod) throws SolverException {
+        for (int e = 0; e < electrolyzers.length; e++) {
+            int electrolyzerID = electrolyzers[e].getId() - 1;
+            double[][] sValues = dataModel.getSSWOValuesForAgent(iteration, electrolyzerID);
+            double[][] uValues = dataModel.getUSWOValuesForAgent(iteration, electrolyzerID);
+            double[] xValues = dataModel.getXSWOValuesForAgent(iteration + 1, electrolyzerID);
+
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                int periodIndex = periods[t].getT() - 1;
+                residual1Rhs[index] = -xValues[periodIndex] + sValues[periodIndex][0] + uValues[periodIndex][0];
+                residual2Rhs[index] = xValues[periodIndex] + sValues[periodIndex][1] + uValues[periodIndex][1];
+            }
+        }
+        solver.setRhs(residual1Constrs, residual1Rhs);
+        solver.setRhs(residual2Constrs, residual2Rhs);
+    }
+
+    /**
+     * MIP start from y of the previous iterate, residuals completed for the updated right-hand sides.
+     */
+    @Override
+    protected void applyWarmStart(SWOValueReader dataModel, int iteration) throws SolverException {
+        int size = residual1Vars.length;
+        int yCount = yVars.length;
+        for (int e = 0; e < electrolyzers.length; e++) {
+            Electrolyzer electrolyzer = electrolyzers[e];
+            boolean[][] previousY = dataModel.getYSWOValuesForAgent(iteration, electrolyzer.getId() - 1);
+            double opMin = params.minOperation.get(electrolyzer);
+            double opMax = params.maxOperation.get(electrolyzer);
+
+            for (int t = 0; t < numPeriods; t++) {
+                int index = index(e, t);
+                int periodIndex = periods[t].getT() - 1;
+                int activeStates = 0;
+                for (int s = 0; s < NUM_STATES; s++) {
+                    boolean active = previousY != null ? previousY[periodIndex][s] : yValues[index * NUM_STATES + s] > 0.5;
+                    startValues[index * NUM_STATES + s] = active ? 1.0 : 0.0;
+                    activeStates += active ? 1 : 0;
+                }
+                double production = startValues[index * NUM_STATES + State.PRODUCTION.ordinal()];
+                startValues[yCount + index] = residual1Rhs[index] + opMin * production;
+                startValues[yCount + size + index] = residual2Rhs[index] - opMax * production;
+                startValues[yCount + 2 * size + index] = activeStates - 1;
+            }
+        }
+        solver.setStart(startVars, startValues);
+    }
+
+    @Override
+    protected void readSolution() throws SolverException {
+        solver.getValues(yVars, yValues);
+        solver.getValues(residual1Vars, residual1Values);
+        solver.getValues(residual2Vars, residual2Values);
+        solver.getValues(residual3Vars, residual3Values);
+    }
+
+    // ============================================================================
+    // RESULTS
+    // ============================================================================
+
+    public boolean getYValue(int electrolyzerIndex, int periodIndex, State state) {
+        return yValues[index(electrolyzerIndex, periodIndex) * NUM_STATES + state.ordinal()] > 0.5;
+    }
+
+    public double[] getResiduals(int electrolyzerIndex, int periodIndex) {
+        int index = index(electrolyzerIndex, periodIndex);
+        return new double[]{residual1Values[index], residual2Values[index], residual3Values[index]};
+    }
+
+    public Electrolyzer[] getElectrolyzers() {
+        return electrolyzers;
+    }
+
+    public Period[] getPeriods() {
+        return periods;
+    }
+
+    private int y(int electrolyzerIndex, int periodIndex, State state) {
+        return yVars[index(electrolyzerIndex, periodIndex) * NUM_STATES + state.ordinal()];
+    }
+
+    private int index(int electrolyzerIndex, int periodIndex) {
+        return electrolyzerIndex * numPeriods + periodIndex;
+    }
+}
@@ -0,0 +1,207 @@
+package behaviours;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.gurobi.gurobi.*;
+import models.ADMMDataModel;
+import models.ADMMSettings;
+import models.Electrolyzer;
+import models.IterationSnapshot;
+import models.Parameters;
+import models.Period;
+import models.PublishedIterations;
+import models.SWOValueReader;
+import models.State;
+import solvers.SolverEnvironmentManager;
+import solvers.SolverException;
+
+/**
+ * Parallel Y-update: one small MIP per electrolyzer, solved concurrently.
+ *
+ * The Y-subproblem couples no two electrolyzers. The electrolyzers are distributed round-robin
+ * over a fixed number of workers; every worker owns its GRBEnv (Threads = 1) and the
+ * SWO_YUpdateModel of each of its electrolyzers, so no environment is ever used by two threads
+ * at the same time. The worker environments come from SolverEnvironmentManager and their solve
+ * times are accounted to the agent. Results are merged into the ADMMDataModel on the calling (agent) thread.
+ *
+ * The workers never touch the working state of the data model: they read the published snapshots
+ * (ADMMDataModel.getPublishedSWO()), i.e. y, s and u of the iteration, published when the
+ * iteration started (or by solve() if it was not), and the x of iteration + 1, which solve()
+ * publishes before the workers start.
+ */
+public class SWO_YUpdateParallel {
+
+    private final ExecutorService executor;
+    private final List<Worker> workers = new ArrayList<>();
+    private final Period[] periods;
+    private final int numPeriods;
+    private double objectiveValue;
+
+    /**
+     * @param agentEnv environment of the agent, the workers are accounted to it
+     * @param threads upper bound for the worker count, usually the agent's thread budget
+     */
+    public SWO_YUpdateParallel(GRBEnv agentEnv, Parameters params, Set<Electrolyzer> electrolyzers, Set<Period> periods,
+                               double rho, int threads) throws SolverException {
+        Electrolyzer[] sorted = SWO_BlockModel.sortById(electrolyzers);
+        this.periods = SWO_BlockModel.sortByT(periods);
+        this.numPeriods = periods.size();
+        int numWorkers = Math.max(1, Math.min(threads, sorted.length));
+        boolean warmStart = ADMMSettings.isWarmStart(ADMMSettings.SWO_WARM_START_Y);
+        executor = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "y-update-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (int w = 0; w < numWorkers; w++) {
+                workers.add(new Worker(agentEnv));
+            }
+            for (int e = 0; e < sorted.length; e++) {
+                Worker worker = workers.get(e % numWorkers);
+                SWO_YUpdateModel model = new SWO_YUpdateModel(worker.env, params, Collections.singleton(sorted[e]), periods, rho);
+                worker.models.add(model);
+                model.setWarmStart(warmStart);
+                model.build();
+            }
+        } catch (GRBException e) {
+            dispose();
+            throw new SolverException("Gurobi error " + e.getErrorCode() + ": " + e.getMessage(), e);
+        } catch (SolverException e) {
+            dispose();
+            throw e;
+        }
+        System.out.println("Parallel Y-update with " + numWorkers + " workers for " + sorted.length + " electrolyzers");
+    }
+
+    // ============================================================================
+    // SOLVE
+    // ============================================================================
+
+    /**
+     * Updates and solves all electrolyzer models concurrently and blocks until all are done.
+     *
+     * @return true if every subproblem was solved to optimality
+     */
+    public boolean solve(ADMMDataModel dataModel, int iteration, double rho) throws SolverException {
+        // x of the iteration in progress is complete after the X-phase
+        dataModel.publishSWOValues(iteration + 1, EnumSet.of(IterationSnapshot.Part.X));
+        if (!dataModel.getPublishedSWO().isPublished(iteration)) {
+            dataModel.publishSWOValues(iteration);
+        }
+        PublishedIterations published = dataModel.getPublishedSWO();
+
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (Worker worker : workers) {
+            worker.values = published;
+            worker.iteration = iteration;
+            worker.rho = rho;
+            futures.add(executor.submit(worker));
+        }
+
+        boolean optimal = true;
+        objectiveValue = 0.0;
+        try {
+            for (int w = 0; w < futures.size(); w++) {
+                optimal &= futures.get(w).get();
+                objectiveValue += workers.get(w).objectiveValue;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolverException("Parallel Y-update interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SolverException) {
+                throw (SolverException) cause;
+            }
+            throw new SolverException("Parallel Y-update failed: " + cause, cause);
+        }
+        return optimal;
+    }
+
+    /**
+     * Writes y (iteration + 1) and residuals (iteration) of all electrolyzers into the data model.
+     * Must be called from the agent thread after solve().
+     */
+    public void saveResults(ADMMDataModel dataModel, int iteration) {
+        for (Worker worker : workers) {
+            for (SWO_YUpdateModel model : worker.models) {
+                int electrolyzerID = model.getElectrolyzers()[0].getId() - 1;
+                boolean[][] updatedYValues = new boolean[numPeriods][State.values().length];
+
+                for (int t = 0; t < periods.length; t++) {
+                    int periodIndex = periods[t].getT() - 1;
+                    for (State s : State.values()) {
+                        updatedYValues[periodIndex][s.ordinal()] = model.getYValue(0, t, s);
+                    }
+                    dataModel.saveYResiduals(iteration, electrolyzerID, periodIndex, model.getResiduals(0, t));
+                }
+                dataModel.saveYSWOValuesForAgent(iteration + 1, electrolyzerID, updatedYValues);
+            }
+        }
+    }
+
+    public double getObjectiveValue() {
+        return objectiveValue;
+    }
+
+    public void dispose() {
+        executor.shutdownNow();
+        for (Worker worker : workers) {
+            worker.dispose();
+        }
+        workers.clear();
+    }
+
+    // ============================================================================
+    // WORKER
+    // ============================================================================
+
+    private static class Worker implements Callable<Boolean> {
+        private final GRBEnv env;
+        private final List<SWO_YUpdateModel> models = new ArrayList<>();
+
+        // Input of the current iteration, set before submission
+        private SWOValueReader values;
+        private int iteration;
+        private double rho;
+        private double objectiveValue;
+
+        Worker(GRBEnv agentEnv) throws GRBException {
+            env = SolverEnvironmentManager.createWorkerEnvironment(agentEnv); // Threads = 1, parallelism comes from the workers
+        }
+
+        @Override
+        public Boolean call() throws SolverException {
+            boolean optimal = true;
+            objectiveValue = 0.0;
+            for (SWO_YUpdateModel model : models) {
+                model.setRho(rho);
+                model.update(values, iteration, 1);
+                if (model.solve()) {
+                    objectiveValue += model.getObjectiveValue();
+                } else {
+                    optimal = false;
+                }
+            }
+            return optimal;
+        }
+
+        void dispose() {
+            for (SWO_YUpdateModel model : models) {
+                model.dispose();
+            }
+            SolverEnvironmentManager.disposeWorkerEnvironment(env);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package messages;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Collective operations (reduce, all-reduce, all-gather) over the agents of the phone book.
+ *
+ * Instead of every agent sending its block to every other agent (N * (N - 1) messages), the
+ * contributions are combined along a tree or a ring and the result is passed back along the same
+ * topology, i.e. 2 * (N - 1) messages per operation:
+ *   TREE: binomial tree, depth log2(N)
+ *   RING: chain over all agents, depth N - 1, every agent sends at most two messages
+ * The members are ordered by local name so that every agent derives the same topology.
+ *
+ * A contribution is a set of (id, period) entries with one value. SUM adds the values of equal
+ * entries, GATHER collects all entries. An operation is identified by its name and iteration;
+ * messages of operations the agent has not started yet are kept until it does. The callback is
+ * called from handle() or from the start call, i.e. in the agent thread.
+ */
+public class Collectives {
+
+    public enum Topology {
+        TREE,
+        RING
+    }
+
+    public enum Operation {
+        SUM,
+        GATHER
+    }
+
+    public interface Callback {
+        void completed(String name, int iteration, UpdateMessage result);
+    }
+
+    /** Conversation id prefix of all collective messages, followed by the operation name. */
+    public static final String CONVERSATION_PREFIX = "collective/";
+
+    private final AID self;
+    private final Consumer<ACLMessage> sender;
+    private final List<AID> members;
+    private final int rank;
+    private final Topology topology;
+    private final Map<String, Round> rounds = new HashMap<>();
+
+    public Collectives(Agent agent, List<AID> phoneBook, Topology topology) {
+        this(agent.getAID(), phoneBook, topology, agent::send);
+    }
+
+    /** sender delivers the messages of the member self (tests wire several members in memory). */
+    Collectives(AID self, List<AID> phoneBook, Topology topology, Consumer<ACLMessage> sender) {
+        this.self = self;
+        this.sender = sender;
+        this.topology = topology;
+        members = new ArrayList<>(phoneBook);
+        if (!members.contains(self)) {
+            members.add(self);
+        }
+        members.sort(Comparator.comparing(AID::getLocalName));
+        rank = members.indexOf(self);
+    }
+
+    // ============================================================================
+    // OPERATIONS
+    // ============================================================================
+
+    /**
+     * @return an empty contribution of this agent for the iteration
+     */
+    public UpdateMessage contribution(int iteration) {
+        return new UpdateMessage(MessageType.COLLECTIVE_PARTIAL, iteration, self.getLocalName(), 4);
+    }
+
+    /** Combines the contributions at the root; the callback is only called there. */
+    public void reduce(String name, UpdateMessage contribution, Operation operation, int root, Callback callback) {
+        start(name, contribution, operation, root, false, callback);
+    }
+
+    /** Sum of the contributions of all agents, available at every agent. */
+    public void allReduce(String name, UpdateMessage contribution, Callback callback) {
+        start(name, contribution, Operation.SUM, 0, true, callback);
+    }
+
+    /** Entries of all agents, available at every agent. */
+    public void allGather(String name, UpdateMessage contribution, Callback callback) {
+        start(name, contribution, Operation.GATHER, 0, true, callback);
+    }
+
+    /**
+     * @return true if msg belongs to a collective operation (and has been consumed)
+     */
+    public boolean handle(ACLMessage msg) {
+        String conversation = msg.getConversationId();
+        if (conversation == null || !conversation.startsWith(CONVERSATION_PREFIX)) {
+            return false;
+        }
+        UpdateMessage update = MessageCodec.read(msg);
+        if (update == null) {
+            return true;
+        }
+        Round round = round(conversation.substring(CONVERSATION_PREFIX.length()), update.getIteration());
+        if (update.getType() == MessageType.COLLECTIVE_PARTIAL) {
+            round.partials.add(update);
+            advance(round);
+        } else if (update.getType() == MessageType.COLLECTIVE_RESULT) {
+            finish(round, update);
+        }
+        return true;
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    private void start(String name, UpdateMessage contribution, Operation operation, int root, boolean all, Callback callback) {
+        Round round = round(name, contribution.getIteration());
+        round.contribution = contribution;
+        round.operation = operation;
+        round.root = root;
+        round.all = all;
+        round.callback = callback;
+        advance(round);
+    }
+
+    // ============================================================================
+    // PROTOCOL
+    // ============================================================================
+
+    private void advance(Round round) {
+        if (round.contribution == null || round.partialSent) {
+            return;
+        }
+        int virtualRank = virtualRank(round.root);
+        if (round.partials.size() < upChildren(virtualRank).size()) {
+            return;
+        }
+        round.partials.add(round.contribution);
+        UpdateMessage combined = combine(round, MessageType.COLLECTIVE_PARTIAL);
+        round.partialSent = true;
+
+        int parent = upParent(virtualRank);
+        if (parent >= 0) {
+            send(round, combined, parent);
+            if (!round.all) {
+                rounds.remove(round.key);
+            }
+        } else if (round.all) {
+            finish(round, combine(round, MessageType.COLLECTIVE_RESULT));
+        } else {
+            rounds.remove(round.key);
+            round.callback.completed(round.name, round.iteration, combined);
+        }
+    }
+
+    private void finish(Round round, UpdateMessage result) {
+        for (int child : downChildren(virtualRank(round.root))) {
+            send(round, result, child);
+        }
+        rounds.remove(round.key);
+        if (round.callback != null) {
+            round.callback.completed(round.name, round.iteration, result);
+        }
+    }
+
+    private UpdateMessage combine(Round round, MessageType type) {
+        TreeMap<Integer, Double> entries = new TreeMap<>();
+        for (UpdateMessage part : round.partials) {
+            for (int i = 0; i < part.size(); i++) {
+                int key = (part.getElectrolyzerId(i) << 16) | (part.getPeriod(i) & 0xFFFF);
+                double value = part.getValue(i, 0);
+                if (round.operation == Operation.SUM) {
+                    entries.merge(key, value, Double::sum);
+                } else {
+                    entries.put(key, value);
+                }
+            }
+        }
+        UpdateMessage combined = new UpdateMessage(type, round.iteration, self.getLocalName(), entries.size());
+        for (Map.Entry<Integer, Double> entry : entries.entrySet()) {
+            combined.addEntry(entry.getKey() >> 16, entry.getKey() & 0xFFFF, entry.getValue());
+        }
+        return combined;
+    }
+
+    private void send(Round round, UpdateMessage update, int virtualTarget) {
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.setConversationId(CONVERSATION_PREFIX + round.name);
+        msg.addReceiver(members.get((virtualTarget + round.root) % members.size()));
+        MessageCodec.write(msg, update);
+        sender.accept(msg);
+    }
+
+    // ============================================================================
+    // TOPOLOGY (virtual ranks, the root has rank 0)
+    // ============================================================================
+
+    private int virtualRank(int root) {
+        return (rank - root + members.size()) % members.size();
+    }
+
+    private int upParent(int v) {
+        int n = members.size();
+        if (v == 0) {
+            return -1;
+        }
+        if (topology == Topology.TREE) {
+            return v - (v & -v);
+        }
+        // Ring: 1 -> 2 -> ... -> n-1 -> 0
+        return v == n - 1 ? 0 : v + 1;
+    }
+
+    private List<Integer> upChildren(int v) {
+        int n = members.size();
+        List<Integer> children = new ArrayList<>(2);
+        if (topology == Topology.TREE) {
+            return treeChildren(v);
+        }
+        if (v == 0 && n > 1) {
+            children.add(n - 1);
+        } else if (v > 1) {
+            children.add(v - 1);
+        }
+        return children;
+    }
+
+    private List<Integer> downChildren(int v) {
+        if (topology == Topology.TREE) {
+            return treeChildren(v);
+        }
+        // Ring: 0 -> 1 -> ... -> n-1
+        List<Integer> children = new ArrayList<>(1);
+        if (v + 1 < members.size()) {
+            children.add(v + 1);
+        }
+        return children;
+    }
+
+    private List<Integer> treeChildren(int v) {
+        int n = members.size();
+        int lowBit = v & -v;
+        List<Integer> children = new ArrayList<>();
+        for (int step = 1; (v == 0 || step < lowBit) && v + step < n; step <<= 1) {
+            children.add(v + step);
+        }
+        return children;
+    }
+
+    private Round round(String name, int iteration) {
+        String key = name + "#" + iteration;
+        return rounds.computeIfAbsent(key, k -> new Round(key, name, iteration));
+    }
+
+    private static final class Round {
+        private final String key;
+        private final String name;
+        private final int iteration;
+        private final List<UpdateMessage> partials = new ArrayList<>();
+        private UpdateMessage contribution;
+        private Operation operation = Operation.SUM;
+        private int root;
+        private boolean all;
+        private boolean partialSent;
+        private Callback callback;
+
+        Round(String key, String name, int iteration) {
+            this.key = key;
+            this.name = name;
+            this.iteration = iteration;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package messages;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+
+/**
+ * In-JVM transport of the SWO and RTO cycle messages between co-located agents.
+ *
+ * Every registered agent owns a ring of published messages with a single writer (the agent
+ * thread). A message for co-located receivers is not encoded: the UpdateMessage itself is the
+ * snapshot, it is put into the sender's ring and the receivers read it from there with their
+ * own cursor. Receivers must treat it as read-only (like the y-state arrays, which they store
+ * in their data model). Peers are co-located if they are registered in this JVM; all other
+ * receivers get the ACL message as before.
+ *
+ * The writer never overwrites an entry one of its (still registered) receivers has not read yet;
+ * if the ring is full the co-located receivers get a full ACL message instead. As the JADE scheduler only wakes a
+ * blocked behaviour on a new ACL message, a receiver is signalled with an empty doorbell message
+ * (at most one until it drains again), which Mailbox.drain() drops.
+ */
+public class LocalTransport {
+
+    /** Conversation id of the doorbell messages. */
+    public static final String DOORBELL = "local/doorbell";
+
+    private static final Map<String, LocalTransport> REGISTRY = new ConcurrentHashMap<>();
+
+    private final Agent agent;
+    private final String name;
+    private final int mask;
+
+    // Ring of this agent, written by the agent thread only
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLong head = new AtomicLong();
+    private final Map<String, AtomicLong> cursors = new ConcurrentHashMap<>(); // reader -> next sequence, written by the reader
+
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private long published;
+    private long fallbacks;
+
+    private LocalTransport(Agent agent, String name, int capacity) {
+        this.agent = agent;
+        this.name = name;
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+    }
+
+    // ============================================================================
+    // REGISTRY
+    // ============================================================================
+
+    /**
+     * Makes the agent reachable for co-located peers; called in the agent's setup.
+     *
+     * @param capacity ring size (rounded up to a power of two), i.e. messages a reader may lag behind
+     */
+    public static LocalTransport register(Agent agent, int capacity) {
+        LocalTransport transport = new LocalTransport(agent, agent.getLocalName(), capacity);
+        REGISTRY.put(transport.name, transport);
+        return transport;
+    }
+
+    /**
+     * Registers a reader/writer without agent (tests): it is not signalled and only reachable
+     * through publish() and poll().
+     */
+    static LocalTransport register(String name, int capacity) {
+        LocalTransport transport = new LocalTransport(null, name, capacity);
+        REGISTRY.put(name, transport);
+        return transport;
+    }
+
+    public static void unregister(Agent agent) {
+        unregister(agent.getLocalName());
+    }
+
+    static void unregister(String name) {
+        REGISTRY.remove(name);
+    }
+
+    /**
+     * @return the transport of the agent, null if it is not registered
+     */
+    public static LocalTransport of(Agent agent) {
+        return REGISTRY.get(agent.getLocalName());
+    }
+
+    public static boolean isLocal(AID aid) {
+        return REGISTRY.containsKey(aid.getLocalName());
+    }
+
+    public static boolean isDoorbell(ACLMessage msg) {
+        return DOORBELL.equals(msg.getConversationId());
+    }
+
+    // ============================================================================
+    // SENDING
+    // ============================================================================
+
+    /**
+     * Sends the update to the receivers of msg: co-located receivers get the snapshot through the
+     * sender's ring, all others (or all, if the sender is not registered) the ACL message, whose
+     * content is written here.
+     */
+    public static void send(Agent agent, ACLMessage msg, UpdateMessage update, MessageDelta delta, MessageStatistics stats) {
+        LocalTransport own = of(agent);
+        if (own == null) {
+            MessageCodec.write(msg, update, delta, stats);
+            agent.send(msg);
+            return;
+        }
+
+        List<AID> remote = new ArrayList<>();
+        List<LocalTransport> local = new ArrayList<>();
+        Iterator<?> receivers = msg.getAllReceiver();
+        while (receivers.hasNext()) {
+            AID receiver = (AID) receivers.next();
+            LocalTransport peer = REGISTRY.get(receiver.getLocalName());
+            if (peer != null) {
+                local.add(peer);
+            } else {
+                remote.add(receiver);
+            }
+        }
+
+        // Remote peers first, the delta encoding may still mark the update as keyframe
+        if (!remote.isEmpty()) {
+            msg.clearAllReceiver();
+            for (AID receiver : remote) {
+                msg.addReceiver(receiver);
+            }
+            MessageCodec.write(msg, update, delta, stats);
+            agent.send(msg);
+        }
+        if (local.isEmpty()) {
+            return;
+        }
+        if (own.publish(update, local)) {
+            for (LocalTransport peer : local) {
+                peer.signal();
+            }
+        } else {
+            // Ring full: full message (no delta, the co-located peers do not follow the delta stream)
+            ACLMessage fallback = new ACLMessage(msg.getPerformative());
+            for (LocalTransport peer : local) {
+                fallback.addReceiver(peer.agent.getAID());
+            }
+            MessageCodec.write(fallback, update, null, stats);
+            agent.send(fallback);
+            own.fallbacks++;
+        }
+    }
+
+    /**
+     * @return false if the ring is full, i.e. the entry in the next slot is still unread by one of
+     *         its registered receivers; send() then falls back to an ACL message
+     */
+    boolean publish(UpdateMessage update, List<LocalTransport> receivers) {
+        long sequence = head.get();
+        // The slot is free once the receivers of the entry in it have passed it
+        Entry previous = slots.get((int) (sequence & mask));
+        if (previous != null) {
+            for (String receiver : previous.receivers) {
+                AtomicLong cursor = cursors.get(receiver);
+                if (cursor != null && cursor.get() <= previous.sequence && REGISTRY.containsKey(receiver)) {
+                    return false;
+                }
+            }
+        }
+        String[] names = new String[receivers.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = receivers.get(i).name;
+            cursor(names[i]); // a new reader starts at this entry
+        }
+        slots.set((int) (sequence & mask), new Entry(sequence, update, names));
+        head.set(sequence + 1);
+        published++;
+        return true;
+    }
+
+    private void signal() {
+        if (agent != null && signalled.compareAndSet(false, true)) {
+            ACLMessage doorbell = new ACLMessage(ACLMessage.INFORM);
+            doorbell.setConversationId(DOORBELL);
+            doorbell.setContent("");
+            agent.postMessage(doorbell);
+        }
+    }
+
+    /** A new reader starts at the head, earlier entries were not addressed to it. */
+    private AtomicLong cursor(String reader) {
+        return cursors.computeIfAbsent(reader, k -> new AtomicLong(head.get()));
+    }
+
+    // ============================================================================
+    // RECEIVING
+    // ============================================================================
+
+    /**
+     * Reads the messages addressed to this agent from the rings of all co-located agents.
+     */
+    public List<UpdateMessage> poll() {
+        signalled.set(false);
+        List<UpdateMessage> messages = new ArrayList<>();
+        for (LocalTransport writer : REGISTRY.values()) {
+            writer.readInto(name, messages);
+        }
+        return messages;
+    }
+
+    private void readInto(String reader, List<UpdateMessage> messages) {
+        AtomicLong cursor = cursor(reader);
+        long from = cursor.get();
+        long to = head.get();
+        for (long sequence = from; sequence < to; sequence++) {
+            Entry entry = slots.get((int) (sequence & mask));
+            if (entry == null || entry.sequence != sequence) {
+                continue; // overwritten, so all its receivers had read it
+            }
+            if (entry.isFor(reader)) {
+                messages.add(entry.update);
+            }
+        }
+        cursor.set(to);
+    }
+
+    // ============================================================================
+    // METRICS
+    // ============================================================================
+
+    /** Messages handed to co-located peers through the ring. */
+    public long getPublishedCount() {
+        return published;
+    }
+
+    /** Messages sent via ACL because the ring was full. */
+    public long getFallbackCount() {
+        return fallbacks;
+    }
+
+    private static final class Entry {
+        private final long sequence;
+        private final UpdateMessage update;
+        private final String[] receivers;
+
+        Entry(long sequence, UpdateMessage update, String[] receivers) {
+            this.sequence = sequence;
+            this.update = update;
+            this.receivers = receivers;
+        }
+
+        boolean isFor(String reader) {
+            for (String receiver : receivers) {
+                if (receiver.equals(reader)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
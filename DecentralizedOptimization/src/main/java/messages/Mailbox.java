@@ -0,0 +1,343 @@
+package messages;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Mailbox of an agent's SWO and RTO messages, indexed by (message type, iteration).
+ *
+ * drain() moves the agent's JADE queue and the messages of co-located peers (LocalTransport)
+ * into the mailbox; cycle messages are decoded once
+ * (including the delta expansion) and filed under the type and iteration of their header, so a
+ * peer that is already in iteration k + 1 cannot be counted toward the barrier of iteration k.
+ * The cycle behaviours take the messages of an iteration when they need them; messages of later
+ * iterations stay buffered. Messages with a conversation id (collectives) and non-cycle messages
+ * are kept in arrival order for pollOther().
+ *
+ * A delta message without keyframe is dropped, so it is neither counted toward a barrier nor
+ * applied; drain() asks the sender for a keyframe (KEYFRAME_REQUEST) and answers such requests of
+ * peers with the last message sent of the type (MessageDelta.keyframe()).
+ */
+public class Mailbox {
+
+    /** Conversation id of the keyframe requests, the content are the MessageType names separated by ';'. */
+    public static final String KEYFRAME_REQUEST = "deltaKeyframeRequest";
+
+    private final MessageDelta delta;
+    private final MessageStatistics stats;
+    private final Map<MessageType, Map<Integer, Bucket>> buckets = new EnumMap<>(MessageType.class);
+    private final Queue<ACLMessage> other = new ArrayDeque<>();
+
+    // Keyframes to request from senders of dropped deltas, requests of peers to answer
+    private final Map<AID, Set<MessageType>> missingKeyframes = new LinkedHashMap<>();
+    private final Queue<ACLMessage> keyframeRequests = new ArrayDeque<>();
+    private long droppedDeltas;
+
+    // Queue-depth metrics
+    private int size;
+    private int highWaterMark;
+    private long receivedCount;
+
+    /**
+     * @param delta delta state used to expand delta messages, may be null
+     */
+    public Mailbox(MessageDelta delta) {
+        this(delta, null);
+    }
+
+    /**
+     * @param stats records the decode time of the cycle messages, may be null
+     */
+    public Mailbox(MessageDelta delta, MessageStatistics stats) {
+        this.delta = delta;
+        this.stats = stats;
+    }
+
+    // ============================================================================
+    // RECEIVING
+    // ============================================================================
+
+    /**
+     * Moves all messages currently queued at the agent into the mailbox.
+     *
+     * @return number of messages received
+     */
+    public int drain(Agent agent) {
+        int count = 0;
+        ACLMessage msg;
+        while ((msg = agent.receive()) != null) {
+            if (LocalTransport.isDoorbell(msg)) {
+                continue;
+            }
+            accept(msg);
+            count++;
+        }
+        LocalTransport transport = LocalTransport.of(agent);
+        if (transport != null) {
+            for (UpdateMessage update : transport.poll()) {
+                accept(update);
+                count++;
+            }
+        }
+        answerKeyframeRequests(agent);
+        requestKeyframes(agent);
+        return count;
+    }
+
+    public void accept(ACLMessage msg) {
+        if (KEYFRAME_REQUEST.equals(msg.getConversationId())) {
+            keyframeRequests.add(msg);
+            return;
+        }
+        UpdateMessage update = msg.getConversationId() == null ? MessageCodec.read(msg, null, stats) : null;
+        if (update != null && delta != null) {
+            UpdateMessage expanded = delta.decode(update);
+            if (expanded == null) {
+                // Delta ohne Keyframe: kein vollständiger Beitrag des Senders
+                droppedDeltas++;
+                if (msg.getSender() != null && delta.requestKeyframe(update.getSender(), update.getType())) {
+                    missingKeyframes.computeIfAbsent(msg.getSender(), k -> EnumSet.noneOf(MessageType.class)).add(update.getType());
+                }
+                return;
+            }
+            update = expanded;
+        }
+        if (update == null) {
+            receivedCount++;
+            other.add(msg);
+            size++;
+            highWaterMark = Math.max(highWaterMark, size);
+        } else {
+            accept(update);
+        }
+    }
+
+    /**
+     * Files a decoded (or locally delivered) cycle message.
+     */
+    public void accept(UpdateMessage update) {
+        receivedCount++;
+        buckets.computeIfAbsent(update.getType(), k -> new HashMap<>())
+               .computeIfAbsent(update.getIteration(), k -> new Bucket())
+               .add(update);
+        size++;
+        highWaterMark = Math.max(highWaterMark, size);
+    }
+
+    // ============================================================================
+    // KEYFRAME REQUESTS
+    // ============================================================================
+
+    private void requestKeyframes(Agent agent) {
+        for (Map.Entry<AID, Set<MessageType>> entry : missingKeyframes.entrySet()) {
+            ACLMessage request = new ACLMessage(ACLMessage.REQUEST);
+            request.setConversationId(KEYFRAME_REQUEST);
+            request.addReceiver(entry.getKey());
+            StringBuilder content = new StringBuilder();
+            for (MessageType type : entry.getValue()) {
+                content.append(type.name()).append(';');
+            }
+            request.setContent(content.toString());
+            agent.send(request);
+        }
+        missingKeyframes.clear();
+    }
+
+    /**
+     * Resends the last message of each requested type as keyframe to the requesting peer. The
+     * reply bypasses the delta encoding, the delta stream of the other peers is unchanged.
+     */
+    private void answerKeyframeRequests(Agent agent) {
+        ACLMessage request;
+        while ((request = keyframeRequests.poll()) != null) {
+            if (delta == null || request.getSender() == null || request.getContent() == null) {
+                continue;
+            }
+            for (String name : request.getContent().split(";")) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+                UpdateMessage keyframe;
+                try {
+                    keyframe = delta.keyframe(MessageType.valueOf(name));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid keyframe request of " + request.getSender().getLocalName() + ": " + name);
+                    continue;
+                }
+                if (keyframe == null) {
+                    continue; // nothing sent since forceKeyframes(), the next message is a keyframe
+                }
+                ACLMessage reply = new ACLMessage(ACLMessage.INFORM);
+                reply.addReceiver(request.getSender());
+                MessageCodec.write(reply, keyframe, null, stats);
+                agent.send(reply);
+            }
+        }
+    }
+
+    // ============================================================================
+    // BARRIERS
+    // ============================================================================
+
+    /**
+     * @return number of distinct senders of the type buffered for the iteration
+     */
+    public int count(MessageType type, int iteration) {
+        Bucket bucket = bucket(type, iteration);
+        return bucket == null ? 0 : bucket.senders.size();
+    }
+
+    /**
+     * @return distinct senders of the type buffered for the iteration
+     */
+    public Set<String> senders(MessageType type, int iteration) {
+        Bucket bucket = bucket(type, iteration);
+        return bucket == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(bucket.senders);
+    }
+
+    /** @return true if peers distinct senders have reported the iteration */
+    public boolean hasAll(MessageType type, int iteration, int peers) {
+        return count(type, iteration) >= peers;
+    }
+
+    /**
+     * Removes and returns the messages of the type for the iteration, in arrival order.
+     */
+    public List<UpdateMessage> take(MessageType type, int iteration) {
+        Map<Integer, Bucket> byIteration = buckets.get(type);
+        Bucket bucket = byIteration == null ? null : byIteration.remove(iteration);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        size -= bucket.messages.size();
+        return bucket.messages;
+    }
+
+    /**
+     * Removes and returns all buffered messages of the type, ordered by iteration.
+     */
+    public List<UpdateMessage> takeAll(MessageType type) {
+        Map<Integer, Bucket> byIteration = buckets.get(type);
+        if (byIteration == null || byIteration.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> iterations = new ArrayList<>(byIteration.keySet());
+        Collections.sort(iterations);
+        List<UpdateMessage> messages = new ArrayList<>();
+        for (int iteration : iterations) {
+            messages.addAll(take(type, iteration));
+        }
+        return messages;
+    }
+
+    /**
+     * Drops the messages of the type for iterations before the given one.
+     *
+     * @return number of dropped messages
+     */
+    public int discardBefore(MessageType type, int iteration) {
+        Map<Integer, Bucket> byIteration = buckets.get(type);
+        if (byIteration == null) {
+            return 0;
+        }
+        int dropped = 0;
+        for (Integer key : new ArrayList<>(byIteration.keySet())) {
+            if (key < iteration) {
+                dropped += take(type, key).size();
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * @return the oldest message that is no cycle message, null if there is none
+     */
+    public ACLMessage pollOther() {
+        ACLMessage msg = other.poll();
+        if (msg != null) {
+            size--;
+        }
+        return msg;
+    }
+
+    // ============================================================================
+    // METRICS
+    // ============================================================================
+
+    /** Buffered messages of all types. */
+    public int size() {
+        return size;
+    }
+
+    public int size(MessageType type) {
+        int count = 0;
+        Map<Integer, Bucket> byIteration = buckets.get(type);
+        if (byIteration != null) {
+            for (Bucket bucket : byIteration.values()) {
+                count += bucket.messages.size();
+            }
+        }
+        return count;
+    }
+
+    /** Buffered messages of the type for iterations after the given one. */
+    public int countAhead(MessageType type, int iteration) {
+        int count = 0;
+        Map<Integer, Bucket> byIteration = buckets.get(type);
+        if (byIteration != null) {
+            for (Map.Entry<Integer, Bucket> entry : byIteration.entrySet()) {
+                if (entry.getKey() > iteration) {
+                    count += entry.getValue().messages.size();
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Largest number of buffered messages since the last reset. */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public void resetHighWaterMark() {
+        highWaterMark = size;
+    }
+
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+
+    /** Delta messages dropped because the keyframe of the sender was missing. */
+    public long getDroppedDeltaCount() {
+        return droppedDeltas;
+    }
+
+    private Bucket bucket(MessageType type, int iteration) {
+        Map<Integer, Bucket> byIteration = buckets.get(type);
+        return byIteration == null ? null : byIteration.get(iteration);
+    }
+
+    private static final class Bucket {
+        private final List<UpdateMessage> messages = new ArrayList<>();
+        private final Set<String> senders = new HashSet<>();
+
+        void add(UpdateMessage update) {
+            messages.add(update);
+            senders.add(update.getSender());
+        }
+    }
+}
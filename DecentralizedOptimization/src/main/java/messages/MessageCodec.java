@@ -0,0 +1,547 @@
+package messages;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import jade.lang.acl.ACLMessage;
+import models.ADMMSettings;
+import models.State;
+
+/**
+ * Wire formats of the SWO and RTO cycle messages.
+ *
+ * Binary format (byte-sequence content, big endian), version 2:
+ *   byte magic 0xAD, byte version, byte type (MessageType ordinal), byte flags (FLAG_KEYFRAME,
+ *   FLAG_DELTA, FLAG_COMPRESSED, FLAG_QUANTIZED)
+ *   [FLAG_COMPRESSED: int length of the uncompressed rest, the rest deflated]
+ *   int iteration, short sender length, sender (UTF-8)
+ *   int entry count n, byte field count f, byte state encoding, byte state count
+ *   [FLAG_QUANTIZED: double step, f bytes field encoding (FIELD_DOUBLE, FIELD_QUANTIZED)]
+ *   n shorts electrolyzer ids, n shorts periods
+ *   f * n values, field-major: doubles, or ints round(v / step) for quantized fields
+ *   y-states bit-packed: the State ordinal in 2 bits per entry if every entry has exactly one
+ *   active state (STATE_ORDINAL), otherwise one bit per state (STATE_FLAGS)
+ *
+ * The text format is the legacy "prefix;iteration;id,t,v1,...;" content. Incoming messages are
+ * decoded from either format, outgoing messages use the format selected by MESSAGE_CODEC.
+ * New message types must be appended to MessageType, the ordinal is part of the format.
+ * Delta messages (see MessageDelta), quantization and compression only exist in the binary format;
+ * version 1 messages (without the two flags) are still decoded.
+ */
+public final class MessageCodec {
+
+    public static final byte MAGIC = (byte) 0xAD;
+    public static final byte VERSION = 2;
+
+    static final byte FLAG_KEYFRAME = 1;
+    static final byte FLAG_DELTA = 2;
+    static final byte FLAG_COMPRESSED = 4;
+    static final byte FLAG_QUANTIZED = 8;
+
+    static final byte FIELD_DOUBLE = 0;
+    static final byte FIELD_QUANTIZED = 1;
+
+    static final byte STATE_NONE = 0;
+    static final byte STATE_ORDINAL = 1;
+    static final byte STATE_FLAGS = 2;
+
+    private static final int STATE_COUNT = State.values().length;
+    private static final int ORDINAL_BITS = Math.max(1, 32 - Integer.numberOfLeadingZeros(STATE_COUNT - 1));
+    private static final int HEADER_BYTES = 4 + 4 + 2 + 4 + 3;
+    private static final int PREFIX_BYTES = 4;
+
+    // Deflater/Inflater are expensive to create, one per thread (agent)
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private MessageCodec() {
+    }
+
+    // ============================================================================
+    // ACL MESSAGES
+    // ============================================================================
+
+    /**
+     * Sets the content of msg in the configured wire format.
+     */
+    public static void write(ACLMessage msg, UpdateMessage update) {
+        write(msg, update, null);
+    }
+
+    /**
+     * Like write(msg, update), but sends only the changed entries if delta mode is enabled.
+     *
+     * @param delta delta state of the sending agent, may be null
+     */
+    public static void write(ACLMessage msg, UpdateMessage update, MessageDelta delta) {
+        write(msg, update, delta, null);
+    }
+
+    /**
+     * Like write(msg, update, delta), compresses the binary content if MESSAGE_COMPRESSION is set.
+     *
+     * @param stats payload statistics of the sending agent, may be null
+     */
+    public static void write(ACLMessage msg, UpdateMessage update, MessageDelta delta, MessageStatistics stats) {
+        if (delta != null && ADMMSettings.isDeltaMessages()) {
+            update = delta.encode(update);
+        }
+        if (ADMMSettings.useBinaryMessages()) {
+            long start = System.nanoTime();
+            byte[] bytes = encode(update, ADMMSettings.isCompressedMessages());
+            if (stats != null) {
+                stats.recordEncode(plainLength(update), bytes.length, System.nanoTime() - start);
+            }
+            msg.setByteSequenceContent(bytes);
+        } else {
+            msg.setContent(toText(update));
+        }
+    }
+
+    /**
+     * @return the decoded message, null if msg is no (valid) cycle message
+     */
+    public static UpdateMessage read(ACLMessage msg) {
+        return read(msg, null);
+    }
+
+    /**
+     * Like read(msg), but expands delta messages to all entries of the sender. A delta without
+     * keyframe yields null (see MessageDelta.decode()).
+     *
+     * @param delta delta state of the receiving agent, may be null if no peer sends deltas
+     */
+    public static UpdateMessage read(ACLMessage msg, MessageDelta delta) {
+        return read(msg, delta, null);
+    }
+
+    /**
+     * Like read(msg, delta), records the decode time.
+     *
+     * @param stats payload statistics of the receiving agent, may be null
+     */
+    public static UpdateMessage read(ACLMessage msg, MessageDelta delta, MessageStatistics stats) {
+        long start = System.nanoTime();
+        UpdateMessage update = readContent(msg);
+        if (update != null && delta != null) {
+            update = delta.decode(update);
+        }
+        if (update != null && stats != null) {
+            stats.recordDecode(System.nanoTime() - start);
+        }
+        return update;
+    }
+
+    private static UpdateMessage readContent(ACLMessage msg) {
+        try {
+            if (msg.hasByteSequenceContent()) {
+                byte[] bytes = msg.getByteSequenceContent();
+                if (bytes != null && bytes.length > 0 && bytes[0] == MAGIC) {
+                    return decode(bytes);
+                }
+            }
+            String content = msg.getContent();
+            if (content == null) {
+                return null;
+            }
+            String sender = msg.getSender() != null ? msg.getSender().getLocalName() : null;
+            return fromText(content, sender);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            System.err.println("Invalid cycle message: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // ============================================================================
+    // BINARY FORMAT
+    // ============================================================================
+
+    public static byte[] encode(UpdateMessage update) {
+        return encode(update, false);
+    }
+
+    /**
+     * @param compress deflate the content; ignored if that does not make it smaller
+     */
+    public static byte[] encode(UpdateMessage update, boolean compress) {
+        MessageType type = update.getType();
+        int n = update.size();
+        int f = type.getFieldCount();
+        byte stateEncoding = type.hasStates() ? (isOneHot(update) ? STATE_ORDINAL : STATE_FLAGS) : STATE_NONE;
+        int stateBits = stateEncoding == STATE_ORDINAL ? ORDINAL_BITS : (stateEncoding == STATE_FLAGS ? STATE_COUNT : 0);
+        byte[] sender = update.getSender() != null ? update.getSender().getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+        double step = update.getQuantizationStep();
+        byte[] fieldEncodings = step > 0 ? fieldEncodings(update, step) : null;
+        int valueBytes = 8 * f * n;
+        if (fieldEncodings != null) {
+            valueBytes = 8 + f;
+            for (byte encoding : fieldEncodings) {
+                valueBytes += (encoding == FIELD_QUANTIZED ? 4 : 8) * n;
+            }
+        }
+
+        int length = HEADER_BYTES + sender.length + 4 * n + valueBytes + (n * stateBits + 7) / 8;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        byte flags = (byte) ((update.isKeyframe() ? FLAG_KEYFRAME : 0) | (update.isDelta() ? FLAG_DELTA : 0)
+                | (fieldEncodings != null ? FLAG_QUANTIZED : 0));
+        buffer.put(MAGIC).put(VERSION).put((byte) type.ordinal()).put(flags);
+        buffer.putInt(update.getIteration());
+        buffer.putShort((short) sender.length).put(sender);
+        buffer.putInt(n).put((byte) f).put(stateEncoding).put((byte) STATE_COUNT);
+        if (fieldEncodings != null) {
+            buffer.putDouble(step).put(fieldEncodings);
+        }
+
+        int[] electrolyzerIds = update.electrolyzerIds();
+        int[] periods = update.periods();
+        for (int i = 0; i < n; i++) {
+            buffer.putShort(toShort(electrolyzerIds[i]));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putShort(toShort(periods[i]));
+        }
+        for (int field = 0; field < f; field++) {
+            double[] values = update.field(field);
+            if (fieldEncodings != null && fieldEncodings[field] == FIELD_QUANTIZED) {
+                for (int i = 0; i < n; i++) {
+                    buffer.putInt((int) Math.round(values[i] / step));
+                }
+            } else {
+                buffer.asDoubleBuffer().put(values, 0, n);
+                buffer.position(buffer.position() + 8 * n);
+            }
+        }
+        if (stateBits > 0) {
+            writeStates(buffer, update, stateEncoding, stateBits);
+        }
+        return compress ? compress(buffer.array()) : buffer.array();
+    }
+
+    public static UpdateMessage decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary cycle message");
+        }
+        byte version = buffer.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported message version " + version);
+        }
+        int typeIndex = buffer.get();
+        if (typeIndex < 0 || typeIndex >= MessageType.values().length) {
+            throw new IllegalArgumentException("Unknown message type " + typeIndex);
+        }
+        MessageType type = MessageType.values()[typeIndex];
+        byte flags = buffer.get();
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            buffer = ByteBuffer.wrap(inflate(bytes));
+            buffer.position(PREFIX_BYTES);
+        }
+        int iteration = buffer.getInt();
+        byte[] senderBytes = new byte[buffer.getShort()];
+        buffer.get(senderBytes);
+        int n = buffer.getInt();
+        int f = buffer.get();
+        byte stateEncoding = buffer.get();
+        int stateCount = buffer.get();
+        if (f != type.getFieldCount() || (stateEncoding != STATE_NONE && stateCount != STATE_COUNT)) {
+            throw new IllegalArgumentException("Layout of " + type + " does not match (fields " + f + ", states " + stateCount + ")");
+        }
+        double step = 0.0;
+        byte[] fieldEncodings = null;
+        if ((flags & FLAG_QUANTIZED) != 0) {
+            step = buffer.getDouble();
+            fieldEncodings = new byte[f];
+            buffer.get(fieldEncodings);
+        }
+
+        int[] electrolyzerIds = new int[n];
+        int[] periods = new int[n];
+        for (int i = 0; i < n; i++) {
+            electrolyzerIds[i] = buffer.getShort();
+        }
+        for (int i = 0; i < n; i++) {
+            periods[i] = buffer.getShort();
+        }
+        double[][] values = new double[f][n];
+        for (int field = 0; field < f; field++) {
+            if (fieldEncodings != null && fieldEncodings[field] == FIELD_QUANTIZED) {
+                for (int i = 0; i < n; i++) {
+                    values[field][i] = buffer.getInt() * step;
+                }
+            } else {
+                buffer.asDoubleBuffer().get(values[field]);
+                buffer.position(buffer.position() + 8 * n);
+            }
+        }
+        boolean[][] states = null;
+        if (type.hasStates()) {
+            states = readStates(buffer, n, stateEncoding);
+        }
+
+        UpdateMessage update = new UpdateMessage(type, iteration, new String(senderBytes, StandardCharsets.UTF_8), 1);
+        update.setEntries(n, electrolyzerIds, periods, values, states);
+        update.setDeltaFlags((flags & FLAG_KEYFRAME) != 0, (flags & FLAG_DELTA) != 0);
+        update.setQuantizationStep(step);
+        return update;
+    }
+
+    /**
+     * @return the value as the receiver sees it if it is sent with the quantization step
+     */
+    public static double quantize(double value, double step) {
+        if (step <= 0 || !isQuantizable(value, step)) {
+            return value;
+        }
+        return Math.round(value / step) * step;
+    }
+
+    /**
+     * @return size of the message in the binary format without quantization and compression
+     */
+    public static int plainLength(UpdateMessage update) {
+        MessageType type = update.getType();
+        int n = update.size();
+        int stateBits = type.hasStates() ? (isOneHot(update) ? ORDINAL_BITS : STATE_COUNT) : 0;
+        int senderLength = update.getSender() != null ? update.getSender().getBytes(StandardCharsets.UTF_8).length : 0;
+        return HEADER_BYTES + senderLength + 4 * n + 8 * type.getFieldCount() * n + (n * stateBits + 7) / 8;
+    }
+
+    // ============================================================================
+    // QUANTIZATION AND COMPRESSION
+    // ============================================================================
+
+    /**
+     * A quantizable field is sent as ints if all its values fit, otherwise (NaN, infinite or too
+     * large for the step) in full precision.
+     *
+     * @return encoding per field, null if no field is quantized
+     */
+    private static byte[] fieldEncodings(UpdateMessage update, double step) {
+        MessageType type = update.getType();
+        byte[] encodings = new byte[type.getFieldCount()];
+        boolean quantized = false;
+        for (int field = 0; field < encodings.length; field++) {
+            if (!type.isQuantizable(field)) {
+                continue;
+            }
+            double[] values = update.field(field);
+            boolean fits = true;
+            for (int i = 0; i < update.size() && fits; i++) {
+                fits = isQuantizable(values[i], step);
+            }
+            if (fits) {
+                encodings[field] = FIELD_QUANTIZED;
+                quantized = true;
+            }
+        }
+        return quantized ? encodings : null;
+    }
+
+    private static boolean isQuantizable(double value, double step) {
+        double scaled = value / step;
+        return !Double.isNaN(scaled) && Math.abs(scaled) < Integer.MAX_VALUE;
+    }
+
+    /**
+     * Deflates everything after the first four bytes; the raw message is returned if the
+     * compressed one would not be smaller.
+     */
+    private static byte[] compress(byte[] raw) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(raw, PREFIX_BYTES, raw.length - PREFIX_BYTES);
+        deflater.finish();
+        byte[] out = new byte[raw.length];
+        int length = PREFIX_BYTES + 4;
+        while (!deflater.finished() && length < out.length) {
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        if (!deflater.finished()) {
+            return raw;
+        }
+        System.arraycopy(raw, 0, out, 0, PREFIX_BYTES);
+        out[3] |= FLAG_COMPRESSED;
+        ByteBuffer.wrap(out, PREFIX_BYTES, 4).putInt(raw.length - PREFIX_BYTES);
+        return Arrays.copyOf(out, length);
+    }
+
+    /**
+     * @return the uncompressed message, the first four bytes are copied unchanged
+     */
+    private static byte[] inflate(byte[] bytes) {
+        int rawLength = ByteBuffer.wrap(bytes, PREFIX_BYTES, 4).getInt();
+        if (rawLength < 0) {
+            throw new IllegalArgumentException("Invalid compressed length " + rawLength);
+        }
+        byte[] raw = new byte[PREFIX_BYTES + rawLength];
+        System.arraycopy(bytes, 0, raw, 0, PREFIX_BYTES);
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(bytes, PREFIX_BYTES + 4, bytes.length - PREFIX_BYTES - 4);
+        try {
+            int length = PREFIX_BYTES;
+            while (length < raw.length && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, raw.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != raw.length) {
+                throw new IllegalArgumentException("Compressed message is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed message: " + e.getMessage(), e);
+        }
+        return raw;
+    }
+
+    private static boolean isOneHot(UpdateMessage update) {
+        for (int i = 0; i < update.size(); i++) {
+            int active = 0;
+            for (boolean state : update.getStates(i)) {
+                active += state ? 1 : 0;
+            }
+            if (active != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeStates(ByteBuffer buffer, UpdateMessage update, byte stateEncoding, int stateBits) {
+        byte[] packed = new byte[(update.size() * stateBits + 7) / 8];
+        int bit = 0;
+        for (int i = 0; i < update.size(); i++) {
+            boolean[] states = update.getStates(i);
+            if (stateEncoding == STATE_ORDINAL) {
+                int ordinal = 0;
+                while (!states[ordinal]) {
+                    ordinal++;
+                }
+                for (int b = 0; b < stateBits; b++, bit++) {
+                    if ((ordinal & (1 << b)) != 0) {
+                        packed[bit >> 3] |= 1 << (bit & 7);
+                    }
+                }
+            } else {
+                for (int s = 0; s < STATE_COUNT; s++, bit++) {
+                    if (states[s]) {
+                        packed[bit >> 3] |= 1 << (bit & 7);
+                    }
+                }
+            }
+        }
+        buffer.put(packed);
+    }
+
+    private static boolean[][] readStates(ByteBuffer buffer, int n, byte stateEncoding) {
+        boolean[][] states = new boolean[n][STATE_COUNT];
+        if (stateEncoding == STATE_NONE) {
+            return states;
+        }
+        int stateBits = stateEncoding == STATE_ORDINAL ? ORDINAL_BITS : STATE_COUNT;
+        byte[] packed = new byte[(n * stateBits + 7) / 8];
+        buffer.get(packed);
+        int bit = 0;
+        for (int i = 0; i < n; i++) {
+            if (stateEncoding == STATE_ORDINAL) {
+                int ordinal = 0;
+                for (int b = 0; b < stateBits; b++, bit++) {
+                    if ((packed[bit >> 3] & (1 << (bit & 7))) != 0) {
+                        ordinal |= 1 << b;
+                    }
+                }
+                if (ordinal >= STATE_COUNT) {
+                    throw new IllegalArgumentException("Invalid state ordinal " + ordinal);
+                }
+                states[i][ordinal] = true;
+            } else {
+                for (int s = 0; s < STATE_COUNT; s++, bit++) {
+                    states[i][s] = (packed[bit >> 3] & (1 << (bit & 7))) != 0;
+                }
+            }
+        }
+        return states;
+    }
+
+    private static short toShort(int value) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Index out of the range of the binary format: " + value);
+        }
+        return (short) value;
+    }
+
+    // ============================================================================
+    // TEXT FORMAT
+    // ============================================================================
+
+    public static String toText(UpdateMessage update) {
+        MessageType type = update.getType();
+        if (!type.hasEntries()) {
+            return type.getTextPrefix();
+        }
+        StringBuilder content = new StringBuilder();
+        content.append(type.getTextPrefix()).append(";").append(update.getIteration()).append(";");
+        for (int i = 0; i < update.size(); i++) {
+            content.append(update.getElectrolyzerId(i)).append(",").append(update.getPeriod(i));
+            for (int field = 0; field < type.getFieldCount(); field++) {
+                content.append(",").append(update.getValue(i, field));
+            }
+            if (type.hasStates()) {
+                for (boolean state : update.getStates(i)) {
+                    content.append(",").append(state ? 1 : 0);
+                }
+            }
+            content.append(";");
+        }
+        return content.toString();
+    }
+
+    /**
+     * @return the decoded legacy message, null if the content is not a cycle message
+     */
+    public static UpdateMessage fromText(String content, String sender) {
+        MessageType type = MessageType.fromText(content);
+        if (type == null) {
+            return null;
+        }
+        if (!type.hasEntries()) {
+            return new UpdateMessage(type, -1, sender);
+        }
+        String[] parts = content.split(";");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Missing iteration in " + type);
+        }
+        int iteration = Integer.parseInt(parts[1]);
+        int fieldCount = type.getFieldCount();
+        int expected = 2 + fieldCount + (type.hasStates() ? STATE_COUNT : 0);
+        UpdateMessage update = new UpdateMessage(type, iteration, sender, parts.length - 2);
+        double[] fieldValues = new double[fieldCount];
+        for (int i = 2; i < parts.length; i++) {
+            String[] resultParts = parts[i].split(",");
+            if (resultParts.length < expected) {
+                continue;
+            }
+            for (int field = 0; field < fieldCount; field++) {
+                fieldValues[field] = Double.parseDouble(resultParts[2 + field]);
+            }
+            boolean[] states = null;
+            if (type.hasStates()) {
+                states = new boolean[STATE_COUNT];
+                for (int s = 0; s < STATE_COUNT; s++) {
+                    states[s] = resultParts[2 + fieldCount + s].equals("1");
+                }
+            }
+            update.addEntry(Integer.parseInt(resultParts[0]), Integer.parseInt(resultParts[1]), states, fieldValues);
+        }
+        return update;
+    }
+}
@@ -0,0 +1,244 @@
+package messages;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta mode of the SWO and RTO exchange, one instance per agent.
+ *
+ * Sending side: every keyframeInterval-th iteration (and whenever the entries of a message type
+ * change) the full message is sent as keyframe. In between only the entries are sent whose value
+ * changed by more than epsilon against the last value sent for them, or whose y-states changed.
+ * JADE delivers the messages of one sender in order to every receiver, so the last value sent is
+ * the value every peer holds; the deviation of a receiver's copy stays below epsilon.
+ *
+ * Receiving side: the keyframe of every (sender, type) is kept as reference, deltas are patched
+ * into it and expanded to the full message, so the cycle behaviours see complete messages in
+ * either mode. A delta without keyframe (e.g. sent before the sender learned that this agent
+ * joined) is dropped and does not count as the sender's contribution; the Mailbox requests a
+ * keyframe, which the sender answers with its last message of the type (keyframe()).
+ */
+public class MessageDelta {
+
+    private final double epsilon;
+    private final int keyframeInterval;
+
+    private final Map<MessageType, Reference> sent = new EnumMap<>(MessageType.class);
+    private final Map<String, Reference> received = new HashMap<>();
+    private final Set<String> awaitingKeyframe = new HashSet<>();
+
+    /**
+     * @param epsilon          absolute change below which an entry is not resent
+     * @param keyframeInterval every n-th iteration is sent in full
+     */
+    public MessageDelta(double epsilon, int keyframeInterval) {
+        this.epsilon = epsilon;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    // ============================================================================
+    // SENDING
+    // ============================================================================
+
+    /**
+     * @return the keyframe (update itself) or a delta message with the changed entries
+     */
+    public UpdateMessage encode(UpdateMessage update) {
+        MessageType type = update.getType();
+        if (!type.hasEntries()) {
+            return update;
+        }
+        Reference reference = sent.get(type);
+        if (reference == null || update.getIteration() % keyframeInterval == 0 || !reference.hasSameEntries(update)) {
+            sent.put(type, new Reference(update));
+            update.setDeltaFlags(true, false);
+            return update;
+        }
+
+        reference.iteration = update.getIteration();
+        reference.quantizationStep = update.getQuantizationStep();
+        UpdateMessage delta = new UpdateMessage(type, update.getIteration(), update.getSender(), 16);
+        delta.setDeltaFlags(false, true);
+        delta.setQuantizationStep(update.getQuantizationStep());
+        double[] fieldValues = new double[type.getFieldCount()];
+        for (int i = 0; i < update.size(); i++) {
+            if (!reference.hasChanged(i, update, epsilon)) {
+                continue;
+            }
+            reference.set(i, update, i);
+            for (int field = 0; field < fieldValues.length; field++) {
+                fieldValues[field] = update.getValue(i, field);
+            }
+            delta.addEntry(update.getElectrolyzerId(i), update.getPeriod(i), update.getStates(i), fieldValues);
+        }
+        return delta;
+    }
+
+    /**
+     * The next message of every type is sent as keyframe, e.g. because a new agent has joined
+     * that has no reference yet.
+     */
+    public void forceKeyframes() {
+        sent.clear();
+    }
+
+    /**
+     * @return the last message of the type sent, as keyframe with the values the peers hold; null
+     *         if none was sent since the last forceKeyframes() (the next message is a keyframe then)
+     */
+    public UpdateMessage keyframe(MessageType type) {
+        Reference reference = sent.get(type);
+        if (reference == null) {
+            return null;
+        }
+        UpdateMessage keyframe = reference.toMessage(type, reference.iteration, reference.sender);
+        keyframe.setQuantizationStep(reference.quantizationStep);
+        keyframe.setDeltaFlags(true, false);
+        return keyframe;
+    }
+
+    // ============================================================================
+    // RECEIVING
+    // ============================================================================
+
+    /**
+     * @return the message with all entries of the sender; keyframes and plain messages are returned
+     *         as they are; null for a delta without keyframe, which must be dropped
+     */
+    public UpdateMessage decode(UpdateMessage update) {
+        String key = key(update.getSender(), update.getType());
+        if (update.isKeyframe()) {
+            received.put(key, new Reference(update));
+            awaitingKeyframe.remove(key);
+            return update;
+        }
+        if (!update.isDelta()) {
+            return update;
+        }
+        Reference reference = received.get(key);
+        if (reference == null) {
+            return null;
+        }
+        for (int i = 0; i < update.size(); i++) {
+            int index = reference.indexOf(update.getElectrolyzerId(i), update.getPeriod(i));
+            if (index < 0) {
+                System.err.println("Delta entry " + update.getElectrolyzerId(i) + "/" + update.getPeriod(i)
+                        + " of " + update.getSender() + " is not in the keyframe");
+                continue;
+            }
+            reference.set(index, update, i);
+        }
+        return reference.toMessage(update.getType(), update.getIteration(), update.getSender());
+    }
+
+    /**
+     * Marks the stream of a dropped delta as waiting for a keyframe.
+     *
+     * @return true if the keyframe has to be requested, false if it already was and has not arrived
+     */
+    public boolean requestKeyframe(String sender, MessageType type) {
+        String key = key(sender, type);
+        if (!awaitingKeyframe.add(key)) {
+            return false;
+        }
+        System.err.println("Delta message of " + sender + " (" + type + ") without keyframe dropped, keyframe requested");
+        return true;
+    }
+
+    private static String key(String sender, MessageType type) {
+        return sender + "/" + type.name();
+    }
+
+    /**
+     * Last values of the entries of one message stream. The y-state arrays are never modified, a
+     * change replaces the array, as receivers store them in the data model.
+     */
+    private static final class Reference {
+        private final String sender;
+        private int iteration;          // last message sent (sending side)
+        private double quantizationStep;
+        private final int size;
+        private final int[] electrolyzerIds;
+        private final int[] periods;
+        private final double[][] values;
+        private final boolean[][] states;
+        private Map<Integer, Integer> index;
+
+        Reference(UpdateMessage update) {
+            sender = update.getSender();
+            iteration = update.getIteration();
+            quantizationStep = update.getQuantizationStep();
+            size = update.size();
+            electrolyzerIds = Arrays.copyOf(update.electrolyzerIds(), size);
+            periods = Arrays.copyOf(update.periods(), size);
+            values = new double[update.getType().getFieldCount()][];
+            for (int field = 0; field < values.length; field++) {
+                values[field] = Arrays.copyOf(update.field(field), size);
+            }
+            states = update.getType().hasStates() ? new boolean[size][] : null;
+            for (int i = 0; states != null && i < size; i++) {
+                states[i] = update.getStates(i);
+            }
+        }
+
+        boolean hasSameEntries(UpdateMessage update) {
+            if (update.size() != size) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (update.getElectrolyzerId(i) != electrolyzerIds[i] || update.getPeriod(i) != periods[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean hasChanged(int i, UpdateMessage update, double epsilon) {
+            for (int field = 0; field < values.length; field++) {
+                double value = update.getValue(i, field);
+                if (Double.compare(value, values[field][i]) != 0 && !(Math.abs(value - values[field][i]) <= epsilon)) {
+                    return true;
+                }
+            }
+            return states != null && !Arrays.equals(states[i], update.getStates(i));
+        }
+
+        void set(int index, UpdateMessage update, int entry) {
+            for (int field = 0; field < values.length; field++) {
+                values[field][index] = update.getValue(entry, field);
+            }
+            if (states != null) {
+                states[index] = update.getStates(entry);
+            }
+        }
+
+        int indexOf(int electrolyzerId, int period) {
+            if (index == null) {
+                index = new HashMap<>(2 * size);
+                for (int i = 0; i < size; i++) {
+                    index.put(key(electrolyzerIds[i], periods[i]), i);
+                }
+            }
+            Integer i = index.get(key(electrolyzerId, period));
+            return i == null ? -1 : i;
+        }
+
+        UpdateMessage toMessage(MessageType type, int iteration, String sender) {
+            double[][] copy = new double[values.length][];
+            for (int field = 0; field < values.length; field++) {
+                copy[field] = values[field].clone();
+            }
+            UpdateMessage update = new UpdateMessage(type, iteration, sender, 1);
+            update.setEntries(size, electrolyzerIds, periods, copy, states != null ? states.clone() : null);
+            return update;
+        }
+
+        private static int key(int electrolyzerId, int period) {
+            return (electrolyzerId << 16) | (period & 0xFFFF);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package messages;
+
+/**
+ * Payload statistics of one agent's binary messages, collected per iteration.
+ *
+ * plainBytes is the size the message would have in the binary format without quantization and
+ * compression, wireBytes the size actually sent; their ratio is the compression ratio.
+ */
+public class MessageStatistics {
+
+    private long plainBytes;
+    private long wireBytes;
+    private long encodeNanos;
+    private long decodeNanos;
+    private int encodedMessages;
+    private int decodedMessages;
+
+    void recordEncode(int plainLength, int wireLength, long nanos) {
+        plainBytes += plainLength;
+        wireBytes += wireLength;
+        encodeNanos += nanos;
+        encodedMessages++;
+    }
+
+    void recordDecode(long nanos) {
+        decodeNanos += nanos;
+        decodedMessages++;
+    }
+
+    /** @return plain / wire bytes of the sent messages, 1 if nothing was sent */
+    public double getCompressionRatio() {
+        return wireBytes == 0 ? 1.0 : (double) plainBytes / wireBytes;
+    }
+
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    public int getEncodedMessages() {
+        return encodedMessages;
+    }
+
+    public int getDecodedMessages() {
+        return decodedMessages;
+    }
+
+    public void reset() {
+        plainBytes = 0;
+        wireBytes = 0;
+        encodeNanos = 0;
+        decodeNanos = 0;
+        encodedMessages = 0;
+        decodedMessages = 0;
+    }
+}
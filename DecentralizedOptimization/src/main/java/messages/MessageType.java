@@ -0,0 +1,67 @@
+package messages;
+
+/**
+ * Message types of the SWO and RTO cycles.
+ *
+ * The text prefix is the content of the legacy text format; fieldCount is the number of double
+ * values per (electrolyzer, period) entry and hasStates marks the types that carry y-states. The
+ * first quantizableFields fields (x, u, s) may be quantized on the wire, hydrogen production and
+ * residuals are always sent in full precision.
+ */
+public enum MessageType {
+
+    SWO_X_UPDATE("xUpdateMessage", 2, false, 1),
+    SWO_DUAL_UPDATE("dualUpdateMessage", 8, true, 5),
+    SWO_CONVERGENCE("convergenceReached", 0, false, 0),
+    RTO_X_UPDATE("RTOxUpdateMessage", 2, false, 1),
+    RTO_DUAL_UPDATE("RTOdualUpdateMessage", 8, true, 5),
+    RTO_CONVERGENCE("RTOconvergenceReached", 0, false, 0),
+    RTO_ITERATION_INCREMENTED("iterationIncremented", 0, false, 0),
+    COLLECTIVE_PARTIAL("collectivePartial", 1, false, 0),
+    COLLECTIVE_RESULT("collectiveResult", 1, false, 0);
+
+    private final String textPrefix;
+    private final int fieldCount;
+    private final boolean hasStates;
+    private final int quantizableFields;
+
+    MessageType(String textPrefix, int fieldCount, boolean hasStates, int quantizableFields) {
+        this.textPrefix = textPrefix;
+        this.fieldCount = fieldCount;
+        this.hasStates = hasStates;
+        this.quantizableFields = quantizableFields;
+    }
+
+    public String getTextPrefix() {
+        return textPrefix;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public boolean hasStates() {
+        return hasStates;
+    }
+
+    public boolean isQuantizable(int field) {
+        return field < quantizableFields;
+    }
+
+    /** Types without entries are sent as the bare prefix in the text format. */
+    public boolean hasEntries() {
+        return fieldCount > 0;
+    }
+
+    /**
+     * @return the type of a legacy text message, null if the content is not a cycle message
+     */
+    public static MessageType fromText(String content) {
+        for (MessageType type : values()) {
+            if (type.hasEntries() ? content.startsWith(type.textPrefix + ";") : content.equals(type.textPrefix)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+package messages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Versioned phone book sent by the AMSAgent, including the electrolyzers and periods every agent owns.
+ *
+ * Content: "phoneBook:version=v;iteration=k[;resume=r];name,address[,electrolyzerIds[,periods]];..."
+ * with the ids and periods separated by blanks. resume is set in the phone book of the start if
+ * all agents have a checkpoint of SWO iteration r (the latest they have in common).
+ *
+ * Version 1 is the phone book of the start; later versions change the membership and take effect at the start of SWO iteration k, which the AMSAgent
+ * agrees with the members beforehand:
+ *
+ * 1. AMSAgent -> members: "membership:propose:v"
+ * 2. member -> AMSAgent: "membership:ready:v,k" with the last SWO iteration it started; from
+ *    then on it does not start a new iteration until the phone book v (or "membership:abort:v")
+ *    has arrived, so no member is beyond k + 1 when the change takes effect
+ * 3. AMSAgent -> old and new members: phone book v with iteration max(k) + 1
+ *
+ * The AMSAgent is compiled on its own (Dockerfile_AMS) and writes this format itself.
+ */
+public class PhoneBook {
+
+    /** Conversation id of the membership messages, they are kept in the mailbox's other messages. */
+    public static final String CONVERSATION = "membership";
+
+    public static final String PREFIX = "phoneBook:";
+    public static final String PROPOSE = "membership:propose:";
+    public static final String READY = "membership:ready:";
+    public static final String ABORT = "membership:abort:";
+
+    private final int version;
+    private final int iteration;
+    private int resumeIteration = -1;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private PhoneBook(int version, int iteration) {
+        this.version = version;
+        this.iteration = iteration;
+    }
+
+    // ============================================================================
+    // PARSING
+    // ============================================================================
+
+    public static boolean isPhoneBook(ACLMessage msg) {
+        return msg.getContent() != null && msg.getContent().startsWith(PREFIX);
+    }
+
+    /**
+     * @return the phone book, version 1 and iteration 0 if the content has no header
+     */
+    public static PhoneBook parse(String content) {
+        int version = 1;
+        int iteration = 0;
+        int resumeIteration = -1;
+        List<String[]> rows = new ArrayList<>();
+        for (String part : content.substring(PREFIX.length()).split(";")) {
+            part = part.trim();
+            if (part.startsWith("version=")) {
+                version = Integer.parseInt(part.substring("version=".length()));
+            } else if (part.startsWith("iteration=")) {
+                iteration = Integer.parseInt(part.substring("iteration=".length()));
+            } else if (part.startsWith("resume=")) {
+                resumeIteration = Integer.parseInt(part.substring("resume=".length()));
+            } else if (!part.isEmpty()) {
+                rows.add(part.split(",", -1));
+            }
+        }
+
+        PhoneBook phoneBook = new PhoneBook(version, iteration);
+        phoneBook.resumeIteration = resumeIteration;
+        for (String[] parts : rows) {
+            if (parts.length < 2) {
+                System.err.println("Invalid phone book entry: " + String.join(",", parts));
+                continue;
+            }
+            String agentName = parts[0].trim();
+            String address = parts[1].trim();
+
+            // Extrahiere Host und Port aus der Adresse
+            String hostPort = address.replaceAll("http://|/acc", "");
+            String host = hostPort.split(":")[0];
+            String port = hostPort.split(":")[1];
+
+            AID aid = new AID(agentName + "@" + host + ":1099/JADE", AID.ISGUID);
+            aid.addAddresses("http://" + host + ":" + port + "/acc");
+            Set<Integer> electrolyzerIds = parts.length > 2 ? parseIds(parts[2]) : null;
+            Set<Integer> periods = parts.length > 3 ? parseIds(parts[3]) : null;
+            phoneBook.entries.put(agentName, new Entry(aid, electrolyzerIds, periods));
+        }
+        return phoneBook;
+    }
+
+    private static Set<Integer> parseIds(String ids) {
+        Set<Integer> result = new TreeSet<>();
+        for (String id : ids.trim().split("\\s+")) {
+            if (!id.isEmpty()) {
+                result.add(Integer.parseInt(id));
+            }
+        }
+        return result;
+    }
+
+    // ============================================================================
+    // ACCESS
+    // ============================================================================
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** First SWO iteration in which the phone book is used. */
+    public int getIteration() {
+        return iteration;
+    }
+
+    /** @return SWO iteration of the checkpoint all agents resume from, -1 for a new run */
+    public int getResumeIteration() {
+        return resumeIteration;
+    }
+
+    /** @return the AIDs in the order of the AMSAgent, which is the same for all agents */
+    public List<AID> getAIDs() {
+        List<AID> aids = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            aids.add(entry.aid);
+        }
+        return aids;
+    }
+
+    public boolean contains(String agentName) {
+        return entries.containsKey(agentName);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** @return electrolyzer ids owned by the agent, null if the phone book has no assignment */
+    public Set<Integer> getElectrolyzerIds(String agentName) {
+        Entry entry = entries.get(agentName);
+        return entry == null || entry.electrolyzerIds == null ? null : Collections.unmodifiableSet(entry.electrolyzerIds);
+    }
+
+    /** @return periods owned by the agent, null if the phone book has no assignment */
+    public Set<Integer> getPeriods(String agentName) {
+        Entry entry = entries.get(agentName);
+        return entry == null || entry.periods == null ? null : Collections.unmodifiableSet(entry.periods);
+    }
+
+    private static final class Entry {
+        private final AID aid;
+        private final Set<Integer> electrolyzerIds;
+        private final Set<Integer> periods;
+
+        Entry(AID aid, Set<Integer> electrolyzerIds, Set<Integer> periods) {
+            this.aid = aid;
+            this.electrolyzerIds = electrolyzerIds;
+            this.periods = periods;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package messages;
+
+import java.util.Arrays;
+
+import models.State;
+
+/**
+ * Content of one SWO or RTO cycle message in primitive arrays, independent of the wire format.
+ *
+ * Every entry belongs to one (electrolyzer, period) and holds getFieldCount() doubles and, for
+ * dual updates, the y-states of the period. Values are stored field-major, i.e. all x values
+ * of a message are contiguous.
+ */
+public class UpdateMessage {
+
+    // Fields of X updates
+    public static final int X = 0;
+    public static final int HYDROGEN = 1;
+
+    // Fields of dual updates
+    public static final int U1 = 0;
+    public static final int U2 = 1;
+    public static final int U3 = 2;
+    public static final int S1 = 3;
+    public static final int S2 = 4;
+    public static final int RESIDUAL1 = 5;
+    public static final int RESIDUAL2 = 6;
+    public static final int RESIDUAL3 = 7;
+
+    private final MessageType type;
+    private final int iteration;
+    private final String sender;
+
+    // Delta mode: keyframes carry all entries and reset the receiver's reference, deltas only the changed ones
+    private boolean keyframe;
+    private boolean delta;
+
+    // Quantization step of the x, u and s fields on the wire, 0: full precision
+    private double quantizationStep;
+
+    private int size;
+    private int[] electrolyzerIds;
+    private int[] periods;
+    private double[][] values;
+    private boolean[][] states;
+
+    /**
+     * @param capacity expected number of entries, the arrays grow if it is exceeded
+     */
+    public UpdateMessage(MessageType type, int iteration, String sender, int capacity) {
+        this.type = type;
+        this.iteration = iteration;
+        this.sender = sender;
+        int initial = Math.max(1, capacity);
+        electrolyzerIds = new int[initial];
+        periods = new int[initial];
+        values = new double[type.getFieldCount()][initial];
+        states = type.hasStates() ? new boolean[initial][] : null;
+    }
+
+    /** Message without entries, e.g. convergence messages. */
+    public UpdateMessage(MessageType type, int iteration, String sender) {
+        this(type, iteration, sender, 1);
+    }
+
+    // ============================================================================
+    // BUILDING
+    // ============================================================================
+
+    /**
+     * @param electrolyzerId 1-based electrolyzer id as in the legacy messages
+     * @param period         1-based period (or RTO step)
+     * @param fieldValues    getFieldCount() values in field order
+     */
+    public void addEntry(int electrolyzerId, int period, double... fieldValues) {
+        addEntry(electrolyzerId, period, null, fieldValues);
+    }
+
+    /**
+     * @param yStates one flag per State, copied; only used by types with states
+     */
+    public void addEntry(int electrolyzerId, int period, boolean[] yStates, double... fieldValues) {
+        if (fieldValues.length != values.length) {
+            throw new IllegalArgumentException(type + " expects " + values.length + " values, got " + fieldValues.length);
+        }
+        if (size == electrolyzerIds.length) {
+            grow(2 * size);
+        }
+        electrolyzerIds[size] = electrolyzerId;
+        periods[size] = period;
+        for (int field = 0; field < values.length; field++) {
+            values[field][size] = fieldValues[field];
+        }
+        if (states != null) {
+            states[size] = yStates != null ? yStates.clone() : new boolean[State.values().length];
+        }
+        size++;
+    }
+
+    /** Used by the codec to fill decoded messages. */
+    void setEntries(int size, int[] electrolyzerIds, int[] periods, double[][] values, boolean[][] states) {
+        this.size = size;
+        this.electrolyzerIds = electrolyzerIds;
+        this.periods = periods;
+        this.values = values;
+        this.states = states;
+    }
+
+    /** Used by the codec and MessageDelta to mark keyframes and deltas. */
+    void setDeltaFlags(boolean keyframe, boolean delta) {
+        this.keyframe = keyframe;
+        this.delta = delta;
+    }
+
+    private void grow(int capacity) {
+        electrolyzerIds = Arrays.copyOf(electrolyzerIds, capacity);
+        periods = Arrays.copyOf(periods, capacity);
+        for (int field = 0; field < values.length; field++) {
+            values[field] = Arrays.copyOf(values[field], capacity);
+        }
+        if (states != null) {
+            states = Arrays.copyOf(states, capacity);
+        }
+    }
+
+    // ============================================================================
+    // ACCESS
+    // ============================================================================
+
+    public MessageType getType() {
+        return type;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public double getQuantizationStep() {
+        return quantizationStep;
+    }
+
+    /**
+     * @param quantizationStep step the x, u and s values are rounded to by the binary codec, 0 for full precision
+     */
+    public void setQuantizationStep(double quantizationStep) {
+        this.quantizationStep = Math.max(0.0, quantizationStep);
+    }
+
+    /** @return true if the message only carries the entries that changed since the sender's last keyframe */
+    public boolean isDelta() {
+        return delta;
+    }
+
+    /** @return true if the message carries all entries and starts a delta sequence */
+    public boolean isKeyframe() {
+        return keyframe;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getElectrolyzerId(int entry) {
+        return electrolyzerIds[entry];
+    }
+
+    public int getPeriod(int entry) {
+        return periods[entry];
+    }
+
+    public double getValue(int entry, int field) {
+        return values[field][entry];
+    }
+
+    /**
+     * @return the y-states of the entry, one flag per State; null for types without states
+     */
+    public boolean[] getStates(int entry) {
+        return states == null ? null : states[entry];
+    }
+
+    int[] electrolyzerIds() {
+        return electrolyzerIds;
+    }
+
+    int[] periods() {
+        return periods;
+    }
+
+    double[] field(int field) {
+        return values[field];
+    }
+}
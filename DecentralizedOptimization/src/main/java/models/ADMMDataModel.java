@@ -3,12 +3,14 @@ package models;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.DataFormat;
@@ -16,22 +18,22 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import jade.core.AID;
+import messages.Mailbox;
+import messages.MessageDelta;
+import messages.MessageStatistics;
 
 import org.apache.poi.ss.usermodel.*;
 
-public class ADMMDataModel {
-    Map<Integer, double[][]> xSWO;                // X-Werte für jede Iteration
-    Map<Integer, double[][]> xRTO;                // X-Werte für jede Iteration
-    Map<Integer, boolean[][][]> ySWO;             // Y-Werte für jede Iteration
-    Map<Integer, double[][][]> sSWO;              // S-Werte für jede Iteration
-    Map<Integer, double[][][]> sRTO;              // S-Werte für jede Iteration
-    Map<Integer, double[][][]> uSWO;                // U-Werte für jede Iteration
-    Map<Integer, double[][][]> uRTO;                // U-Werte für jede Iteration
-    Map<Integer, double[][]> hydrogenProductionSWO; // Wasserstoffproduktionsmenge für jede Iteration pro Agent
+public class ADMMDataModel implements SWOValueReader {
+    Map<Integer, IterateBlock> swoValues;         // X-, Y-, S-, U-Werte und Wasserstoffproduktion für jede SWO-Iteration
+    Map<Integer, IterateBlock> rtoValues;         // X-, S- und U-Werte für jede RTO-Iteration
+    private int iterateElectrolyzers;             // Dimensionen der Iterationsblöcke
+    private int iteratePeriods;
     Map<Integer, Double> iterationObjectiveValuesSWO = new HashMap<>();
     Map<Integer, Boolean> feasibilityMapSWO = new HashMap<>();
     private Map<Integer, Double> energyBalanceResult;
     private Map<Integer, Double> dualVariableEnergyBalance;
+    private Map<Integer, Double> totalRTOElectrolyzerEnergy = new HashMap<>(); // all-reduce result per RTO iteration
     private double[][] fluctuatingRenewableEnergyMatrix;
     private int rtoStepsPerSWOPeriod =10;
     int maxIterations;
@@ -62,10 +64,27 @@ public class ADMMDataModel {
     }
     
     public void resetXRTO() {
-        xRTO = new HashMap<Integer, double[][]>();
+        for (IterateBlock block : rtoValues.values()) {
+            Arrays.fill(block.xValues(), 0.0);
+        }
     }
 
+    // Iterationsfenster (ADMMSettings.ITERATION_WINDOW), null: alle Iterationen sind vorab angelegt
+    private IterationWindow swoWindow;
+    private IterationWindow rtoWindow;
+    // RTO-Sequenznummer der RTO-Iteration 0 der aktuellen Startperiode (fortlaufend über alle Startperioden)
+    private int rtoSequenceStart = 0;
+    private IterationHistorySink historySink;
+    // Veröffentlichte, unveränderliche SWO-Iterationen für andere Threads (publishSWOValues)
+    private volatile PublishedIterations publishedSWO = new PublishedIterations(2);
+    private int historyCacheIteration = -1; // zuletzt aus der History gelesene SWO-Iteration
+    private IterateBlock historyCacheValues;
+
     private List<AID> phoneBook;
+    private int phoneBookVersion;
+    private MessageDelta messageDelta;
+    private MessageStatistics messageStatistics;
+    private Mailbox mailbox;
     
     private Map<Integer, double[]> xSWOResults = new HashMap<>();
     
@@ -175,11 +194,24 @@ public class ADMMDataModel {
     private Map<Integer, Long> messageSendReceiveTimeMap = new HashMap<>();
     private Map<Integer, Long> sUpdateTimeMap = new HashMap<>();
     private Map<Integer, Long> startTimeMap = new HashMap<>();
+    private Map<Integer, Integer> xStalenessMap = new HashMap<>();    // Asynchroner Modus: max. Alter der x-Beiträge
+    private Map<Integer, Integer> dualStalenessMap = new HashMap<>(); // Asynchroner Modus: max. Alter der u/s/y-Beiträge
+    private Map<Integer, Integer> mailboxDepthMap = new HashMap<>();  // max. gepufferte Nachrichten je Iteration
+    private Map<Integer, Double> compressionRatioMap = new HashMap<>();    // Nachrichtengröße ohne / mit Quantisierung und Kompression
+    private Map<Integer, Long> messageEncodeTimeMap = new HashMap<>();
+    private Map<Integer, Long> messageDecodeTimeMap = new HashMap<>();
+    private Map<Integer, Double> quantizationErrorMap = new HashMap<>();   // max. Änderung des Randresiduums durch Quantisierung
+    private Map<Integer, Long> xBarrierWaitTimeMap = new HashMap<>();      // Wartezeit auf die X-Nachrichten nach dem eigenen X-Update
+    private Map<Integer, Long> dualBarrierWaitTimeMap = new HashMap<>();   // Wartezeit auf die Dual-Nachrichten nach dem eigenen Dual-Update
+    private Map<Integer, String> slowestPeerMap = new HashMap<>();
+    private long rtoBarrierWaitTime; // Wartezeit im aktuellen RTO-Schritt
     
     private Map<Integer, Map<Integer, Double>> rampPenalties = new HashMap<>();
     private Map<Integer, Map<Integer, Double>> demandDeviationPenalties = new HashMap<>();
         
-    private Map<Integer, Map<Integer, Map<Integer, double[]>>> yResiduals;
+    private Map<Integer, ResidualBlock> yResiduals; // Residuals für jede SWO-Iteration
+    private Map<Integer, ResidualBlock> rtoResiduals; // Residuals für jede RTO-Iteration der aktuellen Startperiode
+    private int residualPeriods;
 
     // Neue Variablen zur Speicherung der Parameter
     private Map<Electrolyzer, Double> powerElectrolyzer;
@@ -230,17 +262,12 @@ public class ADMMDataModel {
     // Konstruktor
     public ADMMDataModel() {
         // Initialisiere die HashMaps, um Daten für verschiedene Iterationen zu speichern
-        this.xSWO = new HashMap<>();
-        this.xRTO = new HashMap<>();
-        this.ySWO = new HashMap<>();
-        this.sSWO = new HashMap<>();
-        this.sRTO = new HashMap<>();
-        this.uSWO = new HashMap<>();
-        this.uRTO = new HashMap<>();
-        this.hydrogenProductionSWO = new HashMap<>();
+        this.swoValues = new HashMap<>();
+        this.rtoValues = new HashMap<>();
         xObjectives = new HashMap<>(); 
         yObjectives = new HashMap<>(); 
         yResiduals = new HashMap<>();
+        rtoResiduals = new HashMap<>();
         this.dualVariableEnergyBalance = new HashMap<>();
         this.energyBalanceResult = new HashMap<>();    
     }
@@ -256,6 +283,18 @@ public class ADMMDataModel {
     	energyBalanceResult.put(iteration, value);
     }
     
+    /**
+     * Total electrolyzer energy of all agents in the RTO iteration (slot iteration + 1) from the
+     * collective all-reduce; null if the agent exchanges the x-values instead.
+     */
+    public Double getTotalRTOElectrolyzerEnergy(int iteration) {
+        return totalRTOElectrolyzerEnergy.get(iteration);
+    }
+
+    public void saveTotalRTOElectrolyzerEnergy(int iteration, double energy) {
+        totalRTOElectrolyzerEnergy.put(iteration, energy);
+    }
+
     // Getter für eine spezifische Iteration
     public double getEnergyBalanceDualVariable(int iteration) {
         return dualVariableEnergyBalance.getOrDefault(iteration, 0.0); // Falls nicht vorhanden, Standardwert 0.0
@@ -265,23 +304,31 @@ public class ADMMDataModel {
         dualVariableEnergyBalance.put(iteration, value);
     }
     
-    // Residual-Werte speichern
+    // Residual-Werte speichern (Kopie), eine fehlende Iteration wird angelegt
     public void saveYResiduals(int iteration, int electrolyzerID, int periodIndex, double[] residualValues) {
-        yResiduals.computeIfAbsent(iteration, k -> new HashMap<>())
-                 .computeIfAbsent(electrolyzerID, k -> new HashMap<>())
-                 .put(periodIndex, residualValues);
+        ResidualBlock residuals = yResiduals.get(iteration);
+        if (residuals == null) {
+            residuals = new ResidualBlock(iterateElectrolyzers, residualPeriods);
+            yResiduals.put(iteration, residuals);
+        }
+        residuals.set(electrolyzerID, periodIndex, residualValues);
     }
 
-    // Residual-Werte abrufen
+    // Residual-Werte abrufen (Kopie), null falls die Iteration nicht existiert
     public double[] getYSWOResiduals(int iteration, int electrolyzerID, int periodIndex) {
-        return yResiduals.getOrDefault(iteration, new HashMap<>())
-                        .getOrDefault(electrolyzerID, new HashMap<>())
-                        .getOrDefault(periodIndex, null);
+        ResidualBlock residuals = yResiduals.get(iteration);
+        return residuals != null ? residuals.get(electrolyzerID, periodIndex) : null;
+    }
+
+    // Einzelner Residual-Wert ohne Allokation, 0.0 falls die Iteration nicht existiert
+    public double getYSWOResidual(int iteration, int electrolyzerID, int periodIndex, int residualIndex) {
+        ResidualBlock residuals = yResiduals.get(iteration);
+        return residuals != null ? residuals.get(electrolyzerID, periodIndex, residualIndex) : 0.0;
     }
 
-    // Alle Residual-Werte für eine Iteration abrufen
-    public Map<Integer, Map<Integer, double[]>> getYResidualsForIteration(int iteration) {
-        return yResiduals.getOrDefault(iteration, new HashMap<>());
+    // Alle Residual-Werte für eine Iteration abrufen (Bulk-Zugriff), null falls die Iteration nicht existiert
+    public ResidualBlock getYResidualsForIteration(int iteration) {
+        return yResiduals.get(iteration);
     }
 
     // Prüfen, ob Residuals für eine Iteration gespeichert sind
@@ -289,6 +336,26 @@ public class ADMMDataModel {
         return yResiduals.containsKey(iteration);
     }
 
+    // Residual-Werte einer RTO-Iteration speichern (Kopie), getrennt von den SWO-Iterationen
+    public void saveRTOResiduals(int iteration, int electrolyzerID, int periodIndex, double[] residualValues) {
+        ResidualBlock residuals = rtoResiduals.get(iteration);
+        if (residuals == null) {
+            residuals = new ResidualBlock(iterateElectrolyzers, rtoStepsPerSWO);
+            rtoResiduals.put(iteration, residuals);
+        }
+        residuals.set(electrolyzerID, periodIndex, residualValues);
+    }
+
+    // Einzelner Residual-Wert einer RTO-Iteration, 0.0 falls die Iteration nicht existiert
+    public double getRTOResidual(int iteration, int electrolyzerID, int periodIndex, int residualIndex) {
+        ResidualBlock residuals = rtoResiduals.get(iteration);
+        return residuals != null ? residuals.get(electrolyzerID, periodIndex, residualIndex) : 0.0;
+    }
+
+    public ResidualBlock getRTOResidualsForIteration(int iteration) {
+        return rtoResiduals.get(iteration);
+    }
+
     public void savePrimalResidualForIteration(int iteration, double residual) {
         primalResiduals.put(iteration, residual);
     }
@@ -369,74 +436,26 @@ public class ADMMDataModel {
     
     public double getSSWOValueForAgentPeriod(int iteration, int agentIndex, int periodIndex, int sIndex) {
         // Überprüfen, ob die Iteration existiert
-        if (!sSWO.containsKey(iteration)) {
+        if (!swoValues.containsKey(iteration)) {
             throw new IllegalArgumentException("Iteration " + iteration + " existiert nicht in den S-Werten.");
         }
-
-        // Hole die S-Werte für die aktuelle Iteration
-        double[][][] currentSValues = sSWO.get(iteration);
-
-        // Überprüfen, ob Agenten-, Perioden- und S-Index gültig sind
-        if (agentIndex < 0 || agentIndex >= currentSValues.length) {
-            throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
-        }
-        if (periodIndex < 0 || periodIndex >= currentSValues[agentIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
-        }
-        if (sIndex < 0 || sIndex >= currentSValues[agentIndex][periodIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger S-Index: " + sIndex);
-        }
-
-        // Rückgabe des spezifischen S-Wertes
-        return currentSValues[agentIndex][periodIndex][sIndex];
+        return swoValues.get(iteration).getS(agentIndex, periodIndex, sIndex);
     }
     
     public double getSRTOValueForAgentPeriod(int iteration, int agentIndex, int periodIndex, int sIndex) {
         // Überprüfen, ob die Iteration existiert
-        if (!sRTO.containsKey(iteration)) {
+        if (!rtoValues.containsKey(iteration)) {
             throw new IllegalArgumentException("Iteration " + iteration + " existiert nicht in den S-Werten.");
         }
-
-        // Hole die S-Werte für die aktuelle Iteration
-        double[][][] currentSValues = sRTO.get(iteration);
-
-        // Überprüfen, ob Agenten-, Perioden- und S-Index gültig sind
-        if (agentIndex < 0 || agentIndex >= currentSValues.length) {
-            throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
-        }
-        if (periodIndex < 0 || periodIndex >= currentSValues[agentIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
-        }
-        if (sIndex < 0 || sIndex >= currentSValues[agentIndex][periodIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger S-Index: " + sIndex);
-        }
-
-        // Rückgabe des spezifischen S-Wertes
-        return currentSValues[agentIndex][periodIndex][sIndex];
+        return rtoValues.get(iteration).getS(agentIndex, periodIndex, sIndex);
     }
     
     public double getUValueForAgentPeriod(int iteration, int agentIndex, int periodIndex, int residualIndex) {
         // Überprüfen, ob die Iteration existiert
-        if (!uSWO.containsKey(iteration)) {
+        if (!swoValues.containsKey(iteration)) {
             throw new IllegalArgumentException("Iteration " + iteration + " existiert nicht in den U-Werten.");
         }
-
-        // Hole die U-Werte für die aktuelle Iteration
-        double[][][] currentUValues = uSWO.get(iteration);
-
-        // Überprüfen, ob Agenten-, Perioden- und Residualindex gültig sind
-        if (agentIndex < 0 || agentIndex >= currentUValues.length) {
-            throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
-        }
-        if (periodIndex < 0 || periodIndex >= currentUValues[agentIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
-        }
-        if (residualIndex < 0 || residualIndex >= currentUValues[agentIndex][periodIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger Residualindex: " + residualIndex);
-        }
-
-        // Rückgabe des spezifischen U-Wertes
-        return currentUValues[agentIndex][periodIndex][residualIndex];
+        return swoValues.get(iteration).getU(agentIndex, periodIndex, residualIndex);
     }
 
     // Methode zum Hinzufügen empfangener Nachrichten
@@ -526,6 +545,168 @@ public class ADMMDataModel {
         receivedXMessagesMap.put(iteration, receivedMessages);
     }
 
+    /**
+     * Largest age (in iterations) of a peer's x contribution used in the iteration, 0 if all were current.
+     */
+    public void saveXStalenessForIteration(int iteration, int staleness) {
+        xStalenessMap.put(iteration, staleness);
+    }
+
+    public int getXStalenessForIteration(int iteration) {
+        return xStalenessMap.getOrDefault(iteration, 0);
+    }
+
+    /**
+     * Largest age (in iterations) of a peer's u/s/y contribution used in the iteration, 0 if all were current.
+     */
+    public void saveDualStalenessForIteration(int iteration, int staleness) {
+        dualStalenessMap.put(iteration, staleness);
+    }
+
+    public int getDualStalenessForIteration(int iteration) {
+        return dualStalenessMap.getOrDefault(iteration, 0);
+    }
+
+    /**
+     * Largest number of messages buffered in the agent's mailbox during the iteration.
+     */
+    public void saveMailboxDepthForIteration(int iteration, int depth) {
+        mailboxDepthMap.put(iteration, depth);
+    }
+
+    public int getMailboxDepthForIteration(int iteration) {
+        return mailboxDepthMap.getOrDefault(iteration, 0);
+    }
+
+    /**
+     * Payload statistics of the messages sent and received in the iteration.
+     */
+    public void saveMessageStatisticsForIteration(int iteration, MessageStatistics stats) {
+        compressionRatioMap.put(iteration, stats.getCompressionRatio());
+        messageEncodeTimeMap.put(iteration, stats.getEncodeNanos());
+        messageDecodeTimeMap.put(iteration, stats.getDecodeNanos());
+    }
+
+    public double getCompressionRatioForIteration(int iteration) {
+        return compressionRatioMap.getOrDefault(iteration, 1.0);
+    }
+
+    public long getMessageEncodeTimeForIteration(int iteration) {
+        return messageEncodeTimeMap.getOrDefault(iteration, 0L);
+    }
+
+    public long getMessageDecodeTimeForIteration(int iteration) {
+        return messageDecodeTimeMap.getOrDefault(iteration, 0L);
+    }
+
+    /**
+     * Largest change of a boundary residual of the agent's electrolyzers caused by quantizing x.
+     */
+    public void saveQuantizationErrorForIteration(int iteration, double error) {
+        quantizationErrorMap.put(iteration, error);
+    }
+
+    public double getQuantizationErrorForIteration(int iteration) {
+        return quantizationErrorMap.getOrDefault(iteration, 0.0);
+    }
+
+    /**
+     * Time the agent waited for the X-updates of its peers after its own X-update.
+     */
+    public void saveXBarrierWaitTimeForIteration(int iteration, long waitTime) {
+        xBarrierWaitTimeMap.put(iteration, waitTime);
+    }
+
+    public long getXBarrierWaitTimeForIteration(int iteration) {
+        return xBarrierWaitTimeMap.getOrDefault(iteration, 0L);
+    }
+
+    /**
+     * Time the agent waited for the dual updates of its peers after its own Y-, S- and dual update.
+     */
+    public void saveDualBarrierWaitTimeForIteration(int iteration, long waitTime) {
+        dualBarrierWaitTimeMap.put(iteration, waitTime);
+    }
+
+    public long getDualBarrierWaitTimeForIteration(int iteration) {
+        return dualBarrierWaitTimeMap.getOrDefault(iteration, 0L);
+    }
+
+    /**
+     * Peer whose message completed the last barrier of the iteration.
+     */
+    public void saveSlowestPeerForIteration(int iteration, String peer) {
+        if (peer != null) {
+            slowestPeerMap.put(iteration, peer);
+        }
+    }
+
+    public String getSlowestPeerForIteration(int iteration) {
+        return slowestPeerMap.getOrDefault(iteration, "");
+    }
+
+    /**
+     * Barrier wait time of the current RTO step, written with its results.
+     */
+    public void addRTOBarrierWaitTime(long waitTime) {
+        rtoBarrierWaitTime += waitTime;
+    }
+
+    public long getRTOBarrierWaitTime() {
+        return rtoBarrierWaitTime;
+    }
+
+    public void resetRTOBarrierWaitTime() {
+        rtoBarrierWaitTime = 0;
+    }
+
+    /**
+     * Carries a peer's x and hydrogen production of one (electrolyzer, period) forward from an
+     * older iteration, used by the asynchronous SWO for peers that have not reported yet.
+     */
+    public void copyXSWOValueForPeriod(int fromIteration, int toIteration, int agentIndex, int periodIndex) {
+        Double xValue = getXSWOValueForAgentPeriod(fromIteration, agentIndex, periodIndex);
+        if (xValue == null) {
+            return;
+        }
+        saveXSWOValueForPeriod(toIteration, agentIndex, periodIndex, xValue);
+        double[] hydrogenProduction = getHydrogenSWOProductionForAgent(fromIteration, agentIndex);
+        if (hydrogenProduction != null) {
+            saveHydrogenSWOProductionForPeriod(toIteration, agentIndex, periodIndex, hydrogenProduction[periodIndex]);
+        }
+    }
+
+    /**
+     * Carries a peer's u, s, y (stored under iteration + 1) and y residuals (stored under iteration)
+     * of one (electrolyzer, period) forward from an older iteration.
+     */
+    public void copyDualSWOValuesForPeriod(int fromIteration, int toIteration, int agentIndex, int periodIndex) {
+        if (!swoValues.containsKey(fromIteration + 1) || !swoValues.containsKey(toIteration + 1)) {
+            return;
+        }
+        for (int k = 0; k < 3; k++) {
+            saveUSWOValueForAgentPeriod(toIteration + 1, agentIndex, periodIndex, k,
+                    getUValueForAgentPeriod(fromIteration + 1, agentIndex, periodIndex, k));
+        }
+        for (int k = 0; k < 2; k++) {
+            saveSSWOValueForPeriod(toIteration + 1, agentIndex, periodIndex, k,
+                    getSSWOValueForAgentPeriod(fromIteration + 1, agentIndex, periodIndex, k));
+        }
+        boolean[][] yValues = getYSWOValuesForAgent(fromIteration + 1, agentIndex);
+        if (yValues != null) {
+            saveYSWOValuesForAgentPeriod(toIteration + 1, agentIndex, periodIndex, yValues[periodIndex].clone());
+        }
+        ResidualBlock residuals = yResiduals.get(fromIteration);
+        if (residuals != null) {
+            ResidualBlock target = yResiduals.get(toIteration);
+            if (target == null) {
+                target = new ResidualBlock(iterateElectrolyzers, residualPeriods);
+                yResiduals.put(toIteration, target);
+            }
+            target.copyFrom(residuals, agentIndex, periodIndex);
+        }
+    }
+
     public void saveXUpdateTimeForIteration(int iteration, long xUpdateTime) {
         xUpdateTimeMap.put(iteration, xUpdateTime);
     }
@@ -580,24 +761,10 @@ public class ADMMDataModel {
     }
     
     public boolean getYSWOValueForAgentPeriod(int iteration, int agentIndex, int periodIndex, int stateIndex) {
-        if (!ySWO.containsKey(iteration)) {
+        if (!swoValues.containsKey(iteration)) {
             throw new IllegalArgumentException("Die Iteration " + iteration + " existiert nicht.");
         }
-
-        boolean[][][] yValues = ySWO.get(iteration);
-
-        // Validierung der Indizes
-        if (agentIndex < 0 || agentIndex >= yValues.length) {
-            throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
-        }
-        if (periodIndex < 0 || periodIndex >= yValues[agentIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
-        }
-        if (stateIndex < 0 || stateIndex >= yValues[agentIndex][periodIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger Zustandsindex: " + stateIndex);
-        }
-
-        return yValues[agentIndex][periodIndex][stateIndex];
+        return swoValues.get(iteration).getY(agentIndex, periodIndex, stateIndex);
     }
 
     
@@ -616,31 +783,325 @@ public class ADMMDataModel {
     public void setPhoneBook(List<AID> phoneBook) {
         this.phoneBook = phoneBook;
     }
+
+    /** Version of the AMSAgent's phone book in use, changes with the membership. */
+    public int getPhoneBookVersion() {
+        return phoneBookVersion;
+    }
+
+    public void setPhoneBookVersion(int phoneBookVersion) {
+        this.phoneBookVersion = phoneBookVersion;
+    }
+
+    /**
+     * Delta state of this agent's SWO/RTO messages; the receiving side is needed even if the
+     * agent itself sends full messages.
+     */
+    public MessageDelta getMessageDelta() {
+        if (messageDelta == null) {
+            messageDelta = new MessageDelta(ADMMSettings.getDeltaEpsilon(), ADMMSettings.getDeltaKeyframeInterval());
+        }
+        return messageDelta;
+    }
+
+    /**
+     * Mailbox of the agent, shared by the SWO and RTO cycle so that no buffered message is lost
+     * between them.
+     */
+    public Mailbox getMailbox() {
+        if (mailbox == null) {
+            mailbox = new Mailbox(getMessageDelta(), getMessageStatistics());
+        }
+        return mailbox;
+    }
+
+    /**
+     * Size and encode/decode time of this agent's messages, reset after every SWO iteration.
+     */
+    public MessageStatistics getMessageStatistics() {
+        if (messageStatistics == null) {
+            messageStatistics = new MessageStatistics();
+        }
+        return messageStatistics;
+    }
     
     public void initializeAllIterations(int maxIterations, int numPer) {
         int totalElectrolyzers = this.parameters.getTotalElectrolyzers(); 
+        this.iterateElectrolyzers = totalElectrolyzers;
+        this.iteratePeriods = numPer;
+        this.residualPeriods = Math.max(numPer, rtoStepsPerSWO);
         for (int iteration = 0; iteration < maxIterations; iteration++) {
-            this.xSWO.put(iteration, new double[totalElectrolyzers][numPer]);
-            this.xRTO.put(iteration, new double[totalElectrolyzers][rtoStepsPerSWO]);
-            this.ySWO.put(iteration, new boolean[totalElectrolyzers][numPer][State.values().length]);
-            this.sSWO.put(iteration, new double[totalElectrolyzers][numPer][2]);
-            this.sRTO.put(iteration, new double[totalElectrolyzers][rtoStepsPerSWO][2]);
-            this.uSWO.put(iteration, new double[totalElectrolyzers][numPer][3]);
-            this.uRTO.put(iteration, new double[totalElectrolyzers][rtoStepsPerSWO][4]);
-            this.hydrogenProductionSWO.put(iteration, new double[totalElectrolyzers][numPer]);
-
-            // Initialisiere yResiduals für die aktuelle Iteration
-            Map<Integer, Map<Integer, double[]>> electrolyzerResiduals = new HashMap<>();
-            for (int electrolyzer = 0; electrolyzer < totalElectrolyzers; electrolyzer++) {
-                Map<Integer, double[]> periodResiduals = new HashMap<>();
-                for (int period = 0; period < numPer; period++) {
-                    // Initialisiere ein Array für die 3 Residualwerte
-                    periodResiduals.put(period, new double[3]);
-                }
-                electrolyzerResiduals.put(electrolyzer, periodResiduals);
+            this.yResiduals.put(iteration, new ResidualBlock(totalElectrolyzers, residualPeriods));
+            this.swoValues.put(iteration, IterateBlock.forSWO(totalElectrolyzers, numPer));
+            this.rtoValues.put(iteration, IterateBlock.forRTO(totalElectrolyzers, rtoStepsPerSWO));
+            this.rtoResiduals.put(iteration, new ResidualBlock(totalElectrolyzers, rtoStepsPerSWO));
+        }
+        initializePublication();
+    }
+
+    /**
+     * Alternative to initializeAllIterations: only the most recent iterations are kept in memory,
+     * each is created with zero values on its first access. Iterations leaving the window are
+     * handed to the history sink (if set) and dropped, so the heap does not grow with
+     * MAX_ITERATIONS. Exports contain the iterations still in memory and those the history sink
+     * can read back (MappedIterationHistory).
+     *
+     * The RTO counts its iterations from 0 again in every start period; its window is restarted by
+     * startRTOPeriod(), the history numbers the RTO iterations of all start periods consecutively.
+     *
+     * @param window number of SWO (and RTO) iterations kept in memory
+     */
+    public void initializeIterationWindow(int window, int numPer) {
+        int totalElectrolyzers = this.parameters.getTotalElectrolyzers();
+        this.iterateElectrolyzers = totalElectrolyzers;
+        this.iteratePeriods = numPer;
+        int residualPeriods = Math.max(numPer, rtoStepsPerSWO);
+        this.residualPeriods = residualPeriods;
+
+        swoWindow = new IterationWindow(window, this::retireSWOIteration);
+        this.swoValues = swoWindow.newMap(() -> IterateBlock.forSWO(totalElectrolyzers, numPer));
+        this.yResiduals = swoWindow.newMap(() -> new ResidualBlock(totalElectrolyzers, residualPeriods));
+
+        rtoWindow = new IterationWindow(window, this::retireRTOIteration);
+        this.rtoValues = rtoWindow.newMap(() -> IterateBlock.forRTO(totalElectrolyzers, rtoStepsPerSWO));
+        this.rtoResiduals = rtoWindow.newMap(() -> new ResidualBlock(totalElectrolyzers, rtoStepsPerSWO));
+        rtoSequenceStart = 0;
+
+        initializePublication();
+
+        historyCacheIteration = -1;
+        historyCacheValues = null;
+        if (historySink != null) {
+            try {
+                historySink.open(totalElectrolyzers, numPer, rtoStepsPerSWO, residualPeriods);
+            } catch (IOException e) {
+                System.err.println("Iteration history could not be opened, older iterations are dropped: " + e.getMessage());
+                e.printStackTrace();
+                historySink = null;
+            }
+        }
+
+        System.out.println("Iteration window of " + swoWindow.getCapacity() + " iterations"
+                + (historySink != null ? ", older iterations go to the history sink" : ""));
+    }
+
+    /**
+     * Resets the published iterations; with SNAPSHOT_CHECKS the working state is confined to the
+     * calling thread from now on.
+     */
+    private void initializePublication() {
+        publishedSWO = new PublishedIterations(ADMMSettings.getPublishedIterationsRetained());
+        if (ADMMSettings.isSnapshotChecks()) {
+            Thread writer = Thread.currentThread();
+            swoValues = new WriterConfinedMap<>(swoValues, writer, "SWO values");
+            rtoValues = new WriterConfinedMap<>(rtoValues, writer, "RTO values");
+            yResiduals = new WriterConfinedMap<>(yResiduals, writer, "residuals");
+            rtoResiduals = new WriterConfinedMap<>(rtoResiduals, writer, "RTO residuals");
+            System.out.println("Snapshot checks: working state confined to thread " + writer.getName());
+        }
+    }
+
+    private void retireSWOIteration(int iteration) {
+        IterateBlock values = swoValues.remove(iteration);
+        ResidualBlock residuals = yResiduals.remove(iteration);
+        if (historySink != null && (values != null || residuals != null)) {
+            historySink.appendSWO(iteration, values, residuals);
+        }
+    }
+
+    private void retireRTOIteration(int iteration) {
+        IterateBlock values = rtoValues.remove(iteration);
+        ResidualBlock residuals = rtoResiduals.remove(iteration);
+        if (historySink != null && (values != null || residuals != null)) {
+            historySink.appendRTO(rtoSequenceStart + iteration, values, residuals);
+        }
+    }
+
+    /**
+     * Called before the RTO of the next start period begins with iteration 0. With an iteration
+     * window the iterations of the finished start period go to the history sink and the RTO window
+     * starts over; without it the maps are overwritten by the next start period as before.
+     */
+    public void startRTOPeriod() {
+        if (rtoWindow == null) {
+            return;
+        }
+        int iterations = rtoWindow.getNewestIteration() + 1;
+        rtoWindow.restart();
+        rtoSequenceStart += iterations;
+    }
+
+    /** @return RTO sequence number of iteration 0 of the current start period */
+    public int getRTOSequenceStart() {
+        return rtoSequenceStart;
+    }
+
+    /** Receives the iterations that leave the iteration window; set before the first iteration. */
+    public void setHistorySink(IterationHistorySink historySink) {
+        this.historySink = historySink;
+        this.historyCacheIteration = -1;
+        this.historyCacheValues = null;
+    }
+
+    public IterationHistorySink getHistorySink() {
+        return historySink;
+    }
+
+    /**
+     * Appends the iterations still in the window to the history sink and closes it, so the history
+     * of a finished run is complete. They stay in memory; the sink is detached afterwards.
+     */
+    public void closeHistorySink() {
+        if (historySink == null) {
+            return;
+        }
+        if (swoWindow != null) {
+            for (int iteration = swoWindow.getOldestIteration(); iteration <= swoWindow.getNewestIteration(); iteration++) {
+                historySink.appendSWO(iteration, swoValues.get(iteration), yResiduals.get(iteration));
+            }
+            for (int iteration = rtoWindow.getOldestIteration(); iteration <= rtoWindow.getNewestIteration(); iteration++) {
+                historySink.appendRTO(rtoSequenceStart + iteration, rtoValues.get(iteration), rtoResiduals.get(iteration));
             }
-            this.yResiduals.put(iteration, electrolyzerResiduals);
         }
+        historySink.close();
+        setHistorySink(null);
+    }
+
+    /** @return true if only a window of iterations is kept in memory */
+    public boolean isIterationWindow() {
+        return swoWindow != null;
+    }
+
+    /** @return false if the SWO iteration has left the window and is no longer in memory */
+    public boolean isSWOIterationInMemory(int iteration) {
+        return swoWindow == null || !swoWindow.isRetired(iteration);
+    }
+
+    // Werte einer SWO-Iteration; eine fehlende Iteration wird wie bisher beim Speichern angelegt
+    private IterateBlock swoBlock(int iteration) {
+        IterateBlock block = swoValues.get(iteration);
+        if (block == null) {
+            block = IterateBlock.forSWO(iterateElectrolyzers, iteratePeriods);
+            swoValues.put(iteration, block);
+        }
+        return block;
+    }
+
+    private IterateBlock rtoBlock(int iteration) {
+        IterateBlock block = rtoValues.get(iteration);
+        if (block == null) {
+            block = IterateBlock.forRTO(iterateElectrolyzers, rtoStepsPerSWO);
+            rtoValues.put(iteration, block);
+        }
+        return block;
+    }
+
+    /**
+     * @return the values stored under the SWO iteration, for loops over the bulk views; null if
+     *         the iteration does not exist
+     */
+    public IterateBlock getSWOValues(int iteration) {
+        return swoValues.get(iteration);
+    }
+
+    /** @return the values stored under the RTO iteration, null if the iteration does not exist */
+    public IterateBlock getRTOValues(int iteration) {
+        return rtoValues.get(iteration);
+    }
+
+    // ============================================================================
+    // PUBLISHED ITERATIONS (immutable snapshots for other threads)
+    // ============================================================================
+
+    /**
+     * Publishes an immutable copy of all values stored under the SWO iteration; other threads read
+     * it through getPublishedSWO(). Agent thread only.
+     */
+    public IterationSnapshot publishSWOValues(int iteration) {
+        return publishSWOValues(iteration, EnumSet.allOf(IterationSnapshot.Part.class));
+    }
+
+    /**
+     * Publishes a copy of some quantities of the SWO iteration, e.g. x while the iteration is
+     * still in progress; replaces an earlier snapshot of the iteration.
+     */
+    public IterationSnapshot publishSWOValues(int iteration, Set<IterationSnapshot.Part> parts) {
+        IterateBlock block = swoValues.get(iteration);
+        if (block == null) {
+            throw new IllegalStateException("SWO iteration " + iteration + " is not in memory and cannot be published");
+        }
+        IterationSnapshot snapshot = IterationSnapshot.capture(iteration, block, parts);
+        publishedSWO.publish(snapshot);
+        return snapshot;
+    }
+
+    /** @return the published SWO iterations, readable from any thread without locks */
+    public PublishedIterations getPublishedSWO() {
+        return publishedSWO;
+    }
+
+    // ============================================================================
+    // ITERATIONS IN MEMORY AND IN THE HISTORY (for the exports)
+    // ============================================================================
+
+    /** @return the SWO iterations in memory or in the history sink, ascending */
+    public List<Integer> swoIterations() {
+        TreeSet<Integer> iterations = new TreeSet<>(swoValues.keySet());
+        if (historySink != null) {
+            iterations.addAll(historySink.getSWOIterations());
+        }
+        return new ArrayList<>(iterations);
+    }
+
+    /**
+     * @return the RTO iterations in memory or in the history sink, ascending; with an iteration
+     *         window these are RTO sequence numbers, i.e. the iterations of earlier start periods
+     *         come first (see startRTOPeriod())
+     */
+    public List<Integer> rtoIterations() {
+        TreeSet<Integer> iterations = new TreeSet<>();
+        for (Integer iteration : rtoValues.keySet()) {
+            iterations.add(rtoSequenceStart + iteration);
+        }
+        if (historySink != null) {
+            iterations.addAll(historySink.getRTOIterations());
+        }
+        return new ArrayList<>(iterations);
+    }
+
+    /**
+     * @return the values stored under the SWO iteration, read back from the history sink if the
+     *         iteration has left the window; null if neither has it. Not for the SWO itself: a
+     *         block from the history is a copy.
+     */
+    public IterateBlock swoValuesOrHistory(int iteration) {
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null || historySink == null) {
+            return block;
+        }
+        // Die Export-Getter lesen dieselbe Iteration mehrfach hintereinander
+        if (iteration != historyCacheIteration) {
+            historyCacheValues = historySink.readSWO(iteration);
+            historyCacheIteration = iteration;
+        }
+        return historyCacheValues;
+    }
+
+    /** @param sequence RTO sequence number as returned by rtoIterations() */
+    public IterateBlock rtoValuesOrHistory(int sequence) {
+        IterateBlock block = sequence >= rtoSequenceStart ? rtoValues.get(sequence - rtoSequenceStart) : null;
+        return block != null || historySink == null ? block : historySink.readRTO(sequence);
+    }
+
+    /** @param sequence RTO sequence number as returned by rtoIterations() */
+    public ResidualBlock rtoResidualsOrHistory(int sequence) {
+        ResidualBlock residuals = sequence >= rtoSequenceStart ? rtoResiduals.get(sequence - rtoSequenceStart) : null;
+        return residuals != null || historySink == null ? residuals : historySink.readRTOResiduals(sequence);
+    }
+
+    public ResidualBlock swoResidualsOrHistory(int iteration) {
+        ResidualBlock residuals = yResiduals.get(iteration);
+        return residuals != null || historySink == null ? residuals : historySink.readResiduals(iteration);
     }
 
     // Methode zum Speichern der Feasibility für eine Iteration
@@ -664,182 +1125,103 @@ public class ADMMDataModel {
 	    }
 	    
 	    public Double getXSWOValueForAgentPeriod(int iteration, int agentIndex, int periodIndex) {
-	        if (xSWO.containsKey(iteration)) {
-	            double[][] xValues = xSWO.get(iteration);
-	            if (agentIndex >= 0 && agentIndex < xValues.length && periodIndex >= 0 && periodIndex < xValues[agentIndex].length) {
-	                return xValues[agentIndex][periodIndex]; // Gibt den X-Wert für den Agenten in der spezifischen Periode zurück
-	            }
+	        IterateBlock block = swoValues.get(iteration);
+	        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers() && periodIndex >= 0 && periodIndex < block.getPeriods()) {
+	            return block.getX(agentIndex, periodIndex); // Gibt den X-Wert für den Agenten in der spezifischen Periode zurück
 	        }
 	        return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
 	    }
 	    
 	    public Double getXRTOValueForAgentPeriod(int iteration, int agentIndex, int periodIndex) {
-	        if (xRTO.containsKey(iteration)) {
-	            double[][] xValues = xRTO.get(iteration);
-	            if (agentIndex >= 0 && agentIndex < xValues.length && periodIndex >= 0 && periodIndex < xValues[agentIndex].length) {
-	                return xValues[agentIndex][periodIndex]; // Gibt den X-Wert für den Agenten in der spezifischen Periode zurück
-	            }
+	        IterateBlock block = rtoValues.get(iteration);
+	        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers() && periodIndex >= 0 && periodIndex < block.getPeriods()) {
+	            return block.getX(agentIndex, periodIndex); // Gibt den X-Wert für den Agenten in der spezifischen Periode zurück
 	        }
 	        return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
 	    }
     
 	    public void saveSSWOValuesForAgent(int iteration, int agentIndex, double[][] sValues) {
 	        // Ensure the iteration exists
-	        if (!sSWO.containsKey(iteration)) {
+	        if (!swoValues.containsKey(iteration)) {
 	            throw new IllegalArgumentException("Iteration " + iteration + " does not exist in the data.");
 	        }
-
-	        // Retrieve S values for the current iteration
-	        double[][][] currentSValues = sSWO.get(iteration);
-
-	        // Validate agent index
-	        if (agentIndex < 0 || agentIndex >= currentSValues.length) {
-	            throw new IndexOutOfBoundsException("Invalid agent index: " + agentIndex);
-	        }
-
-	        // Update the S values for the specific agent and clone each period's array to avoid reference issues
-	        for (int periodIndex = 0; periodIndex < sValues.length; periodIndex++) {
-	            currentSValues[agentIndex][periodIndex] = sValues[periodIndex].clone();
-	        }
-
-	        // Set the updated S values back in the map
-	        sSWO.put(iteration, currentSValues);
+	        // Copies the S values of the agent into the iteration
+	        swoValues.get(iteration).setSRow(agentIndex, sValues);
 	    }
 
     
     // New method to save Y values for a specific agent in a specific iteration
     public void saveYSWOValuesForAgent(int iteration, int agentIndex, boolean[][] yValues) {
-        // Check if the Y map already contains the key for the specified iteration
-        if (!ySWO.containsKey(iteration)) {
-            // Initialize the array for the current iteration if it does not exist
-            int numAgents = xSWO.get(0).length;
-            int numPeriods = xSWO.get(0)[0].length;
-            ySWO.put(iteration, new boolean[numAgents][numPeriods][State.values().length]);
-        }
-
-        // Get the Y values for the current iteration
-        boolean[][][] iterationYValues = ySWO.get(iteration);
-
-        // Update the Y values for the specific agent
-        iterationYValues[agentIndex] = yValues;
-
-        // Save the updated Y values back into the map
-        ySWO.put(iteration, iterationYValues);
+        // Creates the iteration if it does not exist and copies the Y values of the agent
+        swoBlock(iteration).setYRow(agentIndex, yValues);
     }
     
     public void saveXSWOValuesForAgent(int iteration, int agentIndex, double[] xValues) {
-        if (xSWO.containsKey(iteration)) {
-            double[][] currentX = xSWO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < currentX.length) {
-                currentX[agentIndex] = xValues;
-            }
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            block.setXRow(agentIndex, xValues);
         }
     }
     
     public void saveXRTOValuesForAgent(int iteration, int agentIndex, double[] xValues) {
-        if (xRTO.containsKey(iteration)) {
-            double[][] currentX = xRTO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < currentX.length) {
-                currentX[agentIndex] = xValues;
-            }
+        IterateBlock block = rtoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            block.setXRow(agentIndex, xValues);
         }
     }
     
  // Methode zum Speichern eines X-Wertes für eine bestimmte Iteration, Agenten und Periode
     public void saveXSWOValueForPeriod(int iteration, int agentIndex, int periodIndex, double xValue) {
-        // Initialisiere die Iteration, falls sie noch nicht existiert
-        if (!xSWO.containsKey(iteration)) {
-            int numAgents = xSWO.get(0).length; // Anzahl der Agenten
-            int numPeriods = xSWO.get(0)[0].length; // Anzahl der Perioden
-            xSWO.put(iteration, new double[numAgents][numPeriods]);
-        }
-
-        xSWO.get(iteration)[agentIndex][periodIndex] = xValue;
+        // Initialisiert die Iteration, falls sie noch nicht existiert
+        swoBlock(iteration).setX(agentIndex, periodIndex, xValue);
     }
     
     // Methode zum Speichern eines X-Wertes für eine bestimmte Iteration, Agenten und Periode
     public void saveXRTOValueForPeriod(int iteration, int agentIndex, int periodIndex, double xValue) {
-        // Initialisiere die Iteration, falls sie noch nicht existiert
-        if (!xRTO.containsKey(iteration)) {
-            int numAgents = xRTO.get(0).length; // Anzahl der Agenten
-            int numPeriods = xRTO.get(0)[0].length; // Anzahl der Perioden
-            xRTO.put(iteration, new double[numAgents][numPeriods]);
-        }
-
-        xRTO.get(iteration)[agentIndex][periodIndex] = xValue;
+        // Initialisiert die Iteration, falls sie noch nicht existiert
+        rtoBlock(iteration).setX(agentIndex, periodIndex, xValue);
     }
     
  // Method to save an S value for a specific iteration, agent, period, and index
     public void saveSSWOValueForPeriod(int iteration, int agentIndex, int periodIndex, int sIndex, double sValue) {
-        // Initialize the iteration if it doesn't exist yet
-        if (!sSWO.containsKey(iteration)) {
-            int numAgents = sSWO.get(0).length; // Number of agents
-            int numPeriods = sSWO.get(0)[0].length; // Number of periods
-            sSWO.put(iteration, new double[numAgents][numPeriods][2]); // Assuming there are 2 S values (S1, S2) per period
-        }
-
-        // Save the S value for the given agent, period, and S index
-        sSWO.get(iteration)[agentIndex][periodIndex][sIndex] = sValue;
+        // Initializes the iteration if it doesn't exist yet
+        swoBlock(iteration).setS(agentIndex, periodIndex, sIndex, sValue);
     }
     
     public void saveSRTOValueForPeriod(int iteration, int agentIndex, int periodIndex, int sIndex, double sValue) {
-        // Initialize the iteration if it doesn't exist yet
-        if (!sRTO.containsKey(iteration)) {
-            int numAgents = sRTO.get(0).length; // Number of agents
-            int numPeriods = sRTO.get(0)[0].length; // Number of periods
-            sRTO.put(iteration, new double[numAgents][numPeriods][2]); // Assuming there are 2 S values (S1, S2) per period
-        }
-
-        // Save the S value for the given agent, period, and S index
-        sRTO.get(iteration)[agentIndex][periodIndex][sIndex] = sValue;
+        // Initializes the iteration if it doesn't exist yet
+        rtoBlock(iteration).setS(agentIndex, periodIndex, sIndex, sValue);
     }
 
     
  // Methode zum Speichern der HydrogenProduction für eine bestimmte Iteration, einen Agenten und eine Periode
     public void saveHydrogenSWOProductionForPeriod(int iteration, int agentIndex, int periodIndex, double hydrogenProductionValue) {
-        if (!hydrogenProductionSWO.containsKey(iteration)) {
-            // Initialisiere die Iteration, wenn sie noch nicht existiert
-            int numAgents = hydrogenProductionSWO.get(0).length; // Anzahl der Agenten
-            int numPeriods = hydrogenProductionSWO.get(0)[0].length; // Anzahl der Perioden
-            hydrogenProductionSWO.put(iteration, new double[numAgents][numPeriods]);
-        }
-
         // Speichere den HydrogenProduction-Wert für den Agenten in der entsprechenden Periode
-        hydrogenProductionSWO.get(iteration)[agentIndex][periodIndex] = hydrogenProductionValue;
+        swoBlock(iteration).setHydrogen(agentIndex, periodIndex, hydrogenProductionValue);
     }
     
  // Methode zum Speichern der X-Werte für eine bestimmte Iteration und einen Agenten
     public void saveXSWOValuesForIteration(int iteration, int agentIndex, double[] xValuesForAgent) {
-        if (!xSWO.containsKey(iteration)) {
-            // Initialisiere die Iteration, wenn sie noch nicht existiert
-            int numAgents = xSWO.get(0).length; // Anzahl der Agenten
-            int numPeriods = xValuesForAgent.length; // Anzahl der optimierten Perioden
-            xSWO.put(iteration, new double[numAgents][numPeriods]);
-        }
-
         // Speichere die X-Werte für den Agenten in der entsprechenden Iteration
-        double[][] iterationXValues = xSWO.get(iteration);
-        System.arraycopy(xValuesForAgent, 0, iterationXValues[agentIndex], 0, xValuesForAgent.length);
+        swoBlock(iteration).setXRow(agentIndex, xValuesForAgent);
     }
 
     // Methode zum Speichern der Wasserstoffproduktionsmenge für einen bestimmten Agenten und eine bestimmte Iteration
     public void saveHydrogenProductionForAgent(int iteration, int agentIndex, double[] productionValues) {
-        if (hydrogenProductionSWO.containsKey(iteration)) {
-            double[][] currentProduction = hydrogenProductionSWO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < currentProduction.length) {
-                currentProduction[agentIndex] = productionValues;
-            }
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            block.setHydrogenRow(agentIndex, productionValues);
         }
     }
     
     public String getAllXValuesForIteration(int iteration, String agentName) {
         // Überprüfen, ob die Iteration in der Map existiert
-        if (!xSWO.containsKey(iteration)) {
+        if (!swoValues.containsKey(iteration)) {
             return "Die angegebene Iteration " + iteration + " existiert nicht.";
         }
 
         // X-Werte für die angegebene Iteration abrufen
-        double[][] xValuesForIteration = xSWO.get(iteration);
+        double[][] xValuesForIteration = swoValues.get(iteration).xMatrix();
 
         // StringBuilder zum Sammeln der Ausgabe
         StringBuilder result = new StringBuilder();
@@ -860,21 +1242,20 @@ public class ADMMDataModel {
 
     // Methode zum Speichern der Wasserstoffproduktionsmenge für eine bestimmte Iteration
     public void saveHydrogenProductionForIteration(int iteration, double[][] productionValues) {
-        hydrogenProductionSWO.put(iteration, productionValues);
+        swoBlock(iteration).setHydrogenMatrix(productionValues);
     }
 
     // Methode zum Abrufen der Wasserstoffproduktionsmenge für eine bestimmte Iteration
     public double[][] getHydrogenProductionForIteration(int iteration) {
-        return hydrogenProductionSWO.get(iteration);
+        IterateBlock block = swoValues.get(iteration);
+        return block != null ? block.hydrogenMatrix() : null;
     }
     
     // Methode zum Abrufen der Wasserstoffproduktionsmenge für einen bestimmten Agenten und eine bestimmte Iteration
     public double[] getHydrogenSWOProductionForAgent(int iteration, int agentIndex) {
-        if (hydrogenProductionSWO.containsKey(iteration)) {
-            double[][] productionValues = hydrogenProductionSWO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < productionValues.length) {
-                return productionValues[agentIndex];
-            }
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getHydrogenRow(agentIndex);
         }
         return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
     }
@@ -912,7 +1293,7 @@ public class ADMMDataModel {
 
         // Adding headers for each agent and period combination
         for (int agentIndex = 0; agentIndex < 10; agentIndex++) {
-            for (int periodIndex = 0; periodIndex < xSWO.get(0)[agentIndex].length; periodIndex++) {
+            for (int periodIndex = 0; periodIndex < iteratePeriods; periodIndex++) {
                 String baseHeader = "A" + agentIndex + "_P" + (periodIndex + 1) + "_";  // Periodenindex um 1 erhöhen
                 headerRow.createCell(headerColumn++).setCellValue(baseHeader + "X");
                 headerRow.createCell(headerColumn++).setCellValue(baseHeader + "Y");
@@ -932,7 +1313,8 @@ public class ADMMDataModel {
 
         // Fülle die Zeilen mit den Werten
         int rowNum = 1;
-        for (Integer iteration : xSWO.keySet()) {
+        for (Integer iteration : swoIterations()) {
+            IterateBlock values = swoValuesOrHistory(iteration);
             Row row = sheet.createRow(rowNum++);
             int colNum = 0;
 
@@ -957,16 +1339,16 @@ public class ADMMDataModel {
 
             // Iteriere über die Agenten und Perioden, um die X, Y, S, U und HydrogenProduction zu schreiben
             for (int agentIndex = 0; agentIndex < 10; agentIndex++) {
-                for (int periodIndex = 0; periodIndex < xSWO.get(iteration)[agentIndex].length; periodIndex++) {
+                for (int periodIndex = 0; periodIndex < values.getPeriods(); periodIndex++) {
                     // X-Wert
                     Cell cellX = row.createCell(colNum++);
-                    cellX.setCellValue(xSWO.get(iteration)[agentIndex][periodIndex]);
+                    cellX.setCellValue(values.getX(agentIndex, periodIndex));
                     cellX.setCellStyle(decimalStyle);
 
                     // Aktiver Y-Zustand
                     String activeState = "None";
                     for (State state : State.values()) {
-                        if (ySWO.get(iteration)[agentIndex][periodIndex][state.ordinal()]) {
+                        if (values.getY(agentIndex, periodIndex, state.ordinal())) {
                             activeState = state.name();
                             break;
                         }
@@ -976,23 +1358,23 @@ public class ADMMDataModel {
 
                     // S-Werte
                     Cell cellS1 = row.createCell(colNum++);
-                    cellS1.setCellValue(sSWO.get(iteration)[agentIndex][periodIndex][0]);
+                    cellS1.setCellValue(values.getS(agentIndex, periodIndex, 0));
                     cellS1.setCellStyle(decimalStyle);
 
                     Cell cellS2 = row.createCell(colNum++);
-                    cellS2.setCellValue(sSWO.get(iteration)[agentIndex][periodIndex][1]);
+                    cellS2.setCellValue(values.getS(agentIndex, periodIndex, 1));
                     cellS2.setCellStyle(decimalStyle);
 
                     // U-Werte
                     for (int i = 0; i < 3; i++) {
                         Cell cellU = row.createCell(colNum++);
-                        cellU.setCellValue(uSWO.get(iteration)[agentIndex][periodIndex][i]);
+                        cellU.setCellValue(values.getU(agentIndex, periodIndex, i));
                         cellU.setCellStyle(decimalStyle);
                     }
 
                     // Wasserstoffproduktionswert
                     Cell cellHydrogen = row.createCell(colNum++);
-                    cellHydrogen.setCellValue(hydrogenProductionSWO.get(iteration)[agentIndex][periodIndex]);
+                    cellHydrogen.setCellValue(values.getHydrogen(agentIndex, periodIndex));
                     cellHydrogen.setCellStyle(decimalStyle);
                 }
             }
@@ -1023,7 +1405,7 @@ public class ADMMDataModel {
 
         // Adding headers for the first 30 agents and all periods
         for (int agentIndex = 0; agentIndex < 30; agentIndex++) {  // Nur die ersten 30 Elektrolyseure
-            for (int periodIndex = 0; periodIndex < xSWO.get(0)[agentIndex].length; periodIndex++) {
+            for (int periodIndex = 0; periodIndex < iteratePeriods; periodIndex++) {
                 String baseHeader = "A" + agentIndex + "_P" + (periodIndex + 1) + "_";  // Periodenindex um 1 erhöhen
                 headerRow.createCell(headerColumn++).setCellValue(baseHeader + "X");
                 headerRow.createCell(headerColumn++).setCellValue(baseHeader + "Y");
@@ -1039,7 +1421,8 @@ public class ADMMDataModel {
 
         // Fülle die Zeilen mit den Werten
         int rowNum = 1;
-        for (Integer iteration : xSWO.keySet()) {
+        for (Integer iteration : swoIterations()) {
+            IterateBlock values = swoValuesOrHistory(iteration);
             Row row = sheet.createRow(rowNum++);
             int colNum = 0;
             
@@ -1048,16 +1431,16 @@ public class ADMMDataModel {
 
             // Iteriere über die ersten 30 Agenten und Perioden, um die X, Y, und S Werte zu schreiben
             for (int agentIndex = 0; agentIndex < 30; agentIndex++) {  // Nur die ersten 30 Elektrolyseure
-                for (int periodIndex = 0; periodIndex < xSWO.get(iteration)[agentIndex].length; periodIndex++) {
+                for (int periodIndex = 0; periodIndex < values.getPeriods(); periodIndex++) {
                     // X-Wert
                     Cell cellX = row.createCell(colNum++);
-                    cellX.setCellValue(xSWO.get(iteration)[agentIndex][periodIndex]);
+                    cellX.setCellValue(values.getX(agentIndex, periodIndex));
                     cellX.setCellStyle(decimalStyle);
 
                     // Aktiver Y-Zustand
                     String activeState = "None";
                     for (State state : State.values()) {
-                        if (ySWO.get(iteration)[agentIndex][periodIndex][state.ordinal()]) {
+                        if (values.getY(agentIndex, periodIndex, state.ordinal())) {
                             activeState = state.name();
                             break;
                         }
@@ -1067,11 +1450,11 @@ public class ADMMDataModel {
 
                     // S-Werte
                     Cell cellS1 = row.createCell(colNum++);
-                    cellS1.setCellValue(sSWO.get(iteration)[agentIndex][periodIndex][0]);
+                    cellS1.setCellValue(values.getS(agentIndex, periodIndex, 0));
                     cellS1.setCellStyle(decimalStyle);
 
                     Cell cellS2 = row.createCell(colNum++);
-                    cellS2.setCellValue(sSWO.get(iteration)[agentIndex][periodIndex][1]);
+                    cellS2.setCellValue(values.getS(agentIndex, periodIndex, 1));
                     cellS2.setCellStyle(decimalStyle);
                 }
             }
@@ -1093,9 +1476,10 @@ public class ADMMDataModel {
     
  // Method to print S1 and S2 values for each agent across all iterations
     public void printSValuesForAllIterations() {
-        for (Integer iteration : sSWO.keySet()) {
+        for (Integer iteration : swoIterations()) {
+            IterateBlock values = swoValuesOrHistory(iteration);
             System.out.println("Iteration: " + iteration);
-            double[][][] sValuesForIteration = sSWO.get(iteration);
+            double[][][] sValuesForIteration = values.sMatrix();
             
             for (int agentIndex = 0; agentIndex < sValuesForIteration.length; agentIndex++) {
                 System.out.println("  Agent " + (agentIndex + 1) + ":");
@@ -1111,229 +1495,164 @@ public class ADMMDataModel {
     }
     
     public double[][] getXSWOValuesForIteration(int iteration) {
-        return xSWO.get(iteration);
+        IterateBlock block = swoValuesOrHistory(iteration);
+        return block != null ? block.xMatrix() : null;
     }
     
     public double[][] getXRTOValuesForIteration(int iteration) {
-        return xRTO.get(iteration);
+        IterateBlock block = rtoValuesOrHistory(iteration);
+        return block != null ? block.xMatrix() : null;
     }
 
     public boolean[][][] getYSWOValuesForIteration(int iteration) {
-        if (!ySWO.containsKey(iteration)) {
-            ySWO.put(iteration, new boolean[0][][]); // Initialisiert mit leeren Werten, falls nötig
+        IterateBlock block = swoValuesOrHistory(iteration);
+        if (block == null) {
+            return isSWOIterationInMemory(iteration) ? new boolean[0][][] : null; // Leere Werte, falls nötig
         }
-        return ySWO.get(iteration);
+        return block.yMatrix();
     }
     
 
     public double[][][] getSSWOValuesForIteration(int iteration) {
-        return sSWO.get(iteration);
+        IterateBlock block = swoValuesOrHistory(iteration);
+        return block != null ? block.sMatrix() : null;
     }
     
     public double[][][] getSRTOValuesForIteration(int iteration) {
-        return sRTO.get(iteration);
+        IterateBlock block = rtoValuesOrHistory(iteration);
+        return block != null ? block.sMatrix() : null;
     }
 
     public double[][][] getUSWOValuesForIteration(int iteration) {
-        return uSWO.get(iteration);
+        IterateBlock block = swoValuesOrHistory(iteration);
+        return block != null ? block.uMatrix() : null;
     }
     
     public double[][][] getURTOValuesForIteration(int iteration) {
-        return uRTO.get(iteration);
+        IterateBlock block = rtoValuesOrHistory(iteration);
+        return block != null ? block.uMatrix() : null;
     }
     
  // Methode zum Speichern der X-Werte für eine bestimmte Iteration
     public void saveXValuesForIteration(int iteration, double[][] xValues) {
-        xSWO.put(iteration, xValues);
+        swoBlock(iteration).setXMatrix(xValues);
     }
     
  // Methode zum Speichern der Y-Werte für eine bestimmte Iteration
     public void saveYValuesForIteration(int iteration, boolean[][][] yValues) {
-        ySWO.put(iteration, yValues);
+        swoBlock(iteration).setYMatrix(yValues);
     }
     
  // Methode zum Speichern der S-Werte für eine bestimmte Iteration
     public void saveSValuesForIteration(int iteration, double[][][] sValues) {
-        sSWO.put(iteration, sValues);
+        swoBlock(iteration).setSMatrix(sValues);
     }
 
  // Methode zum Speichern der U-Werte für eine bestimmte Iteration
     public void saveUValuesForIteration(int iteration, double[][][] uValues) {
-        uSWO.put(iteration, uValues);
+        swoBlock(iteration).setUMatrix(uValues);
     }
     
     public double[] getXSWOValuesForAgent(int iteration, int agentIndex) {
-        if (xSWO.containsKey(iteration)) {
-            double[][] xValues = xSWO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < xValues.length) {
-                return xValues[agentIndex]; // Gibt alle X-Werte für den Agenten in allen Perioden zurück
-            }
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getXRow(agentIndex); // Kopie der Werte des Agenten in allen Perioden
         }
         return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
     }
     
     public double[] getXRTOValuesForAgent(int iteration, int agentIndex) {
-        if (xRTO.containsKey(iteration)) {
-            double[][] xValues = xRTO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < xValues.length) {
-                return xValues[agentIndex]; // Gibt alle X-Werte für den Agenten in allen Perioden zurück
-            }
+        IterateBlock block = rtoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getXRow(agentIndex); // Kopie der Werte des Agenten in allen Perioden
         }
         return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
     }
 
     public boolean[][] getYSWOValuesForAgent(int iteration, int agentIndex) {
-        if (!ySWO.containsKey(iteration)) {
-            // Wenn die Iteration noch nicht existiert, initialisiere die Y-Werte für diese Iteration
-            int numAgents = xSWO.get(0).length; // Anzahl der Agenten
-            int numPeriods = xSWO.get(0)[0].length; // Anzahl der Perioden
-            ySWO.put(iteration, new boolean[numAgents][numPeriods][State.values().length]);
-        }
-
-        boolean[][][] yValues = ySWO.get(iteration);
-        
-        // Wenn der agentIndex gültig ist, gib die Y-Werte für den Agenten zurück
-        if (agentIndex >= 0 && agentIndex < yValues.length) {
-            return yValues[agentIndex];
+        // Wenn die Iteration noch nicht existiert, werden die Y-Werte für diese Iteration initialisiert
+        IterateBlock block = swoBlock(iteration);
+    
+        // Wenn der agentIndex gültig ist, gib eine Kopie der Y-Werte für den Agenten zurück
+        if (agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getYRow(agentIndex);
         }
-        
+    
         return null; // Oder eine Exception werfen, wenn der Agentenindex ungültig ist
     }
 
 
     public double[][] getSSWOValuesForAgent(int iteration, int agentIndex) {
-        if (sSWO.containsKey(iteration)) {
-            double[][][] sValues = sSWO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < sValues.length) {
-                return sValues[agentIndex];
-            }
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getSRow(agentIndex); // Kopie der Werte des Agenten in allen Perioden
         }
-        return null; 
+        return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
     }
     
     
     public double[][] getSRTOValuesForAgent(int iteration, int agentIndex) {
-        if (sRTO.containsKey(iteration)) {
-            double[][][] sValues = sRTO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < sValues.length) {
-                return sValues[agentIndex];
-            }
+        IterateBlock block = rtoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getSRow(agentIndex); // Kopie der Werte des Agenten in allen Perioden
         }
         return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
     }
     
  // Methode zum Abrufen der U-Werte eines bestimmten Agenten für eine bestimmte Iteration
     public double[][] getUSWOValuesForAgent(int iteration, int agentIndex) {
-        if (uSWO.containsKey(iteration)) {
-            double[][][] uValues = uSWO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < uValues.length) {
-                return uValues[agentIndex];
-            }
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getURow(agentIndex); // Kopie der Werte des Agenten in allen Perioden
         }
         return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
     }
     
     // Methode zum Abrufen der U-Werte eines bestimmten Agenten für eine bestimmte Iteration
     public double[][] getURTOValuesForAgent(int iteration, int agentIndex) {
-        if (uRTO.containsKey(iteration)) {
-            double[][][] uValues = uRTO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < uValues.length) {
-                return uValues[agentIndex];
-            }
+        IterateBlock block = rtoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            return block.getURow(agentIndex); // Kopie der Werte des Agenten in allen Perioden
         }
         return null; // Oder eine Exception werfen, wenn die Werte nicht existieren
     }
     
     public void saveUSWOValuesForAgent(int iteration, int agentIndex, double[][] uValues) {
-    	if (uSWO.containsKey(iteration)) {
-            double[][][] currentU = uSWO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < currentU.length) {
-                currentU[agentIndex] = uValues;
-            }
+        IterateBlock block = swoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            block.setURow(agentIndex, uValues);
         }
     }
     
     public void saveURTOValuesForAgent(int iteration, int agentIndex, double[][] uValues) {
-    	if (uRTO.containsKey(iteration)) {
-            double[][][] currentU = uRTO.get(iteration);
-            if (agentIndex >= 0 && agentIndex < currentU.length) {
-                currentU[agentIndex] = uValues;
-            }
+        IterateBlock block = rtoValues.get(iteration);
+        if (block != null && agentIndex >= 0 && agentIndex < block.getElectrolyzers()) {
+            block.setURow(agentIndex, uValues);
         }
     }
     
     
     public void saveUSWOValueForAgentPeriod(int iteration, int agentIndex, int periodIndex, int residualIndex, double uValue) {
         // Stelle sicher, dass die Iteration existiert
-        if (!uSWO.containsKey(iteration)) {
+        if (!swoValues.containsKey(iteration)) {
             throw new IllegalArgumentException("Iteration " + iteration + " does not exist in the data.");
         }
-
-        // Hole die U-Werte für die aktuelle Iteration
-        double[][][] currentUValues = uSWO.get(iteration);
-
-        // Überprüfe, ob der agentIndex und periodIndex gültig sind
-        if (agentIndex < 0 || agentIndex >= currentUValues.length) {
-            throw new IndexOutOfBoundsException("Invalid agent index: " + agentIndex);
-        }
-        if (periodIndex < 0 || periodIndex >= currentUValues[agentIndex].length) {
-            throw new IndexOutOfBoundsException("Invalid period index: " + periodIndex);
-        }
-        if (residualIndex < 0 || residualIndex >= currentUValues[agentIndex][periodIndex].length) {
-            throw new IndexOutOfBoundsException("Invalid residual index: " + residualIndex);
-        }
-
         // Speichere den U-Wert für den spezifischen Agenten, Periode und Residual-Index
-        currentUValues[agentIndex][periodIndex][residualIndex] = uValue;
-
-        // Setze die aktualisierten U-Werte zurück in die Map
-        uSWO.put(iteration, currentUValues);
+        swoValues.get(iteration).setU(agentIndex, periodIndex, residualIndex, uValue);
     }
     
     public void saveURTOValueForAgentPeriod(int iteration, int agentIndex, int periodIndex, int residualIndex, double uValue) {
-    	
-        if (!uRTO.containsKey(iteration)) {
+        // Stelle sicher, dass die Iteration existiert
+        if (!rtoValues.containsKey(iteration)) {
             throw new IllegalArgumentException("Iteration " + iteration + " does not exist in the data.");
         }
-        // Hole die U-Werte für die aktuelle Iteration
-        double[][][] currentUValues = uRTO.get(iteration);
-
-        // Überprüfe, ob der agentIndex und periodIndex gültig sind
-        if (agentIndex < 0 || agentIndex >= currentUValues.length) {
-            throw new IndexOutOfBoundsException("Invalid agent index: " + agentIndex);
-        }
-        if (periodIndex < 0 || periodIndex >= currentUValues[agentIndex].length) {
-            throw new IndexOutOfBoundsException("Invalid period index: " + periodIndex);
-        }
-        if (residualIndex < 0 || residualIndex >= currentUValues[agentIndex][periodIndex].length) {
-            throw new IndexOutOfBoundsException("Invalid residual index: " + residualIndex);
-        }
-
         // Speichere den U-Wert für den spezifischen Agenten, Periode und Residual-Index
-        currentUValues[agentIndex][periodIndex][residualIndex] = uValue;
-
-        // Setze die aktualisierten U-Werte zurück in die Map
-        uRTO.put(iteration, currentUValues);
+        rtoValues.get(iteration).setU(agentIndex, periodIndex, residualIndex, uValue);
     }
     
     public void saveYSWOValuesForAgentPeriod(int iteration, int agentIndex, int periodIndex, boolean[] yValues) {
-        // Sicherstellen, dass die Iteration in der Y-Struktur existiert
-        if (!ySWO.containsKey(iteration)) {
-            int numAgents = parameters.getTotalElectrolyzers(); // Annahme: Gesamtanzahl der Agenten aus den Parametern
-            int numPeriods = parameters.getPeriods().size(); // Annahme: Anzahl der Perioden aus den Parametern
-            ySWO.put(iteration, new boolean[numAgents][numPeriods][State.values().length]);
-        }
-
-        // Sicherstellen, dass der Agentenindex und der Periodenindex im gültigen Bereich liegen
-        if (agentIndex < 0 || agentIndex >= ySWO.get(iteration).length) {
-            throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
-        }
-        if (periodIndex < 0 || periodIndex >= ySWO.get(iteration)[agentIndex].length) {
-            throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
-        }
-
-        // Speichern der Y-Werte für den angegebenen Agenten und die Periode in der aktuellen Iteration
-        ySWO.get(iteration)[agentIndex][periodIndex] = yValues;
+        // Legt die Iteration bei Bedarf an und speichert die Y-Werte für den Agenten und die Periode
+        swoBlock(iteration).setYStates(agentIndex, periodIndex, yValues);
     }
 
 
@@ -1473,6 +1792,13 @@ public class ADMMDataModel {
         objectiveRow.createCell(0).setCellValue("Objective Value");
         objectiveRow.createCell(1).setCellValue(iterationObjectiveValuesSWO.getOrDefault(finalIteration, 0.0));
 
+        // Warm start switches, to compare the update times of the Iteration Data sheet between runs
+        Row warmStartRow = resultSheet.createRow(rowIndex++);
+        warmStartRow.createCell(0).setCellValue("Warm Start (X/Y/S)");
+        warmStartRow.createCell(1).setCellValue(ADMMSettings.isWarmStart(ADMMSettings.SWO_WARM_START_X) + "/"
+                + ADMMSettings.isWarmStart(ADMMSettings.SWO_WARM_START_Y) + "/"
+                + ADMMSettings.isWarmStart(ADMMSettings.SWO_WARM_START_S));
+
         // Sheet 2: Iteration Data
         Sheet iterationSheet = workbook.createSheet("Iteration Data");
         Row iterHeaderRow = iterationSheet.createRow(0);
@@ -1489,6 +1815,16 @@ public class ADMMDataModel {
         iterHeaderRow.createCell(10).setCellValue("Update Duration in Iteration (ns)");
         iterHeaderRow.createCell(11).setCellValue("Primal Residual");
         iterHeaderRow.createCell(12).setCellValue("Dual Residual");
+        iterHeaderRow.createCell(13).setCellValue("X Staleness");
+        iterHeaderRow.createCell(14).setCellValue("Dual Staleness");
+        iterHeaderRow.createCell(15).setCellValue("Mailbox Depth");
+        iterHeaderRow.createCell(16).setCellValue("Compression Ratio");
+        iterHeaderRow.createCell(17).setCellValue("Message Encode Time (ns)");
+        iterHeaderRow.createCell(18).setCellValue("Message Decode Time (ns)");
+        iterHeaderRow.createCell(19).setCellValue("Quantization Residual Error");
+        iterHeaderRow.createCell(20).setCellValue("X Barrier Wait Time (ns)");
+        iterHeaderRow.createCell(21).setCellValue("Dual Barrier Wait Time (ns)");
+        iterHeaderRow.createCell(22).setCellValue("Slowest Peer");
 
         // Add per-iteration data
         int iterRowIndex = 1;
@@ -1507,6 +1843,16 @@ public class ADMMDataModel {
             iterRow.createCell(10).setCellValue(getXUpdateTimeForIteration(i) + getYUpdateTimeForIteration(i) + getDualUpdateTimeForIteration(i) + getSUpdateTimeForIteration(i));
             iterRow.createCell(11).setCellValue(getPrimalResidualForIteration(i)); // Primal Residual
             iterRow.createCell(12).setCellValue(getDualResidualForIteration(i));  // Dual Residual
+            iterRow.createCell(13).setCellValue(getXStalenessForIteration(i));
+            iterRow.createCell(14).setCellValue(getDualStalenessForIteration(i));
+            iterRow.createCell(15).setCellValue(getMailboxDepthForIteration(i));
+            iterRow.createCell(16).setCellValue(getCompressionRatioForIteration(i));
+            iterRow.createCell(17).setCellValue(getMessageEncodeTimeForIteration(i));
+            iterRow.createCell(18).setCellValue(getMessageDecodeTimeForIteration(i));
+            iterRow.createCell(19).setCellValue(getQuantizationErrorForIteration(i));
+            iterRow.createCell(20).setCellValue(getXBarrierWaitTimeForIteration(i));
+            iterRow.createCell(21).setCellValue(getDualBarrierWaitTimeForIteration(i));
+            iterRow.createCell(22).setCellValue(getSlowestPeerForIteration(i));
         }
 
         // Save to file
@@ -1523,12 +1869,12 @@ public class ADMMDataModel {
         Workbook workbook = new XSSFWorkbook(); // Neues Excel-Workbook erstellen
 
         // Alle Iterationen sortieren
-        List<Integer> iterations = new ArrayList<>(sSWO.keySet());
-        Collections.sort(iterations);
+        List<Integer> iterations = swoIterations();
 
         // Agenten und Perioden ermitteln
-        int numAgents = sSWO.get(iterations.get(0)).length; // Anzahl der Agenten basierend auf der ersten Iteration
-        int numPeriods = sSWO.get(iterations.get(0))[0].length; // Anzahl der Perioden basierend auf dem ersten Agenten
+        IterateBlock firstValues = swoValuesOrHistory(iterations.get(0));
+        int numAgents = firstValues.getElectrolyzers(); // Anzahl der Agenten basierend auf der ersten Iteration
+        int numPeriods = firstValues.getPeriods(); // Anzahl der Perioden basierend auf der ersten Iteration
         int columnsPerAgent = numPeriods * 2; // S1 und S2 pro Periode
         int maxColumnsPerSheet = 16384; // Maximale Spaltenanzahl pro Excel-Arbeitsblatt
         int maxAgentsPerSheet = maxColumnsPerSheet / columnsPerAgent; // Maximale Agentenanzahl pro Blatt
@@ -1555,6 +1901,7 @@ public class ADMMDataModel {
             // Fülle die Zeilen mit den Slack-Werten
             int rowIndex = 1;
             for (Integer iteration : iterations) {
+                IterateBlock values = swoValuesOrHistory(iteration);
                 Row row = sheet.createRow(rowIndex++);
                 int colIndex = 0;
 
@@ -1563,7 +1910,7 @@ public class ADMMDataModel {
 
                 // Werte für die Agenten im aktuellen Blatt abrufen und einfügen
                 for (int agentIndex = agentStartIndex; agentIndex < agentEndIndex; agentIndex++) {
-                    double[][] sValues = getSSWOValuesForAgent(iteration, agentIndex);
+                    double[][] sValues = values.getSRow(agentIndex);
 
                     for (int periodIndex = 0; periodIndex < numPeriods; periodIndex++) {
                         // S1 und S2-Werte der aktuellen Periode in die Tabelle schreiben
@@ -1593,9 +1940,9 @@ public class ADMMDataModel {
         XSSFWorkbook workbook = new XSSFWorkbook();  // Neues Workbook erstellen
 
         int maxColumnsPerSheet = 16384;  // Excel-Beschränkung
-        int maxAgentsPerSheet = maxColumnsPerSheet / xSWO.get(0)[0].length / 11;  // 11 Spalten pro Agent und Periode (inkl. Residuals)
+        int maxAgentsPerSheet = maxColumnsPerSheet / iteratePeriods / 11;  // 11 Spalten pro Agent und Periode (inkl. Residuals)
 
-        int totalAgents = xSWO.get(0).length;
+        int totalAgents = iterateElectrolyzers;
         int sheetCounter = 1;
 
         // Verteile Elektrolyseure auf mehrere Blätter
@@ -1609,7 +1956,7 @@ public class ADMMDataModel {
             headerRow.createCell(headerColumn++).setCellValue("Iteration");
 
             for (int agentIndex = agentStartIndex; agentIndex < agentEndIndex; agentIndex++) {
-                for (int periodIndex = 0; periodIndex < xSWO.get(0)[agentIndex].length; periodIndex++) {
+                for (int periodIndex = 0; periodIndex < iteratePeriods; periodIndex++) {
                     String baseHeader = "A" + agentIndex + "_P" + (periodIndex + 1) + "_";  // Periodenindex um 1 erhöhen
                     headerRow.createCell(headerColumn++).setCellValue(baseHeader + "X");
                     headerRow.createCell(headerColumn++).setCellValue(baseHeader + "Y");
@@ -1631,7 +1978,9 @@ public class ADMMDataModel {
 
             // Fülle die Zeilen mit den Werten
             int rowNum = 1;
-            for (Integer iteration : xSWO.keySet()) {
+            for (Integer iteration : swoIterations()) {
+                IterateBlock values = swoValuesOrHistory(iteration);
+                ResidualBlock residualValues = swoResidualsOrHistory(iteration);
                 Row row = sheet.createRow(rowNum++);
                 int colNum = 0;
 
@@ -1640,16 +1989,16 @@ public class ADMMDataModel {
 
                 // Iteriere über die aktuellen Agenten und Perioden, um die X, Y, S, U, HydrogenProduction und Residuals zu schreiben
                 for (int agentIndex = agentStartIndex; agentIndex < agentEndIndex; agentIndex++) {
-                    for (int periodIndex = 0; periodIndex < xSWO.get(iteration)[agentIndex].length; periodIndex++) {
+                    for (int periodIndex = 0; periodIndex < values.getPeriods(); periodIndex++) {
                         // X-Wert
                         Cell cellX = row.createCell(colNum++);
-                        cellX.setCellValue(xSWO.get(iteration)[agentIndex][periodIndex]);
+                        cellX.setCellValue(values.getX(agentIndex, periodIndex));
                         cellX.setCellStyle(decimalStyle);
 
                         // Aktiver Y-Zustand
                         String activeState = "None";
                         for (State state : State.values()) {
-                            if (ySWO.get(iteration)[agentIndex][periodIndex][state.ordinal()]) {
+                            if (values.getY(agentIndex, periodIndex, state.ordinal())) {
                                 activeState = state.name();
                                 break;
                             }
@@ -1659,27 +2008,27 @@ public class ADMMDataModel {
 
                         // S-Werte
                         Cell cellS1 = row.createCell(colNum++);
-                        cellS1.setCellValue(sSWO.get(iteration)[agentIndex][periodIndex][0]);
+                        cellS1.setCellValue(values.getS(agentIndex, periodIndex, 0));
                         cellS1.setCellStyle(decimalStyle);
 
                         Cell cellS2 = row.createCell(colNum++);
-                        cellS2.setCellValue(sSWO.get(iteration)[agentIndex][periodIndex][1]);
+                        cellS2.setCellValue(values.getS(agentIndex, periodIndex, 1));
                         cellS2.setCellStyle(decimalStyle);
 
                         // U-Werte
                         for (int i = 0; i < 2; i++) {
                             Cell cellU = row.createCell(colNum++);
-                            cellU.setCellValue(uSWO.get(iteration)[agentIndex][periodIndex][i]);
+                            cellU.setCellValue(values.getU(agentIndex, periodIndex, i));
                             cellU.setCellStyle(decimalStyle);
                         }
 
                         // Wasserstoffproduktionswert
                         Cell cellHydrogen = row.createCell(colNum++);
-                        cellHydrogen.setCellValue(hydrogenProductionSWO.get(iteration)[agentIndex][periodIndex]);
+                        cellHydrogen.setCellValue(values.getHydrogen(agentIndex, periodIndex));
                         cellHydrogen.setCellStyle(decimalStyle);
 
                         // Residuals (Residual1, Residual2, yResidual)
-                        double[] residuals = getYSWOResiduals(iteration, agentIndex, periodIndex);
+                        double[] residuals = residualValues != null ? residualValues.get(agentIndex, periodIndex) : null;
                         if (residuals != null) {
                             for (double residual : residuals) {
                                 Cell cellResidual = row.createCell(colNum++);
@@ -1715,9 +2064,9 @@ public class ADMMDataModel {
 		XSSFWorkbook workbook = new XSSFWorkbook(); // Neues Workbook erstellen
 
 		int maxColumnsPerSheet = 16384; // Excel-Beschränkung
-		int maxAgentsPerSheet = maxColumnsPerSheet / xRTO.get(0)[0].length / 7; // 11 Spalten pro Agent und Periode
+		int maxAgentsPerSheet = maxColumnsPerSheet / rtoStepsPerSWO / 7; // 11 Spalten pro Agent und Periode
 																					// (inkl. Residuals)
-		int totalAgents = xRTO.get(0).length;
+		int totalAgents = iterateElectrolyzers;
 		int sheetCounter = 1;
 
 		// Verteile Elektrolyseure auf mehrere Blätter
@@ -1749,7 +2098,8 @@ public class ADMMDataModel {
 
 			// Fülle die Zeilen mit den Werten
 			int rowNum = 1;
-			for (Integer iteration : xRTO.keySet()) {
+			for (Integer iteration : rtoIterations()) {
+				IterateBlock values = rtoValuesOrHistory(iteration);
 				Row row = sheet.createRow(rowNum++);
 				int colNum = 0;
 
@@ -1761,13 +2111,13 @@ public class ADMMDataModel {
 					for (int periodIndex = 0; periodIndex < rtoStepsPerSWO; periodIndex++) { // 10 Perioden
 						// X-Wert
 						Cell cellX = row.createCell(colNum++);
-						cellX.setCellValue(xRTO.get(iteration)[agentIndex][periodIndex]);
+						cellX.setCellValue(values.getX(agentIndex, periodIndex));
 						cellX.setCellStyle(decimalStyle);
 
 						// Aktiver Y-Zustand
 						String activeState = "None";
 						for (State state : State.values()) {
-							if (ySWO.get(1)[agentIndex][6-1][state.ordinal()]) {
+							if (swoValues.get(1).getY(agentIndex, 6-1, state.ordinal())) {
 								activeState = state.name();
 								break;
 							}
@@ -1777,17 +2127,17 @@ public class ADMMDataModel {
 
 						// S-Werte
 						Cell cellS1 = row.createCell(colNum++);
-						cellS1.setCellValue(sRTO.get(iteration)[agentIndex][periodIndex][0]);
+						cellS1.setCellValue(values.getS(agentIndex, periodIndex, 0));
 						cellS1.setCellStyle(decimalStyle);
 
 						Cell cellS2 = row.createCell(colNum++);
-						cellS2.setCellValue(sRTO.get(iteration)[agentIndex][periodIndex][1]);
+						cellS2.setCellValue(values.getS(agentIndex, periodIndex, 1));
 						cellS2.setCellStyle(decimalStyle);
 
 						// U-Werte
 						for (int i = 0; i < 2; i++) {
 							Cell cellU = row.createCell(colNum++);
-							cellU.setCellValue(uRTO.get(iteration)[agentIndex][periodIndex][i]);
+							cellU.setCellValue(values.getU(agentIndex, periodIndex, i));
 							cellU.setCellStyle(decimalStyle);
 						}
 
@@ -1833,14 +2183,15 @@ public class ADMMDataModel {
         int rowNum = 1; // Zeilennummer für die Werte
 
         // Iteriere über alle Iterationen in xRTO
-        for (Integer iteration : dataModel.getXRTO().keySet()) {
+        for (Integer iteration : dataModel.rtoIterations()) {
+            IterateBlock values = dataModel.rtoValuesOrHistory(iteration);
         	
 //            if (iteration == 0) {
 //                continue;  // Iteration 0 überspringen
 //            }
 
             // Iteriere über alle Agenten
-            for (int agentIndex = 0; agentIndex < dataModel.getXRTO().get(iteration).length; agentIndex++) {
+            for (int agentIndex = 0; agentIndex < values.getElectrolyzers(); agentIndex++) {
 
                 // Iteriere über alle Perioden (RTO-Schritte)
                 for (int periodIndex = 0; periodIndex < rtoStepsPerSWO; periodIndex++) {
@@ -1852,14 +2203,14 @@ public class ADMMDataModel {
                     row.createCell(2).setCellValue(periodIndex + 1); // Periode (beginnend bei 1)
 
                     // x-Wert
-                    double xValue = dataModel.getXRTO().get(iteration)[agentIndex][periodIndex];
+                    double xValue = values.getX(agentIndex, periodIndex);
                     row.createCell(3).setCellValue(xValue);
 
                     // y-Wert (State)
                     String activeState = "None";
-                    boolean[][][] yValues = dataModel.getYSWO().get(finalSWOIteration);
+                    IterateBlock yValues = dataModel.swoValuesOrHistory(finalSWOIteration);
                     for (State state : State.values()) {
-                        if (yValues[agentIndex][currentSWOPeriod-1][state.ordinal()]) { 
+                        if (yValues.getY(agentIndex, currentSWOPeriod-1, state.ordinal())) { 
                             activeState = state.name();
                             break;
                         }
@@ -1867,16 +2218,16 @@ public class ADMMDataModel {
                     row.createCell(4).setCellValue(activeState);
 
                     // s-Werte
-                    double s1Value = dataModel.getSRTO().get(iteration)[agentIndex][periodIndex][0];
-                    double s2Value = dataModel.getSRTO().get(iteration)[agentIndex][periodIndex][1];
+                    double s1Value = values.getS(agentIndex, periodIndex, 0);
+                    double s2Value = values.getS(agentIndex, periodIndex, 1);
                     row.createCell(5).setCellValue(s1Value);
                     row.createCell(6).setCellValue(s2Value);
 
                     // u-Werte
-                    double u1Value = dataModel.getURTO().get(iteration)[agentIndex][periodIndex][0];
-                    double u2Value = dataModel.getURTO().get(iteration)[agentIndex][periodIndex][1];
-                    double u3Value = dataModel.getURTO().get(iteration)[agentIndex][periodIndex][2];
-                    double u4Value = dataModel.getURTO().get(iteration)[agentIndex][periodIndex][3];
+                    double u1Value = values.getU(agentIndex, periodIndex, 0);
+                    double u2Value = values.getU(agentIndex, periodIndex, 1);
+                    double u3Value = values.getU(agentIndex, periodIndex, 2);
+                    double u4Value = values.getU(agentIndex, periodIndex, 3);
                     row.createCell(7).setCellValue(u1Value);
                     row.createCell(8).setCellValue(u2Value);
                     row.createCell(9).setCellValue(u3Value);
@@ -1900,46 +2251,6 @@ public class ADMMDataModel {
         }
     }
     
-    // Getter für xRTO
-    public Map<Integer, double[][]> getXRTO() {
-        return xRTO;
-    }
-
-    // Setter für xRTO (optional, falls du die Daten später setzen musst)
-    public void setXRTO(Map<Integer, double[][]> xRTO) {
-        this.xRTO = xRTO;
-    }
-
-    // Getter für ySWO
-    public Map<Integer, boolean[][][]> getYSWO() {
-        return ySWO;
-    }
-
-    // Setter für ySWO (optional, falls du die Daten später setzen musst)
-    public void setYSWO(Map<Integer, boolean[][][]> ySWO) {
-        this.ySWO = ySWO;
-    }
-
-    // Getter für sRTO
-    public Map<Integer, double[][][]> getSRTO() {
-        return sRTO;
-    }
-
-    // Setter für sRTO (optional, falls du die Daten später setzen musst)
-    public void setSRTO(Map<Integer, double[][][]> sRTO) {
-        this.sRTO = sRTO;
-    }
-
-    // Getter für uRTO
-    public Map<Integer, double[][][]> getURTO() {
-        return uRTO;
-    }
-
-    // Setter für uRTO (optional, falls du die Daten später setzen musst)
-    public void setURTO(Map<Integer, double[][][]> uRTO) {
-        this.uRTO = uRTO;
-    }
-    
     public double[][] calculateFluctuatingRenewableEnergy(int rtoStepsPerSWOPeriod, double renewableEnergySWO, long seed) {
         double[][] renewableEnergyMatrix = new double[rtoStepsPerSWOPeriod][rtoStepsPerSWOPeriod];
 
@@ -2075,6 +2386,10 @@ public class ADMMDataModel {
         convRow3.createCell(0).setCellValue("Computation Time (ns):");
         convRow3.createCell(1).setCellValue(computationTime);
 
+        Row convRow4 = sheet.createRow(rowIndex++);
+        convRow4.createCell(0).setCellValue("Barrier Wait Time (ns):");
+        convRow4.createCell(1).setCellValue(rtoBarrierWaitTime);
+
 //        // Passe die Spaltenbreite automatisch an
 //        for (int i = 0; i < 3; i++) {
 //            sheet.autoSizeColumn(i);
@@ -2338,17 +2653,10 @@ e.printStackTrace();
 
         int rowNum = 1; // Zeilennummer für die Werte
 
-        // Hole die gesamte xRTO-Datenstruktur: Map<Integer, double[][]>
-        // Schlüssel: Iteration, Wert: double[agentIndex][periode]
-        Map<Integer, double[][]> xRTO = getXRTO();
-
-        // Hole die ySWO-Datenstruktur: Map<Integer, boolean[][][]>
-        // Schlüssel: Iteration, Wert: boolean[agentIndex][periode][State.ordinal()]
-        Map<Integer, boolean[][][]> ySWO = getYSWO();
-
         // Iteriere über alle Iterationen in xRTO
-        for (Integer iteration : xRTO.keySet()) {
-            double[][] xValuesForIteration = xRTO.get(iteration);
+        for (Integer iteration : rtoIterations()) {
+            IterateBlock values = rtoValuesOrHistory(iteration);
+            double[][] xValuesForIteration = values.xMatrix();
             // Für jeden Agenten (Elektrolyseur)
             for (int agentIndex = 0; agentIndex < xValuesForIteration.length; agentIndex++) {
                 // Iteriere über alle Perioden (RTO-Schritte)
@@ -2365,10 +2673,10 @@ e.printStackTrace();
                     row.createCell(3).setCellValue(xValue);
 
                     // y-Wert (State)
-                    // Wir nehmen die y-Daten aus der finalSWOIteration aus ySWO.
-                    // Dabei gehen wir davon aus, dass ySWO.get(finalSWOIteration) ein Array vom Typ boolean[agentIndex][periode][State.ordinal()] liefert.
+                    // Wir nehmen die y-Daten aus der finalSWOIteration.
+                    // getYSWOValuesForIteration liefert ein Array vom Typ boolean[agentIndex][periode][State.ordinal()].
                     String activeState = "None";
-                    boolean[][][] yValuesForIteration = ySWO.get(finalSWOIteration);
+                    boolean[][][] yValuesForIteration = getYSWOValuesForIteration(finalSWOIteration);
                     if (yValuesForIteration != null && agentIndex < yValuesForIteration.length &&
                         (currentSWOPeriod - 1) < yValuesForIteration[agentIndex].length) {
                         boolean[] stateFlags = yValuesForIteration[agentIndex][currentSWOPeriod - 1];
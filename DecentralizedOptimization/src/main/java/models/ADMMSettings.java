@@ -0,0 +1,383 @@
+package models;
+
+import java.nio.file.Paths;
+
+/**
+ * Runtime switches of the ADMM agents.
+ *
+ * Every setting is looked up as environment variable first (Docker deployment) and
+ * as Java system property second (local runs started via MainContainer), in the same
+ * way ADMMAgent resolves the <agent>_PERIODS assignment.
+ */
+public final class ADMMSettings {
+
+    // ============================================================================
+    // KEYS
+    // ============================================================================
+
+    /** X-update formulation in the SWO: "persistent" (default) or "rebuild". */
+    public static final String SWO_X_UPDATE_MODE = "SWO_X_UPDATE_MODE";
+
+    public static final String X_UPDATE_MODE_PERSISTENT = "persistent";
+    public static final String X_UPDATE_MODE_REBUILD = "rebuild";
+
+    /** Dedicated GRBModel per SWO block (Y, S) instead of the agent's shared model, default true. */
+    public static final String SWO_BLOCK_MODELS = "SWO_BLOCK_MODELS";
+
+    /** SWO S-update: "analytic" (default, closed form), "gurobi" (QP) or "verify" (closed form checked against the QP). */
+    public static final String SWO_S_UPDATE_MODE = "SWO_S_UPDATE_MODE";
+
+    public static final String S_UPDATE_MODE_ANALYTIC = "analytic";
+    public static final String S_UPDATE_MODE_GUROBI = "gurobi";
+    public static final String S_UPDATE_MODE_VERIFY = "verify";
+
+    /** SWO Y-update backend: "mip" (default, Gurobi) or "dp" (exact dynamic programming, no license needed). */
+    public static final String SWO_Y_UPDATE_BACKEND = "SWO_Y_UPDATE_BACKEND";
+
+    public static final String Y_UPDATE_BACKEND_MIP = "mip";
+    public static final String Y_UPDATE_BACKEND_DP = "dp";
+
+    /** Solve the MIP Y-update as one model per electrolyzer on a worker pool, default false. */
+    public static final String SWO_Y_UPDATE_PARALLEL = "SWO_Y_UPDATE_PARALLEL";
+
+    /** Worker count of the parallel Y-update, default: the agent's solver thread budget. */
+    public static final String SWO_Y_UPDATE_THREADS = "SWO_Y_UPDATE_THREADS";
+
+    /** Solver of the continuous SWO blocks (X, S): "gurobi" (default) or "java" (JavaQPSolver). The Y MIP always uses Gurobi. */
+    public static final String SWO_QP_BACKEND = "SWO_QP_BACKEND";
+
+    /** Warm start of the SWO block models from the previous iterate, one switch per block, default true. */
+    public static final String SWO_WARM_START_X = "SWO_WARM_START_X";
+    public static final String SWO_WARM_START_Y = "SWO_WARM_START_Y";
+    public static final String SWO_WARM_START_S = "SWO_WARM_START_S";
+
+    /** Number of ADMM agents sharing this JVM (MainContainer starts several), default 1. */
+    public static final String SOLVER_AGENTS_PER_JVM = "SOLVER_AGENTS_PER_JVM";
+
+    /** Gurobi threads per agent; 0 (default) derives the budget from cores / agents per JVM. */
+    public static final String SOLVER_THREADS_PER_AGENT = "SOLVER_THREADS_PER_AGENT";
+
+    /** RTO x-update formulation: "persistent" (default, one model per RTO run) or "rebuild" (per RTO iteration). */
+    public static final String RTO_X_UPDATE_MODE = "RTO_X_UPDATE_MODE";
+
+    /** Asynchronous SWO: move on once a quorum of peers has reported instead of waiting for all, default false. */
+    public static final String SWO_ASYNC = "SWO_ASYNC";
+
+    /** Peers that must have reported an iteration in the asynchronous SWO; 0 (default) means a majority of the peers. */
+    public static final String SWO_ASYNC_QUORUM = "SWO_ASYNC_QUORUM";
+
+    /** Maximal age in iterations of a peer contribution reused in the asynchronous SWO, default 1. */
+    public static final String SWO_ASYNC_MAX_STALENESS = "SWO_ASYNC_MAX_STALENESS";
+
+    /** Wire format of the SWO and RTO messages: "binary" (default, byte-sequence content) or "text" (legacy strings). */
+    public static final String MESSAGE_CODEC = "MESSAGE_CODEC";
+
+    public static final String MESSAGE_CODEC_BINARY = "binary";
+    public static final String MESSAGE_CODEC_TEXT = "text";
+
+    /** Send only the entries that changed by more than MESSAGE_DELTA_EPSILON since the last keyframe/delta, default false. Needs the binary codec. */
+    public static final String MESSAGE_DELTA = "MESSAGE_DELTA";
+
+    /** Absolute change below which an entry is not resent in delta mode, default 1e-6. */
+    public static final String MESSAGE_DELTA_EPSILON = "MESSAGE_DELTA_EPSILON";
+
+    /** Every n-th iteration is sent as full keyframe in delta mode, default 20. */
+    public static final String MESSAGE_DELTA_KEYFRAME_INTERVAL = "MESSAGE_DELTA_KEYFRAME_INTERVAL";
+
+    /** Compression of the binary message content: "none" (default) or "deflate". */
+    public static final String MESSAGE_COMPRESSION = "MESSAGE_COMPRESSION";
+
+    public static final String MESSAGE_COMPRESSION_NONE = "none";
+    public static final String MESSAGE_COMPRESSION_DEFLATE = "deflate";
+
+    /** Step the x, u and s values are rounded to in binary messages (error at most step / 2), default 0 (full precision). */
+    public static final String MESSAGE_QUANTIZATION_STEP = "MESSAGE_QUANTIZATION_STEP";
+
+    /** Largest change of an agent's boundary residual caused by quantization before it sends in full precision, default 1e-4. */
+    public static final String MESSAGE_QUANTIZATION_MAX_RESIDUAL_ERROR = "MESSAGE_QUANTIZATION_MAX_RESIDUAL_ERROR";
+
+    /** Hand cycle messages to agents in the same JVM without encoding them (LocalTransport), default true. */
+    public static final String LOCAL_TRANSPORT = "LOCAL_TRANSPORT";
+
+    /** Messages a co-located reader may lag behind before the sender falls back to ACL, default 64. */
+    public static final String LOCAL_TRANSPORT_CAPACITY = "LOCAL_TRANSPORT_CAPACITY";
+
+    /**
+     * Deadline (ms) of an exchange phase after which the missing peers are reported, default 60000, 0 for none.
+     * Per phase: BARRIER_TIMEOUT_MS_SWO_X, _SWO_DUAL, _SWO_CONVERGENCE, _RTO_X, _RTO_DUAL, _RTO_INCREMENT, _RTO_CONVERGENCE.
+     */
+    public static final String BARRIER_TIMEOUT_MS = "BARRIER_TIMEOUT_MS";
+
+    /** Checkpoint of the SWO state every n-th iteration, default 0 (no checkpoints). */
+    public static final String CHECKPOINT_INTERVAL = "CHECKPOINT_INTERVAL";
+
+    /** Directory of the checkpoints, one sub directory per agent, default ~/admm-checkpoints. */
+    public static final String CHECKPOINT_DIR = "CHECKPOINT_DIR";
+
+    /** Checkpoints kept per agent, default 3. */
+    public static final String CHECKPOINT_KEEP = "CHECKPOINT_KEEP";
+
+    /** Resume the SWO from the latest checkpoint all agents have (agreed via the AMSAgent), default false. */
+    public static final String CHECKPOINT_RESUME = "CHECKPOINT_RESUME";
+
+    /**
+     * Iterations of the x/y/s/u values kept in memory, default 0 (all iterations are preallocated).
+     * Older iterations are handed to the history sink of the ADMMDataModel, if there is one.
+     */
+    public static final String ITERATION_WINDOW = "ITERATION_WINDOW";
+
+    /**
+     * Directory of the memory-mapped iteration history (MappedIterationHistory), one sub directory
+     * per agent; default empty (no history). Only used with ITERATION_WINDOW.
+     */
+    public static final String HISTORY_DIR = "HISTORY_DIR";
+
+    /**
+     * Checks of the publish/consume discipline of the ADMMDataModel, default false: the working
+     * iteration state may only be used by the thread that initialized it, other threads read the
+     * published snapshots. A violation throws an IllegalStateException.
+     */
+    public static final String SNAPSHOT_CHECKS = "SNAPSHOT_CHECKS";
+
+    /** Exchange of aggregates in the RTO: "none" (default, broadcast to all agents), "tree" or "ring" collectives. */
+    public static final String COLLECTIVE_TOPOLOGY = "COLLECTIVE_TOPOLOGY";
+
+    public static final String COLLECTIVE_TOPOLOGY_NONE = "none";
+    public static final String COLLECTIVE_TOPOLOGY_TREE = "tree";
+    public static final String COLLECTIVE_TOPOLOGY_RING = "ring";
+
+    private ADMMSettings() {
+    }
+
+    // ============================================================================
+    // LOOKUP
+    // ============================================================================
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getenv(key);
+        if (value == null || value.isEmpty()) {
+            value = System.getProperty(key);
+        }
+        return (value == null || value.isEmpty()) ? defaultValue : value.trim();
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid double value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return true if the SWO X-update keeps one Gurobi model per agent and only updates it in place
+     */
+    public static boolean isPersistentXUpdate() {
+        return X_UPDATE_MODE_PERSISTENT.equalsIgnoreCase(getString(SWO_X_UPDATE_MODE, X_UPDATE_MODE_PERSISTENT));
+    }
+
+    /**
+     * @return true if the Y- and S-update use their own models built from the agent environment
+     */
+    public static boolean useBlockModels() {
+        return getBoolean(SWO_BLOCK_MODELS, true);
+    }
+
+    public static String getSUpdateMode() {
+        return getString(SWO_S_UPDATE_MODE, S_UPDATE_MODE_ANALYTIC).toLowerCase();
+    }
+
+    public static String getYUpdateBackend() {
+        return getString(SWO_Y_UPDATE_BACKEND, Y_UPDATE_BACKEND_MIP).toLowerCase();
+    }
+
+    public static boolean isParallelYUpdate() {
+        return getBoolean(SWO_Y_UPDATE_PARALLEL, false);
+    }
+
+    /**
+     * @param defaultThreads worker count if SWO_Y_UPDATE_THREADS is not set, usually the agent's thread budget
+     */
+    public static int getYUpdateThreads(int defaultThreads) {
+        return Math.max(1, getInt(SWO_Y_UPDATE_THREADS, defaultThreads));
+    }
+
+    /**
+     * @return backend name for SubproblemSolverFactory, used by the X and S block models
+     */
+    public static String getQPBackend() {
+        return getString(SWO_QP_BACKEND, "gurobi").toLowerCase();
+    }
+
+    /**
+     * @param key one of SWO_WARM_START_X, SWO_WARM_START_Y, SWO_WARM_START_S
+     */
+    public static boolean isWarmStart(String key) {
+        return getBoolean(key, true);
+    }
+
+    public static int getAgentsPerJvm() {
+        return Math.max(1, getInt(SOLVER_AGENTS_PER_JVM, 1));
+    }
+
+    public static int getThreadsPerAgent() {
+        return Math.max(0, getInt(SOLVER_THREADS_PER_AGENT, 0));
+    }
+
+    /**
+     * @return true if the RTO x-update keeps one model per RTO run and only updates it in place
+     */
+    public static boolean isPersistentRTOXUpdate() {
+        return X_UPDATE_MODE_PERSISTENT.equalsIgnoreCase(getString(RTO_X_UPDATE_MODE, X_UPDATE_MODE_PERSISTENT));
+    }
+
+    public static boolean isAsyncSWO() {
+        return getBoolean(SWO_ASYNC, false);
+    }
+
+    /**
+     * @param peers number of other agents
+     */
+    public static int getAsyncQuorum(int peers) {
+        int quorum = getInt(SWO_ASYNC_QUORUM, 0);
+        return quorum <= 0 ? (peers + 1) / 2 : Math.min(quorum, peers);
+    }
+
+    public static int getAsyncMaxStaleness() {
+        return Math.max(0, getInt(SWO_ASYNC_MAX_STALENESS, 1));
+    }
+
+    /**
+     * @return true if outgoing cycle messages use the binary codec; incoming messages are read in both formats
+     */
+    public static boolean useBinaryMessages() {
+        return !MESSAGE_CODEC_TEXT.equalsIgnoreCase(getString(MESSAGE_CODEC, MESSAGE_CODEC_BINARY));
+    }
+
+    public static boolean isDeltaMessages() {
+        return getBoolean(MESSAGE_DELTA, false) && useBinaryMessages();
+    }
+
+    public static double getDeltaEpsilon() {
+        return Math.max(0.0, getDouble(MESSAGE_DELTA_EPSILON, 1e-6));
+    }
+
+    public static int getDeltaKeyframeInterval() {
+        return Math.max(1, getInt(MESSAGE_DELTA_KEYFRAME_INTERVAL, 20));
+    }
+
+    /**
+     * @return true if the binary message content is deflated
+     */
+    public static boolean isCompressedMessages() {
+        return MESSAGE_COMPRESSION_DEFLATE.equalsIgnoreCase(getString(MESSAGE_COMPRESSION, MESSAGE_COMPRESSION_NONE))
+                && useBinaryMessages();
+    }
+
+    /**
+     * @return quantization step of x, u and s, 0 if the values are sent in full precision
+     */
+    public static double getQuantizationStep() {
+        return useBinaryMessages() ? Math.max(0.0, getDouble(MESSAGE_QUANTIZATION_STEP, 0.0)) : 0.0;
+    }
+
+    public static double getQuantizationMaxResidualError() {
+        return Math.max(0.0, getDouble(MESSAGE_QUANTIZATION_MAX_RESIDUAL_ERROR, 1e-4));
+    }
+
+    public static boolean useLocalTransport() {
+        return getBoolean(LOCAL_TRANSPORT, true);
+    }
+
+    public static int getLocalTransportCapacity() {
+        return Math.max(2, getInt(LOCAL_TRANSPORT_CAPACITY, 64));
+    }
+
+    /**
+     * @param phase barrier phase, e.g. "SWO_X"
+     */
+    public static long getBarrierTimeoutMillis(String phase) {
+        return Math.max(0, getInt(BARRIER_TIMEOUT_MS + "_" + phase, getInt(BARRIER_TIMEOUT_MS, 60000)));
+    }
+
+    public static int getCheckpointInterval() {
+        return Math.max(0, getInt(CHECKPOINT_INTERVAL, 0));
+    }
+
+    public static String getCheckpointDirectory() {
+        return getString(CHECKPOINT_DIR, Paths.get(System.getProperty("user.home"), "admm-checkpoints").toString());
+    }
+
+    public static int getCheckpointKeep() {
+        return Math.max(1, getInt(CHECKPOINT_KEEP, 3));
+    }
+
+    public static boolean isCheckpointResume() {
+        return getBoolean(CHECKPOINT_RESUME, false);
+    }
+
+    /**
+     * @return the iterations kept in memory, 0 for all; at least the iterations the SWO reads
+     *         (k - 1 to k + 1, plus the maximum staleness in the asynchronous SWO)
+     */
+    public static int getIterationWindow() {
+        int window = getInt(ITERATION_WINDOW, 0);
+        if (window <= 0) {
+            return 0;
+        }
+        return Math.max(window, (isAsyncSWO() ? getAsyncMaxStaleness() : 0) + 3);
+    }
+
+    /**
+     * @return directory of the iteration history, empty if there is none
+     */
+    public static String getHistoryDirectory() {
+        return getString(HISTORY_DIR, "").trim();
+    }
+
+    public static boolean isSnapshotChecks() {
+        return getBoolean(SNAPSHOT_CHECKS, false);
+    }
+
+    /**
+     * @return published SWO iterations kept by the ADMMDataModel: k and k + 1, plus the maximum
+     *         staleness in the asynchronous SWO
+     */
+    public static int getPublishedIterationsRetained() {
+        return (isAsyncSWO() ? getAsyncMaxStaleness() : 0) + 2;
+    }
+
+    /**
+     * @return "tree", "ring" or "none"
+     */
+    public static String getCollectiveTopology() {
+        String topology = getString(COLLECTIVE_TOPOLOGY, COLLECTIVE_TOPOLOGY_NONE).toLowerCase();
+        if (COLLECTIVE_TOPOLOGY_TREE.equals(topology) || COLLECTIVE_TOPOLOGY_RING.equals(topology)) {
+            return topology;
+        }
+        return COLLECTIVE_TOPOLOGY_NONE;
+    }
+}
@@ -0,0 +1,387 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Checkpoints of an agent's SWO state on local disk.
+ *
+ * A checkpoint of iteration k holds what the SWO needs to continue with iteration k + 1: the
+ * x, hydrogen, y, s and u values of slot k + 1 and the y-residuals of iteration k, for all
+ * electrolyzers and periods (every agent holds the values of all agents), plus the agent's own
+ * electrolyzers and periods. The state is copied on the agent thread and written by a background
+ * thread, into a temporary file that is renamed when complete, so a crash never leaves a partial
+ * checkpoint behind. The file ends with a CRC32 of its content.
+ *
+ * Format (big endian): magic, version, agent name, iteration, phone book version, number of
+ * electrolyzers E and periods P, own electrolyzer ids, own periods, x[E*P], hydrogen[E*P],
+ * s[E*P*2], u[E*P*3], y as one byte of state flags per (electrolyzer, period), residuals[E*P*3], CRC32.
+ */
+public class CheckpointStore {
+
+    private static final int MAGIC = 0x41434B50; // "ACKP"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "swo_";
+    private static final String SUFFIX = ".ckpt";
+
+    private final Path directory;
+    private final String agentName;
+    private final int keep;
+    private final ExecutorService writer;
+
+    private volatile long lastWriteNanos;
+    private volatile long lastBytes;
+
+    /**
+     * @param baseDirectory directory of all agents' checkpoints, each agent writes into a sub directory
+     * @param keep          number of checkpoints kept per agent, older ones are deleted
+     */
+    public CheckpointStore(Path baseDirectory, String agentName, int keep) {
+        this.directory = baseDirectory.resolve(agentName);
+        this.agentName = agentName;
+        this.keep = Math.max(1, keep);
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "checkpoint-" + agentName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the store configured in ADMMSettings
+     */
+    public static CheckpointStore fromSettings(String agentName) {
+        return new CheckpointStore(Paths.get(ADMMSettings.getCheckpointDirectory()), agentName, ADMMSettings.getCheckpointKeep());
+    }
+
+    // ============================================================================
+    // WRITING
+    // ============================================================================
+
+    /**
+     * Copies the state of the iteration and writes it in the background.
+     */
+    public void save(ADMMDataModel dataModel, int iteration, Set<Integer> electrolyzerIds, Set<Integer> periods) {
+        Checkpoint checkpoint = Checkpoint.capture(dataModel, agentName, iteration, electrolyzerIds, periods);
+        if (checkpoint == null) {
+            System.err.println("No SWO state of iteration " + iteration + " for a checkpoint of " + agentName);
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                write(checkpoint);
+            } catch (IOException e) {
+                System.err.println("Checkpoint of iteration " + iteration + " of " + agentName + " could not be written: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void write(Checkpoint checkpoint) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName(checkpoint.iteration));
+        Path temp = directory.resolve(fileName(checkpoint.iteration) + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc))) {
+            checkpoint.writeTo(out);
+            // The checksum covers the content before it
+            out.writeLong(crc.getValue());
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        lastBytes = Files.size(target);
+        lastWriteNanos = System.nanoTime() - start;
+
+        // Keep only the newest checkpoints
+        List<Integer> iterations = listIterations();
+        for (int i = 0; i < iterations.size() - keep; i++) {
+            Files.deleteIfExists(directory.resolve(fileName(iterations.get(i))));
+        }
+    }
+
+    /**
+     * Waits for the pending checkpoint writes, then stops the writer thread.
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Pending checkpoints of " + agentName + " were not written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ============================================================================
+    // READING
+    // ============================================================================
+
+    /**
+     * @return iterations of the complete checkpoints of the agent, ascending
+     */
+    public List<Integer> listIterations() {
+        List<Integer> iterations = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return iterations;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    iterations.add(Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not written by this store
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Checkpoints of " + agentName + " could not be listed: " + e.getMessage());
+        }
+        Collections.sort(iterations);
+        return iterations;
+    }
+
+    /**
+     * @throws IOException if the checkpoint is missing, of another format or corrupt
+     */
+    public Checkpoint load(int iteration) throws IOException {
+        Path file = directory.resolve(fileName(iteration));
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(new CheckedInputStream(new BufferedInputStream(in, 1 << 16), crc))) {
+            Checkpoint checkpoint = Checkpoint.readFrom(data);
+            long checksum = crc.getValue();
+            if (data.readLong() != checksum) {
+                throw new IOException("Checksum mismatch in " + file);
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * @return duration of the last checkpoint write (ns)
+     */
+    public long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    public long getLastBytes() {
+        return lastBytes;
+    }
+
+    private static String fileName(int iteration) {
+        return String.format("%s%06d%s", PREFIX, iteration, SUFFIX);
+    }
+
+    // ============================================================================
+    // CHECKPOINT
+    // ============================================================================
+
+    /**
+     * State of one agent after an SWO iteration.
+     */
+    public static final class Checkpoint {
+        private String agentName;
+        private int iteration;
+        private int phoneBookVersion;
+        private int electrolyzers;
+        private int periods;
+        private Set<Integer> electrolyzerIds;
+        private Set<Integer> periodIds;
+        private double[] x;
+        private double[] hydrogen;
+        private double[] s;
+        private double[] u;
+        private byte[] y;
+        private double[] residuals;
+
+        private Checkpoint() {
+        }
+
+        static Checkpoint capture(ADMMDataModel dataModel, String agentName, int iteration, Set<Integer> electrolyzerIds, Set<Integer> periodIds) {
+            IterateBlock values = dataModel.getSWOValues(iteration + 1);
+            if (values == null) {
+                return null;
+            }
+
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.agentName = agentName;
+            checkpoint.iteration = iteration;
+            checkpoint.phoneBookVersion = dataModel.getPhoneBookVersion();
+            checkpoint.electrolyzers = values.getElectrolyzers();
+            checkpoint.periods = values.getPeriods();
+            checkpoint.electrolyzerIds = new TreeSet<>(electrolyzerIds);
+            checkpoint.periodIds = new TreeSet<>(periodIds);
+
+            // Der Block hat bereits das Layout der Datei
+            int n = checkpoint.electrolyzers * checkpoint.periods;
+            checkpoint.x = values.xValues().clone();
+            checkpoint.hydrogen = values.hydrogenValues().clone();
+            checkpoint.s = values.sValues().clone();
+            checkpoint.u = values.uValues().clone();
+            checkpoint.y = new byte[n];
+            checkpoint.residuals = new double[n * 3];
+            ResidualBlock residualValues = dataModel.getYResidualsForIteration(iteration);
+            for (int a = 0; a < checkpoint.electrolyzers; a++) {
+                for (int t = 0; t < checkpoint.periods; t++) {
+                    int i = a * checkpoint.periods + t;
+                    checkpoint.y[i] = (byte) values.stateBits(i);
+                    if (residualValues != null) {
+                        System.arraycopy(residualValues.values(), residualValues.offset(a, t), checkpoint.residuals, 3 * i, 3);
+                    }
+                }
+            }
+            return checkpoint;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(agentName);
+            out.writeInt(iteration);
+            out.writeInt(phoneBookVersion);
+            out.writeInt(electrolyzers);
+            out.writeInt(periods);
+            writeIds(out, electrolyzerIds);
+            writeIds(out, periodIds);
+            writeDoubles(out, x);
+            writeDoubles(out, hydrogen);
+            writeDoubles(out, s);
+            writeDoubles(out, u);
+            out.write(y);
+            writeDoubles(out, residuals);
+        }
+
+        static Checkpoint readFrom(DataInputStream in) throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("No checkpoint");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.agentName = in.readUTF();
+            checkpoint.iteration = in.readInt();
+            checkpoint.phoneBookVersion = in.readInt();
+            checkpoint.electrolyzers = in.readInt();
+            checkpoint.periods = in.readInt();
+            checkpoint.electrolyzerIds = readIds(in);
+            checkpoint.periodIds = readIds(in);
+            int n = checkpoint.electrolyzers * checkpoint.periods;
+            checkpoint.x = readDoubles(in, n);
+            checkpoint.hydrogen = readDoubles(in, n);
+            checkpoint.s = readDoubles(in, 2 * n);
+            checkpoint.u = readDoubles(in, 3 * n);
+            checkpoint.y = new byte[n];
+            in.readFully(checkpoint.y);
+            checkpoint.residuals = readDoubles(in, 3 * n);
+            return checkpoint;
+        }
+
+        /**
+         * Writes the state into the slots of the data model, which must have been initialized
+         * for the same number of electrolyzers and periods.
+         */
+        public void restore(ADMMDataModel dataModel) {
+            int slot = iteration + 1;
+            IterateBlock values = dataModel.getSWOValues(slot);
+            if (values == null || values.getElectrolyzers() != electrolyzers || values.getPeriods() != periods) {
+                throw new IllegalArgumentException("Iteration " + slot + " does not exist in the data.");
+            }
+            System.arraycopy(x, 0, values.xValues(), 0, x.length);
+            System.arraycopy(hydrogen, 0, values.hydrogenValues(), 0, hydrogen.length);
+            System.arraycopy(s, 0, values.sValues(), 0, s.length);
+            System.arraycopy(u, 0, values.uValues(), 0, u.length);
+            for (int a = 0; a < electrolyzers; a++) {
+                for (int t = 0; t < periods; t++) {
+                    int i = a * periods + t;
+                    values.setStateBits(a, t, y[i]);
+                    dataModel.saveYResiduals(iteration, a, t, new double[]{residuals[3 * i], residuals[3 * i + 1], residuals[3 * i + 2]});
+                }
+            }
+        }
+
+        /** @return true if the checkpoint fits a data model of the given size */
+        public boolean matches(int totalElectrolyzers, int totalPeriods) {
+            return electrolyzers == totalElectrolyzers && periods == totalPeriods;
+        }
+
+        public String getAgentName() {
+            return agentName;
+        }
+
+        public int getIteration() {
+            return iteration;
+        }
+
+        public int getPhoneBookVersion() {
+            return phoneBookVersion;
+        }
+
+        public Set<Integer> getElectrolyzerIds() {
+            return Collections.unmodifiableSet(electrolyzerIds);
+        }
+
+        public Set<Integer> getPeriodIds() {
+            return Collections.unmodifiableSet(periodIds);
+        }
+
+        private static void writeIds(DataOutputStream out, Set<Integer> ids) throws IOException {
+            out.writeInt(ids.size());
+            for (int id : ids) {
+                out.writeInt(id);
+            }
+        }
+
+        private static Set<Integer> readIds(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            Set<Integer> ids = new TreeSet<>();
+            for (int i = 0; i < count; i++) {
+                ids.add(in.readInt());
+            }
+            return ids;
+        }
+
+        private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+            for (double value : values) {
+                out.writeDouble(value);
+            }
+        }
+
+        private static double[] readDoubles(DataInputStream in, int n) throws IOException {
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = in.readDouble();
+            }
+            return values;
+        }
+    }
+}
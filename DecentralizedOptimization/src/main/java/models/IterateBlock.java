@@ -0,0 +1,363 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Values of one iteration in contiguous primitive arrays (struct of arrays), indexed by
+ * (electrolyzer, period, component):
+ *
+ * x[a * periods + t], hydrogen[a * periods + t], s[(a * periods + t) * 2 + k],
+ * u[(a * periods + t) * uComponents + k]
+ *
+ * The y-states of an (electrolyzer, period) are one bit per State, packed into longs (16 entries
+ * of 4 bits per long). The SWO blocks hold x, hydrogen, s, u (3 components) and y; the RTO blocks
+ * x, s and u (4 components), with the RTO steps as periods.
+ *
+ * The row and matrix getters return copies; the hot loops read the backing arrays through the
+ * bulk views (xValues(), sValues(), ...) and index().
+ */
+public class IterateBlock {
+
+    public static final int S_COMPONENTS = 2;
+    public static final int STATES = State.values().length;
+
+    private static final int ENTRIES_PER_WORD = Long.SIZE / STATES;
+    private static final long STATE_MASK = (1L << STATES) - 1;
+
+    private final int electrolyzers;
+    private final int periods;
+    private final int uComponents;
+
+    private final double[] x;
+    private final double[] hydrogen; // null in RTO blocks
+    private final double[] s;
+    private final double[] u;
+    private final long[] y; // null in RTO blocks
+
+    public IterateBlock(int electrolyzers, int periods, int uComponents, boolean withStates) {
+        this.electrolyzers = electrolyzers;
+        this.periods = periods;
+        this.uComponents = uComponents;
+        int n = electrolyzers * periods;
+        this.x = new double[n];
+        this.hydrogen = withStates ? new double[n] : null;
+        this.s = new double[n * S_COMPONENTS];
+        this.u = new double[n * uComponents];
+        this.y = withStates ? new long[(n + ENTRIES_PER_WORD - 1) / ENTRIES_PER_WORD] : null;
+    }
+
+    /** @return block of an SWO iteration: x, hydrogen, s, u with 3 components and y */
+    public static IterateBlock forSWO(int electrolyzers, int periods) {
+        return new IterateBlock(electrolyzers, periods, 3, true);
+    }
+
+    /** @return block of an RTO iteration: x, s and u with 4 components per RTO step */
+    public static IterateBlock forRTO(int electrolyzers, int steps) {
+        return new IterateBlock(electrolyzers, steps, 4, false);
+    }
+
+    // ============================================================================
+    // LAYOUT
+    // ============================================================================
+
+    public int getElectrolyzers() {
+        return electrolyzers;
+    }
+
+    public int getPeriods() {
+        return periods;
+    }
+
+    public int getUComponents() {
+        return uComponents;
+    }
+
+    public boolean hasStates() {
+        return y != null;
+    }
+
+    /** @return index of (electrolyzer, period) in x and hydrogen, times the components in s and u */
+    public int index(int agentIndex, int periodIndex) {
+        if (agentIndex < 0 || agentIndex >= electrolyzers) {
+            throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
+        }
+        if (periodIndex < 0 || periodIndex >= periods) {
+            throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
+        }
+        return agentIndex * periods + periodIndex;
+    }
+
+    private static void checkComponent(int component, int components) {
+        if (component < 0 || component >= components) {
+            throw new IndexOutOfBoundsException("Ungültiger Komponentenindex: " + component);
+        }
+    }
+
+    // ============================================================================
+    // BULK VIEWS (backing arrays, no copies)
+    // ============================================================================
+
+    public double[] xValues() {
+        return x;
+    }
+
+    public double[] hydrogenValues() {
+        return hydrogen;
+    }
+
+    public double[] sValues() {
+        return s;
+    }
+
+    public double[] uValues() {
+        return u;
+    }
+
+    /** @return the packed y-states, see getStateBits() for the layout of an entry */
+    public long[] yBits() {
+        return y;
+    }
+
+    // ============================================================================
+    // X AND HYDROGEN
+    // ============================================================================
+
+    public double getX(int agentIndex, int periodIndex) {
+        return x[index(agentIndex, periodIndex)];
+    }
+
+    public void setX(int agentIndex, int periodIndex, double value) {
+        x[index(agentIndex, periodIndex)] = value;
+    }
+
+    public double getHydrogen(int agentIndex, int periodIndex) {
+        return hydrogen[index(agentIndex, periodIndex)];
+    }
+
+    public void setHydrogen(int agentIndex, int periodIndex, double value) {
+        hydrogen[index(agentIndex, periodIndex)] = value;
+    }
+
+    public double[] getXRow(int agentIndex) {
+        int from = index(agentIndex, 0);
+        return Arrays.copyOfRange(x, from, from + periods);
+    }
+
+    /** Copies up to one row; shorter rows leave the remaining periods unchanged. */
+    public void setXRow(int agentIndex, double[] values) {
+        System.arraycopy(values, 0, x, index(agentIndex, 0), Math.min(values.length, periods));
+    }
+
+    public double[] getHydrogenRow(int agentIndex) {
+        int from = index(agentIndex, 0);
+        return Arrays.copyOfRange(hydrogen, from, from + periods);
+    }
+
+    public void setHydrogenRow(int agentIndex, double[] values) {
+        System.arraycopy(values, 0, hydrogen, index(agentIndex, 0), Math.min(values.length, periods));
+    }
+
+    // ============================================================================
+    // S AND U
+    // ============================================================================
+
+    public double getS(int agentIndex, int periodIndex, int component) {
+        checkComponent(component, S_COMPONENTS);
+        return s[index(agentIndex, periodIndex) * S_COMPONENTS + component];
+    }
+
+    public void setS(int agentIndex, int periodIndex, int component, double value) {
+        checkComponent(component, S_COMPONENTS);
+        s[index(agentIndex, periodIndex) * S_COMPONENTS + component] = value;
+    }
+
+    public double getU(int agentIndex, int periodIndex, int component) {
+        checkComponent(component, uComponents);
+        return u[index(agentIndex, periodIndex) * uComponents + component];
+    }
+
+    public void setU(int agentIndex, int periodIndex, int component, double value) {
+        checkComponent(component, uComponents);
+        u[index(agentIndex, periodIndex) * uComponents + component] = value;
+    }
+
+    public double[][] getSRow(int agentIndex) {
+        return row(s, agentIndex, S_COMPONENTS);
+    }
+
+    public void setSRow(int agentIndex, double[][] values) {
+        setRow(s, agentIndex, S_COMPONENTS, values);
+    }
+
+    public double[][] getURow(int agentIndex) {
+        return row(u, agentIndex, uComponents);
+    }
+
+    public void setURow(int agentIndex, double[][] values) {
+        setRow(u, agentIndex, uComponents, values);
+    }
+
+    private double[][] row(double[] values, int agentIndex, int components) {
+        int offset = index(agentIndex, 0) * components;
+        double[][] row = new double[periods][components];
+        for (int t = 0; t < periods; t++) {
+            System.arraycopy(values, offset + t * components, row[t], 0, components);
+        }
+        return row;
+    }
+
+    private void setRow(double[] values, int agentIndex, int components, double[][] row) {
+        int offset = index(agentIndex, 0) * components;
+        for (int t = 0; t < Math.min(periods, row.length); t++) {
+            System.arraycopy(row[t], 0, values, offset + t * components, Math.min(components, row[t].length));
+        }
+    }
+
+    // ============================================================================
+    // Y-STATES
+    // ============================================================================
+
+    /**
+     * @return the states of (electrolyzer, period) as bits, bit i set if State i is active
+     */
+    public int getStateBits(int agentIndex, int periodIndex) {
+        return stateBits(index(agentIndex, periodIndex));
+    }
+
+    public void setStateBits(int agentIndex, int periodIndex, int bits) {
+        int i = index(agentIndex, periodIndex);
+        int word = i / ENTRIES_PER_WORD;
+        int shift = (i % ENTRIES_PER_WORD) * STATES;
+        y[word] = (y[word] & ~(STATE_MASK << shift)) | ((bits & STATE_MASK) << shift);
+    }
+
+    /** State bits of the entry at index(), for loops over the bulk views. */
+    public int stateBits(int index) {
+        return (int) ((y[index / ENTRIES_PER_WORD] >>> ((index % ENTRIES_PER_WORD) * STATES)) & STATE_MASK);
+    }
+
+    public boolean getY(int agentIndex, int periodIndex, int state) {
+        checkComponent(state, STATES);
+        return (getStateBits(agentIndex, periodIndex) & (1 << state)) != 0;
+    }
+
+    public void setY(int agentIndex, int periodIndex, int state, boolean value) {
+        checkComponent(state, STATES);
+        int bits = getStateBits(agentIndex, periodIndex);
+        setStateBits(agentIndex, periodIndex, value ? bits | (1 << state) : bits & ~(1 << state));
+    }
+
+    public boolean[] getYStates(int agentIndex, int periodIndex) {
+        return toStates(getStateBits(agentIndex, periodIndex));
+    }
+
+    public void setYStates(int agentIndex, int periodIndex, boolean[] states) {
+        setStateBits(agentIndex, periodIndex, toBits(states));
+    }
+
+    public boolean[][] getYRow(int agentIndex) {
+        boolean[][] row = new boolean[periods][];
+        for (int t = 0; t < periods; t++) {
+            row[t] = getYStates(agentIndex, t);
+        }
+        return row;
+    }
+
+    public void setYRow(int agentIndex, boolean[][] row) {
+        for (int t = 0; t < Math.min(periods, row.length); t++) {
+            setYStates(agentIndex, t, row[t]);
+        }
+    }
+
+    public static boolean[] toStates(int bits) {
+        boolean[] states = new boolean[STATES];
+        for (int state = 0; state < STATES; state++) {
+            states[state] = (bits & (1 << state)) != 0;
+        }
+        return states;
+    }
+
+    public static int toBits(boolean[] states) {
+        int bits = 0;
+        for (int state = 0; state < Math.min(STATES, states.length); state++) {
+            if (states[state]) {
+                bits |= 1 << state;
+            }
+        }
+        return bits;
+    }
+
+    // ============================================================================
+    // MATRICES (copies in the layout of the former jagged arrays)
+    // ============================================================================
+
+    public double[][] xMatrix() {
+        double[][] matrix = new double[electrolyzers][];
+        for (int a = 0; a < electrolyzers; a++) {
+            matrix[a] = getXRow(a);
+        }
+        return matrix;
+    }
+
+    public double[][] hydrogenMatrix() {
+        double[][] matrix = new double[electrolyzers][];
+        for (int a = 0; a < electrolyzers; a++) {
+            matrix[a] = getHydrogenRow(a);
+        }
+        return matrix;
+    }
+
+    public double[][][] sMatrix() {
+        double[][][] matrix = new double[electrolyzers][][];
+        for (int a = 0; a < electrolyzers; a++) {
+            matrix[a] = getSRow(a);
+        }
+        return matrix;
+    }
+
+    public double[][][] uMatrix() {
+        double[][][] matrix = new double[electrolyzers][][];
+        for (int a = 0; a < electrolyzers; a++) {
+            matrix[a] = getURow(a);
+        }
+        return matrix;
+    }
+
+    public boolean[][][] yMatrix() {
+        boolean[][][] matrix = new boolean[electrolyzers][][];
+        for (int a = 0; a < electrolyzers; a++) {
+            matrix[a] = getYRow(a);
+        }
+        return matrix;
+    }
+
+    public void setXMatrix(double[][] matrix) {
+        for (int a = 0; a < Math.min(electrolyzers, matrix.length); a++) {
+            setXRow(a, matrix[a]);
+        }
+    }
+
+    public void setHydrogenMatrix(double[][] matrix) {
+        for (int a = 0; a < Math.min(electrolyzers, matrix.length); a++) {
+            setHydrogenRow(a, matrix[a]);
+        }
+    }
+
+    public void setSMatrix(double[][][] matrix) {
+        for (int a = 0; a < Math.min(electrolyzers, matrix.length); a++) {
+            setSRow(a, matrix[a]);
+        }
+    }
+
+    public void setUMatrix(double[][][] matrix) {
+        for (int a = 0; a < Math.min(electrolyzers, matrix.length); a++) {
+            setURow(a, matrix[a]);
+        }
+    }
+
+    public void setYMatrix(boolean[][][] matrix) {
+        for (int a = 0; a < Math.min(electrolyzers, matrix.length); a++) {
+            setYRow(a, matrix[a]);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package models;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receives the iterations that leave the window of the ADMMDataModel (ITERATION_WINDOW), oldest
+ * first. The values are those stored under the iteration key, i.e. x, y, s and u of iteration
+ * k - 1 and the residuals of iteration k; a quantity that was never written is null. The blocks
+ * are no longer used by the data model and may be kept.
+ *
+ * RTO iterations are numbered by the RTO sequence: the RTO counts from 0 in every start period,
+ * the sequence numbers the iterations of all start periods consecutively (ADMMDataModel.startRTOPeriod()).
+ *
+ * A sink that can read the iterations back (readSWO(), ...) lets the exporters of the data model
+ * cover the iterations that are no longer in memory.
+ */
+public interface IterationHistorySink {
+
+    /**
+     * Called once by ADMMDataModel.initializeIterationWindow(), before the first iteration.
+     *
+     * @param rtoSteps        periods of the RTO blocks
+     * @param residualPeriods periods of the residual blocks
+     */
+    default void open(int electrolyzers, int periods, int rtoSteps, int residualPeriods) throws IOException {
+    }
+
+    void appendSWO(int iteration, IterateBlock values, ResidualBlock residuals);
+
+    /**
+     * @param iteration RTO sequence number
+     */
+    default void appendRTO(int iteration, IterateBlock values, ResidualBlock residuals) {
+    }
+
+    default void close() {
+    }
+
+    // ============================================================================
+    // READING (optional)
+    // ============================================================================
+
+    /** @return the SWO iterations whose values are in the sink, ascending */
+    default List<Integer> getSWOIterations() {
+        return new ArrayList<>();
+    }
+
+    /** @return the RTO sequence numbers whose values are in the sink, ascending */
+    default List<Integer> getRTOIterations() {
+        return new ArrayList<>();
+    }
+
+    /** @return the values appended for the SWO iteration, null if the sink cannot read them back */
+    default IterateBlock readSWO(int iteration) {
+        return null;
+    }
+
+    default ResidualBlock readResiduals(int iteration) {
+        return null;
+    }
+
+    default IterateBlock readRTO(int iteration) {
+        return null;
+    }
+
+    default ResidualBlock readRTOResiduals(int iteration) {
+        return null;
+    }
+}
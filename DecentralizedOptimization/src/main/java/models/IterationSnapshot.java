@@ -0,0 +1,140 @@
+package models;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Immutable copy of the SWO values stored under one iteration key of the ADMMDataModel, published
+ * by the agent thread (ADMMDataModel.publishSWOValues()) and read by any thread without locks.
+ *
+ * A snapshot may hold only some quantities, e.g. the x of the iteration in progress before the
+ * Y-update. Reading a quantity that was not published throws an IllegalStateException instead of
+ * returning the zeros of a block that is still being written.
+ */
+public final class IterationSnapshot {
+
+    /** Quantities of a snapshot. */
+    public enum Part {
+        X, HYDROGEN, Y, S, U
+    }
+
+    private final int iteration;
+    private final EnumSet<Part> parts;
+    private final IterateBlock values; // eigene Kopie, wird nie herausgegeben
+
+    private IterationSnapshot(int iteration, EnumSet<Part> parts, IterateBlock values) {
+        this.iteration = iteration;
+        this.parts = parts;
+        this.values = values;
+    }
+
+    /**
+     * Copies the given quantities of the block; must run on the thread that writes the block.
+     */
+    public static IterationSnapshot capture(int iteration, IterateBlock block, Set<Part> parts) {
+        EnumSet<Part> copied = parts.isEmpty() ? EnumSet.noneOf(Part.class) : EnumSet.copyOf(parts);
+        if (!block.hasStates() && (copied.contains(Part.Y) || copied.contains(Part.HYDROGEN))) {
+            throw new IllegalArgumentException("The block of iteration " + iteration + " has no y-states and hydrogen");
+        }
+        IterateBlock copy = new IterateBlock(block.getElectrolyzers(), block.getPeriods(), block.getUComponents(), block.hasStates());
+        if (copied.contains(Part.X)) {
+            copy(block.xValues(), copy.xValues());
+        }
+        if (copied.contains(Part.HYDROGEN)) {
+            copy(block.hydrogenValues(), copy.hydrogenValues());
+        }
+        if (copied.contains(Part.Y)) {
+            System.arraycopy(block.yBits(), 0, copy.yBits(), 0, block.yBits().length);
+        }
+        if (copied.contains(Part.S)) {
+            copy(block.sValues(), copy.sValues());
+        }
+        if (copied.contains(Part.U)) {
+            copy(block.uValues(), copy.uValues());
+        }
+        return new IterationSnapshot(iteration, copied, copy);
+    }
+
+    private static void copy(double[] from, double[] to) {
+        System.arraycopy(from, 0, to, 0, from.length);
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public boolean isPublished(Part part) {
+        return parts.contains(part);
+    }
+
+    public int getElectrolyzers() {
+        return values.getElectrolyzers();
+    }
+
+    public int getPeriods() {
+        return values.getPeriods();
+    }
+
+    private void require(Part part) {
+        if (!parts.contains(part)) {
+            throw new IllegalStateException(part + " of iteration " + iteration + " is not published (published: " + parts + ")");
+        }
+    }
+
+    // ============================================================================
+    // VALUES
+    // ============================================================================
+
+    public double getX(int agentIndex, int periodIndex) {
+        require(Part.X);
+        return values.getX(agentIndex, periodIndex);
+    }
+
+    public double getHydrogen(int agentIndex, int periodIndex) {
+        require(Part.HYDROGEN);
+        return values.getHydrogen(agentIndex, periodIndex);
+    }
+
+    public double getS(int agentIndex, int periodIndex, int component) {
+        require(Part.S);
+        return values.getS(agentIndex, periodIndex, component);
+    }
+
+    public double getU(int agentIndex, int periodIndex, int component) {
+        require(Part.U);
+        return values.getU(agentIndex, periodIndex, component);
+    }
+
+    /** @return the y-states as bits, see IterateBlock.getStateBits() */
+    public int getStateBits(int agentIndex, int periodIndex) {
+        require(Part.Y);
+        return values.getStateBits(agentIndex, periodIndex);
+    }
+
+    public boolean getY(int agentIndex, int periodIndex, int state) {
+        require(Part.Y);
+        return values.getY(agentIndex, periodIndex, state);
+    }
+
+    // Zeilen als Kopien
+
+    public double[] getXRow(int agentIndex) {
+        require(Part.X);
+        return values.getXRow(agentIndex);
+    }
+
+    public boolean[][] getYRow(int agentIndex) {
+        require(Part.Y);
+        return values.getYRow(agentIndex);
+    }
+
+    public double[][] getSRow(int agentIndex) {
+        require(Part.S);
+        return values.getSRow(agentIndex);
+    }
+
+    public double[][] getURow(int agentIndex) {
+        require(Part.U);
+        return values.getURow(agentIndex);
+    }
+}
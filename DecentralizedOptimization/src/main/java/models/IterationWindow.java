@@ -0,0 +1,144 @@
+package models;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Window of the most recent iterations of the iteration maps of the ADMMDataModel.
+ *
+ * The maps created by newMap() behave like fully preallocated maps for every iteration that has
+ * not yet left the window: a missing iteration is created with zero values on its first access.
+ * Once an iteration more than capacity iterations behind the newest one is accessed, the oldest
+ * iteration is retired, i.e. handed to the retire callback, which removes it from the maps (and
+ * passes it to a history sink). Retired iterations are neither contained nor created again until
+ * the window is restarted.
+ */
+public class IterationWindow {
+
+    private final int capacity;
+    private final IntConsumer retire;
+    private int oldest = 0; // oldest iteration still in memory
+    private int newest = -1;
+
+    /**
+     * @param capacity number of iterations kept in memory, at least 1
+     * @param retire   called with every iteration that leaves the window, oldest first
+     */
+    public IterationWindow(int capacity, IntConsumer retire) {
+        this.capacity = Math.max(1, capacity);
+        this.retire = retire;
+    }
+
+    /**
+     * @param factory creates the zero values of a new iteration
+     */
+    public <V> Map<Integer, V> newMap(Supplier<V> factory) {
+        return new IterationMap<>(this, factory);
+    }
+
+    public boolean isRetired(int iteration) {
+        return iteration < oldest;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getOldestIteration() {
+        return oldest;
+    }
+
+    public int getNewestIteration() {
+        return newest;
+    }
+
+    /**
+     * Retires all iterations still in the window, oldest first, and starts over with iteration 0,
+     * e.g. for the RTO, whose iterations are counted from 0 again in every start period.
+     */
+    public void restart() {
+        int last = newest;
+        while (oldest <= last) {
+            int retired = oldest++;
+            retire.accept(retired);
+        }
+        oldest = 0;
+        newest = -1;
+    }
+
+    private void touch(int iteration) {
+        if (iteration <= newest) {
+            return;
+        }
+        newest = iteration;
+        while (newest - oldest >= capacity) {
+            // Erst verschieben, damit der Callback die Iteration nicht neu anlegt
+            int retired = oldest++;
+            retire.accept(retired);
+        }
+    }
+
+    // ============================================================================
+    // MAP
+    // ============================================================================
+
+    private static final class IterationMap<V> extends HashMap<Integer, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient IterationWindow window;
+        private final transient Supplier<V> factory;
+
+        IterationMap(IterationWindow window, Supplier<V> factory) {
+            this.window = window;
+            this.factory = factory;
+        }
+
+        private boolean isLive(Object key) {
+            return key instanceof Integer && !window.isRetired((Integer) key);
+        }
+
+        @Override
+        public V get(Object key) {
+            V value = super.get(key);
+            if (value == null && isLive(key)) {
+                value = factory.get();
+                super.put((Integer) key, value);
+                window.touch((Integer) key);
+            }
+            return value;
+        }
+
+        @Override
+        public V getOrDefault(Object key, V defaultValue) {
+            V value = get(key);
+            return value != null ? value : defaultValue;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return super.containsKey(key) || isLive(key);
+        }
+
+        @Override
+        public V put(Integer key, V value) {
+            if (window.isRetired(key)) {
+                throw new IllegalStateException("Iteration " + key + " has left the window (oldest iteration "
+                        + window.getOldestIteration() + ")");
+            }
+            V previous = super.put(key, value);
+            window.touch(key);
+            return previous;
+        }
+
+        @Override
+        public V computeIfAbsent(Integer key, Function<? super Integer, ? extends V> mappingFunction) {
+            if (window.isRetired(key)) {
+                return mappingFunction.apply(key);
+            }
+            return get(key);
+        }
+    }
+}
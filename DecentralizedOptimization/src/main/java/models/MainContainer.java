@@ -39,6 +39,9 @@ public class MainContainer {
             int totalNumberADMMAgents = 4; 
             double rho = 1.37728;
             int maxIterations = 20;
+
+            // All agents share this JVM, the solver thread budget is split between them
+            System.setProperty(ADMMSettings.SOLVER_AGENTS_PER_JVM, String.valueOf(totalNumberADMMAgents));
             
             // Start the AMSAgent
             Object[] amsAgentArgs = new Object[]{totalNumberADMMAgents};
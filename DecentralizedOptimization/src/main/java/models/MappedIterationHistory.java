@@ -0,0 +1,572 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * History of the iterations that left the iteration window, off the heap in memory-mapped files
+ * (one sub directory per agent, swo.hist and rto.hist).
+ *
+ * Every iteration is one record of fixed size at HEADER_BYTES + iteration * recordBytes, so an
+ * iteration (or a single value of it) is read back without scanning the file. RTO records are
+ * numbered by the RTO sequence, so the start periods do not overwrite each other. The file is
+ * mapped in segments of whole records, new segments are mapped as the history grows; the pages
+ * belong to the page cache, not to the heap.
+ *
+ * Header (little endian, HEADER_BYTES): magic, version, kind (0 SWO, 1 RTO), electrolyzers E,
+ * periods P, u components, with states, residual periods R, record bytes.
+ * Record: iteration, flags (1 values, 2 residuals), then x[E*P], hydrogen[E*P] (SWO), s[E*P*2],
+ * u[E*P*U], y as the packed state words of the IterateBlock (SWO), residuals[E*R*3] (R = RTO steps
+ * for the RTO).
+ *
+ * Not thread-safe: the data model appends and the exporters read on the agent thread.
+ */
+public class MappedIterationHistory implements IterationHistorySink {
+
+    private static final int MAGIC = 0x41484953; // "AHIS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final long SEGMENT_BYTES = 64L << 20;
+
+    private static final int KIND_SWO = 0;
+    private static final int KIND_RTO = 1;
+    private static final int FLAG_VALUES = 1;
+    private static final int FLAG_RESIDUALS = 2;
+
+    private static final String SWO_FILE = "swo.hist";
+    private static final String RTO_FILE = "rto.hist";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private HistoryFile swo;
+    private HistoryFile rto;
+
+    /**
+     * @param baseDirectory directory of all agents' histories, each agent writes into a sub directory
+     */
+    public MappedIterationHistory(Path baseDirectory, String agentName) {
+        this(baseDirectory, agentName, SEGMENT_BYTES);
+    }
+
+    /** @param segmentBytes size of the mapped segments (rounded down to whole records), small in tests */
+    MappedIterationHistory(Path baseDirectory, String agentName, long segmentBytes) {
+        this.directory = baseDirectory.resolve(agentName);
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * @return the history configured in ADMMSettings (HISTORY_DIR), null if there is none
+     */
+    public static MappedIterationHistory fromSettings(String agentName) {
+        String historyDirectory = ADMMSettings.getHistoryDirectory();
+        if (historyDirectory.isEmpty()) {
+            return null;
+        }
+        return new MappedIterationHistory(Paths.get(historyDirectory), agentName);
+    }
+
+    /**
+     * Opens the history of a finished run for reading, e.g. for an analysis after the run.
+     *
+     * @param agentDirectory the sub directory of the agent
+     */
+    public static MappedIterationHistory openExisting(Path agentDirectory) throws IOException {
+        return openExisting(agentDirectory, SEGMENT_BYTES);
+    }
+
+    static MappedIterationHistory openExisting(Path agentDirectory, long segmentBytes) throws IOException {
+        MappedIterationHistory history = new MappedIterationHistory(agentDirectory.getParent(), agentDirectory.getFileName().toString(), segmentBytes);
+        history.swo = HistoryFile.load(agentDirectory.resolve(SWO_FILE), segmentBytes);
+        history.rto = HistoryFile.load(agentDirectory.resolve(RTO_FILE), segmentBytes);
+        return history;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // ============================================================================
+    // WRITING (IterationHistorySink)
+    // ============================================================================
+
+    /** Creates the files, an existing history of the agent is replaced. */
+    @Override
+    public void open(int electrolyzers, int periods, int rtoSteps, int residualPeriods) throws IOException {
+        close();
+        Files.createDirectories(directory);
+        swo = HistoryFile.create(directory.resolve(SWO_FILE), KIND_SWO, electrolyzers, periods, 3, true, residualPeriods, segmentBytes);
+        rto = HistoryFile.create(directory.resolve(RTO_FILE), KIND_RTO, electrolyzers, rtoSteps, 4, false, rtoSteps, segmentBytes);
+    }
+
+    @Override
+    public void appendSWO(int iteration, IterateBlock values, ResidualBlock residuals) {
+        append(swo, iteration, values, residuals);
+    }
+
+    /** @param iteration RTO sequence number */
+    @Override
+    public void appendRTO(int iteration, IterateBlock values, ResidualBlock residuals) {
+        append(rto, iteration, values, residuals);
+    }
+
+    private void append(HistoryFile file, int iteration, IterateBlock values, ResidualBlock residuals) {
+        if (file == null) {
+            throw new IllegalStateException("History in " + directory + " is not open");
+        }
+        try {
+            file.write(iteration, values, residuals);
+        } catch (IOException e) {
+            System.err.println("Iteration " + iteration + " could not be written to the history in " + directory + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /** Writes the mapped pages to disk and releases the files; the history can no longer be read. */
+    @Override
+    public void close() {
+        closeQuietly(swo);
+        closeQuietly(rto);
+        swo = null;
+        rto = null;
+    }
+
+    private void closeQuietly(HistoryFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("History " + file.path + " could not be closed: " + e.getMessage());
+        }
+    }
+
+    // ============================================================================
+    // READING
+    // ============================================================================
+
+    @Override
+    public List<Integer> getSWOIterations() {
+        return swo != null ? swo.iterations() : new ArrayList<>();
+    }
+
+    @Override
+    public List<Integer> getRTOIterations() {
+        return rto != null ? rto.iterations() : new ArrayList<>();
+    }
+
+    /** @return a copy of the SWO values of the iteration, null if they are not in the history */
+    @Override
+    public IterateBlock readSWO(int iteration) {
+        return swo != null ? swo.readValues(iteration) : null;
+    }
+
+    @Override
+    public ResidualBlock readResiduals(int iteration) {
+        return swo != null ? swo.readResiduals(iteration) : null;
+    }
+
+    @Override
+    public IterateBlock readRTO(int iteration) {
+        return rto != null ? rto.readValues(iteration) : null;
+    }
+
+    @Override
+    public ResidualBlock readRTOResiduals(int iteration) {
+        return rto != null ? rto.readResiduals(iteration) : null;
+    }
+
+    // Einzelwerte direkt aus der Abbildung, ohne die Iteration zu kopieren
+
+    public double getXSWO(int iteration, int agentIndex, int periodIndex) {
+        return requireOpen(swo).readX(iteration, agentIndex, periodIndex);
+    }
+
+    public double getSSWO(int iteration, int agentIndex, int periodIndex, int component) {
+        return requireOpen(swo).readS(iteration, agentIndex, periodIndex, component);
+    }
+
+    public double getUSWO(int iteration, int agentIndex, int periodIndex, int component) {
+        return requireOpen(swo).readU(iteration, agentIndex, periodIndex, component);
+    }
+
+    /** @return the y-states as bits, see IterateBlock.getStateBits() */
+    public int getStateBitsSWO(int iteration, int agentIndex, int periodIndex) {
+        return requireOpen(swo).readStateBits(iteration, agentIndex, periodIndex);
+    }
+
+    public double getResidual(int iteration, int agentIndex, int periodIndex, int component) {
+        return requireOpen(swo).readResidual(iteration, agentIndex, periodIndex, component);
+    }
+
+    public double getXRTO(int iteration, int agentIndex, int step) {
+        return requireOpen(rto).readX(iteration, agentIndex, step);
+    }
+
+    public double getRTOResidual(int iteration, int agentIndex, int step, int component) {
+        return requireOpen(rto).readResidual(iteration, agentIndex, step, component);
+    }
+
+    private HistoryFile requireOpen(HistoryFile file) {
+        if (file == null) {
+            throw new IllegalStateException("History in " + directory + " is not open");
+        }
+        return file;
+    }
+
+    // ============================================================================
+    // FILE
+    // ============================================================================
+
+    private static final class HistoryFile {
+        private final Path path;
+        private final FileChannel channel;
+        private final int kind;
+        private final int electrolyzers;
+        private final int periods;
+        private final int uComponents;
+        private final boolean withStates;
+        private final int residualPeriods;
+
+        // Offsets innerhalb eines Records
+        private final int xOffset;
+        private final int hydrogenOffset;
+        private final int sOffset;
+        private final int uOffset;
+        private final int yOffset;
+        private final int residualOffset;
+        private final int yWords;
+        private final int recordBytes;
+        private final int recordsPerSegment;
+
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+        private final BitSet present = new BitSet();
+
+        private HistoryFile(Path path, FileChannel channel, int kind, int electrolyzers, int periods, int uComponents,
+                boolean withStates, int residualPeriods, long segmentBytes) {
+            this.path = path;
+            this.channel = channel;
+            this.kind = kind;
+            this.electrolyzers = electrolyzers;
+            this.periods = periods;
+            this.uComponents = uComponents;
+            this.withStates = withStates;
+            this.residualPeriods = residualPeriods;
+
+            long n = (long) electrolyzers * periods;
+            // Gleiche Packung wie IterateBlock, damit y als Wörter kopiert werden kann
+            long entriesPerWord = Long.SIZE / IterateBlock.STATES;
+            this.yWords = withStates ? (int) ((n + entriesPerWord - 1) / entriesPerWord) : 0;
+            long offset = RECORD_HEADER_BYTES;
+            this.xOffset = (int) offset;
+            offset += n * Double.BYTES;
+            this.hydrogenOffset = (int) offset;
+            offset += withStates ? n * Double.BYTES : 0;
+            this.sOffset = (int) offset;
+            offset += n * IterateBlock.S_COMPONENTS * Double.BYTES;
+            this.uOffset = (int) offset;
+            offset += n * uComponents * Double.BYTES;
+            this.yOffset = (int) offset;
+            offset += (long) yWords * Long.BYTES;
+            this.residualOffset = (int) offset;
+            offset += (long) electrolyzers * residualPeriods * ResidualBlock.COMPONENTS * Double.BYTES;
+            if (offset > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("An iteration of " + electrolyzers + " electrolyzers and " + periods
+                        + " periods does not fit into one mapped record (" + offset + " bytes)");
+            }
+            this.recordBytes = (int) offset;
+            this.recordsPerSegment = (int) Math.max(1, segmentBytes / recordBytes);
+        }
+
+        static HistoryFile create(Path path, int kind, int electrolyzers, int periods, int uComponents, boolean withStates,
+                int residualPeriods, long segmentBytes) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            HistoryFile file = new HistoryFile(path, channel, kind, electrolyzers, periods, uComponents, withStates, residualPeriods,
+                    segmentBytes);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(electrolyzers).putInt(periods).putInt(uComponents)
+                    .putInt(withStates ? 1 : 0).putInt(residualPeriods).putInt(file.recordBytes);
+            header.clear();
+            channel.write(header, 0);
+            return file;
+        }
+
+        static HistoryFile load(Path path, long segmentBytes) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                    // bis der Header vollständig gelesen ist
+                }
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                    throw new IOException("Not an iteration history: " + path);
+                }
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported history version " + version + ": " + path);
+                }
+                int kind = header.getInt();
+                int electrolyzers = header.getInt();
+                int periods = header.getInt();
+                int uComponents = header.getInt();
+                boolean withStates = header.getInt() != 0;
+                int residualPeriods = header.getInt();
+                int recordBytes = header.getInt();
+                HistoryFile file = new HistoryFile(path, channel, kind, electrolyzers, periods, uComponents, withStates, residualPeriods,
+                        segmentBytes);
+                if (file.recordBytes != recordBytes) {
+                    throw new IOException("Corrupt history header (record size " + recordBytes + ", expected " + file.recordBytes + "): " + path);
+                }
+                // Vorhandene Iterationen aus den Flags der Records
+                long records = (channel.size() - HEADER_BYTES) / recordBytes;
+                for (int slot = 0; slot < records; slot++) {
+                    ByteBuffer segment = file.segment(slot);
+                    int position = file.position(slot);
+                    if (segment.getInt(position) == slot && segment.getInt(position + 4) != 0) {
+                        file.present.set(slot);
+                    }
+                }
+                return file;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // ---- Segmente ----
+
+        /** @return the segment of the record, mapped (and the file extended) on first use */
+        private MappedByteBuffer segment(int slot) throws IOException {
+            int index = slot / recordsPerSegment;
+            while (segments.size() <= index) {
+                long start = HEADER_BYTES + (long) segments.size() * recordsPerSegment * recordBytes;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) recordsPerSegment * recordBytes);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments.add(segment);
+            }
+            return segments.get(index);
+        }
+
+        private int position(int slot) {
+            return (slot % recordsPerSegment) * recordBytes;
+        }
+
+        private ByteBuffer record(int slot) throws IOException {
+            ByteBuffer view = segment(slot).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int position = position(slot);
+            view.limit(position + recordBytes).position(position);
+            return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        // ---- Schreiben ----
+
+        void write(int iteration, IterateBlock values, ResidualBlock residuals) throws IOException {
+            if (iteration < 0) {
+                throw new IllegalArgumentException("Negative iteration: " + iteration);
+            }
+            if (values != null && (values.getElectrolyzers() != electrolyzers || values.getPeriods() != periods
+                    || values.getUComponents() != uComponents || values.hasStates() != withStates)) {
+                throw new IllegalArgumentException("Values of iteration " + iteration + " do not match the history layout " + path);
+            }
+            if (residuals != null && (residuals.getElectrolyzers() != electrolyzers
+                    || residuals.getPeriods() != residualPeriods)) {
+                throw new IllegalArgumentException("Residuals of iteration " + iteration + " do not match the history layout " + path);
+            }
+            ByteBuffer record = record(iteration);
+            int flags = (values != null ? FLAG_VALUES : 0) | (residuals != null ? FLAG_RESIDUALS : 0);
+            record.putInt(0, iteration).putInt(4, flags);
+            if (values != null) {
+                put(record, xOffset, values.xValues());
+                if (withStates) {
+                    put(record, hydrogenOffset, values.hydrogenValues());
+                    record.position(yOffset);
+                    record.asLongBuffer().put(values.yBits());
+                }
+                put(record, sOffset, values.sValues());
+                put(record, uOffset, values.uValues());
+            }
+            if (residuals != null) {
+                put(record, residualOffset, residuals.values());
+            }
+            if (flags != 0) {
+                present.set(iteration);
+            }
+        }
+
+        private static void put(ByteBuffer record, int offset, double[] values) {
+            record.position(offset);
+            record.asDoubleBuffer().put(values);
+        }
+
+        // ---- Lesen ----
+
+        boolean contains(int iteration, int flag) {
+            if (iteration < 0 || !present.get(iteration)) {
+                return false;
+            }
+            try {
+                ByteBuffer segment = segment(iteration);
+                return (segment.getInt(position(iteration) + 4) & flag) != 0;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+        /** @return the iterations with values (not only residuals), ascending */
+        List<Integer> iterations() {
+            List<Integer> iterations = new ArrayList<>(present.cardinality());
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                if (contains(i, FLAG_VALUES)) {
+                    iterations.add(i);
+                }
+            }
+            return iterations;
+        }
+
+        IterateBlock readValues(int iteration) {
+            if (!contains(iteration, FLAG_VALUES)) {
+                return null;
+            }
+            try {
+                ByteBuffer record = record(iteration);
+                IterateBlock values = new IterateBlock(electrolyzers, periods, uComponents, withStates);
+                get(record, xOffset, values.xValues());
+                if (withStates) {
+                    get(record, hydrogenOffset, values.hydrogenValues());
+                    record.position(yOffset);
+                    record.asLongBuffer().get(values.yBits());
+                }
+                get(record, sOffset, values.sValues());
+                get(record, uOffset, values.uValues());
+                return values;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        ResidualBlock readResiduals(int iteration) {
+            if (!contains(iteration, FLAG_RESIDUALS)) {
+                return null;
+            }
+            try {
+                ResidualBlock residuals = new ResidualBlock(electrolyzers, residualPeriods);
+                get(record(iteration), residualOffset, residuals.values());
+                return residuals;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        private static void get(ByteBuffer record, int offset, double[] values) {
+            record.position(offset);
+            record.asDoubleBuffer().get(values);
+        }
+
+        double readX(int iteration, int agentIndex, int periodIndex) {
+            return readDouble(iteration, FLAG_VALUES, xOffset, index(agentIndex, periodIndex));
+        }
+
+        double readS(int iteration, int agentIndex, int periodIndex, int component) {
+            checkComponent(component, IterateBlock.S_COMPONENTS);
+            return readDouble(iteration, FLAG_VALUES, sOffset, index(agentIndex, periodIndex) * IterateBlock.S_COMPONENTS + component);
+        }
+
+        double readU(int iteration, int agentIndex, int periodIndex, int component) {
+            checkComponent(component, uComponents);
+            return readDouble(iteration, FLAG_VALUES, uOffset, index(agentIndex, periodIndex) * uComponents + component);
+        }
+
+        double readResidual(int iteration, int agentIndex, int periodIndex, int component) {
+            checkComponent(component, ResidualBlock.COMPONENTS);
+            if (agentIndex < 0 || agentIndex >= electrolyzers || periodIndex < 0 || periodIndex >= residualPeriods) {
+                throw new IndexOutOfBoundsException("Ungültiger Index: " + agentIndex + ", " + periodIndex);
+            }
+            int offset = (agentIndex * residualPeriods + periodIndex) * ResidualBlock.COMPONENTS + component;
+            return readDouble(iteration, FLAG_RESIDUALS, residualOffset, offset);
+        }
+
+        int readStateBits(int iteration, int agentIndex, int periodIndex) {
+            if (!withStates) {
+                throw new IllegalStateException("The history " + path + " has no y-states");
+            }
+            int i = index(agentIndex, periodIndex);
+            int entriesPerWord = Long.SIZE / IterateBlock.STATES;
+            long word = readLong(iteration, FLAG_VALUES, yOffset + (i / entriesPerWord) * Long.BYTES);
+            return (int) ((word >>> ((i % entriesPerWord) * IterateBlock.STATES)) & ((1L << IterateBlock.STATES) - 1));
+        }
+
+        private double readDouble(int iteration, int flag, int offset, int element) {
+            if (!contains(iteration, flag)) {
+                throw new IllegalArgumentException("Iteration " + iteration + " is not in the history " + path);
+            }
+            try {
+                return segment(iteration).getDouble(position(iteration) + offset + element * Double.BYTES);
+            } catch (IOException e) {
+                throw new IllegalStateException("History " + path + " could not be read", e);
+            }
+        }
+
+        private long readLong(int iteration, int flag, int offset) {
+            if (!contains(iteration, flag)) {
+                throw new IllegalArgumentException("Iteration " + iteration + " is not in the history " + path);
+            }
+            try {
+                return segment(iteration).getLong(position(iteration) + offset);
+            } catch (IOException e) {
+                throw new IllegalStateException("History " + path + " could not be read", e);
+            }
+        }
+
+        private int index(int agentIndex, int periodIndex) {
+            if (agentIndex < 0 || agentIndex >= electrolyzers) {
+                throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
+            }
+            if (periodIndex < 0 || periodIndex >= periods) {
+                throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
+            }
+            return agentIndex * periods + periodIndex;
+        }
+
+        private static void checkComponent(int component, int components) {
+            if (component < 0 || component >= components) {
+                throw new IndexOutOfBoundsException("Ungültiger Komponentenindex: " + component);
+            }
+        }
+
+        void close() throws IOException {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            segments.clear();
+            // Die Länge auf die geschriebenen Records kürzen (die letzte Abbildung reicht bis zum Segmentende)
+            int last = present.length();
+            long size = HEADER_BYTES + (long) last * recordBytes;
+            if (channel.isOpen()) {
+                try {
+                    if (channel.size() > size) {
+                        channel.truncate(size);
+                    }
+                } catch (IOException e) {
+                    // Unter Windows lässt sich eine abgebildete Datei nicht kürzen; die Records bleiben gültig
+                }
+                channel.close();
+            }
+        }
+    }
+}
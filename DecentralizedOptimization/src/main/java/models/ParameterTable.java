@@ -0,0 +1,268 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Immutable, columnar copy of the Parameters for the hot loops: one primitive column per
+ * parameter, indexed by a compact electrolyzer index e and a period index t.
+ *
+ * The electrolyzers are ordered by id and the periods by number, so with the ids 1..N and the
+ * periods 1..T of the input the indices are e = id - 1 and t = period - 1, i.e. the agentIndex and
+ * periodIndex of the ADMMDataModel. Built once by LoadParametersBehaviour (Parameters.getTable()).
+ */
+public final class ParameterTable {
+
+    private static final int STATES = State.values().length;
+
+    // Electrolyzer columns
+    private final Electrolyzer[] electrolyzers;
+    private final int[] ids;
+    private final double[] powerElectrolyzer;
+    private final double[] minOperation;
+    private final double[] maxOperation;
+    private final double[] slope;
+    private final double[] intercept;
+    private final double[] startupCost;
+    private final double[] standbyCost;
+    private final double[] rampRate;
+    private final int[] startupDuration;
+    private final int[] holdingDurations; // [e * STATES + state.ordinal()]
+
+    // Period columns
+    private final int[] periodNumbers;
+    private final double[] electricityCost;
+    private final double[] demand;
+    private final double[] renewableEnergy;
+
+    private final double intervalLength;
+    private final double demandDeviationCost;
+
+    private final Map<Integer, Integer> indexById = new HashMap<>();
+    private final Map<Integer, Integer> indexByPeriod = new HashMap<>();
+
+    private ParameterTable(Parameters params) {
+        List<Electrolyzer> sortedElectrolyzers = new ArrayList<>(params.getElectrolyzers());
+        sortedElectrolyzers.sort(Comparator.comparingInt(Electrolyzer::getId));
+        List<Period> sortedPeriods = new ArrayList<>(params.getPeriods());
+        sortedPeriods.sort(Comparator.comparingInt(Period::getT));
+
+        int n = sortedElectrolyzers.size();
+        electrolyzers = sortedElectrolyzers.toArray(new Electrolyzer[0]);
+        ids = new int[n];
+        powerElectrolyzer = new double[n];
+        minOperation = new double[n];
+        maxOperation = new double[n];
+        slope = new double[n];
+        intercept = new double[n];
+        startupCost = new double[n];
+        standbyCost = new double[n];
+        rampRate = new double[n];
+        startupDuration = new int[n];
+        holdingDurations = new int[n * STATES];
+        for (int e = 0; e < n; e++) {
+            Electrolyzer electrolyzer = electrolyzers[e];
+            ids[e] = electrolyzer.getId();
+            indexById.put(ids[e], e);
+            powerElectrolyzer[e] = value(params.powerElectrolyzer, electrolyzer);
+            minOperation[e] = value(params.minOperation, electrolyzer);
+            maxOperation[e] = value(params.maxOperation, electrolyzer);
+            slope[e] = value(params.slope, electrolyzer);
+            intercept[e] = value(params.intercept, electrolyzer);
+            startupCost[e] = value(params.startupCost, electrolyzer);
+            standbyCost[e] = value(params.standbyCost, electrolyzer);
+            rampRate[e] = value(params.rampRate, electrolyzer);
+            Integer duration = params.startupDuration == null ? null : params.startupDuration.get(electrolyzer);
+            startupDuration[e] = duration == null ? 0 : duration;
+            Map<State, Integer> durations = params.holdingDurations == null ? null : params.holdingDurations.get(electrolyzer);
+            for (State state : State.values()) {
+                Integer holding = durations == null ? null : durations.get(state);
+                holdingDurations[e * STATES + state.ordinal()] = holding == null ? 0 : holding;
+            }
+        }
+
+        int periods = sortedPeriods.size();
+        periodNumbers = new int[periods];
+        electricityCost = new double[periods];
+        demand = new double[periods];
+        renewableEnergy = new double[periods];
+        for (int t = 0; t < periods; t++) {
+            Period period = sortedPeriods.get(t);
+            periodNumbers[t] = period.getT();
+            indexByPeriod.put(period.getT(), t);
+            electricityCost[t] = value(params.electricityCost, period);
+            demand[t] = value(params.demand, period);
+            renewableEnergy[t] = value(params.renewableEnergyForecast, period);
+        }
+
+        intervalLength = params.intervalLengthSWO;
+        demandDeviationCost = params.demandDeviationCost;
+    }
+
+    /** @return the table of the parameters, the maps are read once */
+    public static ParameterTable compile(Parameters params) {
+        return new ParameterTable(params);
+    }
+
+    private static <K> double value(Map<K, Double> column, K key) {
+        Double value = column == null ? null : column.get(key);
+        return value == null ? 0.0 : value;
+    }
+
+    // ============================================================================
+    // INDICES
+    // ============================================================================
+
+    public int getElectrolyzerCount() {
+        return electrolyzers.length;
+    }
+
+    public int getPeriodCount() {
+        return periodNumbers.length;
+    }
+
+    public Electrolyzer getElectrolyzer(int e) {
+        return electrolyzers[e];
+    }
+
+    public int getId(int e) {
+        return ids[e];
+    }
+
+    /** @return period number (1-based) of the index */
+    public int getPeriodNumber(int t) {
+        return periodNumbers[t];
+    }
+
+    /** @return compact index of the electrolyzer id, -1 if the id is unknown */
+    public int indexOf(int electrolyzerId) {
+        int dense = electrolyzerId - 1;
+        if (dense >= 0 && dense < ids.length && ids[dense] == electrolyzerId) {
+            return dense; // ids 1..N, ohne Map-Zugriff
+        }
+        Integer e = indexById.get(electrolyzerId);
+        return e == null ? -1 : e;
+    }
+
+    public int indexOf(Electrolyzer electrolyzer) {
+        return indexOf(electrolyzer.getId());
+    }
+
+    /** @return period index of the period number, -1 if the period is unknown */
+    public int periodIndexOf(int periodNumber) {
+        int dense = periodNumber - 1;
+        if (dense >= 0 && dense < periodNumbers.length && periodNumbers[dense] == periodNumber) {
+            return dense;
+        }
+        Integer t = indexByPeriod.get(periodNumber);
+        return t == null ? -1 : t;
+    }
+
+    /** @return compact indices of the electrolyzers in ascending order, e.g. of an agent's slice */
+    public int[] indicesOf(Collection<Electrolyzer> subset) {
+        int[] indices = new int[subset.size()];
+        int i = 0;
+        for (Electrolyzer electrolyzer : subset) {
+            indices[i++] = indexOf(electrolyzer);
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    /** @return compact indices of the electrolyzers that pass the filter, in ascending order */
+    public int[] indicesOf(Collection<Electrolyzer> subset, Predicate<Electrolyzer> filter) {
+        List<Electrolyzer> selected = new ArrayList<>(subset.size());
+        for (Electrolyzer electrolyzer : subset) {
+            if (filter.test(electrolyzer)) {
+                selected.add(electrolyzer);
+            }
+        }
+        return indicesOf(selected);
+    }
+
+    /** @return period indices of the periods in ascending order */
+    public int[] periodIndicesOf(Set<Period> subset) {
+        int[] indices = new int[subset.size()];
+        int i = 0;
+        for (Period period : subset) {
+            indices[i++] = periodIndexOf(period.getT());
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    // ============================================================================
+    // ELECTROLYZER COLUMNS
+    // ============================================================================
+
+    public double getPowerElectrolyzer(int e) {
+        return powerElectrolyzer[e];
+    }
+
+    public double getMinOperation(int e) {
+        return minOperation[e];
+    }
+
+    public double getMaxOperation(int e) {
+        return maxOperation[e];
+    }
+
+    public double getSlope(int e) {
+        return slope[e];
+    }
+
+    public double getIntercept(int e) {
+        return intercept[e];
+    }
+
+    public double getStartupCost(int e) {
+        return startupCost[e];
+    }
+
+    public double getStandbyCost(int e) {
+        return standbyCost[e];
+    }
+
+    public double getRampRate(int e) {
+        return rampRate[e];
+    }
+
+    public int getStartupDuration(int e) {
+        return startupDuration[e];
+    }
+
+    public int getHoldingDuration(int e, State state) {
+        return holdingDurations[e * STATES + state.ordinal()];
+    }
+
+    // ============================================================================
+    // PERIOD COLUMNS AND SCALARS
+    // ============================================================================
+
+    public double getElectricityCost(int t) {
+        return electricityCost[t];
+    }
+
+    public double getDemand(int t) {
+        return demand[t];
+    }
+
+    public double getRenewableEnergy(int t) {
+        return renewableEnergy[t];
+    }
+
+    public double getIntervalLength() {
+        return intervalLength;
+    }
+
+    public double getDemandDeviationCost() {
+        return demandDeviationCost;
+    }
+}
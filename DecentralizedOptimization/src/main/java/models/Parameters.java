@@ -25,6 +25,7 @@ public class Parameters {
     private int totalElectrolyzers;
     public Map<Period, Double> purchasedGridEnergy; 
     public Map<Period, Double> totalElectrolyzerEnergy; 
+    private ParameterTable table; // Spaltenweise Kopie für die Schleifen der Updates
     
     public Parameters(
         Map<Electrolyzer, Double> startupCost, 
@@ -79,6 +80,21 @@ public class Parameters {
         rampRate.put(electrolyzer, rate);
     }
 
+    /**
+     * @return the columnar table of these parameters; compiled on first use unless
+     *         LoadParametersBehaviour has set it. Later changes to the maps are not reflected.
+     */
+    public ParameterTable getTable() {
+        if (table == null) {
+            table = ParameterTable.compile(this);
+        }
+        return table;
+    }
+
+    public void setTable(ParameterTable table) {
+        this.table = table;
+    }
+
     public int getTotalElectrolyzers() {
         return totalElectrolyzers;
     }
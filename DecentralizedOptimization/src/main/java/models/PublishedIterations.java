@@ -0,0 +1,97 @@
+package models;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SWO iterations the agent thread has published as IterationSnapshots, by iteration key.
+ *
+ * The agent thread builds the next iteration in the working state of the ADMMDataModel and
+ * publishes it (or a part of it) atomically; worker threads read the snapshots without locks. A
+ * read of an iteration that has not been published yet, or is no longer retained, throws an
+ * IllegalStateException, so a worker never sees a block that is still being written.
+ */
+public class PublishedIterations implements SWOValueReader {
+
+    private final ConcurrentHashMap<Integer, IterationSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final int retained;
+    private volatile int latest = -1;
+
+    /**
+     * @param retained number of most recent iterations kept, at least 2 (k and k + 1)
+     */
+    public PublishedIterations(int retained) {
+        this.retained = Math.max(2, retained);
+    }
+
+    /**
+     * Publishes the snapshot, replacing an earlier one of the same iteration; iterations more than
+     * retained behind the newest one are dropped. Called by the agent thread only.
+     */
+    void publish(IterationSnapshot snapshot) {
+        int iteration = snapshot.getIteration();
+        snapshots.put(iteration, snapshot);
+        if (iteration > latest) {
+            latest = iteration;
+            snapshots.keySet().removeIf(k -> k <= iteration - retained);
+        }
+    }
+
+    void clear() {
+        snapshots.clear();
+        latest = -1;
+    }
+
+    /** @return the newest published iteration key, -1 if none */
+    public int getLatestIteration() {
+        return latest;
+    }
+
+    public int getRetained() {
+        return retained;
+    }
+
+    public boolean isPublished(int iteration) {
+        return snapshots.containsKey(iteration);
+    }
+
+    /**
+     * @return the snapshot of the iteration
+     * @throws IllegalStateException if the iteration has not been published or is no longer retained
+     */
+    public IterationSnapshot get(int iteration) {
+        IterationSnapshot snapshot = snapshots.get(iteration);
+        if (snapshot == null) {
+            int newest = latest;
+            if (iteration > newest) {
+                throw new IllegalStateException("Iteration " + iteration + " has not been published yet (latest published iteration " + newest + ")");
+            }
+            throw new IllegalStateException("Iteration " + iteration + " is not published or no longer retained (latest published iteration "
+                    + newest + ", " + retained + " retained)");
+        }
+        return snapshot;
+    }
+
+    // ============================================================================
+    // SWOValueReader
+    // ============================================================================
+
+    @Override
+    public double[] getXSWOValuesForAgent(int iteration, int agentIndex) {
+        return get(iteration).getXRow(agentIndex);
+    }
+
+    @Override
+    public boolean[][] getYSWOValuesForAgent(int iteration, int agentIndex) {
+        return get(iteration).getYRow(agentIndex);
+    }
+
+    @Override
+    public double[][] getSSWOValuesForAgent(int iteration, int agentIndex) {
+        return get(iteration).getSRow(agentIndex);
+    }
+
+    @Override
+    public double[][] getUSWOValuesForAgent(int iteration, int agentIndex) {
+        return get(iteration).getURow(agentIndex);
+    }
+}
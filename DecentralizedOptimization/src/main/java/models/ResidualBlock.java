@@ -0,0 +1,75 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Residuals of one iteration (Residual1, Residual2, yResidual per electrolyzer and period) in one
+ * contiguous array: values[(a * periods + t) * COMPONENTS + k].
+ *
+ * Replaces the nested maps of the ADMMDataModel; reading an entry neither boxes nor allocates.
+ * The SWO and the RTO share the store, so periods is the larger of the SWO periods and the RTO
+ * steps.
+ */
+public class ResidualBlock {
+
+    public static final int COMPONENTS = 3;
+
+    private final int electrolyzers;
+    private final int periods;
+    private final double[] values;
+
+    public ResidualBlock(int electrolyzers, int periods) {
+        this.electrolyzers = electrolyzers;
+        this.periods = periods;
+        this.values = new double[electrolyzers * periods * COMPONENTS];
+    }
+
+    public int getElectrolyzers() {
+        return electrolyzers;
+    }
+
+    public int getPeriods() {
+        return periods;
+    }
+
+    /** @return offset of the first residual of (electrolyzer, period) in values() */
+    public int offset(int agentIndex, int periodIndex) {
+        if (agentIndex < 0 || agentIndex >= electrolyzers) {
+            throw new IndexOutOfBoundsException("Ungültiger Agentenindex: " + agentIndex);
+        }
+        if (periodIndex < 0 || periodIndex >= periods) {
+            throw new IndexOutOfBoundsException("Ungültiger Periodenindex: " + periodIndex);
+        }
+        return (agentIndex * periods + periodIndex) * COMPONENTS;
+    }
+
+    /** Bulk view (backing array, no copy), e.g. for exports and checkpoints. */
+    public double[] values() {
+        return values;
+    }
+
+    public double get(int agentIndex, int periodIndex, int component) {
+        if (component < 0 || component >= COMPONENTS) {
+            throw new IndexOutOfBoundsException("Ungültiger Residualindex: " + component);
+        }
+        return values[offset(agentIndex, periodIndex) + component];
+    }
+
+    /** @return copy of the residuals of (electrolyzer, period) */
+    public double[] get(int agentIndex, int periodIndex) {
+        int offset = offset(agentIndex, periodIndex);
+        return Arrays.copyOfRange(values, offset, offset + COMPONENTS);
+    }
+
+    /** Copies up to COMPONENTS residuals; missing ones are set to 0. */
+    public void set(int agentIndex, int periodIndex, double[] residuals) {
+        int offset = offset(agentIndex, periodIndex);
+        int n = Math.min(COMPONENTS, residuals.length);
+        System.arraycopy(residuals, 0, values, offset, n);
+        Arrays.fill(values, offset + n, offset + COMPONENTS, 0.0);
+    }
+
+    public void copyFrom(ResidualBlock other, int agentIndex, int periodIndex) {
+        System.arraycopy(other.values, other.offset(agentIndex, periodIndex), values, offset(agentIndex, periodIndex), COMPONENTS);
+    }
+}
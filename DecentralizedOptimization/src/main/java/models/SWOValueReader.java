@@ -0,0 +1,19 @@
+package models;
+
+/**
+ * Per-agent reads of the SWO values stored under an iteration key (x, y, s and u of iteration
+ * k - 1 under key k), as the solver blocks (SWO_BlockModel) use them. The results are copies.
+ *
+ * Implemented by the ADMMDataModel (working state, agent thread only) and by PublishedIterations
+ * (published snapshots, any thread).
+ */
+public interface SWOValueReader {
+
+    double[] getXSWOValuesForAgent(int iteration, int agentIndex);
+
+    boolean[][] getYSWOValuesForAgent(int iteration, int agentIndex);
+
+    double[][] getSSWOValuesForAgent(int iteration, int agentIndex);
+
+    double[][] getUSWOValuesForAgent(int iteration, int agentIndex);
+}
@@ -0,0 +1,101 @@
+package models;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Iteration map of the ADMMDataModel that may only be used by its writer thread (SNAPSHOT_CHECKS).
+ *
+ * Delegates to the wrapped map (e.g. of an IterationWindow); any access from another thread throws
+ * an IllegalStateException, since the working state of an iteration is not published. Other
+ * threads read the PublishedIterations of the data model instead.
+ */
+public class WriterConfinedMap<V> extends AbstractMap<Integer, V> {
+
+    private final Map<Integer, V> delegate;
+    private final Thread writer;
+    private final String name;
+
+    public WriterConfinedMap(Map<Integer, V> delegate, Thread writer, String name) {
+        this.delegate = delegate;
+        this.writer = writer;
+        this.name = name;
+    }
+
+    private void check() {
+        if (Thread.currentThread() != writer) {
+            throw new IllegalStateException("Unpublished " + name + " of the ADMMDataModel accessed from thread "
+                    + Thread.currentThread().getName() + " (writer: " + writer.getName()
+                    + "); other threads read the published iterations");
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        check();
+        return delegate.get(key);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        check();
+        return delegate.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        check();
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        check();
+        return delegate.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        check();
+        return delegate.remove(key);
+    }
+
+    @Override
+    public V computeIfAbsent(Integer key, Function<? super Integer, ? extends V> mappingFunction) {
+        check();
+        return delegate.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public int size() {
+        check();
+        return delegate.size();
+    }
+
+    @Override
+    public void clear() {
+        check();
+        delegate.clear();
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        check();
+        return delegate.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        check();
+        return delegate.values();
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        check();
+        return delegate.entrySet();
+    }
+}
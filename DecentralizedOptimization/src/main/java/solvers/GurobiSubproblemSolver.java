@@ -0,0 +1,311 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gurobi.gurobi.*;
+
+/**
+ * SubproblemSolver backed by a GRBModel of the given environment.
+ */
+public class GurobiSubproblemSolver implements SubproblemSolver {
+
+    private final GRBEnv env;
+    private final GRBModel model;
+    private final List<GRBVar> variables = new ArrayList<>();
+    private final List<GRBConstr> constraints = new ArrayList<>();
+    private boolean pendingUpdate = false;
+    private boolean hasBinaries = false;
+
+    public GurobiSubproblemSolver(GRBEnv env) throws SolverException {
+        try {
+            this.env = env;
+            this.model = new GRBModel(env);
+            model.set(GRB.IntParam.OutputFlag, 0); // Disable all output
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    // ============================================================================
+    // MODEL BUILDING
+    // ============================================================================
+
+    @Override
+    public int addVariable(double lowerBound, double upperBound, VariableType type, String name) throws SolverException {
+        try {
+            char grbType = type == VariableType.BINARY ? GRB.BINARY : GRB.CONTINUOUS;
+            hasBinaries |= type == VariableType.BINARY;
+            variables.add(model.addVar(toGurobi(lowerBound), toGurobi(upperBound), 0.0, grbType, name));
+            pendingUpdate = true;
+            return variables.size() - 1;
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public int addConstraint(int[] vars, double[] coefficients, char sense, double rhs, String name) throws SolverException {
+        try {
+            GRBLinExpr expr = new GRBLinExpr();
+            for (int i = 0; i < vars.length; i++) {
+                expr.addTerm(coefficients[i], variables.get(vars[i]));
+            }
+            constraints.add(model.addConstr(expr, toGurobiSense(sense), toGurobi(rhs), name));
+            pendingUpdate = true;
+            return constraints.size() - 1;
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void setParameter(String name, double value) throws SolverException {
+        try {
+            if (value == Math.rint(value) && Math.abs(value) < Integer.MAX_VALUE) {
+                model.set(name, Integer.toString((int) value));
+            } else {
+                model.set(name, Double.toString(value));
+            }
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    // ============================================================================
+    // IN-PLACE CHANGES
+    // ============================================================================
+
+    @Override
+    public void setRhs(int[] constrs, double[] rhs) throws SolverException {
+        try {
+            double[] values = new double[rhs.length];
+            for (int i = 0; i < rhs.length; i++) {
+                values[i] = toGurobi(rhs[i]);
+            }
+            model.set(GRB.DoubleAttr.RHS, constraintsOf(constrs), values);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void setCoefficients(int[] constrs, int[] vars, double[] values) throws SolverException {
+        try {
+            model.chgCoeffs(constraintsOf(constrs), variablesOf(vars), values);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void setLowerBounds(int[] vars, double[] lowerBounds) throws SolverException {
+        try {
+            double[] values = new double[lowerBounds.length];
+            for (int i = 0; i < lowerBounds.length; i++) {
+                values[i] = toGurobi(lowerBounds[i]);
+            }
+            model.set(GRB.DoubleAttr.LB, variablesOf(vars), values);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void setUpperBounds(int[] vars, double[] upperBounds) throws SolverException {
+        try {
+            double[] values = new double[upperBounds.length];
+            for (int i = 0; i < upperBounds.length; i++) {
+                values[i] = toGurobi(upperBounds[i]);
+            }
+            model.set(GRB.DoubleAttr.UB, variablesOf(vars), values);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void setObjective(QuadraticObjective objective) throws SolverException {
+        try {
+            GRBQuadExpr expr = new GRBQuadExpr();
+            expr.addConstant(objective.getConstant());
+            for (int i = 0; i < objective.getLinearCount(); i++) {
+                expr.addTerm(objective.getLinearCoefficient(i), variables.get(objective.getLinearVariable(i)));
+            }
+            for (int i = 0; i < objective.getQuadraticCount(); i++) {
+                expr.addTerm(objective.getQuadraticCoefficient(i),
+                        variables.get(objective.getQuadraticFirst(i)), variables.get(objective.getQuadraticSecond(i)));
+            }
+            model.setObjective(expr, GRB.MINIMIZE);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void setLinearObjective(int[] vars, double[] coefficients) throws SolverException {
+        try {
+            applyPendingUpdate();
+            model.set(GRB.DoubleAttr.Obj, variablesOf(vars), coefficients);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    // ============================================================================
+    // WARM START
+    // ============================================================================
+
+    /**
+     * MIP models get a MIP start (Start), continuous models a simplex start (PStart).
+     * Barrier ignores PStart/DStart, blocks that warm start should use a simplex method.
+     */
+    @Override
+    public void setStart(int[] vars, double[] values) throws SolverException {
+        try {
+            applyPendingUpdate();
+            model.set(hasBinaries ? GRB.DoubleAttr.Start : GRB.DoubleAttr.PStart, variablesOf(vars), values);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void setDualStart(int[] constrs, double[] values) throws SolverException {
+        if (hasBinaries) {
+            return;
+        }
+        try {
+            applyPendingUpdate();
+            model.set(GRB.DoubleAttr.DStart, constraintsOf(constrs), values);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void resetStart() throws SolverException {
+        try {
+            applyPendingUpdate();
+            model.reset(1); // Also discards MIP starts
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    // ============================================================================
+    // SOLVE AND RESULTS
+    // ============================================================================
+
+    @Override
+    public boolean solve() throws SolverException {
+        try {
+            applyPendingUpdate();
+            long wallStart = System.nanoTime();
+            long threadCpuStart = SolverEnvironmentManager.threadCpuTime();
+            long processCpuStart = SolverEnvironmentManager.processCpuTime();
+            model.optimize();
+            SolverEnvironmentManager.recordSolve(env, System.nanoTime() - wallStart,
+                    SolverEnvironmentManager.threadCpuTime() - threadCpuStart,
+                    SolverEnvironmentManager.processCpuTime() - processCpuStart);
+            return model.get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL;
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void getValues(int[] vars, double[] values) throws SolverException {
+        try {
+            double[] result = model.get(GRB.DoubleAttr.X, variablesOf(vars));
+            System.arraycopy(result, 0, values, 0, result.length);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void getDuals(int[] constrs, double[] values) throws SolverException {
+        try {
+            double[] result = model.get(GRB.DoubleAttr.Pi, constraintsOf(constrs));
+            System.arraycopy(result, 0, values, 0, result.length);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public double getObjectiveValue() throws SolverException {
+        try {
+            return model.get(GRB.DoubleAttr.ObjVal);
+        } catch (GRBException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        model.dispose();
+    }
+
+    /**
+     * Direct access for Gurobi specific features that are not part of the SPI.
+     */
+    public GRBModel getModel() {
+        return model;
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private void applyPendingUpdate() throws GRBException {
+        if (pendingUpdate) {
+            model.update();
+            pendingUpdate = false;
+        }
+    }
+
+    private GRBVar[] variablesOf(int[] handles) {
+        GRBVar[] result = new GRBVar[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            result[i] = variables.get(handles[i]);
+        }
+        return result;
+    }
+
+    private GRBConstr[] constraintsOf(int[] handles) {
+        GRBConstr[] result = new GRBConstr[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            result[i] = constraints.get(handles[i]);
+        }
+        return result;
+    }
+
+    private static double toGurobi(double value) {
+        if (value >= INFINITY) {
+            return GRB.INFINITY;
+        }
+        if (value <= -INFINITY) {
+            return -GRB.INFINITY;
+        }
+        return value;
+    }
+
+    private static char toGurobiSense(char sense) {
+        switch (sense) {
+            case LESS_EQUAL:
+                return GRB.LESS_EQUAL;
+            case GREATER_EQUAL:
+                return GRB.GREATER_EQUAL;
+            case EQUAL:
+                return GRB.EQUAL;
+            default:
+                throw new IllegalArgumentException("Unknown constraint sense: " + sense);
+        }
+    }
+
+    private static SolverException wrap(GRBException e) {
+        return new SolverException("Gurobi error " + e.getErrorCode() + ": " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,618 @@
+package solvers;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java backend for the small convex QPs of the ADMM blocks (continuous variables only).
+ *
+ * Method: augmented Lagrangian over the linear constraints. Every row a*z (sense) b becomes
+ * a*z - s = b with a bounded slack s, so the inner problems only have box constraints. They
+ * are solved with a projected Newton method whose Newton systems on the free variables are
+ * regularized with the projected gradient norm and solved matrix-free by conjugate gradients. Multipliers, penalty and the last solution are
+ * kept between solve() calls, so repeated solves of a slightly changed model start warm.
+ *
+ * No license checkout, environment start or JNI call is involved, which makes it attractive
+ * for many tiny solves per host. Binary variables are rejected.
+ */
+public class JavaQPSolver implements SubproblemSolver {
+
+    private static final double DEFAULT_OPTIMALITY_TOLERANCE = 1e-6;
+    private static final double DEFAULT_FEASIBILITY_TOLERANCE = 1e-7;
+    private static final int MAX_OUTER_ITERATIONS = 60;
+    private static final int MAX_INNER_ITERATIONS = 400;
+    private static final int MAX_CG_ITERATIONS = 250;
+    private static final int MAX_LINE_SEARCH_STEPS = 40;
+    private static final double ARMIJO = 1e-4;
+    private static final double MAX_PENALTY = 1e12;
+
+    // Variables
+    private int numVariables;
+    private double[] lower = new double[16];
+    private double[] upper = new double[16];
+
+    // Constraints, row-wise
+    private int numConstraints;
+    private int[][] rowIndices = new int[16][];
+    private double[][] rowValues = new double[16][];
+    private int[] rowLengths = new int[16];
+    private char[] senses = new char[16];
+    private double[] rhs = new double[16];
+
+    // Objective
+    private QuadraticObjective objective = new QuadraticObjective();
+    private double[] linear = new double[0];
+    private double maxObjectiveCoefficient = 1.0;
+
+    // Parameters
+    private double optimalityTolerance = DEFAULT_OPTIMALITY_TOLERANCE;
+    private double feasibilityTolerance = DEFAULT_FEASIBILITY_TOLERANCE;
+
+    // Iterate w = (z, s), multipliers and workspace; kept between solves for warm starts
+    private double[] w = new double[0];
+    private double[] lambda = new double[0];
+    private double penalty = 0.0;
+    private double[] wLower, wUpper, gradient, direction, trial, residuals, cgResidual, cgDirection, hessianProduct;
+    private boolean[] free;
+    private boolean[] inactive;
+
+    private boolean solved = false;
+    private double objectiveValue = Double.NaN;
+    private int lastOuterIterations;
+
+    // ============================================================================
+    // MODEL BUILDING
+    // ============================================================================
+
+    @Override
+    public int addVariable(double lowerBound, double upperBound, VariableType type, String name) throws SolverException {
+        if (type != VariableType.CONTINUOUS) {
+            throw new SolverException("JavaQPSolver only supports continuous variables (" + name + ")");
+        }
+        if (numVariables == lower.length) {
+            lower = Arrays.copyOf(lower, 2 * numVariables);
+            upper = Arrays.copyOf(upper, 2 * numVariables);
+        }
+        lower[numVariables] = lowerBound <= -INFINITY ? Double.NEGATIVE_INFINITY : lowerBound;
+        upper[numVariables] = upperBound >= INFINITY ? Double.POSITIVE_INFINITY : upperBound;
+        return numVariables++;
+    }
+
+    @Override
+    public int addConstraint(int[] variables, double[] coefficients, char sense, double value, String name) {
+        if (sense != LESS_EQUAL && sense != GREATER_EQUAL && sense != EQUAL) {
+            throw new IllegalArgumentException("Unknown constraint sense: " + sense);
+        }
+        if (numConstraints == senses.length) {
+            int capacity = 2 * numConstraints;
+            rowIndices = Arrays.copyOf(rowIndices, capacity);
+            rowValues = Arrays.copyOf(rowValues, capacity);
+            rowLengths = Arrays.copyOf(rowLengths, capacity);
+            senses = Arrays.copyOf(senses, capacity);
+            rhs = Arrays.copyOf(rhs, capacity);
+        }
+        rowIndices[numConstraints] = Arrays.copyOf(variables, Math.max(1, variables.length));
+        rowValues[numConstraints] = Arrays.copyOf(coefficients, Math.max(1, coefficients.length));
+        rowLengths[numConstraints] = variables.length;
+        senses[numConstraints] = sense;
+        rhs[numConstraints] = value;
+        return numConstraints++;
+    }
+
+    @Override
+    public void setParameter(String name, double value) {
+        if ("OptimalityTol".equalsIgnoreCase(name)) {
+            optimalityTolerance = value;
+        } else if ("FeasibilityTol".equalsIgnoreCase(name)) {
+            feasibilityTolerance = value;
+        }
+    }
+
+    // ============================================================================
+    // IN-PLACE CHANGES
+    // ============================================================================
+
+    @Override
+    public void setRhs(int[] constraints, double[] values) {
+        for (int i = 0; i < constraints.length; i++) {
+            rhs[constraints[i]] = values[i];
+        }
+    }
+
+    @Override
+    public void setCoefficients(int[] constraints, int[] variables, double[] values) {
+        for (int i = 0; i < constraints.length; i++) {
+            int row = constraints[i];
+            int length = rowLengths[row];
+            int[] indices = rowIndices[row];
+            int position = -1;
+            for (int k = 0; k < length; k++) {
+                if (indices[k] == variables[i]) {
+                    position = k;
+                    break;
+                }
+            }
+            if (position < 0) {
+                if (length == indices.length) {
+                    rowIndices[row] = Arrays.copyOf(indices, 2 * length);
+                    rowValues[row] = Arrays.copyOf(rowValues[row], 2 * length);
+                }
+                position = length;
+                rowIndices[row][position] = variables[i];
+                rowLengths[row]++;
+            }
+            rowValues[row][position] = values[i];
+        }
+    }
+
+    @Override
+    public void setUpperBounds(int[] variables, double[] upperBounds) {
+        for (int i = 0; i < variables.length; i++) {
+            upper[variables[i]] = upperBounds[i] >= INFINITY ? Double.POSITIVE_INFINITY : upperBounds[i];
+        }
+    }
+
+    @Override
+    public void setLowerBounds(int[] variables, double[] lowerBounds) {
+        for (int i = 0; i < variables.length; i++) {
+            lower[variables[i]] = lowerBounds[i] <= -INFINITY ? Double.NEGATIVE_INFINITY : lowerBounds[i];
+        }
+    }
+
+    @Override
+    public void setObjective(QuadraticObjective objective) {
+        this.objective = objective;
+        linear = new double[numVariables];
+        for (int k = 0; k < objective.getLinearCount(); k++) {
+            linear[objective.getLinearVariable(k)] += objective.getLinearCoefficient(k);
+        }
+    }
+
+    @Override
+    public void setLinearObjective(int[] variables, double[] coefficients) {
+        if (linear.length < numVariables) {
+            linear = Arrays.copyOf(linear, numVariables);
+        }
+        for (int i = 0; i < variables.length; i++) {
+            linear[variables[i]] = coefficients[i];
+        }
+    }
+
+    // ============================================================================
+    // WARM START
+    // ============================================================================
+
+    @Override
+    public void setStart(int[] variables, double[] values) {
+        ensureWorkspace();
+        for (int i = 0; i < variables.length; i++) {
+            w[variables[i]] = values[i];
+        }
+    }
+
+    @Override
+    public void setDualStart(int[] constraints, double[] values) {
+        ensureWorkspace();
+        for (int i = 0; i < constraints.length; i++) {
+            lambda[constraints[i]] = values[i];
+        }
+    }
+
+    /**
+     * Without a reset the iterate, multipliers and penalty of the last solve are reused.
+     */
+    @Override
+    public void resetStart() {
+        ensureWorkspace();
+        Arrays.fill(w, 0.0);
+        Arrays.fill(lambda, 0.0);
+        penalty = 0.0;
+    }
+
+    // ============================================================================
+    // SOLVE
+    // ============================================================================
+
+    @Override
+    public boolean solve() {
+        prepare();
+        int n = numVariables;
+        int size = n + numConstraints;
+
+        for (int j = 0; j < n; j++) {
+            w[j] = clamp(w[j], wLower[j], wUpper[j]);
+        }
+        // Slacks that minimize the augmented Lagrangian for the start point
+        for (int i = 0; i < numConstraints; i++) {
+            if (inactive[i]) {
+                continue;
+            }
+            double activity = -rhs[i] + lambda[i] / penalty;
+            for (int k = 0; k < rowLengths[i]; k++) {
+                activity += rowValues[i][k] * w[rowIndices[i][k]];
+            }
+            w[n + i] = clamp(activity, wLower[n + i], wUpper[n + i]);
+        }
+
+        double rhsScale = 1.0;
+        for (int i = 0; i < numConstraints; i++) {
+            if (!inactive[i]) {
+                rhsScale = Math.max(rhsScale, Math.abs(rhs[i]));
+            }
+        }
+        double feasibilityTarget = feasibilityTolerance * rhsScale;
+        double optimalityTarget = optimalityTolerance * maxObjectiveCoefficient;
+        double innerTolerance = Math.max(optimalityTarget, 1e-2 * maxObjectiveCoefficient);
+        double previousViolation = Double.POSITIVE_INFINITY;
+        solved = false;
+
+        for (int outer = 0; outer < MAX_OUTER_ITERATIONS; outer++) {
+            lastOuterIterations = outer + 1;
+            double projectedGradient = minimizeAugmentedLagrangian(innerTolerance);
+            if (!Double.isFinite(projectedGradient)) {
+                break;
+            }
+            double violation = computeResiduals(w);
+
+            if (violation <= feasibilityTarget && projectedGradient <= optimalityTarget) {
+                solved = true;
+                break;
+            }
+            for (int i = 0; i < numConstraints; i++) {
+                lambda[i] += penalty * residuals[i];
+            }
+            if (violation > 0.25 * previousViolation) {
+                penalty = Math.min(10.0 * penalty, MAX_PENALTY);
+            }
+            previousViolation = violation;
+            innerTolerance = Math.max(optimalityTarget, 0.1 * innerTolerance);
+        }
+
+        objectiveValue = objectiveValue(w);
+        return solved;
+    }
+
+    /**
+     * Derives slack bounds and the objective scale; keeps the iterate if the dimensions are unchanged.
+     */
+    private void prepare() {
+        int n = numVariables;
+        ensureWorkspace();
+        System.arraycopy(lower, 0, wLower, 0, n);
+        System.arraycopy(upper, 0, wUpper, 0, n);
+        for (int i = 0; i < numConstraints; i++) {
+            wLower[n + i] = senses[i] == LESS_EQUAL ? Double.NEGATIVE_INFINITY : 0.0;
+            wUpper[n + i] = senses[i] == GREATER_EQUAL ? Double.POSITIVE_INFINITY : 0.0;
+            // Rows relaxed with an infinite right-hand side (e.g. past periods) are skipped
+            inactive[i] = (senses[i] == GREATER_EQUAL && rhs[i] <= -INFINITY)
+                    || (senses[i] == LESS_EQUAL && rhs[i] >= INFINITY);
+            if (inactive[i]) {
+                lambda[i] = 0.0;
+                w[n + i] = 0.0;
+            }
+        }
+
+        if (linear.length != n) {
+            linear = Arrays.copyOf(linear, n);
+        }
+        maxObjectiveCoefficient = 1.0;
+        for (int j = 0; j < n; j++) {
+            maxObjectiveCoefficient = Math.max(maxObjectiveCoefficient, Math.abs(linear[j]));
+        }
+        for (int k = 0; k < objective.getQuadraticCount(); k++) {
+            maxObjectiveCoefficient = Math.max(maxObjectiveCoefficient, Math.abs(objective.getQuadraticCoefficient(k)));
+        }
+        if (penalty <= 0.0) {
+            penalty = maxObjectiveCoefficient;
+        }
+    }
+
+    /**
+     * (Re-)allocates the iterate and workspace when variables or constraints were added.
+     */
+    private void ensureWorkspace() {
+        int size = numVariables + numConstraints;
+        if (wLower != null && w.length == size) {
+            return;
+        }
+        w = Arrays.copyOf(w, size);
+        lambda = Arrays.copyOf(lambda, numConstraints);
+        penalty = 0.0;
+        wLower = new double[size];
+        wUpper = new double[size];
+        gradient = new double[size];
+        direction = new double[size];
+        trial = new double[size];
+        cgResidual = new double[size];
+        cgDirection = new double[size];
+        hessianProduct = new double[size];
+        free = new boolean[size];
+        residuals = new double[numConstraints];
+        inactive = new boolean[numConstraints];
+    }
+
+    /**
+     * Projected Newton-CG on the augmented Lagrangian for the current multipliers and penalty.
+     *
+     * @return infinity norm of the projected gradient at the end
+     */
+    private double minimizeAugmentedLagrangian(double tolerance) {
+        int size = w.length;
+        double projectedGradient = Double.POSITIVE_INFINITY;
+
+        for (int iteration = 0; iteration < MAX_INNER_ITERATIONS; iteration++) {
+            computeResiduals(w);
+            computeGradient(w);
+
+            projectedGradient = 0.0;
+            for (int j = 0; j < size; j++) {
+                projectedGradient = Math.max(projectedGradient, Math.abs(w[j] - clamp(w[j] - gradient[j], wLower[j], wUpper[j])));
+            }
+            if (projectedGradient <= tolerance) {
+                return projectedGradient;
+            }
+
+            // Variables at a bound with the gradient pointing outwards stay fixed for this step
+            double epsilon = Math.min(1e-8, projectedGradient);
+            for (int j = 0; j < size; j++) {
+                boolean atLower = w[j] <= wLower[j] + epsilon && gradient[j] > 0;
+                boolean atUpper = w[j] >= wUpper[j] - epsilon && gradient[j] < 0;
+                free[j] = !(atLower || atUpper);
+            }
+
+            // Regularized with the projected gradient: H is singular along slack/deviation pairs with
+            // a linear cost, the plain Newton system has no solution there
+            conjugateGradient(projectedGradient);
+            double slope = 0.0;
+            for (int j = 0; j < size; j++) {
+                slope += gradient[j] * direction[j];
+            }
+            if (!(slope < 0.0)) {
+                for (int j = 0; j < size; j++) {
+                    direction[j] = free[j] ? -gradient[j] : 0.0;
+                }
+            }
+
+            if (!projectedLineSearch()) {
+                // Newton direction failed: fall back to a projected gradient step
+                for (int j = 0; j < size; j++) {
+                    direction[j] = -gradient[j];
+                }
+                if (!projectedLineSearch()) {
+                    return projectedGradient;
+                }
+            }
+        }
+        return projectedGradient;
+    }
+
+    /**
+     * Armijo backtracking along the projection arc w(alpha) = P(w + alpha * direction).
+     */
+    private boolean projectedLineSearch() {
+        int size = w.length;
+        double current = lagrangian(w);
+        double alpha = 1.0;
+
+        for (int step = 0; step < MAX_LINE_SEARCH_STEPS; step++) {
+            double decrease = 0.0;
+            for (int j = 0; j < size; j++) {
+                trial[j] = clamp(w[j] + alpha * direction[j], wLower[j], wUpper[j]);
+                decrease += gradient[j] * (trial[j] - w[j]);
+            }
+            if (decrease < 0.0 && lagrangian(trial) <= current + ARMIJO * decrease) {
+                System.arraycopy(trial, 0, w, 0, size);
+                return true;
+            }
+            alpha *= 0.5;
+        }
+        return false;
+    }
+
+    /**
+     * Solves (H_FF + regularization * I) d_F = -g_F on the free variables (d = 0 elsewhere), stops on small
+     * residual or non-positive curvature.
+     */
+    private void conjugateGradient(double regularization) {
+        int size = w.length;
+        double norm = 0.0;
+        for (int j = 0; j < size; j++) {
+            direction[j] = 0.0;
+            cgResidual[j] = free[j] ? -gradient[j] : 0.0;
+            cgDirection[j] = cgResidual[j];
+            norm += cgResidual[j] * cgResidual[j];
+        }
+        double residualNorm = norm;
+        double target = Math.min(0.1, Math.sqrt(Math.sqrt(norm))) * Math.sqrt(norm);
+
+        for (int k = 0; k < MAX_CG_ITERATIONS && Math.sqrt(residualNorm) > target; k++) {
+            hessianTimes(cgDirection, hessianProduct);
+            double curvature = 0.0;
+            for (int j = 0; j < size; j++) {
+                hessianProduct[j] = free[j] ? hessianProduct[j] + regularization * cgDirection[j] : 0.0;
+                curvature += cgDirection[j] * hessianProduct[j];
+            }
+            if (curvature <= 1e-14 * residualNorm) {
+                if (k == 0) {
+                    System.arraycopy(cgResidual, 0, direction, 0, size);
+                }
+                return;
+            }
+            double step = residualNorm / curvature;
+            double newNorm = 0.0;
+            for (int j = 0; j < size; j++) {
+                direction[j] += step * cgDirection[j];
+                cgResidual[j] -= step * hessianProduct[j];
+                newNorm += cgResidual[j] * cgResidual[j];
+            }
+            double beta = newNorm / residualNorm;
+            for (int j = 0; j < size; j++) {
+                cgDirection[j] = cgResidual[j] + beta * cgDirection[j];
+            }
+            residualNorm = newNorm;
+        }
+    }
+
+    // ============================================================================
+    // AUGMENTED LAGRANGIAN
+    // ============================================================================
+
+    /**
+     * residual_i = a_i * z - s_i - b_i, stored in residuals.
+     *
+     * @return infinity norm of the residuals
+     */
+    private double computeResiduals(double[] point) {
+        int n = numVariables;
+        double max = 0.0;
+        for (int i = 0; i < numConstraints; i++) {
+            if (inactive[i]) {
+                residuals[i] = 0.0;
+                continue;
+            }
+            double value = -point[n + i] - rhs[i];
+            int[] indices = rowIndices[i];
+            double[] values = rowValues[i];
+            for (int k = 0; k < rowLengths[i]; k++) {
+                value += values[k] * point[indices[k]];
+            }
+            residuals[i] = value;
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+
+    /** Gradient of the augmented Lagrangian; expects up-to-date residuals. */
+    private void computeGradient(double[] point) {
+        int n = numVariables;
+        System.arraycopy(linear, 0, gradient, 0, n);
+        for (int k = 0; k < objective.getQuadraticCount(); k++) {
+            int first = objective.getQuadraticFirst(k);
+            int second = objective.getQuadraticSecond(k);
+            double coefficient = objective.getQuadraticCoefficient(k);
+            if (first == second) {
+                gradient[first] += 2.0 * coefficient * point[first];
+            } else {
+                gradient[first] += coefficient * point[second];
+                gradient[second] += coefficient * point[first];
+            }
+        }
+        for (int i = 0; i < numConstraints; i++) {
+            double weight = lambda[i] + penalty * residuals[i];
+            int[] indices = rowIndices[i];
+            double[] values = rowValues[i];
+            for (int k = 0; k < rowLengths[i]; k++) {
+                gradient[indices[k]] += weight * values[k];
+            }
+            gradient[n + i] = -weight;
+        }
+    }
+
+    private void hessianTimes(double[] vector, double[] result) {
+        int n = numVariables;
+        Arrays.fill(result, 0.0);
+        for (int k = 0; k < objective.getQuadraticCount(); k++) {
+            int first = objective.getQuadraticFirst(k);
+            int second = objective.getQuadraticSecond(k);
+            double coefficient = objective.getQuadraticCoefficient(k);
+            if (first == second) {
+                result[first] += 2.0 * coefficient * vector[first];
+            } else {
+                result[first] += coefficient * vector[second];
+                result[second] += coefficient * vector[first];
+            }
+        }
+        for (int i = 0; i < numConstraints; i++) {
+            if (inactive[i]) {
+                continue;
+            }
+            int[] indices = rowIndices[i];
+            double[] values = rowValues[i];
+            double product = -vector[n + i];
+            for (int k = 0; k < rowLengths[i]; k++) {
+                product += values[k] * vector[indices[k]];
+            }
+            product *= penalty;
+            for (int k = 0; k < rowLengths[i]; k++) {
+                result[indices[k]] += product * values[k];
+            }
+            result[n + i] -= product;
+        }
+    }
+
+    private double lagrangian(double[] point) {
+        double value = objectiveValue(point);
+        int n = numVariables;
+        for (int i = 0; i < numConstraints; i++) {
+            if (inactive[i]) {
+                continue;
+            }
+            double residual = -point[n + i] - rhs[i];
+            int[] indices = rowIndices[i];
+            double[] values = rowValues[i];
+            for (int k = 0; k < rowLengths[i]; k++) {
+                residual += values[k] * point[indices[k]];
+            }
+            value += lambda[i] * residual + 0.5 * penalty * residual * residual;
+        }
+        return value;
+    }
+
+    private double objectiveValue(double[] point) {
+        double value = objective.getConstant();
+        for (int j = 0; j < numVariables; j++) {
+            value += linear[j] * point[j];
+        }
+        for (int k = 0; k < objective.getQuadraticCount(); k++) {
+            value += objective.getQuadraticCoefficient(k) * point[objective.getQuadraticFirst(k)] * point[objective.getQuadraticSecond(k)];
+        }
+        return value;
+    }
+
+    private static double clamp(double value, double lowerBound, double upperBound) {
+        return value < lowerBound ? lowerBound : (value > upperBound ? upperBound : value);
+    }
+
+    // ============================================================================
+    // RESULTS
+    // ============================================================================
+
+    @Override
+    public void getValues(int[] variables, double[] values) throws SolverException {
+        if (w.length < numVariables) {
+            throw new SolverException("No solution available");
+        }
+        for (int i = 0; i < variables.length; i++) {
+            values[i] = w[variables[i]];
+        }
+    }
+
+    @Override
+    public void getDuals(int[] constraints, double[] values) {
+        for (int i = 0; i < constraints.length; i++) {
+            values[i] = lambda[constraints[i]];
+        }
+    }
+
+    @Override
+    public double getObjectiveValue() throws SolverException {
+        if (!solved) {
+            throw new SolverException("No optimal solution available");
+        }
+        return objectiveValue;
+    }
+
+    /** Multiplier of a constraint in the sign convention L = f + lambda * (a*z - b). */
+    public double getDual(int constraint) {
+        return lambda[constraint];
+    }
+
+    public int getLastOuterIterations() {
+        return lastOuterIterations;
+    }
+
+    @Override
+    public void dispose() {
+        w = new double[0];
+        lambda = new double[0];
+    }
+}
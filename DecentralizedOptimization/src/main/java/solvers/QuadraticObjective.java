@@ -0,0 +1,77 @@
+package solvers;
+
+import java.util.Arrays;
+
+/**
+ * Minimization objective constant + sum(c * x[i]) + sum(q * x[i] * x[j]) in primitive arrays.
+ * Terms are appended; repeated terms for the same variables add up.
+ */
+public class QuadraticObjective {
+
+    private double constant;
+
+    private int linearCount;
+    private int[] linearVariables = new int[16];
+    private double[] linearCoefficients = new double[16];
+
+    private int quadraticCount;
+    private int[] quadraticFirst = new int[16];
+    private int[] quadraticSecond = new int[16];
+    private double[] quadraticCoefficients = new double[16];
+
+    public void addConstant(double value) {
+        constant += value;
+    }
+
+    public void addLinear(int variable, double coefficient) {
+        if (linearCount == linearVariables.length) {
+            linearVariables = Arrays.copyOf(linearVariables, 2 * linearCount);
+            linearCoefficients = Arrays.copyOf(linearCoefficients, 2 * linearCount);
+        }
+        linearVariables[linearCount] = variable;
+        linearCoefficients[linearCount++] = coefficient;
+    }
+
+    public void addQuadratic(int first, int second, double coefficient) {
+        if (quadraticCount == quadraticFirst.length) {
+            quadraticFirst = Arrays.copyOf(quadraticFirst, 2 * quadraticCount);
+            quadraticSecond = Arrays.copyOf(quadraticSecond, 2 * quadraticCount);
+            quadraticCoefficients = Arrays.copyOf(quadraticCoefficients, 2 * quadraticCount);
+        }
+        quadraticFirst[quadraticCount] = first;
+        quadraticSecond[quadraticCount] = second;
+        quadraticCoefficients[quadraticCount++] = coefficient;
+    }
+
+    public double getConstant() {
+        return constant;
+    }
+
+    public int getLinearCount() {
+        return linearCount;
+    }
+
+    public int getLinearVariable(int term) {
+        return linearVariables[term];
+    }
+
+    public double getLinearCoefficient(int term) {
+        return linearCoefficients[term];
+    }
+
+    public int getQuadraticCount() {
+        return quadraticCount;
+    }
+
+    public int getQuadraticFirst(int term) {
+        return quadraticFirst[term];
+    }
+
+    public int getQuadraticSecond(int term) {
+        return quadraticSecond[term];
+    }
+
+    public double getQuadraticCoefficient(int term) {
+        return quadraticCoefficients[term];
+    }
+}
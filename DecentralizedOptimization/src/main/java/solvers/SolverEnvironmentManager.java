@@ -0,0 +1,178 @@
+package solvers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gurobi.gurobi.*;
+import models.ADMMSettings;
+
+/**
+ * Process-wide manager of the Gurobi environments of all agents in this JVM.
+ *
+ * Every agent gets one environment with an explicit thread budget
+ * (available cores / agents per JVM, or SOLVER_THREADS_PER_AGENT) and its own log file
+ * gurobi_<agent>.log, so several agents in one JVM neither oversubscribe the cores nor
+ * contend for the same log. Solves through GurobiSubproblemSolver are timed per agent:
+ * wall time, CPU time of the calling thread and CPU time of the whole process. A wall time
+ * well above the thread CPU time of single-threaded solves indicates oversubscription.
+ */
+public final class SolverEnvironmentManager {
+
+    private static final Map<String, GRBEnv> ENVIRONMENTS = new LinkedHashMap<>();
+    private static final Map<GRBEnv, SolveStatistics> STATISTICS = new IdentityHashMap<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private SolverEnvironmentManager() {
+    }
+
+    // ============================================================================
+    // ENVIRONMENTS
+    // ============================================================================
+
+    /**
+     * Returns the environment of the agent, creating it on first use.
+     */
+    public static synchronized GRBEnv acquire(String agentName) throws GRBException {
+        GRBEnv env = ENVIRONMENTS.get(agentName);
+        if (env != null) {
+            return env;
+        }
+        int threads = getThreadBudget();
+        env = new GRBEnv(true);
+        env.set("LogFile", "gurobi_" + agentName + ".log");
+        env.set(GRB.IntParam.Threads, threads);
+        env.start();
+        ENVIRONMENTS.put(agentName, env);
+        STATISTICS.put(env, new SolveStatistics(agentName));
+        System.out.println("Gurobi environment for " + agentName + ": Threads=" + threads
+                + " (" + Runtime.getRuntime().availableProcessors() + " cores, " + ADMMSettings.getAgentsPerJvm() + " agents per JVM)");
+        return env;
+    }
+
+    /**
+     * Single-threaded environment without output for worker pools of an agent; its solves
+     * are accounted to the agent of agentEnv. The caller disposes it.
+     */
+    public static synchronized GRBEnv createWorkerEnvironment(GRBEnv agentEnv) throws GRBException {
+        GRBEnv env = new GRBEnv(true);
+        env.set(GRB.IntParam.OutputFlag, 0);
+        env.set(GRB.IntParam.Threads, 1);
+        env.start();
+        SolveStatistics statistics = STATISTICS.get(agentEnv);
+        if (statistics != null) {
+            STATISTICS.put(env, statistics);
+        }
+        return env;
+    }
+
+    public static synchronized void disposeWorkerEnvironment(GRBEnv env) {
+        STATISTICS.remove(env);
+        try {
+            env.dispose();
+        } catch (GRBException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints the solve statistics of the agent and disposes its environment.
+     */
+    public static synchronized void release(String agentName) {
+        GRBEnv env = ENVIRONMENTS.remove(agentName);
+        if (env == null) {
+            return;
+        }
+        SolveStatistics statistics = STATISTICS.remove(env);
+        if (statistics != null) {
+            System.out.println(statistics);
+        }
+        try {
+            env.dispose();
+        } catch (GRBException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gurobi threads per agent: SOLVER_THREADS_PER_AGENT if set, otherwise cores / agents per JVM.
+     */
+    public static int getThreadBudget() {
+        int configured = ADMMSettings.getThreadsPerAgent();
+        if (configured > 0) {
+            return configured;
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / ADMMSettings.getAgentsPerJvm());
+    }
+
+    // ============================================================================
+    // TIMING
+    // ============================================================================
+
+    /** Current CPU time of the calling thread in ns, -1 if not supported. */
+    static long threadCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    /** CPU time of the whole process in ns (all Java and native threads), -1 if not supported. */
+    static long processCpuTime() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    static void recordSolve(GRBEnv env, long wallTime, long threadCpuTime, long processCpuTime) {
+        SolveStatistics statistics;
+        synchronized (SolverEnvironmentManager.class) {
+            statistics = STATISTICS.get(env);
+        }
+        if (statistics != null) {
+            statistics.record(wallTime, threadCpuTime, processCpuTime);
+        }
+    }
+
+    /**
+     * @return statistics line of the agent, or null if it has no environment
+     */
+    public static synchronized String report(String agentName) {
+        GRBEnv env = ENVIRONMENTS.get(agentName);
+        SolveStatistics statistics = env == null ? null : STATISTICS.get(env);
+        return statistics == null ? null : statistics.toString();
+    }
+
+    /**
+     * Accumulated solve times of one agent, updated concurrently by worker threads.
+     */
+    private static final class SolveStatistics {
+        private final String agentName;
+        private final AtomicLong solves = new AtomicLong();
+        private final AtomicLong wallTime = new AtomicLong();
+        private final AtomicLong threadCpuTime = new AtomicLong();
+        private final AtomicLong processCpuTime = new AtomicLong();
+
+        SolveStatistics(String agentName) {
+            this.agentName = agentName;
+        }
+
+        void record(long wall, long threadCpu, long processCpu) {
+            solves.incrementAndGet();
+            wallTime.addAndGet(wall);
+            threadCpuTime.addAndGet(Math.max(0, threadCpu));
+            processCpuTime.addAndGet(Math.max(0, processCpu));
+        }
+
+        @Override
+        public String toString() {
+            double wall = wallTime.get() / 1e6;
+            double threadCpu = threadCpuTime.get() / 1e6;
+            double processCpu = processCpuTime.get() / 1e6;
+            return String.format("Solver time %s: %d solves, wall %.1f ms, thread CPU %.1f ms (%.0f%% of wall), process CPU %.1f ms",
+                    agentName, solves.get(), wall, threadCpu, wall > 0 ? 100.0 * threadCpu / wall : 0.0, processCpu);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package solvers;
+
+/**
+ * Error of a subproblem solver backend, wraps the backend specific exception.
+ */
+public class SolverException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public SolverException(String message) {
+        super(message);
+    }
+
+    public SolverException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
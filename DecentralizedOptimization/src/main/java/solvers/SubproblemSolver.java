@@ -0,0 +1,107 @@
+package solvers;
+
+/**
+ * Solver independent interface for the ADMM subproblems.
+ *
+ * Variables and constraints are addressed by the int handle returned when they are added.
+ * A model is built once (addVariable, addConstraint), changed in place between solves
+ * (setRhs, setCoefficients, setLowerBounds, setUpperBounds, setObjective, setLinearObjective)
+ * and released with dispose().
+ */
+public interface SubproblemSolver {
+
+    char LESS_EQUAL = '<';
+    char GREATER_EQUAL = '>';
+    char EQUAL = '=';
+
+    /** Bounds with an absolute value of at least INFINITY are treated as infinite. */
+    double INFINITY = 1e100;
+
+    enum VariableType {
+        CONTINUOUS,
+        BINARY
+    }
+
+    // ============================================================================
+    // MODEL BUILDING
+    // ============================================================================
+
+    int addVariable(double lowerBound, double upperBound, VariableType type, String name) throws SolverException;
+
+    /**
+     * Adds sum(coefficients[i] * x[variables[i]]) (sense) rhs.
+     */
+    int addConstraint(int[] variables, double[] coefficients, char sense, double rhs, String name) throws SolverException;
+
+    /**
+     * Sets a solver parameter by its Gurobi name (e.g. "OptimalityTol", "Method").
+     * Backends ignore parameters they do not know.
+     */
+    void setParameter(String name, double value) throws SolverException;
+
+    // ============================================================================
+    // IN-PLACE CHANGES
+    // ============================================================================
+
+    void setRhs(int[] constraints, double[] rhs) throws SolverException;
+
+    /**
+     * Sets the coefficient of variables[i] in constraints[i]; creates the entry if necessary.
+     */
+    void setCoefficients(int[] constraints, int[] variables, double[] values) throws SolverException;
+
+    void setLowerBounds(int[] variables, double[] lowerBounds) throws SolverException;
+
+    void setUpperBounds(int[] variables, double[] upperBounds) throws SolverException;
+
+    void setObjective(QuadraticObjective objective) throws SolverException;
+
+    /**
+     * Replaces the linear objective coefficients of the given variables; the quadratic terms and
+     * the coefficients of all other variables are kept.
+     */
+    void setLinearObjective(int[] variables, double[] coefficients) throws SolverException;
+
+    // ============================================================================
+    // WARM START
+    // ============================================================================
+
+    /**
+     * Primal start for the next solve; a MIP start for models with binaries.
+     */
+    void setStart(int[] variables, double[] values) throws SolverException;
+
+    /**
+     * Dual start for the next solve, only used for continuous models. The values must stem
+     * from getDuals() of the same backend.
+     */
+    void setDualStart(int[] constraints, double[] values) throws SolverException;
+
+    /**
+     * Discards the start and solution information of previous solves, the next solve starts cold.
+     */
+    void resetStart() throws SolverException;
+
+    // ============================================================================
+    // SOLVE AND RESULTS
+    // ============================================================================
+
+    /**
+     * @return true if an optimal solution was found
+     */
+    boolean solve() throws SolverException;
+
+    /**
+     * Copies the solution values of the given variables into values.
+     */
+    void getValues(int[] variables, double[] values) throws SolverException;
+
+    /**
+     * Copies the constraint duals of the last solve (continuous models only) into values.
+     */
+    void getDuals(int[] constraints, double[] values) throws SolverException;
+
+    double getObjectiveValue() throws SolverException;
+
+    void dispose();
+}
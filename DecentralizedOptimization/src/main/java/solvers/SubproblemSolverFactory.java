@@ -0,0 +1,34 @@
+package solvers;
+
+import com.gurobi.gurobi.GRBEnv;
+
+/**
+ * Creates SubproblemSolver instances by backend name.
+ */
+public final class SubproblemSolverFactory {
+
+    /** Gurobi model of the given environment, supports binaries. */
+    public static final String BACKEND_GUROBI = "gurobi";
+
+    /** JavaQPSolver, continuous convex QPs only, no license or environment needed. */
+    public static final String BACKEND_JAVA = "java";
+
+    private SubproblemSolverFactory() {
+    }
+
+    /**
+     * @param env Gurobi environment, only required for the Gurobi backend
+     */
+    public static SubproblemSolver create(String backend, GRBEnv env) throws SolverException {
+        if (BACKEND_JAVA.equalsIgnoreCase(backend)) {
+            return new JavaQPSolver();
+        }
+        if (!BACKEND_GUROBI.equalsIgnoreCase(backend)) {
+            throw new SolverException("Unknown solver backend: " + backend);
+        }
+        if (env == null) {
+            throw new SolverException("Gurobi backend requires an environment");
+        }
+        return new GurobiSubproblemSolver(env);
+    }
+}
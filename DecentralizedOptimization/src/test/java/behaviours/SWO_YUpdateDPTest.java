@@ -0,0 +1,230 @@
+package behaviours;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import models.Electrolyzer;
+import models.Parameters;
+import models.Period;
+import models.State;
+
+/**
+ * Compares SWO_YUpdateDP with an exhaustive search over all y sequences of small horizons. The
+ * feasibility check is a literal transcription of the constraints of SWO_YUpdateModel.
+ */
+public class SWO_YUpdateDPTest extends TestCase {
+
+    private static final int NUM_STATES = State.values().length;
+    private static final int NUM_MASKS = 1 << NUM_STATES;
+    private static final double RHO = 0.7;
+    private static final double MIN_OPERATION = 0.2;
+    private static final double MAX_OPERATION = 1.0;
+    private static final double TOLERANCE = 1e-9;
+
+    public SWO_YUpdateDPTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(SWO_YUpdateDPTest.class);
+    }
+
+    public void testWithoutHoldingDurations() {
+        compareRandom(durations(0, 0, 0, 0), 1, 4, 20);
+    }
+
+    public void testHoldingDurationOne() {
+        compareRandom(durations(1, 1, 1, 1), 1, 4, 20);
+    }
+
+    public void testHoldingDurationTwo() {
+        compareRandom(durations(2, 2, 2, 2), 1, 4, 20);
+    }
+
+    public void testHoldingDurationThree() {
+        compareRandom(durations(3, 3, 3, 3), 1, 4, 20);
+        compareRandom(durations(3, 3, 3, 3), 1, 5, 3);
+    }
+
+    public void testMixedHoldingDurations() {
+        compareRandom(durations(3, 2, 0, 1), 1, 4, 20);
+        compareRandom(durations(null, 3, 2, null), 1, 4, 20);
+    }
+
+    /** Horizon starting in period 2: the period-2 rules apply to the first period of the block. */
+    public void testHorizonStartingInSecondPeriod() {
+        compareRandom(durations(0, 0, 0, 0), 2, 4, 20);
+        compareRandom(durations(3, 2, 3, 2), 2, 4, 20);
+    }
+
+    /** Horizon starting later: the holding constraints only reach back to the first period of the block. */
+    public void testHorizonStartingLater() {
+        compareRandom(durations(3, 3, 3, 3), 3, 4, 20);
+        compareRandom(durations(2, 3, 2, 3), 5, 4, 20);
+    }
+
+    /** Constants that favour production from period 2 on are blocked by the period-2 rules. */
+    public void testNoProductionInSecondPeriod() {
+        SWO_YUpdateDP dp = newSolver(durations(0, 0, 0, 0), 1, 3);
+        double[] lower = {-MIN_OPERATION, -MIN_OPERATION, -MIN_OPERATION};
+        double[] upper = {MAX_OPERATION, MAX_OPERATION, MAX_OPERATION};
+        for (int t = 0; t < 3; t++) {
+            dp.setConstants(0, t, lower[t], upper[t]);
+        }
+        dp.solve();
+        assertFalse(dp.getYValue(0, 1, State.PRODUCTION));
+        assertFalse(dp.getYValue(0, 1, State.STANDBY));
+        assertEquals(exhaustiveOptimum(lower, upper, durations(0, 0, 0, 0), 1), dp.getObjectiveValue(), TOLERANCE);
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private void compareRandom(Map<State, Integer> durations, int firstPeriod, int numPeriods, int runs) {
+        Random random = new Random(42 + firstPeriod * 31 + numPeriods);
+        SWO_YUpdateDP dp = newSolver(durations, firstPeriod, numPeriods);
+        double[] lower = new double[numPeriods];
+        double[] upper = new double[numPeriods];
+        for (int run = 0; run < runs; run++) {
+            for (int t = 0; t < numPeriods; t++) {
+                lower[t] = random.nextDouble() * 2.0 - 1.5;
+                upper[t] = random.nextDouble() * 2.0 - 0.5;
+                dp.setConstants(0, t, lower[t], upper[t]);
+            }
+            dp.solve();
+
+            int[] masks = new int[numPeriods];
+            for (int t = 0; t < numPeriods; t++) {
+                for (State s : State.values()) {
+                    if (dp.getYValue(0, t, s)) {
+                        masks[t] |= 1 << s.ordinal();
+                    }
+                }
+            }
+            String message = "durations " + durations + ", first period " + firstPeriod + ", run " + run;
+            assertTrue(message + ": infeasible path", feasible(masks, durations, firstPeriod));
+            assertEquals(message + ": cost of path", cost(lower, upper, masks), dp.getObjectiveValue(), TOLERANCE);
+            assertEquals(message, exhaustiveOptimum(lower, upper, durations, firstPeriod), dp.getObjectiveValue(), TOLERANCE);
+        }
+    }
+
+    private static SWO_YUpdateDP newSolver(Map<State, Integer> durations, int firstPeriod, int numPeriods) {
+        Electrolyzer electrolyzer = new Electrolyzer(1, 1.0, MIN_OPERATION, MAX_OPERATION, 1.0, 0.0, 1, 0.0, 0.0);
+        Set<Electrolyzer> electrolyzers = new LinkedHashSet<>();
+        electrolyzers.add(electrolyzer);
+        Set<Period> periods = new LinkedHashSet<>();
+        for (int t = 0; t < numPeriods; t++) {
+            periods.add(new Period(firstPeriod + t));
+        }
+        Map<Electrolyzer, Double> minOperation = new HashMap<>();
+        minOperation.put(electrolyzer, MIN_OPERATION);
+        Map<Electrolyzer, Double> maxOperation = new HashMap<>();
+        maxOperation.put(electrolyzer, MAX_OPERATION);
+        Map<Electrolyzer, Map<State, Integer>> holdingDurations = new HashMap<>();
+        holdingDurations.put(electrolyzer, durations);
+
+        Parameters params = new Parameters(null, null, null, null, minOperation, maxOperation, null, null, null, null,
+                1.0, null, 0.0, holdingDurations, null, electrolyzers, periods, 1, null, null);
+        return new SWO_YUpdateDP(params, electrolyzers, periods, RHO);
+    }
+
+    private static Map<State, Integer> durations(Integer idle, Integer starting, Integer production, Integer standby) {
+        Map<State, Integer> durations = new EnumMap<>(State.class);
+        put(durations, State.IDLE, idle);
+        put(durations, State.STARTING, starting);
+        put(durations, State.PRODUCTION, production);
+        put(durations, State.STANDBY, standby);
+        return durations;
+    }
+
+    private static void put(Map<State, Integer> durations, State state, Integer duration) {
+        if (duration != null) {
+            durations.put(state, duration);
+        }
+    }
+
+    private static double exhaustiveOptimum(double[] lower, double[] upper, Map<State, Integer> durations, int firstPeriod) {
+        int numPeriods = lower.length;
+        int[] masks = new int[numPeriods];
+        double best = Double.POSITIVE_INFINITY;
+        int combinations = 1 << (NUM_STATES * numPeriods);
+        for (int combination = 0; combination < combinations; combination++) {
+            for (int t = 0; t < numPeriods; t++) {
+                masks[t] = (combination >> (NUM_STATES * t)) & (NUM_MASKS - 1);
+            }
+            if (feasible(masks, durations, firstPeriod)) {
+                best = Math.min(best, cost(lower, upper, masks));
+            }
+        }
+        return best;
+    }
+
+    /** The constraints of SWO_YUpdateModel.buildModel() for one electrolyzer. */
+    private static boolean feasible(int[] masks, Map<State, Integer> durations, int firstPeriod) {
+        for (int t = 0; t < masks.length; t++) {
+            int periodT = firstPeriod + t;
+
+            if (t > 0) {
+                if (y(masks, t, State.STARTING) > y(masks, t - 1, State.IDLE) + y(masks, t - 1, State.STARTING)) {
+                    return false;
+                }
+                if (y(masks, t, State.PRODUCTION) > y(masks, t - 1, State.STARTING) + y(masks, t - 1, State.PRODUCTION)
+                        + y(masks, t - 1, State.STANDBY)) {
+                    return false;
+                }
+                if (y(masks, t, State.STANDBY) > y(masks, t - 1, State.PRODUCTION) + y(masks, t - 1, State.STANDBY)) {
+                    return false;
+                }
+                if (y(masks, t, State.IDLE) > y(masks, t - 1, State.IDLE) + y(masks, t - 1, State.STANDBY)
+                        + y(masks, t - 1, State.PRODUCTION)) {
+                    return false;
+                }
+            }
+
+            for (State s : State.values()) {
+                Integer holdingDuration = durations.get(s);
+                if (holdingDuration != null && periodT >= holdingDuration) {
+                    for (int tau = 1; tau < holdingDuration; tau++) {
+                        if (t - tau >= 0 && y(masks, t, s) > y(masks, t - tau, s)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+
+            if (periodT == 2) {
+                if (y(masks, t, State.STARTING) > y(masks, 0, State.IDLE)
+                        || y(masks, t, State.PRODUCTION) != 0
+                        || y(masks, t, State.STANDBY) != 0
+                        || y(masks, t, State.IDLE) > y(masks, 0, State.IDLE)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int y(int[] masks, int t, State s) {
+        return (masks[t] >> s.ordinal()) & 1;
+    }
+
+    private static double cost(double[] lower, double[] upper, int[] masks) {
+        double total = 0.0;
+        for (int t = 0; t < masks.length; t++) {
+            int production = y(masks, t, State.PRODUCTION);
+            double residual1 = lower[t] + MIN_OPERATION * production;
+            double residual2 = upper[t] - MAX_OPERATION * production;
+            double residual3 = Integer.bitCount(masks[t]) - 1;
+            total += RHO * (residual1 * residual1 + residual2 * residual2 + residual3 * residual3);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,211 @@
+package messages;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Collectives of N members wired in memory: every message a member sends is handed to the
+ * handle() of its receiver, in order or after the other members have started.
+ */
+public class CollectivesTest extends TestCase {
+
+    private static final int[] SIZES = {1, 2, 3, 5, 8};
+    private static final int PERIODS = 3;
+
+    public CollectivesTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(CollectivesTest.class);
+    }
+
+    // ============================================================================
+    // ALL-REDUCE
+    // ============================================================================
+
+    /** Members start one after the other, every message is delivered right away. */
+    public void testAllReduceInRankOrder() {
+        for (Collectives.Topology topology : Collectives.Topology.values()) {
+            for (int n : SIZES) {
+                Network network = new Network(n, topology);
+                for (String member : network.names()) {
+                    network.allReduce(member, "sum", 7);
+                    network.deliver();
+                }
+                assertAllReduced(network, topology + ", N=" + n, 7);
+            }
+        }
+    }
+
+    /** Reverse order: the partials of the children arrive before their parent has started. */
+    public void testAllReduceBuffersEarlyPartials() {
+        for (Collectives.Topology topology : Collectives.Topology.values()) {
+            for (int n : SIZES) {
+                Network network = new Network(n, topology);
+                List<String> names = network.names();
+                Collections.reverse(names);
+                for (String member : names) {
+                    network.allReduce(member, "sum", 3);
+                    network.deliver();
+                    if (n > 1 && !member.equals(network.first())) {
+                        assertTrue(topology + ", N=" + n, network.results.isEmpty());
+                    }
+                }
+                assertAllReduced(network, topology + ", N=" + n, 3);
+            }
+        }
+    }
+
+    /** All members start before any message is delivered, then the rounds of two operations interleave. */
+    public void testAllReduceDeliveredLate() {
+        for (Collectives.Topology topology : Collectives.Topology.values()) {
+            for (int n : SIZES) {
+                Network network = new Network(n, topology);
+                for (String member : network.names()) {
+                    network.allReduce(member, "sum", 1);
+                    network.allReduce(member, "sum", 2);
+                }
+                network.deliver();
+                assertEquals(2 * n, network.results.size());
+                assertEquals(2 * 2 * (n - 1), network.sent);
+            }
+        }
+    }
+
+    // ============================================================================
+    // REDUCE
+    // ============================================================================
+
+    public void testReduceToNonZeroRoot() {
+        for (Collectives.Topology topology : Collectives.Topology.values()) {
+            for (int n : SIZES) {
+                for (int root : new int[]{n - 1, n / 2}) {
+                    String label = topology + ", N=" + n + ", root " + root;
+                    Network network = new Network(n, topology);
+                    List<String> names = network.names();
+                    Collections.reverse(names);
+                    for (String member : names) {
+                        Collectives collectives = network.members.get(member);
+                        UpdateMessage contribution = collectives.contribution(5);
+                        contribution.addEntry(rank(member), 1, rank(member) + 0.5);
+                        collectives.reduce("gather", contribution, Collectives.Operation.GATHER, root, network.callback(member));
+                        network.deliver();
+                    }
+                    assertEquals(label, n - 1, network.sent);
+                    assertEquals(label, Collections.singleton("m" + root), network.results.keySet());
+
+                    UpdateMessage gathered = network.results.get("m" + root);
+                    assertEquals(label, 5, gathered.getIteration());
+                    assertEquals(label, n, gathered.size());
+                    for (int i = 0; i < n; i++) {
+                        assertEquals(label, i, gathered.getElectrolyzerId(i));
+                        assertEquals(label, i + 0.5, gathered.getValue(i, 0), 0.0);
+                    }
+                }
+            }
+        }
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    /** Member r contributes r + 1 to every period and r to its own entry. */
+    private static void assertAllReduced(Network network, String label, int iteration) {
+        int n = network.members.size();
+        assertEquals(label, 2 * (n - 1), network.sent);
+        assertEquals(label, n, network.results.size());
+        for (UpdateMessage result : network.results.values()) {
+            assertEquals(label, MessageType.COLLECTIVE_RESULT, result.getType());
+            assertEquals(label, iteration, result.getIteration());
+            assertEquals(label, PERIODS + n, result.size());
+            double[] expected = new double[PERIODS];
+            for (int i = 0; i < result.size(); i++) {
+                if (result.getElectrolyzerId(i) == 0) {
+                    expected[result.getPeriod(i) - 1] = result.getValue(i, 0);
+                } else {
+                    assertEquals(label, result.getElectrolyzerId(i) - 100.0, result.getValue(i, 0), 0.0);
+                }
+            }
+            for (int t = 0; t < PERIODS; t++) {
+                assertEquals(label, n * (n + 1) / 2.0, expected[t], 0.0);
+            }
+        }
+    }
+
+    private static int rank(String member) {
+        return Integer.parseInt(member.substring(1));
+    }
+
+    private static final class Network {
+        final Map<String, Collectives> members = new LinkedHashMap<>();
+        final Map<String, UpdateMessage> results = new LinkedHashMap<>();
+        final Deque<ACLMessage> inFlight = new ArrayDeque<>();
+        int sent;
+
+        Network(int n, Collectives.Topology topology) {
+            List<AID> phoneBook = new ArrayList<>();
+            for (int r = 0; r < n; r++) {
+                phoneBook.add(new AID("m" + r, AID.ISLOCALNAME));
+            }
+            // Das Telefonbuch enthält den Agenten selbst nicht
+            for (AID self : phoneBook) {
+                List<AID> others = new ArrayList<>(phoneBook);
+                others.remove(self);
+                members.put(self.getLocalName(), new Collectives(self, others, topology, msg -> {
+                    sent++;
+                    inFlight.add(msg);
+                }));
+            }
+        }
+
+        List<String> names() {
+            return new ArrayList<>(members.keySet());
+        }
+
+        String first() {
+            return members.keySet().iterator().next();
+        }
+
+        void allReduce(String member, String name, int iteration) {
+            Collectives collectives = members.get(member);
+            UpdateMessage contribution = collectives.contribution(iteration);
+            for (int t = 1; t <= PERIODS; t++) {
+                contribution.addEntry(0, t, rank(member) + 1.0);
+            }
+            contribution.addEntry(100 + rank(member), 1, rank(member));
+            collectives.allReduce(name, contribution, callback(member));
+        }
+
+        Collectives.Callback callback(String member) {
+            return (name, iteration, result) -> {
+                String key = results.containsKey(member) ? member + "#" + iteration : member;
+                assertNull("completed twice", results.put(key, result));
+            };
+        }
+
+        void deliver() {
+            while (!inFlight.isEmpty()) {
+                ACLMessage msg = inFlight.poll();
+                Iterator<?> receivers = msg.getAllReceiver();
+                assertTrue(receivers.hasNext());
+                AID receiver = (AID) receivers.next();
+                assertFalse("one receiver per message", receivers.hasNext());
+                assertTrue(members.get(receiver.getLocalName()).handle(msg));
+            }
+        }
+    }
+}
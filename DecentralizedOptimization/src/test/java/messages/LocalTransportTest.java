@@ -0,0 +1,134 @@
+package messages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * The single-writer ring of the LocalTransport: a lagging reader fills the ring (send() then falls
+ * back to ACL), a reader that appears mid-stream starts at the head, and a receiver that
+ * unregisters does not hold its unread slots.
+ */
+public class LocalTransportTest extends TestCase {
+
+    private static final int CAPACITY = 4;
+
+    private final List<String> registered = new ArrayList<>();
+
+    public LocalTransportTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(LocalTransportTest.class);
+    }
+
+    @Override
+    protected void tearDown() {
+        for (String name : registered) {
+            LocalTransport.unregister(name);
+        }
+    }
+
+    public void testLaggingReaderFillsRing() {
+        LocalTransport writer = register("ltWriter");
+        LocalTransport lagging = register("ltLagging");
+        LocalTransport reader = register("ltReader");
+
+        for (int iteration = 0; iteration < CAPACITY; iteration++) {
+            assertTrue(writer.publish(update(iteration), Arrays.asList(lagging, reader)));
+            assertEquals(Arrays.asList(iteration), iterations(reader.poll()));
+        }
+        // Der nächste Slot ist noch nicht gelesen: ACL-Fallback
+        assertFalse(writer.publish(update(CAPACITY), Arrays.asList(lagging, reader)));
+        assertFalse(writer.publish(update(CAPACITY), Arrays.asList(reader)));
+        assertEquals(CAPACITY, writer.getPublishedCount());
+
+        // Nothing lost: the lagging reader gets all entries in order, then the ring is free again
+        assertEquals(Arrays.asList(0, 1, 2, 3), iterations(lagging.poll()));
+        assertTrue(writer.publish(update(CAPACITY), Arrays.asList(lagging, reader)));
+        assertEquals(Arrays.asList(CAPACITY), iterations(lagging.poll()));
+        assertEquals(Arrays.asList(CAPACITY), iterations(reader.poll()));
+    }
+
+    /** Entries addressed to others do not wait for an idle reader. */
+    public void testIdleReaderDoesNotBlock() {
+        LocalTransport writer = register("ltWriter");
+        LocalTransport idle = register("ltIdle");
+        LocalTransport reader = register("ltReader");
+
+        assertTrue(writer.publish(update(0), Arrays.asList(idle)));
+        assertEquals(Arrays.asList(0), iterations(idle.poll()));
+        for (int iteration = 1; iteration <= 3 * CAPACITY; iteration++) {
+            assertTrue("iteration " + iteration, writer.publish(update(iteration), Arrays.asList(reader)));
+            assertEquals(Arrays.asList(iteration), iterations(reader.poll()));
+        }
+        assertTrue(idle.poll().isEmpty());
+    }
+
+    public void testReaderRegisteredMidStreamStartsAtHead() {
+        LocalTransport writer = register("ltWriter");
+        LocalTransport reader = register("ltReader");
+        for (int iteration = 0; iteration < CAPACITY - 1; iteration++) {
+            assertTrue(writer.publish(update(iteration), Arrays.asList(reader)));
+        }
+        assertEquals(Arrays.asList(0, 1, 2), iterations(reader.poll()));
+
+        // Erstes poll() vor der ersten Adressierung: Cursor am Head
+        LocalTransport late = register("ltLate");
+        assertTrue(late.poll().isEmpty());
+        assertTrue(writer.publish(update(10), Arrays.asList(reader, late)));
+        assertEquals(Arrays.asList(10), iterations(late.poll()));
+
+        // First addressed before any poll(): the cursor starts at that entry
+        LocalTransport later = register("ltLater");
+        assertTrue(writer.publish(update(11), Arrays.asList(reader, later)));
+        assertTrue(writer.publish(update(12), Arrays.asList(later)));
+        assertEquals(Arrays.asList(11, 12), iterations(later.poll()));
+
+        assertEquals(Arrays.asList(10, 11), iterations(reader.poll()));
+    }
+
+    public void testUnregisteredReaderReleasesUnreadSlots() {
+        LocalTransport writer = register("ltWriter");
+        LocalTransport leaving = register("ltLeaving");
+        LocalTransport reader = register("ltReader");
+        for (int iteration = 0; iteration < CAPACITY; iteration++) {
+            assertTrue(writer.publish(update(iteration), Arrays.asList(leaving, reader)));
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3), iterations(reader.poll()));
+        assertFalse(writer.publish(update(CAPACITY), Arrays.asList(reader)));
+
+        LocalTransport.unregister("ltLeaving");
+        for (int iteration = CAPACITY; iteration < 3 * CAPACITY; iteration++) {
+            assertTrue("iteration " + iteration, writer.publish(update(iteration), Arrays.asList(reader)));
+            assertEquals(Arrays.asList(iteration), iterations(reader.poll()));
+        }
+        assertTrue(leaving.poll().isEmpty());
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private LocalTransport register(String name) {
+        registered.add(name);
+        return LocalTransport.register(name, CAPACITY);
+    }
+
+    private static UpdateMessage update(int iteration) {
+        return new UpdateMessage(MessageType.SWO_X_UPDATE, iteration, "ltWriter");
+    }
+
+    private static List<Integer> iterations(List<UpdateMessage> messages) {
+        List<Integer> iterations = new ArrayList<>();
+        for (UpdateMessage message : messages) {
+            iterations.add(message.getIteration());
+        }
+        return iterations;
+    }
+}
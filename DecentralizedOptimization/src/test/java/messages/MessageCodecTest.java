@@ -0,0 +1,279 @@
+package messages;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import models.State;
+
+/**
+ * Round trips of the cycle messages through the binary and the legacy text format.
+ */
+public class MessageCodecTest extends TestCase {
+
+    private static final int STATE_COUNT = State.values().length;
+
+    public MessageCodecTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(MessageCodecTest.class);
+    }
+
+    // ============================================================================
+    // BINARY FORMAT
+    // ============================================================================
+
+    public void testXUpdateRoundTrip() {
+        UpdateMessage update = xUpdate();
+        UpdateMessage decoded = MessageCodec.decode(MessageCodec.encode(update));
+        assertSameMessage(update, decoded);
+        assertNull(decoded.getStates(0));
+        assertFalse(decoded.isKeyframe());
+        assertFalse(decoded.isDelta());
+    }
+
+    public void testDualUpdateWithOneHotStates() {
+        UpdateMessage update = dualUpdate(false);
+        assertSameMessage(update, MessageCodec.decode(MessageCodec.encode(update)));
+    }
+
+    /** Several or no active states per entry are sent as one bit per state. */
+    public void testDualUpdateWithoutOneHotStates() {
+        UpdateMessage update = dualUpdate(true);
+        byte[] bytes = MessageCodec.encode(update);
+        assertSameMessage(update, MessageCodec.decode(bytes));
+        assertTrue(bytes.length > MessageCodec.encode(dualUpdate(false)).length);
+    }
+
+    public void testConvergenceRoundTrip() {
+        for (MessageType type : new MessageType[]{MessageType.SWO_CONVERGENCE, MessageType.RTO_CONVERGENCE}) {
+            UpdateMessage update = new UpdateMessage(type, 42, "ADMMAgent2");
+            UpdateMessage decoded = MessageCodec.decode(MessageCodec.encode(update));
+            assertEquals(type, decoded.getType());
+            assertEquals(42, decoded.getIteration());
+            assertEquals("ADMMAgent2", decoded.getSender());
+            assertEquals(0, decoded.size());
+        }
+    }
+
+    public void testDeltaFlagsRoundTrip() {
+        UpdateMessage update = xUpdate();
+        update.setDeltaFlags(true, false);
+        assertTrue(MessageCodec.decode(MessageCodec.encode(update)).isKeyframe());
+        update.setDeltaFlags(false, true);
+        assertTrue(MessageCodec.decode(MessageCodec.encode(update)).isDelta());
+    }
+
+    /** Version 1 messages have the same layout without the quantization and compression flags. */
+    public void testVersionOneIsDecoded() {
+        UpdateMessage update = dualUpdate(true);
+        byte[] bytes = MessageCodec.encode(update);
+        bytes[1] = 1;
+        assertSameMessage(update, MessageCodec.decode(bytes));
+    }
+
+    public void testInvalidContentIsRejected() {
+        byte[] bytes = MessageCodec.encode(xUpdate());
+        bytes[0] = 0;
+        try {
+            MessageCodec.decode(bytes);
+            fail("Message without magic byte decoded");
+        } catch (IllegalArgumentException expected) {
+            // erwartet
+        }
+        bytes[0] = MessageCodec.MAGIC;
+        bytes[1] = MessageCodec.VERSION + 1;
+        try {
+            MessageCodec.decode(bytes);
+            fail("Message of an unknown version decoded");
+        } catch (IllegalArgumentException expected) {
+            // erwartet
+        }
+    }
+
+    // ============================================================================
+    // QUANTIZATION AND COMPRESSION
+    // ============================================================================
+
+    /** Quantized fields are off by at most step / 2, hydrogen production and residuals are exact. */
+    public void testQuantizationErrorBound() {
+        for (double step : new double[]{1e-4, 1e-2, 0.3}) {
+            for (UpdateMessage update : new UpdateMessage[]{xUpdate(), dualUpdate(true)}) {
+                update.setQuantizationStep(step);
+                UpdateMessage decoded = MessageCodec.decode(MessageCodec.encode(update));
+                assertEquals(step, decoded.getQuantizationStep(), 0.0);
+                MessageType type = update.getType();
+                for (int i = 0; i < update.size(); i++) {
+                    for (int field = 0; field < type.getFieldCount(); field++) {
+                        double value = update.getValue(i, field);
+                        double received = decoded.getValue(i, field);
+                        if (type.isQuantizable(field)) {
+                            assertEquals(type + " field " + field, value, received, step / 2 + 4 * Math.ulp(value) + 4 * Math.ulp(step));
+                            assertEquals(MessageCodec.quantize(value, step), received, 0.0);
+                        } else {
+                            assertEquals(type + " field " + field, value, received, 0.0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** A field with a value that does not fit into an int of the step is sent in full precision. */
+    public void testQuantizationFallsBackToDoubles() {
+        UpdateMessage update = xUpdate();
+        update.addEntry(4, 1, 1e12, 1.0);
+        update.addEntry(4, 2, Double.NaN, 1.0);
+        update.setQuantizationStep(1e-4);
+        UpdateMessage decoded = MessageCodec.decode(MessageCodec.encode(update));
+        for (int i = 0; i < update.size() - 1; i++) {
+            assertEquals(update.getValue(i, UpdateMessage.X), decoded.getValue(i, UpdateMessage.X), 0.0);
+        }
+        assertTrue(Double.isNaN(decoded.getValue(update.size() - 1, UpdateMessage.X)));
+    }
+
+    public void testCompressedAndUncompressedDecodeIdentically() {
+        UpdateMessage[] updates = {xUpdate(), dualUpdate(false), dualUpdate(true), repetitiveUpdate(),
+                new UpdateMessage(MessageType.SWO_CONVERGENCE, 3, "ADMMAgent1")};
+        for (double step : new double[]{0.0, 1e-4}) {
+            for (UpdateMessage update : updates) {
+                update.setQuantizationStep(step);
+                UpdateMessage plain = MessageCodec.decode(MessageCodec.encode(update, false));
+                UpdateMessage compressed = MessageCodec.decode(MessageCodec.encode(update, true));
+                assertSameMessage(plain, compressed);
+                assertEquals(plain.getQuantizationStep(), compressed.getQuantizationStep(), 0.0);
+            }
+        }
+    }
+
+    public void testCompressionIsOnlyUsedIfSmaller() {
+        UpdateMessage update = repetitiveUpdate();
+        byte[] plain = MessageCodec.encode(update, false);
+        byte[] compressed = MessageCodec.encode(update, true);
+        assertTrue((compressed[3] & MessageCodec.FLAG_COMPRESSED) != 0);
+        assertTrue(compressed.length < plain.length);
+
+        UpdateMessage convergence = new UpdateMessage(MessageType.RTO_CONVERGENCE, 3, "A");
+        byte[] small = MessageCodec.encode(convergence, true);
+        assertEquals(0, small[3] & MessageCodec.FLAG_COMPRESSED);
+        assertEquals(MessageCodec.encode(convergence, false).length, small.length);
+    }
+
+    // ============================================================================
+    // TEXT FORMAT
+    // ============================================================================
+
+    public void testTextXUpdateRoundTrip() {
+        UpdateMessage update = xUpdate();
+        assertSameMessage(update, MessageCodec.fromText(MessageCodec.toText(update), update.getSender()));
+    }
+
+    public void testTextDualUpdateRoundTrip() {
+        UpdateMessage oneHot = dualUpdate(false);
+        assertSameMessage(oneHot, MessageCodec.fromText(MessageCodec.toText(oneHot), oneHot.getSender()));
+        UpdateMessage flags = dualUpdate(true);
+        assertSameMessage(flags, MessageCodec.fromText(MessageCodec.toText(flags), flags.getSender()));
+    }
+
+    /** The legacy convergence message is the bare prefix, it carries no iteration. */
+    public void testTextConvergence() {
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_CONVERGENCE, 42, "ADMMAgent2");
+        String content = MessageCodec.toText(update);
+        assertEquals("convergenceReached", content);
+        UpdateMessage decoded = MessageCodec.fromText(content, "ADMMAgent2");
+        assertEquals(MessageType.SWO_CONVERGENCE, decoded.getType());
+        assertEquals(-1, decoded.getIteration());
+        assertEquals(MessageType.RTO_CONVERGENCE, MessageCodec.fromText("RTOconvergenceReached", "ADMMAgent2").getType());
+    }
+
+    /** Content as written by the agents before the binary format. */
+    public void testLegacyTextContent() {
+        UpdateMessage x = MessageCodec.fromText("xUpdateMessage;3;1,2,0.5,1.25;2,2,-0.75,0.0;", "ADMMAgent1");
+        assertEquals(MessageType.SWO_X_UPDATE, x.getType());
+        assertEquals(3, x.getIteration());
+        assertEquals(2, x.size());
+        assertEquals(2, x.getElectrolyzerId(1));
+        assertEquals(2, x.getPeriod(1));
+        assertEquals(-0.75, x.getValue(1, UpdateMessage.X), 0.0);
+        assertEquals(1.25, x.getValue(0, UpdateMessage.HYDROGEN), 0.0);
+
+        UpdateMessage dual = MessageCodec.fromText("dualUpdateMessage;5;1,4,1.0,2.0,3.0,4.0,5.0,6.0,7.0,8.0,1,0,1,0;", "ADMMAgent1");
+        assertEquals(5, dual.getIteration());
+        assertEquals(8.0, dual.getValue(0, UpdateMessage.RESIDUAL3), 0.0);
+        assertEquals(4.0, dual.getValue(0, UpdateMessage.S1), 0.0);
+        boolean[] states = dual.getStates(0);
+        assertTrue(states[0]);
+        assertFalse(states[1]);
+        assertTrue(states[2]);
+        assertFalse(states[3]);
+    }
+
+    public void testTextOfOtherMessagesIsIgnored() {
+        assertNull(MessageCodec.fromText("phoneBook;1;ADMMAgent1", "AMSAgent"));
+        // Einträge mit zu wenigen Werten werden übersprungen
+        assertEquals(1, MessageCodec.fromText("xUpdateMessage;3;1,2,0.5;2,2,-0.75,0.0;", "ADMMAgent1").size());
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    static UpdateMessage xUpdate() {
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_X_UPDATE, 7, "ADMMAgent1", 4);
+        for (int i = 0; i < 12; i++) {
+            update.addEntry(1 + i % 3, 1 + i / 3, 0.1 * i - 0.35, 2.5 * i);
+        }
+        return update;
+    }
+
+    /**
+     * @param multipleStates true: entries with several and with no active state
+     */
+    static UpdateMessage dualUpdate(boolean multipleStates) {
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_DUAL_UPDATE, 11, "ADMMAgent3", 4);
+        for (int i = 0; i < 10; i++) {
+            boolean[] states = new boolean[STATE_COUNT];
+            states[i % STATE_COUNT] = true;
+            if (multipleStates && i % 3 == 0) {
+                states[(i + 1) % STATE_COUNT] = true;
+            }
+            if (multipleStates && i == 5) {
+                states = new boolean[STATE_COUNT];
+            }
+            double base = i - 4.5;
+            update.addEntry(2, 1 + i, states, base, -base, 0.5 * base, 1e-3 * base, 3.0, base * base, 1e-9, -1.0);
+        }
+        return update;
+    }
+
+    /** Many entries with the same values, deflate shrinks them well. */
+    static UpdateMessage repetitiveUpdate() {
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_DUAL_UPDATE, 2, "ADMMAgent1", 64);
+        boolean[] states = new boolean[STATE_COUNT];
+        states[0] = true;
+        for (int i = 0; i < 200; i++) {
+            update.addEntry(1 + i % 4, 1 + i / 4, states, 0.25, 0.25, 0.0, 0.0, 0.0, 0.5, 0.5, 0.0);
+        }
+        return update;
+    }
+
+    static void assertSameMessage(UpdateMessage expected, UpdateMessage actual) {
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getIteration(), actual.getIteration());
+        assertEquals(expected.getSender(), actual.getSender());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getElectrolyzerId(i), actual.getElectrolyzerId(i));
+            assertEquals(expected.getPeriod(i), actual.getPeriod(i));
+            for (int field = 0; field < expected.getType().getFieldCount(); field++) {
+                assertEquals("entry " + i + ", field " + field, expected.getValue(i, field), actual.getValue(i, field), 0.0);
+            }
+            if (expected.getType().hasStates()) {
+                for (int s = 0; s < STATE_COUNT; s++) {
+                    assertEquals("entry " + i + ", state " + s, expected.getStates(i)[s], actual.getStates(i)[s]);
+                }
+            }
+        }
+    }
+}
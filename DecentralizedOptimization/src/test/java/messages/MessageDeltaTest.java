@@ -0,0 +1,229 @@
+package messages;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import models.State;
+
+/**
+ * Delta mode between a sending and a receiving MessageDelta, the messages pass through the binary
+ * format in between.
+ */
+public class MessageDeltaTest extends TestCase {
+
+    private static final double EPSILON = 0.01;
+    private static final int ENTRIES = 6;
+    private static final int STATE_COUNT = State.values().length;
+
+    private MessageDelta sender;
+    private MessageDelta receiver;
+
+    public MessageDeltaTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(MessageDeltaTest.class);
+    }
+
+    @Override
+    protected void setUp() {
+        sender = new MessageDelta(EPSILON, 100);
+        receiver = new MessageDelta(EPSILON, 100);
+    }
+
+    // ============================================================================
+    // SENDING
+    // ============================================================================
+
+    /** Changes up to epsilon against the last value sent are not resent, they do not add up. */
+    public void testEpsilonThreshold() {
+        double[] x = new double[ENTRIES];
+        double[] hydrogen = new double[ENTRIES];
+        assertTrue(send(xUpdate(1, x, hydrogen)).isKeyframe());
+
+        x[0] += 0.005;
+        x[1] += EPSILON;
+        x[2] += 0.02;
+        hydrogen[3] = 1.0;
+        UpdateMessage delta = send(xUpdate(2, x, hydrogen));
+        assertTrue(delta.isDelta());
+        assertEquals(2, delta.size());
+        assertEquals(0.02, delta.getValue(0, UpdateMessage.X), 0.0);
+        assertEquals(1.0, delta.getValue(1, UpdateMessage.HYDROGEN), 0.0);
+
+        // 0.005 + 0.006 gegen den zuletzt gesendeten Wert 0.0
+        x[0] += 0.006;
+        delta = send(xUpdate(3, x, hydrogen));
+        assertEquals(1, delta.size());
+        assertEquals(x[0], delta.getValue(0, UpdateMessage.X), 0.0);
+
+        assertEquals(0, send(xUpdate(4, x, hydrogen)).size());
+    }
+
+    public void testStateChangeIsResent() {
+        boolean[][] states = new boolean[ENTRIES][];
+        for (int i = 0; i < ENTRIES; i++) {
+            states[i] = oneHot(0);
+        }
+        assertTrue(receive(send(dualUpdate(1, states))).isKeyframe());
+
+        states[4] = oneHot(2);
+        UpdateMessage delta = send(dualUpdate(2, states));
+        assertEquals(1, delta.size());
+        assertEquals(5, delta.getPeriod(0));
+
+        UpdateMessage full = receive(delta);
+        assertEquals(ENTRIES, full.size());
+        assertTrue(Arrays.equals(oneHot(2), full.getStates(4)));
+        assertTrue(Arrays.equals(oneHot(0), full.getStates(3)));
+    }
+
+    public void testKeyframeIntervalAndEntryChanges() {
+        sender = new MessageDelta(EPSILON, 3);
+        double[] x = new double[ENTRIES];
+        double[] hydrogen = new double[ENTRIES];
+        boolean[] keyframes = new boolean[8];
+        for (int iteration = 1; iteration < keyframes.length; iteration++) {
+            UpdateMessage update = iteration < 4 ? xUpdate(iteration, x, hydrogen) : xUpdate(iteration, x, hydrogen, ENTRIES + 1);
+            UpdateMessage sent = send(update);
+            keyframes[iteration] = sent.isKeyframe();
+            assertEquals(!sent.isKeyframe(), sent.isDelta());
+        }
+        // 1: first message, 3 and 6: interval, 4: new entry
+        assertTrue(Arrays.equals(new boolean[]{false, true, false, true, true, false, true, false}, keyframes));
+
+        // Same number of entries, another one
+        UpdateMessage update = xUpdate(8, x, hydrogen);
+        update.addEntry(9, 9, 0.0, 0.0);
+        assertTrue(send(update).isKeyframe());
+
+        // Plain messages without entries are not touched
+        UpdateMessage convergence = new UpdateMessage(MessageType.SWO_CONVERGENCE, 9, "ADMMAgent1");
+        assertSame(convergence, sender.encode(convergence));
+        assertFalse(convergence.isKeyframe());
+    }
+
+    // ============================================================================
+    // RECEIVING
+    // ============================================================================
+
+    /** The delta is patched into the reference of its sender and expanded to all entries. */
+    public void testDeltaPatchedOntoReference() {
+        MessageDelta otherSender = new MessageDelta(EPSILON, 100);
+        double[] x = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0};
+        double[] hydrogen = new double[ENTRIES];
+        receive(send(xUpdate(1, x, hydrogen)));
+        receive(wire(otherSender.encode(xUpdate("ADMMAgent2", 1, x, hydrogen, ENTRIES))));
+
+        double[] next = x.clone();
+        next[1] = 2.5;
+        next[5] = 5.0;
+        UpdateMessage full = receive(send(xUpdate(2, next, hydrogen)));
+        assertFalse(full.isDelta());
+        assertEquals("ADMMAgent1", full.getSender());
+        assertEquals(2, full.getIteration());
+        assertSameEntries(xUpdate(2, next, hydrogen), full);
+
+        // Reference of the other sender unchanged
+        x[0] = 0.0;
+        UpdateMessage other = receive(wire(otherSender.encode(xUpdate("ADMMAgent2", 2, x, hydrogen, ENTRIES))));
+        assertSameEntries(xUpdate(2, x, hydrogen), other);
+
+        // Patches accumulate
+        next[3] = -4.0;
+        assertSameEntries(xUpdate(3, next, hydrogen), receive(send(xUpdate(3, next, hydrogen))));
+    }
+
+    /**
+     * A receiver that joined after the keyframe drops the deltas until the keyframe it requested
+     * (the sender's last message) has arrived.
+     */
+    public void testDeltaWithoutReferenceUntilKeyframe() {
+        double[] x = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0};
+        double[] hydrogen = new double[ENTRIES];
+        send(xUpdate(1, x, hydrogen));
+        x[2] = 7.0;
+        UpdateMessage delta = send(xUpdate(2, x, hydrogen));
+
+        assertNull(receive(delta));
+        assertTrue(receiver.requestKeyframe("ADMMAgent1", MessageType.SWO_X_UPDATE));
+        assertFalse(receiver.requestKeyframe("ADMMAgent1", MessageType.SWO_X_UPDATE));
+        assertNull(receive(delta));
+
+        assertNull(sender.keyframe(MessageType.SWO_DUAL_UPDATE));
+        UpdateMessage keyframe = wire(sender.keyframe(MessageType.SWO_X_UPDATE));
+        assertTrue(keyframe.isKeyframe());
+        assertEquals(2, keyframe.getIteration());
+        assertSameEntries(xUpdate(2, x, hydrogen), receive(keyframe));
+
+        x[5] = 0.0;
+        assertSameEntries(xUpdate(3, x, hydrogen), receive(send(xUpdate(3, x, hydrogen))));
+        // Keyframe angekommen: eine neue Lücke wird wieder angefordert
+        assertTrue(receiver.requestKeyframe("ADMMAgent1", MessageType.SWO_X_UPDATE));
+
+        sender.forceKeyframes();
+        assertNull(sender.keyframe(MessageType.SWO_X_UPDATE));
+        assertTrue(send(xUpdate(4, x, hydrogen)).isKeyframe());
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private UpdateMessage send(UpdateMessage update) {
+        return wire(sender.encode(update));
+    }
+
+    private UpdateMessage receive(UpdateMessage update) {
+        return receiver.decode(update);
+    }
+
+    private static UpdateMessage wire(UpdateMessage update) {
+        return MessageCodec.decode(MessageCodec.encode(update));
+    }
+
+    private static UpdateMessage xUpdate(int iteration, double[] x, double[] hydrogen) {
+        return xUpdate("ADMMAgent1", iteration, x, hydrogen, ENTRIES);
+    }
+
+    private static UpdateMessage xUpdate(int iteration, double[] x, double[] hydrogen, int entries) {
+        return xUpdate("ADMMAgent1", iteration, x, hydrogen, entries);
+    }
+
+    /** Entries beyond x.length have the value 0. */
+    private static UpdateMessage xUpdate(String sender, int iteration, double[] x, double[] hydrogen, int entries) {
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_X_UPDATE, iteration, sender, entries);
+        for (int i = 0; i < entries; i++) {
+            update.addEntry(1 + i % 3, 1 + i / 3, i < x.length ? x[i] : 0.0, i < hydrogen.length ? hydrogen[i] : 0.0);
+        }
+        return update;
+    }
+
+    private static UpdateMessage dualUpdate(int iteration, boolean[][] states) {
+        UpdateMessage update = new UpdateMessage(MessageType.SWO_DUAL_UPDATE, iteration, "ADMMAgent1", ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            update.addEntry(2, 1 + i, states[i].clone(), i, -i, 0.0, 0.0, 1.0, 0.5, 0.0, 0.0);
+        }
+        return update;
+    }
+
+    private static boolean[] oneHot(int state) {
+        boolean[] states = new boolean[STATE_COUNT];
+        states[state] = true;
+        return states;
+    }
+
+    private static void assertSameEntries(UpdateMessage expected, UpdateMessage actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getElectrolyzerId(i), actual.getElectrolyzerId(i));
+            assertEquals(expected.getPeriod(i), actual.getPeriod(i));
+            for (int field = 0; field < expected.getType().getFieldCount(); field++) {
+                assertEquals("entry " + i + ", field " + field, expected.getValue(i, field), actual.getValue(i, field), 0.0);
+            }
+        }
+    }
+}
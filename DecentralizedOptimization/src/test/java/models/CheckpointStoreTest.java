@@ -0,0 +1,219 @@
+package models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checkpoints through capture, the file format and restore, and the files of the store: checksum,
+ * truncation and pruning of old checkpoints.
+ */
+public class CheckpointStoreTest extends TestCase {
+
+    private static final int NUM_ELECTROLYZERS = 3;
+    private static final int NUM_PERIODS = 4;
+    private static final int MAX_ITERATIONS = 8;
+    private static final String AGENT = "ADMMAgent2";
+    private static final Set<Integer> OWN_ELECTROLYZERS = new TreeSet<>(Arrays.asList(2, 3));
+    private static final Set<Integer> OWN_PERIODS = new TreeSet<>(Arrays.asList(1, 2, 3, 4));
+
+    private Path baseDirectory;
+    private ADMMDataModel dataModel;
+
+    public CheckpointStoreTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(CheckpointStoreTest.class);
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        baseDirectory = Files.createTempDirectory("checkpoints");
+        dataModel = newDataModel(NUM_PERIODS);
+        dataModel.setPhoneBookVersion(3);
+        for (int iteration = 0; iteration < MAX_ITERATIONS - 1; iteration++) {
+            fill(dataModel, iteration);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(baseDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    public void testCaptureWriteReadRestore() throws IOException {
+        CheckpointStore.Checkpoint checkpoint = CheckpointStore.Checkpoint.capture(dataModel, AGENT, 4, OWN_ELECTROLYZERS, OWN_PERIODS);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            checkpoint.writeTo(out);
+        }
+        CheckpointStore.Checkpoint read = CheckpointStore.Checkpoint.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(AGENT, read.getAgentName());
+        assertEquals(4, read.getIteration());
+        assertEquals(3, read.getPhoneBookVersion());
+        assertEquals(OWN_ELECTROLYZERS, read.getElectrolyzerIds());
+        assertEquals(OWN_PERIODS, read.getPeriodIds());
+        assertTrue(read.matches(NUM_ELECTROLYZERS, NUM_PERIODS));
+        assertFalse(read.matches(NUM_ELECTROLYZERS, NUM_PERIODS + 1));
+
+        ADMMDataModel restored = newDataModel(NUM_PERIODS);
+        read.restore(restored);
+        assertSameState(dataModel, restored, 4);
+        // Nur der Slot der nächsten Iteration
+        assertEquals(0.0, restored.getSWOValues(4).getX(1, 1), 0.0);
+
+        try {
+            read.restore(newDataModel(NUM_PERIODS - 1));
+            fail("restored into a data model of another size");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    public void testSaveAndLoad() throws IOException {
+        CheckpointStore store = new CheckpointStore(baseDirectory, AGENT, 3);
+        store.save(dataModel, 2, OWN_ELECTROLYZERS, OWN_PERIODS);
+        // No values of iteration MAX_ITERATIONS, nothing is written
+        store.save(dataModel, MAX_ITERATIONS, OWN_ELECTROLYZERS, OWN_PERIODS);
+        store.close();
+        assertEquals(Arrays.asList(2), store.listIterations());
+        assertEquals(Files.size(checkpointFile(2)), store.getLastBytes());
+
+        ADMMDataModel restored = newDataModel(NUM_PERIODS);
+        store.load(2).restore(restored);
+        assertSameState(dataModel, restored, 2);
+
+        try {
+            store.load(3);
+            fail("missing checkpoint loaded");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    public void testChecksumMismatchIsRejected() throws IOException {
+        CheckpointStore store = new CheckpointStore(baseDirectory, AGENT, 3);
+        store.save(dataModel, 1, OWN_ELECTROLYZERS, OWN_PERIODS);
+        store.close();
+
+        byte[] bytes = Files.readAllBytes(checkpointFile(1));
+        bytes[bytes.length / 2] ^= 0x10; // within the values, the layout stays readable
+        Files.write(checkpointFile(1), bytes);
+        try {
+            store.load(1);
+            fail("corrupt checkpoint loaded");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Checksum mismatch"));
+        }
+    }
+
+    public void testTruncatedFileIsRejected() throws IOException {
+        CheckpointStore store = new CheckpointStore(baseDirectory, AGENT, 3);
+        store.save(dataModel, 1, OWN_ELECTROLYZERS, OWN_PERIODS);
+        store.close();
+
+        byte[] bytes = Files.readAllBytes(checkpointFile(1));
+        for (int length : new int[]{bytes.length - 4, bytes.length / 2, 6}) {
+            Files.write(checkpointFile(1), Arrays.copyOf(bytes, length));
+            try {
+                store.load(1);
+                fail("checkpoint truncated to " + length + " bytes loaded");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+    }
+
+    public void testKeepPrunesOldestCheckpoints() throws IOException {
+        CheckpointStore store = new CheckpointStore(baseDirectory, AGENT, 2);
+        for (int iteration = 0; iteration < 5; iteration++) {
+            store.save(dataModel, iteration, OWN_ELECTROLYZERS, OWN_PERIODS);
+        }
+        store.close();
+        assertEquals(Arrays.asList(3, 4), store.listIterations());
+        try (Stream<Path> files = Files.list(baseDirectory.resolve(AGENT))) {
+            assertEquals(2, files.count()); // keine .tmp-Dateien
+        }
+        assertEquals(4, store.load(4).getIteration());
+
+        // Another agent's checkpoints are separate
+        assertTrue(new CheckpointStore(baseDirectory, "ADMMAgent1", 2).listIterations().isEmpty());
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private Path checkpointFile(int iteration) {
+        return baseDirectory.resolve(AGENT).resolve(String.format("swo_%06d.ckpt", iteration));
+    }
+
+    private static ADMMDataModel newDataModel(int numPeriods) {
+        Set<Electrolyzer> electrolyzers = new LinkedHashSet<>();
+        for (int id = 1; id <= NUM_ELECTROLYZERS; id++) {
+            electrolyzers.add(new Electrolyzer(id, 1.0, 0.2, 1.0, 18.0, 0.0, 1, 0.0, 0.0));
+        }
+        Set<Period> periods = new LinkedHashSet<>();
+        for (int t = 1; t <= numPeriods; t++) {
+            periods.add(new Period(t));
+        }
+        ADMMDataModel dataModel = new ADMMDataModel();
+        dataModel.setParameters(new Parameters(null, null, null, null, null, null, null, null, null, null,
+                0.25, null, 0.0, null, null, electrolyzers, periods, NUM_ELECTROLYZERS, null, null));
+        dataModel.initializeAllIterations(MAX_ITERATIONS, numPeriods);
+        return dataModel;
+    }
+
+    /** Values of slot iteration + 1 and the residuals of the iteration. */
+    private static void fill(ADMMDataModel dataModel, int iteration) {
+        IterateBlock values = dataModel.getSWOValues(iteration + 1);
+        for (int e = 0; e < NUM_ELECTROLYZERS; e++) {
+            for (int t = 0; t < NUM_PERIODS; t++) {
+                double base = iteration + 0.1 * e + 0.01 * t;
+                values.setX(e, t, base);
+                values.setHydrogen(e, t, 2.0 * base);
+                values.setStateBits(e, t, 1 << ((iteration + e + t) % IterateBlock.STATES));
+                for (int k = 0; k < IterateBlock.S_COMPONENTS; k++) {
+                    values.setS(e, t, k, -base - k);
+                }
+                for (int k = 0; k < values.getUComponents(); k++) {
+                    values.setU(e, t, k, base * (k + 1));
+                }
+                dataModel.saveYResiduals(iteration, e, t, new double[]{base, 0.5 * base, -base});
+            }
+        }
+    }
+
+    private static void assertSameState(ADMMDataModel expected, ADMMDataModel actual, int iteration) {
+        IterateBlock expectedValues = expected.getSWOValues(iteration + 1);
+        IterateBlock actualValues = actual.getSWOValues(iteration + 1);
+        assertTrue(Arrays.equals(expectedValues.xValues(), actualValues.xValues()));
+        assertTrue(Arrays.equals(expectedValues.hydrogenValues(), actualValues.hydrogenValues()));
+        assertTrue(Arrays.equals(expectedValues.sValues(), actualValues.sValues()));
+        assertTrue(Arrays.equals(expectedValues.uValues(), actualValues.uValues()));
+        assertTrue(Arrays.equals(expectedValues.yBits(), actualValues.yBits()));
+        for (int e = 0; e < NUM_ELECTROLYZERS; e++) {
+            for (int t = 0; t < NUM_PERIODS; t++) {
+                assertTrue(Arrays.equals(expected.getYSWOResiduals(iteration, e, t), actual.getYSWOResiduals(iteration, e, t)));
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * IterationWindow and the windowed iteration maps of the ADMMDataModel, in particular the RTO,
+ * which counts its iterations from 0 again in every start period.
+ */
+public class IterationWindowTest extends TestCase {
+
+    private static final int NUM_ELECTROLYZERS = 2;
+    private static final int NUM_PERIODS = 4;
+    private static final int RTO_ITERATIONS = 8; // more than the window in every start period
+
+    private ADMMDataModel dataModel;
+    private RecordingSink sink;
+    private final List<Integer> retired = new ArrayList<>();
+    private Map<Integer, double[]> values;
+
+    public IterationWindowTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(IterationWindowTest.class);
+    }
+
+    @Override
+    protected void setUp() {
+        System.setProperty(ADMMSettings.ITERATION_WINDOW, "3");
+        Set<Electrolyzer> electrolyzers = new LinkedHashSet<>();
+        for (int id = 1; id <= NUM_ELECTROLYZERS; id++) {
+            electrolyzers.add(new Electrolyzer(id, 1.0, 0.2, 1.0, 18.0, 0.0, 1, 0.0, 0.0));
+        }
+        Set<Period> periods = new LinkedHashSet<>();
+        for (int t = 1; t <= NUM_PERIODS; t++) {
+            periods.add(new Period(t));
+        }
+        dataModel = new ADMMDataModel();
+        dataModel.setParameters(new Parameters(null, null, null, null, null, null, null, null, null, null,
+                0.25, null, 0.0, null, null, electrolyzers, periods, NUM_ELECTROLYZERS, null, null));
+        sink = new RecordingSink();
+        dataModel.setHistorySink(sink);
+        dataModel.initializeIterationWindow(ADMMSettings.getIterationWindow(), NUM_PERIODS);
+    }
+
+    @Override
+    protected void tearDown() {
+        System.clearProperty(ADMMSettings.ITERATION_WINDOW);
+    }
+
+    public void testRetiresOldestFirst() {
+        IterationWindow window = new IterationWindow(3, this::retire);
+        values = window.newMap(() -> new double[1]);
+        for (int iteration = 0; iteration < 6; iteration++) {
+            values.get(iteration)[0] = iteration;
+        }
+        assertEquals(Arrays.asList(0, 1, 2), retired);
+        assertNull(values.get(0));
+        assertEquals(5.0, values.get(5)[0], 0.0);
+        try {
+            values.put(1, new double[1]);
+            fail("put into a retired iteration");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    public void testRestartRetiresAndStartsOver() {
+        IterationWindow window = new IterationWindow(3, this::retire);
+        values = window.newMap(() -> new double[1]);
+        for (int iteration = 0; iteration < 5; iteration++) {
+            values.get(iteration)[0] = 1.0;
+        }
+        window.restart();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), retired);
+        assertEquals(0, window.getOldestIteration());
+        assertEquals(-1, window.getNewestIteration());
+        assertEquals(0.0, values.get(0)[0], 0.0);
+    }
+
+    /**
+     * Two RTO start periods after an SWO that ran past the window: every RTO iteration is in
+     * memory when the RTO uses it, and the history gets all of them in order.
+     */
+    public void testTwoRTOStartPeriods() {
+        for (int iteration = 0; iteration < 10; iteration++) {
+            dataModel.saveXSWOValueForPeriod(iteration, 0, 0, 0.5);
+            dataModel.saveYResiduals(iteration, 0, 0, new double[]{1.0, 2.0, 3.0});
+        }
+        assertFalse(dataModel.isSWOIterationInMemory(0));
+
+        for (int startPeriod = 1; startPeriod <= 2; startPeriod++) {
+            if (startPeriod > 1) {
+                dataModel.startRTOPeriod();
+            }
+            for (int iteration = 0; iteration < RTO_ITERATIONS; iteration++) {
+                // x-update reads s of the current iteration, writes x of the next one
+                assertNotNull("start period " + startPeriod + ", iteration " + iteration,
+                        dataModel.getSRTOValuesForAgent(iteration, 0));
+                for (int e = 0; e < NUM_ELECTROLYZERS; e++) {
+                    dataModel.saveXRTOValueForPeriod(iteration + 1, e, 0, startPeriod * 100 + iteration);
+                    dataModel.saveSRTOValueForPeriod(iteration + 1, e, 0, 0, startPeriod);
+                    // dual exchange writes the residuals under the RTO iteration
+                    dataModel.saveRTOResiduals(iteration, e, 0, new double[]{startPeriod, iteration, 0.0});
+                }
+                assertEquals((double) iteration, dataModel.getRTOResidual(iteration, 1, 0, 1), 0.0);
+                assertEquals(startPeriod * 100.0 + iteration, dataModel.getXRTOValueForAgentPeriod(iteration + 1, 0, 0), 0.0);
+            }
+        }
+        assertEquals(RTO_ITERATIONS + 1, dataModel.getRTOSequenceStart());
+
+        // SWO residuals were not touched by the RTO
+        assertEquals(1.0, dataModel.getYSWOResidual(9, 0, 0, 0), 0.0);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int sequence = 0; sequence < RTO_ITERATIONS + 1 + RTO_ITERATIONS - 2; sequence++) {
+            expected.add(sequence);
+        }
+        assertEquals(expected, sink.rtoIterations);
+        // first start period, x of iteration 4 under slot 5
+        assertEquals(104.0, sink.rtoValues.get(5).getX(0, 0), 0.0);
+        // second start period, slot 5 follows the RTO_ITERATIONS + 1 slots of the first one
+        assertEquals(204.0, sink.rtoValues.get(RTO_ITERATIONS + 1 + 5).getX(0, 0), 0.0);
+
+        dataModel.closeHistorySink();
+        assertEquals(2 * (RTO_ITERATIONS + 1), sink.rtoIterations.size());
+        assertEquals(207.0, sink.rtoValues.get(2 * (RTO_ITERATIONS + 1) - 1).getX(1, 0), 0.0);
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private void retire(int iteration) {
+        retired.add(iteration);
+        values.remove(iteration);
+    }
+
+    /** Keeps everything it gets. */
+    private static final class RecordingSink implements IterationHistorySink {
+        final List<Integer> rtoIterations = new ArrayList<>();
+        final List<IterateBlock> rtoValues = new ArrayList<>();
+
+        @Override
+        public void appendSWO(int iteration, IterateBlock values, ResidualBlock residuals) {
+        }
+
+        @Override
+        public void appendRTO(int iteration, IterateBlock values, ResidualBlock residuals) {
+            rtoIterations.add(iteration);
+            rtoValues.add(values);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package models;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Write, close, openExisting and read back of the memory-mapped history, with segments of a few
+ * records so that the files span several segments.
+ */
+public class MappedIterationHistoryTest extends TestCase {
+
+    private static final int NUM_ELECTROLYZERS = 3;
+    private static final int NUM_PERIODS = 5;
+    private static final int RTO_STEPS = 4;
+    private static final long SEGMENT_BYTES = 4096;
+    private static final int NUM_ITERATIONS = 40;
+
+    private Path baseDirectory;
+
+    public MappedIterationHistoryTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(MappedIterationHistoryTest.class);
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        baseDirectory = Files.createTempDirectory("history");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        System.clearProperty(ADMMSettings.ITERATION_WINDOW);
+        try (Stream<Path> paths = Files.walk(baseDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    public void testRoundTripOverSeveralSegments() throws IOException {
+        MappedIterationHistory history = new MappedIterationHistory(baseDirectory, "agent1", SEGMENT_BYTES);
+        history.open(NUM_ELECTROLYZERS, NUM_PERIODS, RTO_STEPS, NUM_PERIODS);
+        List<Integer> expected = new ArrayList<>();
+        for (int iteration = 0; iteration < NUM_ITERATIONS; iteration++) {
+            if (iteration % 7 == 3) {
+                continue; // Lücken bleiben Lücken
+            }
+            expected.add(iteration);
+            history.appendSWO(iteration, swoValues(iteration), residuals(iteration, NUM_PERIODS));
+            history.appendRTO(iteration, rtoValues(iteration), residuals(-iteration, RTO_STEPS));
+        }
+        // Nur Residuals, ohne Werte
+        history.appendSWO(NUM_ITERATIONS, null, residuals(NUM_ITERATIONS, NUM_PERIODS));
+        history.close();
+
+        Path agentDirectory = baseDirectory.resolve("agent1");
+        assertTrue(Files.size(agentDirectory.resolve("swo.hist")) > 2 * SEGMENT_BYTES);
+
+        for (long segmentBytes : new long[]{SEGMENT_BYTES, 1000, 64L << 20}) {
+            MappedIterationHistory reread = MappedIterationHistory.openExisting(agentDirectory, segmentBytes);
+            try {
+                assertEquals(expected, reread.getSWOIterations());
+                assertEquals(expected, reread.getRTOIterations());
+                for (int iteration : expected) {
+                    assertSWOValues(iteration, reread.readSWO(iteration));
+                    assertResiduals(iteration, NUM_PERIODS, reread.readResiduals(iteration));
+                    assertRTOValues(iteration, reread.readRTO(iteration));
+                    assertResiduals(-iteration, RTO_STEPS, reread.readRTOResiduals(iteration));
+
+                    assertEquals(x(iteration, 2, 4), reread.getXSWO(iteration, 2, 4), 0.0);
+                    assertEquals(s(iteration, 1, 3, 1), reread.getSSWO(iteration, 1, 3, 1), 0.0);
+                    assertEquals(u(iteration, 2, 0, 2), reread.getUSWO(iteration, 2, 0, 2), 0.0);
+                    assertEquals(stateBits(iteration, 1, 2), reread.getStateBitsSWO(iteration, 1, 2));
+                    assertEquals(residual(iteration, 0, 4, 2), reread.getResidual(iteration, 0, 4, 2), 0.0);
+                    assertEquals(-x(iteration, 1, 3), reread.getXRTO(iteration, 1, 3), 0.0);
+                    assertEquals(residual(-iteration, 2, 3, 1), reread.getRTOResidual(iteration, 2, 3, 1), 0.0);
+                }
+                assertNull(reread.readSWO(3));
+                assertNull(reread.readRTO(NUM_ITERATIONS + 100));
+                assertNull(reread.readSWO(NUM_ITERATIONS));
+                assertResiduals(NUM_ITERATIONS, NUM_PERIODS, reread.readResiduals(NUM_ITERATIONS));
+            } finally {
+                reread.close();
+            }
+        }
+    }
+
+    public void testOpenExistingRejectsOtherFiles() throws IOException {
+        Path agentDirectory = Files.createDirectories(baseDirectory.resolve("agent2"));
+        Files.write(agentDirectory.resolve("swo.hist"), new byte[100]);
+        Files.write(agentDirectory.resolve("rto.hist"), new byte[100]);
+        try {
+            MappedIterationHistory.openExisting(agentDirectory);
+            fail("no history header");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * The RTO restarts its iterations in every start period; through the data model the history
+     * keeps the iterations of all start periods under their RTO sequence numbers.
+     */
+    public void testRTOStartPeriodsDoNotOverwrite() throws IOException {
+        System.setProperty(ADMMSettings.ITERATION_WINDOW, "3");
+        ADMMDataModel dataModel = newDataModel();
+        dataModel.setHistorySink(new MappedIterationHistory(baseDirectory, "agent3", SEGMENT_BYTES));
+        dataModel.initializeIterationWindow(ADMMSettings.getIterationWindow(), NUM_PERIODS);
+        int iterations = 6;
+        for (int startPeriod = 1; startPeriod <= 3; startPeriod++) {
+            if (startPeriod > 1) {
+                dataModel.startRTOPeriod();
+            }
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                assertNotNull(dataModel.getSRTOValuesForAgent(iteration, 0));
+                dataModel.saveXRTOValueForPeriod(iteration + 1, 0, 0, startPeriod * 100 + iteration);
+                dataModel.saveRTOResiduals(iteration, 0, 0, new double[]{startPeriod, iteration, 0.0});
+            }
+        }
+        // Ältere Startperioden aus der History, die aktuelle aus dem Speicher
+        List<Integer> sequences = dataModel.rtoIterations();
+        assertEquals(3 * (iterations + 1), sequences.size());
+        for (int startPeriod = 1; startPeriod <= 3; startPeriod++) {
+            int sequenceStart = (startPeriod - 1) * (iterations + 1);
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                assertEquals(startPeriod * 100.0 + iteration, dataModel.rtoValuesOrHistory(sequenceStart + iteration + 1).getX(0, 0), 0.0);
+                assertEquals((double) startPeriod, dataModel.rtoResidualsOrHistory(sequenceStart + iteration).get(0, 0, 0), 0.0);
+            }
+        }
+        dataModel.closeHistorySink();
+
+        MappedIterationHistory reread = MappedIterationHistory.openExisting(baseDirectory.resolve("agent3"));
+        try {
+            assertEquals(sequences, reread.getRTOIterations());
+            assertEquals(205.0, reread.getXRTO(iterations + 1 + 6, 0, 0), 0.0);
+            assertEquals(3.0, reread.getRTOResidual(2 * (iterations + 1), 0, 0, 0), 0.0);
+        } finally {
+            reread.close();
+        }
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private static ADMMDataModel newDataModel() {
+        Set<Electrolyzer> electrolyzers = new LinkedHashSet<>();
+        for (int id = 1; id <= NUM_ELECTROLYZERS; id++) {
+            electrolyzers.add(new Electrolyzer(id, 1.0, 0.2, 1.0, 18.0, 0.0, 1, 0.0, 0.0));
+        }
+        Set<Period> periods = new LinkedHashSet<>();
+        for (int t = 1; t <= NUM_PERIODS; t++) {
+            periods.add(new Period(t));
+        }
+        ADMMDataModel dataModel = new ADMMDataModel();
+        dataModel.setParameters(new Parameters(null, null, null, null, null, null, null, null, null, null,
+                0.25, null, 0.0, null, null, electrolyzers, periods, NUM_ELECTROLYZERS, null, null));
+        return dataModel;
+    }
+
+    private static double x(int iteration, int e, int t) {
+        return iteration + 0.01 * e + 0.001 * t;
+    }
+
+    private static double s(int iteration, int e, int t, int k) {
+        return -iteration - 0.1 * k - 0.01 * e - 0.001 * t;
+    }
+
+    private static double u(int iteration, int e, int t, int k) {
+        return 1000.0 * iteration + 100.0 * k + 10.0 * e + t;
+    }
+
+    private static int stateBits(int iteration, int e, int t) {
+        return 1 << ((iteration + e + t) % IterateBlock.STATES);
+    }
+
+    private static double residual(int iteration, int e, int t, int k) {
+        return 0.5 * iteration + 0.25 * k + 0.125 * e + 0.0625 * t;
+    }
+
+    private static IterateBlock swoValues(int iteration) {
+        IterateBlock values = IterateBlock.forSWO(NUM_ELECTROLYZERS, NUM_PERIODS);
+        for (int e = 0; e < NUM_ELECTROLYZERS; e++) {
+            for (int t = 0; t < NUM_PERIODS; t++) {
+                values.setX(e, t, x(iteration, e, t));
+                values.setHydrogen(e, t, 2.0 * x(iteration, e, t));
+                values.setStateBits(e, t, stateBits(iteration, e, t));
+                for (int k = 0; k < IterateBlock.S_COMPONENTS; k++) {
+                    values.setS(e, t, k, s(iteration, e, t, k));
+                }
+                for (int k = 0; k < values.getUComponents(); k++) {
+                    values.setU(e, t, k, u(iteration, e, t, k));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static IterateBlock rtoValues(int iteration) {
+        IterateBlock values = IterateBlock.forRTO(NUM_ELECTROLYZERS, RTO_STEPS);
+        for (int e = 0; e < NUM_ELECTROLYZERS; e++) {
+            for (int t = 0; t < RTO_STEPS; t++) {
+                values.setX(e, t, -x(iteration, e, t));
+                for (int k = 0; k < values.getUComponents(); k++) {
+                    values.setU(e, t, k, -u(iteration, e, t, k));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static ResidualBlock residuals(int iteration, int periods) {
+        ResidualBlock residuals = new ResidualBlock(NUM_ELECTROLYZERS, periods);
+        for (int e = 0; e < NUM_ELECTROLYZERS; e++) {
+            for (int t = 0; t < periods; t++) {
+                residuals.set(e, t, new double[]{residual(iteration, e, t, 0), residual(iteration, e, t, 1), residual(iteration, e, t, 2)});
+            }
+        }
+        return residuals;
+    }
+
+    private static void assertSWOValues(int iteration, IterateBlock values) {
+        assertNotNull("SWO " + iteration, values);
+        IterateBlock expected = swoValues(iteration);
+        assertTrue(Arrays.equals(expected.xValues(), values.xValues()));
+        assertTrue(Arrays.equals(expected.hydrogenValues(), values.hydrogenValues()));
+        assertTrue(Arrays.equals(expected.sValues(), values.sValues()));
+        assertTrue(Arrays.equals(expected.uValues(), values.uValues()));
+        assertTrue(Arrays.equals(expected.yBits(), values.yBits()));
+    }
+
+    private static void assertRTOValues(int iteration, IterateBlock values) {
+        assertNotNull("RTO " + iteration, values);
+        IterateBlock expected = rtoValues(iteration);
+        assertTrue(Arrays.equals(expected.xValues(), values.xValues()));
+        assertTrue(Arrays.equals(expected.uValues(), values.uValues()));
+    }
+
+    private static void assertResiduals(int iteration, int periods, ResidualBlock residuals) {
+        assertNotNull("residuals " + iteration, residuals);
+        assertTrue(Arrays.equals(residuals(iteration, periods).values(), residuals.values()));
+    }
+}
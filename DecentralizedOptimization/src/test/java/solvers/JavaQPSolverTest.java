@@ -0,0 +1,286 @@
+package solvers;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.gurobi.gurobi.GRB;
+import com.gurobi.gurobi.GRBEnv;
+import com.gurobi.gurobi.GRBException;
+import behaviours.SWO_XUpdateModel;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import models.Electrolyzer;
+import models.Parameters;
+import models.Period;
+import models.SWOValueReader;
+import models.State;
+
+/**
+ * Solves small SWO_XUpdateModel instances with the JavaQPSolver and compares objective and x with
+ * a reference solution and, if a Gurobi environment can be started, with the Gurobi backend.
+ *
+ * The X-update separates per period: x of the electrolyzers of one period only interact through
+ * the demand deviation |sum(production * x) - demand|. The reference minimizes the objective of
+ * every period by nested golden-section searches over x in [0, 1] (2 electrolyzers).
+ */
+public class JavaQPSolverTest extends TestCase {
+
+    private static final int NUM_PERIODS = 3;
+    private static final double RHO = 1.0;
+    private static final double SCALING_FACTOR = 999.0; // as in SWO_XUpdateModel
+    private static final double INTERVAL_LENGTH = 0.25;
+    private static final double DEMAND_DEVIATION_COST = 30.0;
+    private static final double X_TOLERANCE = 1e-3;
+
+    private Parameters params;
+    private Set<Electrolyzer> electrolyzers;
+    private Set<Period> periods;
+    private Electrolyzer[] sortedElectrolyzers;
+    private Values values;
+
+    public JavaQPSolverTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(JavaQPSolverTest.class);
+    }
+
+    @Override
+    protected void setUp() {
+        sortedElectrolyzers = new Electrolyzer[]{
+            new Electrolyzer(1, 2.0, 0.2, 1.0, 18.0, 0.0, 1, 0.0, 0.0),
+            new Electrolyzer(2, 1.5, 0.1, 0.9, 20.0, 0.0, 1, 0.0, 0.0)
+        };
+        electrolyzers = new LinkedHashSet<>();
+        Map<Electrolyzer, Double> power = new HashMap<>();
+        Map<Electrolyzer, Double> minOperation = new HashMap<>();
+        Map<Electrolyzer, Double> maxOperation = new HashMap<>();
+        Map<Electrolyzer, Double> slope = new HashMap<>();
+        for (Electrolyzer electrolyzer : sortedElectrolyzers) {
+            electrolyzers.add(electrolyzer);
+            power.put(electrolyzer, electrolyzer.getPowerElectrolyzer());
+            minOperation.put(electrolyzer, electrolyzer.getMinOperation());
+            maxOperation.put(electrolyzer, electrolyzer.getMaxOperation());
+            slope.put(electrolyzer, electrolyzer.getSlope());
+        }
+        periods = new LinkedHashSet<>();
+        Map<Period, Double> electricityCost = new HashMap<>();
+        Map<Period, Double> demand = new HashMap<>();
+        Map<Period, Double> renewable = new HashMap<>();
+        double[] prices = {40.0, 12.0, 75.0};
+        double[] demands = {9.0, 14.0, 4.0};
+        for (int t = 1; t <= NUM_PERIODS; t++) {
+            Period period = new Period(t);
+            periods.add(period);
+            electricityCost.put(period, prices[t - 1]);
+            demand.put(period, demands[t - 1]);
+            renewable.put(period, 0.5 * t);
+        }
+        params = new Parameters(null, null, power, electricityCost, minOperation, maxOperation, demand, slope, null,
+                renewable, INTERVAL_LENGTH, null, DEMAND_DEVIATION_COST, null, null, electrolyzers, periods,
+                sortedElectrolyzers.length, null, null);
+
+        // y: electrolyzer 1 produces in all periods, electrolyzer 2 only in period 2
+        values = new Values(sortedElectrolyzers.length, NUM_PERIODS);
+        for (int t = 0; t < NUM_PERIODS; t++) {
+            values.y[0][t][State.PRODUCTION.ordinal()] = true;
+            values.y[1][t][t == 1 ? State.PRODUCTION.ordinal() : State.IDLE.ordinal()] = true;
+            values.s[0][t][0] = 0.3 + 0.1 * t;
+            values.u[0][t][0] = 0.05;
+            values.s[0][t][1] = 0.2;
+            values.u[0][t][1] = -0.1;
+            values.s[1][t][0] = 0.25;
+            values.u[1][t][0] = 0.1 * t;
+            values.s[1][t][1] = 0.6;
+            values.u[1][t][1] = 0.05;
+        }
+    }
+
+    public void testJavaBackendMatchesReference() throws SolverException {
+        SWO_XUpdateModel model = solve(SubproblemSolverFactory.BACKEND_JAVA, null, 1);
+        try {
+            assertMatchesReference(model, 1);
+        } finally {
+            model.dispose();
+        }
+    }
+
+    /**
+     * Periods before the start period get the right-hand side -INFINITY and leave the objective;
+     * the same model is first solved with all periods, then updated in place.
+     */
+    public void testReleasedPastPeriods() throws SolverException {
+        SWO_XUpdateModel model = new SWO_XUpdateModel(null, params, electrolyzers, periods, RHO, SubproblemSolverFactory.BACKEND_JAVA);
+        try {
+            model.build();
+            model.update(values, 1, 1);
+            assertTrue(model.solve());
+            assertMatchesReference(model, 1);
+
+            model.update(values, 1, 2);
+            assertTrue(model.solve());
+            assertMatchesReference(model, 2);
+
+            model.update(values, 1, 3);
+            assertTrue(model.solve());
+            assertMatchesReference(model, 3);
+        } finally {
+            model.dispose();
+        }
+    }
+
+    /** Compares both backends; skipped if no Gurobi environment (library, license) is available. */
+    public void testJavaBackendMatchesGurobi() throws SolverException {
+        GRBEnv env;
+        try {
+            env = new GRBEnv(true);
+            env.set(GRB.IntParam.OutputFlag, 0);
+            env.start();
+        } catch (GRBException | LinkageError e) {
+            System.out.println("JavaQPSolverTest: no Gurobi environment, comparison skipped (" + e.getMessage() + ")");
+            return;
+        }
+        try {
+            for (int startPeriod = 1; startPeriod <= 2; startPeriod++) {
+                SWO_XUpdateModel java = solve(SubproblemSolverFactory.BACKEND_JAVA, null, startPeriod);
+                SWO_XUpdateModel gurobi = solve(SubproblemSolverFactory.BACKEND_GUROBI, env, startPeriod);
+                try {
+                    double objective = gurobi.getObjectiveValue();
+                    assertEquals(objective, java.getObjectiveValue(), 1e-4 * (1.0 + Math.abs(objective)));
+                    for (int e = 0; e < sortedElectrolyzers.length; e++) {
+                        for (int t = startPeriod - 1; t < NUM_PERIODS; t++) {
+                            assertEquals("x " + e + "/" + t, gurobi.getXValue(e, t), java.getXValue(e, t), X_TOLERANCE);
+                        }
+                    }
+                } finally {
+                    java.dispose();
+                    gurobi.dispose();
+                }
+            }
+        } finally {
+            try {
+                env.dispose();
+            } catch (GRBException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // ============================================================================
+    // HELPERS
+    // ============================================================================
+
+    private SWO_XUpdateModel solve(String backend, GRBEnv env, int startPeriod) throws SolverException {
+        SWO_XUpdateModel model = new SWO_XUpdateModel(env, params, electrolyzers, periods, RHO, backend);
+        model.build();
+        model.update(values, 1, startPeriod);
+        assertTrue(backend + " did not solve", model.solve());
+        return model;
+    }
+
+    private void assertMatchesReference(SWO_XUpdateModel model, int startPeriod) throws SolverException {
+        double objective = 0.0;
+        for (int t = startPeriod - 1; t < NUM_PERIODS; t++) {
+            double[] x = referenceSolution(t);
+            objective += periodObjective(t, x[0], x[1]);
+            for (int e = 0; e < sortedElectrolyzers.length; e++) {
+                assertEquals("start " + startPeriod + ", x " + e + "/" + t, x[e], model.getXValue(e, t), X_TOLERANCE);
+            }
+        }
+        assertEquals("start " + startPeriod, objective, model.getObjectiveValue(), 1e-4 * (1.0 + Math.abs(objective)));
+    }
+
+    private double[] referenceSolution(int t) {
+        double x0 = goldenSection(a -> periodObjective(t, a, goldenSection(b -> periodObjective(t, a, b))));
+        return new double[]{x0, goldenSection(b -> periodObjective(t, x0, b))};
+    }
+
+    /** Objective of SWO_XUpdateModel for period index t with the residuals and deviations at their optimum. */
+    private double periodObjective(int t, double x0, double x1) {
+        Period period = new Period(t + 1);
+        double objective = -params.renewableEnergyForecast.get(period);
+        double production = 0.0;
+        double[] x = {x0, x1};
+        for (int e = 0; e < sortedElectrolyzers.length; e++) {
+            Electrolyzer electrolyzer = sortedElectrolyzers[e];
+            double yProduction = values.y[e][t][State.PRODUCTION.ordinal()] ? 1.0 : 0.0;
+            double lower = electrolyzer.getMinOperation() * yProduction + values.s[e][t][0] + values.u[e][t][0];
+            double upper = values.s[e][t][1] + values.u[e][t][1];
+            double residual1 = Math.max(0.0, lower - x[e]);
+            double residual2 = Math.max(0.0, upper - electrolyzer.getMaxOperation() * yProduction * x[e]);
+            objective += params.electricityCost.get(period) * electrolyzer.getPowerElectrolyzer() * INTERVAL_LENGTH * x[e];
+            objective += RHO * SCALING_FACTOR * (residual1 * residual1 + residual2 * residual2);
+            production += electrolyzer.getPowerElectrolyzer() * electrolyzer.getSlope() * INTERVAL_LENGTH * x[e];
+        }
+        return objective + DEMAND_DEVIATION_COST * Math.abs(production - params.demand.get(period));
+    }
+
+    /** @return minimizer of a convex function on [0, 1] */
+    private static double goldenSection(java.util.function.DoubleUnaryOperator f) {
+        double ratio = (Math.sqrt(5.0) - 1.0) / 2.0;
+        double a = 0.0;
+        double b = 1.0;
+        double c = b - ratio * (b - a);
+        double d = a + ratio * (b - a);
+        double fc = f.applyAsDouble(c);
+        double fd = f.applyAsDouble(d);
+        for (int i = 0; i < 80; i++) {
+            if (fc <= fd) {
+                b = d;
+                d = c;
+                fd = fc;
+                c = b - ratio * (b - a);
+                fc = f.applyAsDouble(c);
+            } else {
+                a = c;
+                c = d;
+                fc = fd;
+                d = a + ratio * (b - a);
+                fd = f.applyAsDouble(d);
+            }
+        }
+        double x = (a + b) / 2.0;
+        // Randwerte, falls das Minimum auf dem Rand liegt
+        if (f.applyAsDouble(0.0) <= f.applyAsDouble(x)) {
+            return 0.0;
+        }
+        return f.applyAsDouble(1.0) <= f.applyAsDouble(x) ? 1.0 : x;
+    }
+
+    /** y, s and u of the data model for one iteration, indexed [electrolyzer][period index]. */
+    private static final class Values implements SWOValueReader {
+        final boolean[][][] y;
+        final double[][][] s;
+        final double[][][] u;
+
+        Values(int numElectrolyzers, int numPeriods) {
+            y = new boolean[numElectrolyzers][numPeriods][State.values().length];
+            s = new double[numElectrolyzers][numPeriods][2];
+            u = new double[numElectrolyzers][numPeriods][3];
+        }
+
+        @Override
+        public double[] getXSWOValuesForAgent(int iteration, int agentIndex) {
+            return new double[y[agentIndex].length];
+        }
+
+        @Override
+        public boolean[][] getYSWOValuesForAgent(int iteration, int agentIndex) {
+            return y[agentIndex];
+        }
+
+        @Override
+        public double[][] getSSWOValuesForAgent(int iteration, int agentIndex) {
+            return s[agentIndex];
+        }
+
+        @Override
+        public double[][] getUSWOValuesForAgent(int iteration, int agentIndex) {
+            return u[agentIndex];
+        }
+    }
+}